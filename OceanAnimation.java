@@ -1,9 +1,30 @@
-import org.lwjgl.opengl.GL11;
+import java.io.IOException;
+import java.nio.file.Paths;
 import org.lwjgl.util.glu.GLU;
 import org.lwjgl.util.glu.Sphere;
 import org.lwjgl.input.Keyboard;
-import org.newdawn.slick.opengl.Texture;
 import GraphicsLab.*;
+import ocean.BubbleSystem;
+import ocean.CachedTextureLoader;
+import ocean.FrameGovernor;
+import ocean.FramePhase;
+import ocean.FrameProfiler;
+import ocean.GlowLights;
+import ocean.InputRecorder;
+import ocean.InterpolatedState;
+import ocean.LevelOfDetail;
+import ocean.LwjglRenderDevice;
+import ocean.MetricsDumper;
+import ocean.OceanSceneRenderer;
+import ocean.OceanState;
+import ocean.OceanWorld;
+import ocean.PropField;
+import ocean.SceneAssets;
+import ocean.SceneBundle;
+import ocean.SceneInput;
+import ocean.SimulationThread;
+import ocean.TextureImage;
+import ocean.TickSnapshot;
 
 /**
  * Description: A night-time ocean scene.
@@ -15,6 +36,14 @@ import GraphicsLab.*;
  *    else if L is pressed, boatMovingWest is set to false and boats offset is decremented
  * Fish animation: timed by an animation delta, if fish X offset reaches a predetermined end position,
  *    it's moved back to the start.  Keeps looping infinitely until animations are reset by user
+ * Bubble animation: bubbles rise from the reef below the fish and burst at the surface,
+ *    stepped every frame alongside the world but not part of it
+ * Glow lights: run with -Docean.glowLights to scatter that many bioluminescent point lights
+ *    through the water, each boat and fish lit by the brightest six near it
+ * Startup: the meshes, materials and sky texture are mapped from the bundle ocean.BakeBundle writes
+ *    to cache/scene.obnd (or -Docean.bundle) when there is one, otherwise built and loaded as before
+ * Frame budget: run with -Docean.frameBudgetMs to have the update and render phases held under
+ *    that many milliseconds, by drawing fewer fish and bubbles in less detail and stepping bubbles less often
  *
  * Controls:
  * 
@@ -32,7 +61,7 @@ import GraphicsLab.*;
  *  |
  *  +-- [S(22, 1, 17) Rx(90) T(0, 0, -20)] Back plane
  *  |
- *  +-- [Rx(15) S(2, 1, 0.5) T(currentBoatX, boatPosY, -18)] Boat
+ *  +-- [Rx(15) S(2, 1, 0.5) Rx(boatRoll) Rz(boatPitch) T(currentBoatX, boatPosY, -18)] Boat
  *  |
  *  +-- [S(0.3, 0.3, 1) T(fishPosX, fishPosY, -8)] Fish
  *  |   |
@@ -46,53 +75,43 @@ import GraphicsLab.*;
 
 public class OceanAnimation extends GraphicsLab {
 	
-	/** Display list ID for the Unit Plane */
-	private final int planeList = 1;
-
-	/** Display list ID for the Fish */
-	private final int fishBodyList  = 2;
-	private final int fishTailList  = 3;
-	private final int fishEyeList  = 4;
-
-	/** Display list ID for the Boat */
-	private final int boatList = 5;
+	/** Draws the scene, through LWJGL in the window */
+	private OceanSceneRenderer sceneRenderer;
 	
 	/** Textures */
-	private Texture oceanSkyTextures;
+	private int oceanSkyTexture;
 	//private Texture shipTextures;
 	
-	/** Boat current x position */
-    private float currentBoatX = -10.0f;
-
-    /** Boat start x position */
-    private final float startBoatX = currentBoatX; 
-
-    /** Boat end x position */
-    private final float endBoatX  = 10.0f;
-
-    /** If the boat is moving west (right) */
-    private boolean boatMovingWest = true;
-
-    /** Boat current y position */
-    private float boatPosY = 0.0f;
+	/** Fish and boat state, stepped without any OpenGL calls, one fish unless run with -Docean.fishCount */
+    private final OceanWorld world = new OceanWorld(Integer.getInteger("ocean.fishCount", 1), 1);
     
-    /** Fish current x position */
-    private float fishPosX = -5f;
-
-    /** Fish start x position */
-    private float fishStartPosX = fishPosX;
-
-    /** Fish end x position */
-    private float fishEndPosX = 10f;
-
-    /** Fish current y position */
-    private float fishPosY = 0f;
-
-    /** Fish rotation tilt in y axis */
-    private float fishTilt = 0.0f;
+    /** Bubbles rising from the reef, 5000 unless run with -Docean.bubbleCount */
+    private final BubbleSystem bubbles = new BubbleSystem(Integer.getInteger("ocean.bubbleCount", 5000), 1L);
+    
+    /** Steps the world on its own thread when run with -Docean.simThread=true, otherwise null */
+    private SimulationThread simulation;
+    
+    /** The world between the simulation thread's last two ticks, as drawn */
+    private InterpolatedState interpolated;
+    
+    /** Times each phase of every frame, published over JMX */
+    private final FrameProfiler profiler = new FrameProfiler("animation");
+    
+    /** Dumps the frame timings to -Docean.metricsFile when set, otherwise null */
+    private MetricsDumper metricsDumper;
+    
+    /** Records every input to -Docean.recordInput when set, for ocean.InputReplay, otherwise null */
+    private InputRecorder inputRecorder;
     
-    /** Animation timer (for fish to loop) */
-    private float animationDelta = 0.0f;
+    /** Trades detail for frame time when -Docean.frameBudgetMs is set, otherwise null */
+    private FrameGovernor governor;
+    
+    /** When initScene() began, until the first frame is drawn, then zero */
+    private long startupNanos;
+    
+    /** Time this frame's update took, and frames since the bubbles were last stepped */
+    private long updateNanos;
+    private int bubbleFrames;
     
     public static void main(String args[]){
     	new OceanAnimation().run(WINDOWED,"Ocean Scene",0.01f);
@@ -100,271 +119,155 @@ public class OceanAnimation extends GraphicsLab {
 
     protected void initScene() throws Exception {
     	
-    	/** Load background texture */
-    	oceanSkyTextures = loadTexture("textures/ocean.bmp");
+    	/** Publish the frame timings */
+    	profiler.registerMBeans();
+    	metricsDumper = MetricsDumper.startFromProperties(profiler);
     	
-    	/** Set global ambient light levels */
-        float globalAmbient[]   = {0.2f,  0.2f,  0.2f, 1.0f};
-        GL11.glLightModel(GL11.GL_LIGHT_MODEL_AMBIENT,FloatBuffer.wrap(globalAmbient));
-        
-        /** Moonlight */
-        /** First light for the scene is nearly white */
-        float diffuse0[]  = { 0.8f,  0.8f, 0.8f, 1.0f};
-
-        /** Dim ambient contribution */
-        float ambient0[]  = { 0.1f,  0.1f, 0.1f, 1.0f};
-
-        /** Is position above and in front viewpoint */
-        float position0[] = { 0.0f, 10.0f, -10.0f, 1.0f};
-        
-        /** Supply OpenGL with first lights properties */
-        GL11.glLight(GL11.GL_LIGHT0, GL11.GL_AMBIENT, FloatBuffer.wrap(ambient0));
-        GL11.glLight(GL11.GL_LIGHT0, GL11.GL_DIFFUSE, FloatBuffer.wrap(diffuse0));
-        GL11.glLight(GL11.GL_LIGHT0, GL11.GL_SPECULAR, FloatBuffer.wrap(diffuse0));
-        GL11.glLight(GL11.GL_LIGHT0, GL11.GL_POSITION, FloatBuffer.wrap(position0));
-
-        /** Enable the first light */
-        GL11.glEnable(GL11.GL_LIGHT0);
-        
-        /** Coral reef light */
-        /** Second light for the scene is white */
-        float diffuse1[]  = { 0.1f,  0.1f, 0.1f, 1.0f};
-
-        /** Dim ambient contribution */
-        float ambient1[]  = { 0.2f,  0.2f, 0.2f, 1.0f};
-
-        /** Position below and behind the viewpoint */
-        float position1[] = { 0.0f, -10.0f, 10.0f, 1.0f};
-        
-        /** Supply OpenGL with the second lights properties */
-        GL11.glLight(GL11.GL_LIGHT1, GL11.GL_AMBIENT, FloatBuffer.wrap(ambient1));
-        GL11.glLight(GL11.GL_LIGHT1, GL11.GL_DIFFUSE, FloatBuffer.wrap(diffuse1));
-        GL11.glLight(GL11.GL_LIGHT1, GL11.GL_SPECULAR, FloatBuffer.wrap(diffuse1));
-        GL11.glLight(GL11.GL_LIGHT1, GL11.GL_POSITION, FloatBuffer.wrap(position1));
-
-        /** Enable the second light */
-        GL11.glEnable(GL11.GL_LIGHT1);
-
-        /** Enable lighting calculations */
-        GL11.glEnable(GL11.GL_LIGHTING);
-
-        /** Ensure that all normals are re-normalised after transformations automatically */
-        GL11.glEnable(GL11.GL_NORMALIZE);
-        
-        /** Prepare display list: back plane */
-        GL11.glNewList(planeList,GL11.GL_COMPILE);
-        drawUnitPlane();
-        GL11.glEndList();
-        
-        /** Prepare display list: fish body */
-        GL11.glNewList(fishBodyList, GL11.GL_COMPILE);
-        drawTriangle(1f);
-        GL11.glEndList();
-        
-        /** Prepare display list: fish tail */
-        GL11.glNewList(fishTailList, GL11.GL_COMPILE);
-        drawTriangle(0.5f);
-        GL11.glEndList();
-        
-        /** Prepare display list: fish eye */
-        GL11.glNewList(fishEyeList, GL11.GL_COMPILE);
-        drawTriangle(0.2f);
-        GL11.glEndList();
-        
-        /** Prepare display list: boat */
-        GL11.glNewList(boatList, GL11.GL_COMPILE);
-        drawBoat();
-        GL11.glEndList();
-                
+    	startupNanos = System.nanoTime();
+    	
+    	/** Map the baked meshes, materials and sky texture, if they have been baked by this version */
+    	SceneBundle bundle = SceneBundle.open(Paths.get(System.getProperty("ocean.bundle", "cache/scene.obnd")));
+    	TextureImage oceanSkyImage = bundle != null ? bundle.getTexture(SceneAssets.SKY_TEXTURE) : null;
+    	
+    	/** Otherwise load background texture, decoded on the first run and memory-mapped from the cache after */
+    	if(oceanSkyImage == null){
+    		long textureStart = System.nanoTime();
+    		CachedTextureLoader textureLoader = new CachedTextureLoader(Paths.get("cache", "textures"));
+    		oceanSkyImage = textureLoader.load(Paths.get("textures", "ocean.bmp"));
+    		System.out.printf("Sky texture %s in %.1f ms%n", textureLoader.wasLastLoadCached() ? "from cache" : "decoded",
+    				(System.nanoTime() - textureStart) / 1e6);
+    	}
+    	LwjglRenderDevice device = new LwjglRenderDevice();
+    	oceanSkyTexture = device.createTexture(oceanSkyImage);
+    	
+    	/** Set up the lights, materials and meshes */
+    	sceneRenderer = new OceanSceneRenderer(device);
+    	sceneRenderer.init(bundle);
+    	System.out.println(bundle != null ? "Scene mapped from bundle" : "Scene built, run ocean.BakeBundle to bake it");
+    	sceneRenderer.setBubbles(bubbles);
+    	int glowLightCount = Integer.getInteger("ocean.glowLights", 0);
+    	if(glowLightCount > 0){
+    		sceneRenderer.setGlowLights(new GlowLights(glowLightCount, 1L));
+    	}
+    	
+    	/** Textured props on the seabed, from one atlas unless -Docean.propAtlas=false */
+    	int propCount = Integer.getInteger("ocean.props", 0);
+    	if(propCount > 0){
+    		sceneRenderer.setProps(new PropField(propCount, 24, 1L),
+    				Boolean.parseBoolean(System.getProperty("ocean.propAtlas", "true")));
+    	}
+    	
+    	/** Hold the frame time under a budget */
+    	String frameBudget = System.getProperty("ocean.frameBudgetMs");
+    	if(frameBudget != null){
+    		governor = new FrameGovernor((long) (Double.parseDouble(frameBudget) * 1e6));
+    	}
+    	
+    	/** Record the session before the world's first step */
+    	String recordInput = System.getProperty("ocean.recordInput");
+    	if(recordInput != null){
+    		inputRecorder = new InputRecorder(Paths.get(recordInput), world, getAnimationScale());
+    	}
+    	
+    	/** Optionally run the simulation at a fixed tick rate on its own thread,
+    	    -Docean.tickRate sets the ticks per second */
+    	if(Boolean.getBoolean("ocean.simThread")){
+    		double ticksPerSecond = Double.parseDouble(System.getProperty("ocean.tickRate", "100"));
+    		simulation = new SimulationThread(world, getAnimationScale(), ticksPerSecond);
+    		interpolated = new InterpolatedState(world.getFishCount(), world.getBoatCount());
+    		simulation.setProfiler(profiler);
+    		simulation.setRecorder(inputRecorder);
+    		simulation.start();
+    	}
     }
             
     /** Method for input controls */
     protected void checkSceneInput(){
+    	profiler.end(FramePhase.SWAP);
+    	profiler.begin(FramePhase.INPUT);
 
     	/** If L key is pressed */
         if(Keyboard.isKeyDown(Keyboard.KEY_L)){
-        	boatMovingWest = false;
+        	applyInput(SceneInput.BOAT_LEFT);
         }
 
         /** Else if R is pressed */
         else if(Keyboard.isKeyDown(Keyboard.KEY_R)){   
-        	boatMovingWest = true;
+        	applyInput(SceneInput.BOAT_RIGHT);
         }
 
         /** Else if space is pressed */
         else if(Keyboard.isKeyDown(Keyboard.KEY_SPACE)){
         	resetAnimations();
         }
+
+        profiler.end(FramePhase.INPUT);
+    }
+    
+    /** Apply an input now, or on the next tick if the simulation has its own thread */
+    private void applyInput(SceneInput input){
+    	if(simulation != null){
+    		simulation.submit(input);
+    	}
+    	else{
+    		if(inputRecorder != null){
+    			inputRecorder.record(world.getTick(), input);
+    		}
+    		input.apply(world);
+    	}
     }
     
     protected void updateScene(){
-    	animationDelta += getAnimationScale();
+    	long updateStart = System.nanoTime();
     	
-    	/** Tilt the fish tale */
-    	fishTilt = (float) (Math.sin(animationDelta)/Math.PI) * 80;
-
-    	/** Control the fish Y position to mimic bobbing */
-    	fishPosY = (float) (Math.sin(animationDelta)/10) - 2;
-
-    	/** If fish has reached the end, move it back to start */
-    	if(fishPosX >= fishEndPosX) {
-    		fishPosX = fishStartPosX;
-
-        /** Otherwise update increment its X position */
-    	} else {
-    		fishPosX += 0.25f * getAnimationScale();
+    	/** The simulation thread steps the world itself */
+    	if(simulation == null){
+    		profiler.begin(FramePhase.UPDATE);
+    		world.step(getAnimationScale());
+    		profiler.end(FramePhase.UPDATE);
     	}
     	
-    	/** Boat Y position, to mimic bobbing */
-    	boatPosY = (float) (Math.sin(animationDelta/Math.PI)/10);
-    	
-    	/** If boat is moving west (right) and hasn't reached the farthest point on the right
-    	    then increment boat's X position */
-    	if(boatMovingWest && currentBoatX <= endBoatX) {
-    		currentBoatX += 0.5f * getAnimationScale();
-    		
-    	/** If boat is moving east (left) and hasn't reached the left point on the right
-           then decrement boat's X position */
-    	} else if (!boatMovingWest && currentBoatX >= startBoatX) {
-    		currentBoatX -= 0.5f * getAnimationScale();
+    	/** Bubbles are only for show, so they are stepped here even with a simulation thread,
+    	    and under a governor maybe only every few frames, each step covering them all */
+    	bubbleFrames++;
+    	if(governor == null || bubbleFrames >= governor.getTickInterval()){
+    		bubbles.step(getAnimationScale() * bubbleFrames);
+    		bubbleFrames = 0;
     	}
+    	
+    	updateNanos = System.nanoTime() - updateStart;
     }
     
     protected void renderScene(){
-    	/** Draw the back plane */
-    	GL11.glPushMatrix();
-        {
-        	/** Disable lighting calculations so that they don't affect
-        	    the appearance of the texture */
-            GL11.glPushAttrib(GL11.GL_LIGHTING_BIT);
-            GL11.glDisable(GL11.GL_LIGHTING);
-
-            /** Change the geometry colour to white so that the texture
-                is bright and details can be seen clearly */
-            Colour.WHITE.submit();
-
-            /** Enable texturing and bind an appropriate texture */
-            GL11.glEnable(GL11.GL_TEXTURE_2D);
-            GL11.glBindTexture(GL11.GL_TEXTURE_2D,oceanSkyTextures.getTextureID()); 
-            
-            /** Position, scale and draw the back plane using its display list */
-            GL11.glTranslatef(0.0f,0.0f,-20.0f);
-            GL11.glRotatef(90.0f, 1.0f, 0.0f, 0.0f);
-            GL11.glScalef(22f, 1.0f, 17.0f);
-            GL11.glCallList(planeList);
-            
-            /** Disable textures and reset any local lighting changes */
-            GL11.glDisable(GL11.GL_TEXTURE_2D);
-            GL11.glPopAttrib();
-        }
-
-        GL11.glPopMatrix();
-                
-        /** Draw boat */
-        GL11.glPushMatrix();
-        {
-        	/** How shiny are the front faces of the boat (specular exponent) */
-	        float boatFrontShininess  = 2.0f;
-
-	        /** Specular reflection of the front faces of the boat */
-	        float boatFrontSpecular[] = {0.6f, 0.6f, 0.6f, 1.0f};
-
-	        /** Diffuse reflection of the front faces of the boat */
-	        float boatFrontDiffuse[]  = {0.6f, 0.6f, 0.6f, 1.0f};
-	
-	        /** Set the material properties for the sun using OpenGL */
-	        GL11.glMaterialf(GL11.GL_FRONT, GL11.GL_SHININESS, boatFrontShininess);
-	        GL11.glMaterial(GL11.GL_FRONT, GL11.GL_SPECULAR, FloatBuffer.wrap(boatFrontSpecular));
-	        GL11.glMaterial(GL11.GL_FRONT, GL11.GL_DIFFUSE, FloatBuffer.wrap(boatFrontDiffuse));
-	
-	        /** Position and draw boat */
-	        GL11.glTranslatef(currentBoatX, boatPosY, -18f);
-	        GL11.glScalef(2.0f, 1.0f, 0.5f);
-	        GL11.glRotatef(15f, 1f, 0f, 0f);
-	        GL11.glCallList(boatList);
-        }
-
-        GL11.glPopMatrix();
-        
-        /** Draw fish */
-        GL11.glPushMatrix();
-        {
-        	/** How shiny are the front faces of the fish (specular exponent) */
-            float fishFrontShininess  = 2.0f;
-
-            /** Specular reflection of the front faces of the fish */
-            float fishFrontSpecular[] = {0.9f, 0.6f, 0.0f, 1.0f};
-
-            /** Diffuse reflection of the front faces of the fish */
-            float fishFrontDiffuse[]  = {0.9f, 0.6f, 0.0f, 1.0f};
-
-            /** Set the material properties for the sun using OpenGL */
-            GL11.glMaterialf(GL11.GL_FRONT, GL11.GL_SHININESS, fishFrontShininess);
-            GL11.glMaterial(GL11.GL_FRONT, GL11.GL_SPECULAR, FloatBuffer.wrap(fishFrontSpecular));
-            GL11.glMaterial(GL11.GL_FRONT, GL11.GL_DIFFUSE, FloatBuffer.wrap(fishFrontDiffuse));
-
-            /** Position and draw fish body, use fishPosX and fishPosY to create animation */
-            GL11.glTranslatef(fishPosX, fishPosY, -8f);
-            GL11.glScalef(0.3f, 0.3f, 1f);
-            GL11.glCallList(fishBodyList);
-            
-            /** Position and draw fish tail */
-            GL11.glPushMatrix();
-            {
-	            /** Use fishTilt variable to create animation */
-	            GL11.glRotatef(fishTilt, 0f, 1f, 0f);
-	            GL11.glTranslatef(-1f, 0f, 0f);
-	            GL11.glCallList(fishTailList);
-            }
-
-            GL11.glPopMatrix();
-            
-            /** Position and draw fish left eye */
-            GL11.glPushMatrix();
-            {
-	            /** How shiny are the front faces of the fish (specular exponent) */
-	            float fishEyeFrontShininess  = 2.0f;
-	            /** Specular reflection of the front faces of the fish */
-	            float fishEyeFrontSpecular[] = {1f, 1f, 1f, 1.0f};
-	            /** Diffuse reflection of the front faces of the fish */
-	            float fishEyeFrontDiffuse[]  = {1f, 1f, 1f, 1.0f};
-	
-	            /** Set the material properties for the sun using OpenGL */
-	            GL11.glMaterialf(GL11.GL_FRONT, GL11.GL_SHININESS, fishEyeFrontShininess);
-	            GL11.glMaterial(GL11.GL_FRONT, GL11.GL_SPECULAR, FloatBuffer.wrap(fishEyeFrontSpecular));
-	            GL11.glMaterial(GL11.GL_FRONT, GL11.GL_DIFFUSE, FloatBuffer.wrap(fishEyeFrontDiffuse));
-	            
-	            GL11.glTranslatef(1.15f, 0.25f, 0.2f);
-	            GL11.glCallList(fishEyeList);
-            }
-            GL11.glPopMatrix();
-            
-            /** Position and draw fish right eye */
-            GL11.glPushMatrix();
-            {
-	            /** How shiny are the front faces of the fish (specular exponent) */
-	            float fishEyeFrontShininess  = 2.0f;
-
-	            /** Specular reflection of the front faces of the fish */
-	            float fishEyeFrontSpecular[] = {1f, 1f, 1f, 1.0f};
-
-	            /** Diffuse reflection of the front faces of the fish */
-	            float fishEyeFrontDiffuse[]  = {1f, 1f, 1f, 1.0f};
-	
-	            /** Set the material properties for the sun using OpenGL */
-	            GL11.glMaterialf(GL11.GL_FRONT, GL11.GL_SHININESS, fishEyeFrontShininess);
-	            GL11.glMaterial(GL11.GL_FRONT, GL11.GL_SPECULAR, FloatBuffer.wrap(fishEyeFrontSpecular));
-	            GL11.glMaterial(GL11.GL_FRONT, GL11.GL_DIFFUSE, FloatBuffer.wrap(fishEyeFrontDiffuse));
-	            
-	            GL11.glTranslatef(1.15f, 0.25f, -0.2f);
-	            GL11.glCallList(fishEyeList);
-            }
-
-            GL11.glPopMatrix();
-        }
-
-        GL11.glPopMatrix();
-        
+    	long renderStart = System.nanoTime();
+    	profiler.begin(FramePhase.RENDER);
+    	
+    	OceanState state = world;
+    	
+    	/** Draw between the last two ticks, however far the simulation thread has got */
+    	if(simulation != null){
+    		TickSnapshot snapshot = simulation.acquireSnapshot();
+    		interpolated.interpolate(snapshot, simulation.getAlpha(snapshot, System.nanoTime()));
+    		state = interpolated;
+    	}
+    	
+    	sceneRenderer.render(state, oceanSkyTexture);
+    	if(startupNanos != 0){
+    		System.out.printf("First frame %.1f ms after initScene%n", (System.nanoTime() - startupNanos) / 1e6);
+    		startupNanos = 0;
+    	}
+    	
+    	/** The swap waits on the display, so only the update and render are held to the budget */
+    	if(governor != null){
+    		governor.frame(updateNanos, System.nanoTime() - renderStart);
+    		sceneRenderer.setDetailScale(governor.getDetailScale());
+    		sceneRenderer.setEntityScale(governor.getEntityScale());
+    		bubbles.setLiveLimit((int) (bubbles.getCapacity() * governor.getEntityScale()));
+    	}
+    	
+    	/** GraphicsLab swaps the buffers once this returns, timed until the next input check */
+    	profiler.end(FramePhase.RENDER);
+    	profiler.begin(FramePhase.SWAP);
     }
 
     protected void setSceneCamera(){
@@ -376,235 +279,49 @@ public class OceanAnimation extends GraphicsLab {
     protected void resetAnimations(){
 
     	/** Move fish and boat to start */
-    	fishPosX = fishStartPosX;
-    	currentBoatX = startBoatX;
+    	applyInput(SceneInput.RESET);
     }
 
     protected void cleanupScene(){
-    }
-        
-    private void drawBoat() {
-    	Vertex v1 = new Vertex(-0.5f, 0.0f, 0.0f);
-    	Vertex v2 = new Vertex( 0.5f, 0.0f, 0.0f);
-    	Vertex v3 = new Vertex( 0.5f, 1.0f, 0.5f);
-    	Vertex v4 = new Vertex(-0.5f, 1.0f, 0.5f);
-    	Vertex v5 = new Vertex( 0.5f, 1.0f,-0.5f);
-    	Vertex v6 = new Vertex(-0.5f, 1.0f,-0.5f);
-    	
-    	Vertex v7 = new Vertex( 1.5f, 1.0f, 0.0f);
-    	Vertex v8 = new Vertex(-1.5f, 1.0f, 0.0f);
-    	    	
-    	/** Front face */
-    	GL11.glBegin(GL11.GL_POLYGON);
-    	{
-	    	new Normal(v1.toVector(), v2.toVector(), v3.toVector(), v4.toVector()).submit();
-	    	v1.submit();
-	    	v2.submit();
-	    	v3.submit();
-	    	v4.submit();
-	  	}
-
-    	GL11.glEnd();
-    	
-    	/** Back face */
-    	GL11.glBegin(GL11.GL_POLYGON);
-    	{
-	    	new Normal(v1.toVector(), v6.toVector(), v5.toVector(), v2.toVector()).submit();
-	    	v1.submit();
-	    	v6.submit();
-	    	v5.submit();
-	    	v2.submit();
-	  	}
-
-    	GL11.glEnd();
-    	
-    	/** Right front */
-    	GL11.glBegin(GL11.GL_POLYGON);
-    	{
-	    	new Normal(v2.toVector(), v7.toVector(), v3.toVector()).submit();
-	    	v2.submit();
-	    	v7.submit();
-	    	v3.submit();
-	    	GL11.glEnd();
-    	}
-    	
-    	/** Right back */
-    	GL11.glBegin(GL11.GL_POLYGON);
-    	{
-	    	new Normal(v2.toVector(), v5.toVector(), v7.toVector()).submit();
-	    	v2.submit();
-	    	v5.submit();
-	    	v7.submit();
-	    	GL11.glEnd();
+    	if(simulation != null){
+    		try{
+    			simulation.stop();
+    		}
+    		catch(InterruptedException e){
+    			Thread.currentThread().interrupt();
+    		}
     	}
     	
-    	/** Left front */
-    	GL11.glBegin(GL11.GL_POLYGON);
-    	{
-	    	new Normal(v1.toVector(), v4.toVector(), v8.toVector()).submit();
-	    	v1.submit();
-	    	v4.submit();
-	    	v8.submit();
-	    	GL11.glEnd();
+    	/** The world has stopped stepping, so its final state goes in the log */
+    	if(inputRecorder != null){
+    		try{
+    			inputRecorder.close(world);
+    			System.out.println("Inputs recorded to " + System.getProperty("ocean.recordInput"));
+    		}
+    		catch(IOException e){
+    			System.err.println("Couldn't record the inputs: " + e.getMessage());
+    		}
     	}
     	
-    	/** Left back */
-    	GL11.glBegin(GL11.GL_POLYGON);
-    	{
-	    	new Normal(v1.toVector(), v8.toVector(), v6.toVector()).submit();
-	    	v1.submit();
-	    	v8.submit();
-	    	v6.submit();
-	    	GL11.glEnd();
+    	if(metricsDumper != null){
+    		try{
+    			metricsDumper.stop();
+    		}
+    		catch(InterruptedException e){
+    			Thread.currentThread().interrupt();
+    		}
     	}
-    	
-    	/** Top cover center */
-    	GL11.glBegin(GL11.GL_POLYGON);
-    	{
-    		new Normal(v4.toVector(), v3.toVector(), v5.toVector(), v6.toVector()).submit();
-	    	v4.submit();
-	    	v3.submit();
-	    	v5.submit();
-	    	v6.submit();
-	    	GL11.glEnd();
-    	}
-    	
-    	/** Top cover right */
-    	GL11.glBegin(GL11.GL_POLYGON);
-    	{
-    		new Normal(v3.toVector(), v7.toVector(), v5.toVector()).submit();
-	    	v3.submit();
-	    	v7.submit();
-	    	v5.submit();
-	    	GL11.glEnd();
+    	System.out.print("Frame times:" + System.lineSeparator() + profiler.summary());
+    	System.out.println("Render state: " + sceneRenderer.getStateTracker());
+    	System.out.println("Culling: " + sceneRenderer.getVisibleCount() + " visible, "
+    			+ sceneRenderer.getCulledCount() + " culled in the last frame");
+    	System.out.println("Detail levels: " + sceneRenderer.getLevelCount(LevelOfDetail.FULL) + " full, "
+    			+ sceneRenderer.getLevelCount(LevelOfDetail.REDUCED) + " reduced, "
+    			+ sceneRenderer.getLevelCount(LevelOfDetail.IMPOSTOR) + " impostors in the last frame");
+    	if(governor != null){
+    		System.out.println("Frame budget: " + governor.summary());
     	}
-    	
-    	/** Top cover left */
-    	GL11.glBegin(GL11.GL_POLYGON);
-    	{
-    		new Normal(v4.toVector(), v6.toVector(), v8.toVector()).submit();
-	    	v4.submit();
-	    	v6.submit();
-	    	v8.submit();
-	    	GL11.glEnd();
-    	}
-    }
-    
-    private void drawTriangle(float size) {
-   
-    	Vertex v1 = new Vertex(size*0.0f,size*-1.0f, size*0.2f); //front, bottom
-    	Vertex v2 = new Vertex(size*0.0f, size*1.0f, size*0.2f); //front, top
-    	Vertex v3 = new Vertex(size*2.5f, size*0.0f, size*0.2f); //front, right
-    	Vertex v4 = new Vertex(size*0.0f,size*-1.0f,size*-0.2f); //back, bottom
-    	Vertex v5 = new Vertex(size*0.0f, size*1.0f,size*-0.2f); //back, top
-    	Vertex v6 = new Vertex(size*2.5f, size*0.0f,size*-0.2f); //back, right
-    	
-    	/** Draw the front face */
-        GL11.glBegin(GL11.GL_POLYGON);
-        {
-            new Normal(v1.toVector(),v3.toVector(),v2.toVector()).submit();
-            v1.submit();
-            v3.submit();
-            v2.submit();
-        }
-        GL11.glEnd();
-        
-        /** Draw the back face */
-        GL11.glBegin(GL11.GL_POLYGON);
-        {
-            new Normal(v4.toVector(),v6.toVector(),v5.toVector()).submit();
-            v4.submit();
-            v6.submit();
-            v5.submit();
-        }
-        GL11.glEnd();
-        
-        /** Draw the top face */
-        GL11.glBegin(GL11.GL_POLYGON);
-        {
-            new Normal(v2.toVector(),v3.toVector(),v6.toVector(),v5.toVector()).submit();
-            v2.submit();
-            v3.submit();
-            v6.submit();
-            v5.submit();
-        }
-        GL11.glEnd();
-        
-        /** Draw the bottom face */
-        GL11.glBegin(GL11.GL_POLYGON);
-        {
-            new Normal(v1.toVector(),v4.toVector(),v6.toVector(),v3.toVector()).submit();
-            v1.submit();
-            v4.submit();
-            v6.submit();
-            v3.submit();
-        }
-        GL11.glEnd();
-        
-        /** Draw the left face */
-        GL11.glBegin(GL11.GL_POLYGON);
-        {
-            new Normal(v1.toVector(),v2.toVector(),v5.toVector(),v4.toVector()).submit();
-            v1.submit();
-            v2.submit();
-            v5.submit();
-            v4.submit();
-        }
-        GL11.glEnd();
-    	
-    }
-    
-    /**
-     * Draws a plane aligned with the X and Z axis, with its front face toward positive Y.
-     *  The plane is of unit width and height, and uses the current OpenGL material settings
-     *  for its appearance
-     */
-    private void drawUnitPlane(){
-    	
-        Vertex v1 = new Vertex(-0.5f, 0.0f,-0.5f);
-        Vertex v2 = new Vertex( 0.5f, 0.0f,-0.5f);
-        Vertex v3 = new Vertex( 0.5f, 0.0f, 0.5f);
-        Vertex v4 = new Vertex(-0.5f, 0.0f, 0.5f);
-        
-        /** Draw the plane geometry. order the vertices so that the plane faces up */
-        GL11.glBegin(GL11.GL_POLYGON);
-        {
-            new Normal(v4.toVector(),v3.toVector(),v2.toVector(),v1.toVector()).submit();
-            
-            GL11.glTexCoord2f(0.0f,0.0f);
-            v4.submit();
-            
-            GL11.glTexCoord2f(1.0f,0.0f);
-            v3.submit();
-            
-            GL11.glTexCoord2f(1.0f,1.0f);
-            v2.submit();
-            
-            GL11.glTexCoord2f(0.0f,1.0f);
-            v1.submit();
-        }
-
-        GL11.glEnd();
-        
-        /** If the user is viewing an axis, then also draw this plane
-            using lines so that axis aligned planes can still be seen */
-        if(isViewingAxis()){
-        	
-        	/** Also disable textures when drawing as lines
-                so that the lines can be seen more clearly */
-            GL11.glPushAttrib(GL11.GL_TEXTURE_2D);
-            GL11.glDisable(GL11.GL_TEXTURE_2D);
-            GL11.glBegin(GL11.GL_LINE_LOOP);
-            {
-                v4.submit();
-                v3.submit();
-                v2.submit();
-                v1.submit();
-            }
-
-            GL11.glEnd();
-            GL11.glPopAttrib();
-        }
+    	sceneRenderer.dispose();
     }
 
 }
@@ -0,0 +1,47 @@
+package ocean;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Description: Cost of the Math.sin based bobbing and tilt formulas,
+ *    written exactly as updateScene() has always evaluated them for one fish and one boat
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnimationMathBenchmark {
+
+    /** Animation timer, advanced on every call so the JIT can't fold the sines */
+    private float animationDelta = 0.0f;
+
+    @Benchmark
+    public float fishTilt() {
+        animationDelta += 0.01f;
+        return (float) (Math.sin(animationDelta)/Math.PI) * 80;
+    }
+
+    @Benchmark
+    public float fishBob() {
+        animationDelta += 0.01f;
+        return (float) (Math.sin(animationDelta)/10) - 2;
+    }
+
+    @Benchmark
+    public float boatBob() {
+        animationDelta += 0.01f;
+        return (float) (Math.sin(animationDelta/Math.PI)/10);
+    }
+}
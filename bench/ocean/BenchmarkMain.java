@@ -0,0 +1,38 @@
+package ocean;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Description: Runs the ocean benchmarks headless with the GC profiler attached,
+ *    so every result is reported together with its allocation rate (gc.alloc.rate.norm)
+ *
+ * Usage: java ocean.BenchmarkMain [benchmark name regex]
+ */
+public class BenchmarkMain {
+
+    public static void main(String args[]) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "ocean\\..*Benchmark";
+
+        List<String> jvmArgs = new ArrayList<String>();
+        jvmArgs.add("-Djava.awt.headless=true");
+
+        /** Java 16 onwards can run the Vector API curve kernel, once its module is added */
+        String javaVersion = System.getProperty("java.specification.version");
+        if (!javaVersion.startsWith("1.") && Integer.parseInt(javaVersion) >= 16) {
+            jvmArgs.add("--add-modules=jdk.incubator.vector");
+        }
+
+        new Runner(new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .jvmArgsAppend(jvmArgs.toArray(new String[jvmArgs.size()]))
+                .shouldFailOnError(true)
+                .build()).run();
+    }
+}
@@ -0,0 +1,74 @@
+package ocean;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Description: Bubble throughput, one step (rise, burst and respawn) and one billboard
+ *    write of a full system of a hundred thousand and a million bubbles, on one thread
+ *    and on every core. gc.alloc.rate.norm should be zero for both
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BubbleBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int bubbleCount;
+
+    /** 0 for every core */
+    @Param({"1", "0"})
+    public int threads;
+
+    private ForkJoinPool pool;
+
+    private BubbleSystem bubbles;
+
+    private FloatBuffer vertices;
+
+    @Setup
+    public void setup() {
+        pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        bubbles = new BubbleSystem(bubbleCount, 1L, pool);
+        vertices = Buffers.createFloatBuffer(bubbleCount * BubbleSystem.BILLBOARD_VERTICES * BubbleSystem.VERTEX_FLOATS);
+
+        /** Until the slowest bubble has risen, so every slot is in use and recycling */
+        for (int i = 0; i < 2000; i++) {
+            bubbles.step(0.01f);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int step() {
+        bubbles.step(0.01f);
+        return bubbles.getLiveCount();
+    }
+
+    @Benchmark
+    public void writeBillboards(Blackhole blackhole) {
+        blackhole.consume(bubbles.writeBillboards(vertices, 1f, 0f, 0f, 0f, 1f, 0f));
+    }
+}
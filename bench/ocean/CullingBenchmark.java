@@ -0,0 +1,176 @@
+package ocean;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Description: Cost of frustum culling against the number of entities: testing every
+ *    box, culling through the bounding volume hierarchy, refitting it after a tenth
+ *    of the entities have moved a little before culling, and packing only the fish in
+ *    view for instanced drawing. The entities are spread over a wide area around the
+ *    camera, so most are off-screen as in the larger scenes
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CullingBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int entityCount;
+
+    private float boxes[];
+    private boolean visible[];
+    private BoundingVolumeHierarchy hierarchy;
+    private final Frustum frustum = new Frustum();
+
+    /** The same entities as fish, for instanced packing */
+    private ScatteredFish fish;
+    private FishInstanceBuffer instances;
+
+    /** Which tenth of the entities moves next, and which way */
+    private int movingTenth = 0;
+    private float step = 0.05f;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        boxes = new float[entityCount * 6];
+        int ids[] = new int[entityCount];
+        for (int i = 0; i < entityCount; i++) {
+            float x = random.nextFloat() * 400f - 200f;
+            float y = random.nextFloat() * 20f - 10f;
+            float z = random.nextFloat() * 400f - 200f;
+            boxes[i * 6] = x;
+            boxes[i * 6 + 1] = y;
+            boxes[i * 6 + 2] = z;
+            boxes[i * 6 + 3] = x + 1f;
+            boxes[i * 6 + 4] = y + 0.5f;
+            boxes[i * 6 + 5] = z + 0.5f;
+            ids[i] = i;
+        }
+        visible = new boolean[entityCount];
+
+        fish = new ScatteredFish(boxes, entityCount);
+        instances = new FishInstanceBuffer(entityCount);
+
+        hierarchy = new BoundingVolumeHierarchy();
+        hierarchy.build(ids, entityCount, boxes);
+
+        /** The software renderer's camera, at the origin looking down -z */
+        float camera[] = new float[Matrix4.FLOATS];
+        Matrix4.perspective(camera, 0, 45f, 16f / 9f, 0.1f, 100f);
+        frustum.set(camera, 0);
+    }
+
+    @Benchmark
+    public int testEveryBox() {
+        int count = 0;
+        for (int i = 0; i < entityCount; i++) {
+            visible[i] = frustum.test(boxes, i * 6) != Frustum.OUTSIDE;
+            count += visible[i] ? 1 : 0;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int cull() {
+        return hierarchy.cull(frustum, visible);
+    }
+
+    @Benchmark
+    public void refitAndCull(Blackhole blackhole) {
+        /** Move a tenth of the entities along x, back and forth so the tree stays tight */
+        int tenth = entityCount / 10;
+        for (int i = movingTenth * tenth; i < (movingTenth + 1) * tenth; i++) {
+            boxes[i * 6] += step;
+            boxes[i * 6 + 3] += step;
+            hierarchy.itemMoved(i);
+        }
+        if (++movingTenth == 10) {
+            movingTenth = 0;
+            step = -step;
+        }
+
+        blackhole.consume(hierarchy.refit());
+        blackhole.consume(hierarchy.cull(frustum, visible));
+    }
+
+    @Benchmark
+    public int packVisibleFish() {
+        return instances.pack(fish, entityCount, frustum);
+    }
+
+    /** Fish at the corners of the boxes, for packing without a world */
+    private static class ScatteredFish implements OceanState {
+        private final float posX[], posY[], posZ[], tilt[];
+        private final float none[] = new float[0];
+
+        ScatteredFish(float boxes[], int count) {
+            posX = new float[count];
+            posY = new float[count];
+            posZ = new float[count];
+            tilt = new float[count];
+            for (int i = 0; i < count; i++) {
+                posX[i] = boxes[i * 6];
+                posY[i] = boxes[i * 6 + 1];
+                posZ[i] = boxes[i * 6 + 2];
+            }
+        }
+
+        public int getFishCount() {
+            return posX.length;
+        }
+
+        public int getBoatCount() {
+            return 0;
+        }
+
+        public float[] getFishPosX() {
+            return posX;
+        }
+
+        public float[] getFishPosY() {
+            return posY;
+        }
+
+        public float[] getFishPosZ() {
+            return posZ;
+        }
+
+        public float[] getFishTilt() {
+            return tilt;
+        }
+
+        public float[] getBoatPosX() {
+            return none;
+        }
+
+        public float[] getBoatPosY() {
+            return none;
+        }
+
+        public float[] getBoatPitch() {
+            return none;
+        }
+
+        public float[] getBoatRoll() {
+            return none;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package ocean;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Description: Cost of animating the tail tilt of every entity, each with its own phase:
+ *    the Math.sin formula once per entity as the scalar baseline, then the scalar and
+ *    Vector API curve kernels, and a keyframe track on both kernels. Without the
+ *    jdk.incubator.vector module the vector benchmarks run the scalar kernel
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CurveBenchmark {
+
+    @Param({"1000", "100000"})
+    public int entityCount;
+
+    private float phase[];
+    private float out[];
+
+    private final CurveKernel scalar = new ScalarCurveKernel();
+    private CurveKernel vector;
+
+    private KeyframeTrack track;
+
+    /** Animation timer, advanced on every call so nothing can be folded */
+    private float animationDelta = 0.0f;
+
+    @Setup
+    public void setup() {
+        phase = new float[entityCount];
+        out = new float[entityCount];
+        for (int i = 0; i < entityCount; i++) {
+            phase[i] = (float) (i * 0.618034 % 1.0 * 2 * Math.PI);
+        }
+
+        vector = CurveKernels.vector();
+        if (vector == null) {
+            vector = scalar;
+        }
+
+        float keyframes[] = new float[32];
+        for (int k = 0; k < keyframes.length; k++) {
+            keyframes[k] = (float) Math.sin(2 * Math.PI * k / keyframes.length) * 25f;
+        }
+        track = new KeyframeTrack(keyframes, (float) (2 * Math.PI));
+    }
+
+    @Benchmark
+    public float[] mathSin() {
+        animationDelta += 0.01f;
+        for (int i = 0; i < entityCount; i++) {
+            out[i] = (float) (Math.sin(animationDelta + phase[i]) / Math.PI) * 80;
+        }
+        return out;
+    }
+
+    @Benchmark
+    public float[] scalarSine() {
+        animationDelta += 0.01f;
+        OceanWorld.FISH_TILT.evaluate(scalar, animationDelta, phase, out, entityCount);
+        return out;
+    }
+
+    @Benchmark
+    public float[] vectorSine() {
+        animationDelta += 0.01f;
+        OceanWorld.FISH_TILT.evaluate(vector, animationDelta, phase, out, entityCount);
+        return out;
+    }
+
+    @Benchmark
+    public float[] scalarKeyframes() {
+        animationDelta += 0.01f;
+        track.evaluate(scalar, animationDelta, phase, out, entityCount);
+        return out;
+    }
+
+    @Benchmark
+    public float[] vectorKeyframes() {
+        animationDelta += 0.01f;
+        track.evaluate(vector, animationDelta, phase, out, entityCount);
+        return out;
+    }
+}
@@ -0,0 +1,48 @@
+package ocean;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Description: Cost of packing every fish into the instance buffer the instanced
+ *    fish renderer streams to the GPU each frame. Should allocate nothing
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FishPackingBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int fishCount;
+
+    private OceanWorld world;
+    private FishInstanceBuffer instances;
+
+    @Setup
+    public void setup() {
+        world = new OceanWorld(fishCount, 1);
+        world.step(0.01f);
+        instances = new FishInstanceBuffer(fishCount);
+    }
+
+    @Benchmark
+    public FloatBuffer pack() {
+        instances.pack(world);
+        return instances.getData();
+    }
+}
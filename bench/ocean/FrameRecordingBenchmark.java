@@ -0,0 +1,55 @@
+package ocean;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Description: CPU cost of generating the render commands for one frame, recorded
+ *    in memory instead of sent to a driver, for the per-fish and instanced fish paths.
+ *    Steady-state frames should allocate nothing
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameRecordingBenchmark {
+
+    @Param({"1", "1000"})
+    public int fishCount;
+
+    @Param({"false", "true"})
+    public boolean instanced;
+
+    private OceanWorld world;
+    private RecordingRenderDevice device;
+    private OceanSceneRenderer renderer;
+
+    @Setup
+    public void setup() {
+        world = new OceanWorld(fishCount, 1);
+        device = new RecordingRenderDevice(instanced);
+        renderer = new OceanSceneRenderer(device);
+        renderer.init();
+    }
+
+    @Benchmark
+    public int frame() {
+        device.reset();
+        world.step(0.01f);
+        renderer.render(world, 1);
+        return device.getCommandCount();
+    }
+}
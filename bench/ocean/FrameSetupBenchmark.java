@@ -0,0 +1,111 @@
+package ocean;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import GraphicsLab.FloatBuffer;
+
+/**
+ * Description: The CPU side of one renderScene() frame that does not need an OpenGL context:
+ *    the materials for the boat, the fish and both eyes. baselineAllocatedMaterials is the
+ *    old code, no longer run by the scene, kept to compare against; registeredMaterials
+ *    reads the cached materials, and trackedFrame makes one frame's state changes through
+ *    a RenderStateTracker on a recording device, as OceanSceneRenderer does
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameSetupBenchmark {
+
+    private MaterialRegistry registry;
+    private Material boatMaterial;
+    private Material fishMaterial;
+    private Material fishEyeMaterial;
+
+    private RecordingRenderDevice device;
+    private RenderStateTracker stateTracker;
+
+    @Setup
+    public void setup() {
+        registry = new MaterialRegistry();
+        boatMaterial = registry.register("boat", 2.0f,
+                new float[] {0.6f, 0.6f, 0.6f, 1.0f}, new float[] {0.6f, 0.6f, 0.6f, 1.0f});
+        fishMaterial = registry.register("fish", 2.0f,
+                new float[] {0.9f, 0.6f, 0.0f, 1.0f}, new float[] {0.9f, 0.6f, 0.0f, 1.0f});
+        fishEyeMaterial = registry.register("fishEye", 2.0f,
+                new float[] {1f, 1f, 1f, 1.0f}, new float[] {1f, 1f, 1f, 1.0f});
+
+        device = new RecordingRenderDevice();
+        stateTracker = new RenderStateTracker(device);
+    }
+
+    /** Baseline: arrays and FloatBuffer.wrap copies built every frame, as renderScene() used to */
+    @Benchmark
+    public void baselineAllocatedMaterials(Blackhole blackhole) {
+        /** Boat */
+        float boatFrontSpecular[] = {0.6f, 0.6f, 0.6f, 1.0f};
+        float boatFrontDiffuse[]  = {0.6f, 0.6f, 0.6f, 1.0f};
+        blackhole.consume(FloatBuffer.wrap(boatFrontSpecular));
+        blackhole.consume(FloatBuffer.wrap(boatFrontDiffuse));
+
+        /** Fish */
+        float fishFrontSpecular[] = {0.9f, 0.6f, 0.0f, 1.0f};
+        float fishFrontDiffuse[]  = {0.9f, 0.6f, 0.0f, 1.0f};
+        blackhole.consume(FloatBuffer.wrap(fishFrontSpecular));
+        blackhole.consume(FloatBuffer.wrap(fishFrontDiffuse));
+
+        /** Left and right eye */
+        for (int eye = 0; eye < 2; eye++) {
+            float fishEyeFrontSpecular[] = {1f, 1f, 1f, 1.0f};
+            float fishEyeFrontDiffuse[]  = {1f, 1f, 1f, 1.0f};
+            blackhole.consume(FloatBuffer.wrap(fishEyeFrontSpecular));
+            blackhole.consume(FloatBuffer.wrap(fishEyeFrontDiffuse));
+        }
+    }
+
+    /** Current: the buffers the registry built once, read each frame */
+    @Benchmark
+    public void registeredMaterials(Blackhole blackhole) {
+        for (Material material : registry.getMaterials()) {
+            blackhole.consume(material.getShininess());
+            blackhole.consume(material.getSpecular());
+            blackhole.consume(material.getDiffuse());
+        }
+    }
+
+    /** Current, with redundant changes skipped: the plane, a boat and a fish in renderScene() order */
+    @Benchmark
+    public int trackedFrame() {
+        device.reset();
+
+        /** Back plane, unlit and textured */
+        stateTracker.setEnabled(RenderDevice.LIGHTING, false);
+        stateTracker.setEnabled(RenderDevice.TEXTURE_2D, true);
+        stateTracker.bindTexture(1);
+        stateTracker.setEnabled(RenderDevice.TEXTURE_2D, false);
+        stateTracker.setEnabled(RenderDevice.LIGHTING, true);
+
+        /** Boat, then the fish body and tail and both eyes */
+        stateTracker.setMaterial(boatMaterial);
+        stateTracker.setMaterial(fishMaterial);
+        stateTracker.setMaterial(fishEyeMaterial);
+        stateTracker.setMaterial(fishEyeMaterial);
+
+        stateTracker.endFrame();
+        return device.getCommandCount();
+    }
+}
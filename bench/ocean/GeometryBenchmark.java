@@ -0,0 +1,51 @@
+package ocean;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Description: Cost of building the geometry of the boat, fish and back plane,
+ *    both as polygons and as the interleaved meshes initScene() uploads into vertex buffers
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeometryBenchmark {
+
+    @Benchmark
+    public Shape boat() {
+        return Shapes.boat();
+    }
+
+    @Benchmark
+    public Shape fishBody() {
+        return Shapes.triangle(1f);
+    }
+
+    @Benchmark
+    public Shape unitPlane() {
+        return Shapes.unitPlane();
+    }
+
+    @Benchmark
+    public Mesh boatMesh() {
+        return MeshBuilder.build(Shapes.boat());
+    }
+
+    @Benchmark
+    public Mesh fishBodyMesh() {
+        return MeshBuilder.build(Shapes.triangle(1f));
+    }
+}
@@ -0,0 +1,101 @@
+package ocean;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Description: Cost of clustering glow lights against the camera and picking six lights
+ *    for every object, for a hundred to ten thousand lights and a thousand to a hundred
+ *    thousand objects spread through the same water, on one thread and on every core
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LightClusterBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int lightCount;
+
+    @Param({"1000", "100000"})
+    public int objectCount;
+
+    /** 0 for every core */
+    @Param({"1", "0"})
+    public int threads;
+
+    private ForkJoinPool pool;
+
+    private GlowLights lights;
+    private LightClusters clusters;
+    private final float camera[] = new float[Matrix4.FLOATS];
+
+    private float bounds[];
+    private int objects[];
+    private int objectLights[];
+    private float objectScores[];
+    private int objectLightCounts[];
+
+    @Setup
+    public void setup() {
+        pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        lights = new GlowLights(lightCount, 1L);
+        clusters = new LightClusters(16, 9, 24, 0.1f, 100f, pool);
+        Matrix4.perspective(camera, 0, 45f, 4f / 3f, 0.1f, 100f);
+
+        Random random = new Random(42);
+        bounds = new float[objectCount * 6];
+        objects = new int[objectCount];
+        for (int i = 0; i < objectCount; i++) {
+            float x = random.nextFloat() * 40f - 20f;
+            float y = random.nextFloat() * 8f - 8f;
+            float z = random.nextFloat() * 28f - 30f;
+            bounds[i * 6] = x;
+            bounds[i * 6 + 1] = y;
+            bounds[i * 6 + 2] = z;
+            bounds[i * 6 + 3] = x + 0.6f;
+            bounds[i * 6 + 4] = y + 0.3f;
+            bounds[i * 6 + 5] = z + 0.3f;
+            objects[i] = i;
+        }
+        objectLights = new int[objectCount * OceanSceneRenderer.GLOW_LIGHT_SLOTS];
+        objectScores = new float[objectCount * OceanSceneRenderer.GLOW_LIGHT_SLOTS];
+        objectLightCounts = new int[objectCount];
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public void build(Blackhole blackhole) {
+        clusters.build(camera, lights);
+        blackhole.consume(clusters.getEntryCount());
+    }
+
+    @Benchmark
+    public void buildAndAssign(Blackhole blackhole) {
+        clusters.build(camera, lights);
+        clusters.assign(bounds, objects, objectCount, OceanSceneRenderer.GLOW_LIGHT_SLOTS,
+                objectLights, objectScores, objectLightCounts);
+        blackhole.consume(objectLightCounts);
+    }
+}
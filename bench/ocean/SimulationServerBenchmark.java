@@ -0,0 +1,86 @@
+package ocean;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Description: Server ticks and worlds ticked per second (the worlds counter) for a
+ *    hundred to a hundred thousand hosted scenes of one fish and one boat, on one, two,
+ *    four and every core
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulationServerBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int sceneCount;
+
+    /** 0 for every core */
+    @Param({"1", "2", "4", "0"})
+    public int threads;
+
+    private ForkJoinPool pool;
+    private SimulationServer server;
+    private HostedScene scenes[];
+    private int nextInput;
+
+    /** Worlds stepped, reported per second alongside the ticks */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class WorldTicks {
+        public long worlds;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            worlds = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        server = new SimulationServer(0.01f, 1, 1, pool);
+        scenes = new HostedScene[sceneCount];
+        for (int i = 0; i < sceneCount; i++) {
+            scenes[i] = server.open();
+        }
+
+        /** Make the worlds */
+        server.tick();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public void tick(WorldTicks counter) {
+        /** An input for one scene in a hundred each tick, through its queue */
+        for (int i = 0; i < sceneCount / 100; i++) {
+            scenes[nextInput].submit((nextInput & 1) == 0 ? SceneInput.BOAT_LEFT : SceneInput.BOAT_RIGHT);
+            nextInput = (nextInput + 1) % sceneCount;
+        }
+        server.tick();
+        counter.worlds += sceneCount;
+    }
+}
@@ -0,0 +1,69 @@
+package ocean;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Description: Frames per second of the CPU rasterizer drawing the whole scene,
+ *    at 720p and 1080p, with the scene's one fish and with a thousand.
+ *    Uses a generated checkerboard sky so it runs from any directory
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SoftwareRenderBenchmark {
+
+    @Param({"1280x720", "1920x1080"})
+    public String resolution;
+
+    @Param({"1", "1000"})
+    public int fishCount;
+
+    private SoftwareRenderDevice device;
+    private OceanSceneRenderer renderer;
+    private OceanWorld world;
+    private int skyTexture;
+
+    @Setup
+    public void setup() {
+        int width = Integer.parseInt(resolution.substring(0, resolution.indexOf('x')));
+        int height = Integer.parseInt(resolution.substring(resolution.indexOf('x') + 1));
+
+        world = new OceanWorld(fishCount, 1);
+        world.step(0.01f);
+
+        device = new SoftwareRenderDevice(width, height);
+        TextureImage sky = TextureImage.allocate(512, 512);
+        for (int y = 0; y < 512; y++) {
+            for (int x = 0; x < 512; x++) {
+                sky.getPixels().putInt((y * 512 + x) * TextureImage.PIXEL_BYTES, ((x ^ y) & 32) != 0 ? -1 : 0x204080FF);
+            }
+        }
+        skyTexture = device.createTexture(sky);
+
+        renderer = new OceanSceneRenderer(device);
+        renderer.init();
+    }
+
+    @Benchmark
+    public int frame() {
+        device.beginFrame();
+        renderer.render(world, skyTexture);
+        device.finishFrame();
+        return device.getPixels()[0];
+    }
+}
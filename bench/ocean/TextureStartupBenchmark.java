@@ -0,0 +1,115 @@
+package ocean;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Description: Startup cost of getting the sky texture ready to upload, for the scene's
+ *    texture as shipped (a JPEG named ocean.bmp) and converted to a real 24 bit bitmap.
+ *    imageIODecode is the decoding GraphicsLab.loadTexture does through Slick, which
+ *    reads both formats with ImageIO into a direct buffer; decodeWithMipmaps is a first
+ *    run of the cached loader and cachedLoad every run after it.
+ *    Run from the project directory so textures/ocean.bmp is found
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextureStartupBenchmark {
+
+    @Param({"jpeg", "bmp"})
+    public String format;
+
+    private Path directory;
+    private Path source;
+    private ByteBuffer sourceBytes;
+    private CachedTextureLoader loader;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("ocean-textures");
+        source = Paths.get("textures", "ocean.bmp");
+
+        if (format.equals("bmp")) {
+            BufferedImage image = ImageIO.read(source.toFile());
+            BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            rgb.getGraphics().drawImage(image, 0, 0, null);
+            source = directory.resolve("ocean.bmp");
+            ImageIO.write(rgb, "bmp", source.toFile());
+        }
+
+        sourceBytes = ByteBuffer.wrap(Files.readAllBytes(source));
+
+        /** Fill the cache once so cachedLoad always hits */
+        loader = new CachedTextureLoader(directory.resolve("cache"));
+        loader.load(source);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        File files[] = directory.resolve("cache").toFile().listFiles();
+        for (int i = 0; files != null && i < files.length; i++) {
+            files[i].delete();
+        }
+        Files.deleteIfExists(directory.resolve("cache"));
+        Files.deleteIfExists(directory.resolve("ocean.bmp"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public ByteBuffer imageIODecode() throws IOException {
+        BufferedImage image = ImageIO.read(source.toFile());
+        int width = image.getWidth(), height = image.getHeight();
+        ByteBuffer pixels = Buffers.createByteBuffer(width * height * TextureImage.PIXEL_BYTES);
+        int row[] = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                pixels.putInt(Integer.rotateLeft(row[x], 8));
+            }
+        }
+        return pixels;
+    }
+
+    @Benchmark
+    public TextureImage decodeWithMipmaps() throws IOException {
+        TextureImage image = CachedTextureLoader.decode(sourceBytes);
+        MipmapBuilder.build(image);
+        return image;
+    }
+
+    /** Touches one byte per page so the mapped pixels are really read, as an upload would */
+    @Benchmark
+    public int cachedLoad() throws IOException {
+        TextureImage image = loader.load(source);
+        ByteBuffer pixels = image.getPixels();
+        int sum = 0;
+        for (int i = 0; i < pixels.capacity(); i += 4096) {
+            sum += pixels.get(i);
+        }
+        return sum;
+    }
+}
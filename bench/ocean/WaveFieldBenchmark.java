@@ -0,0 +1,63 @@
+package ocean;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Description: Cost of one wave heightfield update (spectrum, row and column transforms)
+ *    on 64 x 64, 256 x 256 and 1024 x 1024 grids, on one thread and on every core
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WaveFieldBenchmark {
+
+    @Param({"64", "256", "1024"})
+    public int resolution;
+
+    /** 0 for every core */
+    @Param({"1", "0"})
+    public int threads;
+
+    private ForkJoinPool pool;
+
+    private OceanWaves waves;
+
+    private double time = 0;
+
+    @Setup
+    public void setup() {
+        pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        waves = new OceanWaves(resolution, OceanWorld.WAVE_PATCH_SIZE, 10f, 0.1f, 1L, pool);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    /** A new time every call, so every call recomputes the field */
+    @Benchmark
+    public void update(Blackhole blackhole) {
+        time += 0.01;
+        waves.update(time);
+        blackhole.consume(waves.getHeights());
+    }
+}
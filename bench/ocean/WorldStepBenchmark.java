@@ -0,0 +1,45 @@
+package ocean;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Description: Cost of one updateScene() step of the fish and boat animation
+ *    for worlds of one, a thousand and a million fish
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorldStepBenchmark {
+
+    @Param({"1", "1000", "1000000"})
+    public int fishCount;
+
+    private OceanWorld world;
+
+    @Setup
+    public void setup() {
+        world = new OceanWorld(fishCount, 1);
+    }
+
+    @Benchmark
+    public void step(Blackhole blackhole) {
+        world.step(0.01f);
+        blackhole.consume(world.getFishPosX());
+    }
+}
@@ -0,0 +1,57 @@
+package ocean;
+
+/**
+ * Description: Reports how much packing the prop textures into a TextureAtlas saves.
+ *    Packs the textures of the given kinds and prints the atlas size and how much of it
+ *    they cover, then records frames of the scene with the props drawn one by one and
+ *    from the atlas, and prints the texture binds and draw calls of the last frame of
+ *    each and the time to render a frame headless
+ *
+ * Usage: java ocean.AtlasReport [props] [kinds] [frames]
+ */
+public class AtlasReport {
+
+    public static void main(String args[]) {
+        int propCount = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int kindCount = args.length > 1 ? Integer.parseInt(args[1]) : 24;
+        int frames = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+
+        PropField props = new PropField(propCount, kindCount, 1L);
+
+        long start = System.nanoTime();
+        TextureAtlas atlas = new TextureAtlas(OceanSceneRenderer.MAX_ATLAS_SIZE);
+        for (int kind = 0; kind < kindCount; kind++) {
+            atlas.add(PropField.getKindName(kind), props.getTexture(kind));
+        }
+        atlas.pack();
+        long packNanos = System.nanoTime() - start;
+
+        System.out.printf("%d props of %d kinds, %d frames%n", propCount, kindCount, frames);
+        System.out.printf("%-20s %dx%d, %.1f%% covered by textures, packed in %.2f ms%n", "atlas",
+                atlas.getImage().getWidth(), atlas.getImage().getHeight(), atlas.getEfficiency() * 100f,
+                packNanos / 1e6);
+
+        for (boolean packed : new boolean[] {false, true}) {
+            OceanWorld world = new OceanWorld(1, 1);
+            RecordingRenderDevice device = new RecordingRenderDevice();
+            OceanSceneRenderer renderer = new OceanSceneRenderer(device);
+            renderer.init();
+
+            /** A one pixel sky, only its binds matter, created first like the real one */
+            int skyTexture = device.createTexture(TextureImage.allocate(1, 1));
+            renderer.setProps(props, packed);
+
+            start = System.nanoTime();
+            for (int i = 0; i < frames; i++) {
+                device.reset();
+                world.step(0.01f);
+                renderer.render(world, skyTexture);
+            }
+            long elapsed = System.nanoTime() - start;
+
+            System.out.printf("%-20s %d texture binds, %d draw calls, %d commands, %.3f ms a frame%n",
+                    packed ? "atlas" : "one by one", device.getCount(RecordingRenderDevice.BIND_TEXTURE),
+                    device.getDrawCalls(), device.getCommandCount(), elapsed / 1e6 / frames);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ocean;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Description: Offline bake of the scene's meshes, materials and sky texture with its
+ *    mipmaps into a SceneBundle, which OceanAnimation maps at startup instead of building
+ *    the meshes and loading the texture. Rerun after changing any shape, material or texture
+ *
+ * Usage: java ocean.BakeBundle [bundle file] [sky texture]
+ */
+public class BakeBundle {
+
+    public static void main(String args[]) throws IOException {
+        Path bundleFile = Paths.get(args.length > 0 ? args[0] : "cache/scene.obnd");
+        Path skySource = Paths.get(args.length > 1 ? args[1] : "textures/ocean.bmp");
+
+        Map<String, Mesh> meshes = new LinkedHashMap<String, Mesh>();
+        for (String name : SceneAssets.MESHES) {
+            meshes.put(name, SceneAssets.buildMesh(name));
+        }
+
+        MaterialRegistry materials = new MaterialRegistry();
+        SceneAssets.registerMaterials(materials);
+
+        ByteBuffer file;
+        try (FileChannel channel = FileChannel.open(skySource, StandardOpenOption.READ)) {
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        TextureImage sky = CachedTextureLoader.decode(file);
+        MipmapBuilder.build(sky);
+        Map<String, TextureImage> textures = new LinkedHashMap<String, TextureImage>();
+        textures.put(SceneAssets.SKY_TEXTURE, sky);
+
+        if (bundleFile.getParent() != null) {
+            Files.createDirectories(bundleFile.getParent());
+        }
+        SceneBundle.write(bundleFile, meshes, materials, textures);
+        System.out.printf("Baked %d meshes, %d materials and a %dx%d sky texture into %s, %d bytes, version %d%n",
+                meshes.size(), materials.size(), sky.getWidth(), sky.getHeight(), bundleFile,
+                Files.size(bundleFile), SceneBundle.VERSION);
+    }
+}
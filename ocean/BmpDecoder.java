@@ -0,0 +1,143 @@
+package ocean;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Description: Decodes uncompressed Windows bitmaps (8 bit palette, 24 and 32 bit)
+ *    straight from the file's bytes into level 0 of a TextureImage, flipping
+ *    bottom-up bitmaps so rows run from the top of the image down
+ */
+public final class BmpDecoder {
+
+    /** Compression types */
+    private static final int BI_RGB = 0;
+    private static final int BI_BITFIELDS = 3;
+
+    /** Offsets into the file and info headers */
+    private static final int PIXEL_DATA_OFFSET = 10;
+    private static final int INFO_HEADER = 14;
+    private static final int WIDTH = 18;
+    private static final int HEIGHT = 22;
+    private static final int BITS_PER_PIXEL = 28;
+    private static final int COMPRESSION = 30;
+    private static final int COLOURS_USED = 46;
+    private static final int MASKS = 54;
+
+    private BmpDecoder() {
+    }
+
+    /** If the bytes start with the bitmap signature */
+    public static boolean isBmp(ByteBuffer file) {
+        return file.limit() >= 2 && file.get(0) == 'B' && file.get(1) == 'M';
+    }
+
+    /** Decode a whole bitmap file, the returned image has room for its mipmaps */
+    public static TextureImage decode(ByteBuffer file) throws IOException {
+        file = file.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (!isBmp(file) || file.limit() < MASKS) {
+            throw new IOException("Not a bitmap file");
+        }
+
+        int headerSize = file.getInt(INFO_HEADER);
+        int width = file.getInt(WIDTH);
+        int height = file.getInt(HEIGHT);
+        int bitsPerPixel = file.getShort(BITS_PER_PIXEL);
+        int compression = file.getInt(COMPRESSION);
+        int pixelData = file.getInt(PIXEL_DATA_OFFSET);
+
+        if (headerSize < 40) {
+            throw new IOException("Unsupported bitmap header of " + headerSize + " bytes");
+        }
+
+        /** A negative height means the rows are stored top-down */
+        boolean topDown = height < 0;
+        height = Math.abs(height);
+
+        int rowBytes = (width * bitsPerPixel + 31) / 32 * 4;
+        if (width <= 0 || height == 0 || pixelData + (long) rowBytes * height > file.limit()) {
+            throw new IOException("Bitmap of " + width + "x" + height + " doesn't fit its file");
+        }
+
+        TextureImage image = TextureImage.allocate(width, height);
+        ByteBuffer pixels = image.getPixels();
+
+        if (bitsPerPixel == 24 && compression == BI_RGB) {
+            for (int y = 0; y < height; y++) {
+                int in = rowStart(pixelData, rowBytes, height, y, topDown);
+                int out = y * width * TextureImage.PIXEL_BYTES;
+                for (int x = 0; x < width; x++, in += 3, out += TextureImage.PIXEL_BYTES) {
+                    pixels.put(out, file.get(in + 2));
+                    pixels.put(out + 1, file.get(in + 1));
+                    pixels.put(out + 2, file.get(in));
+                    pixels.put(out + 3, (byte) 0xFF);
+                }
+            }
+
+        } else if (bitsPerPixel == 32 && (compression == BI_RGB || compression == BI_BITFIELDS)) {
+            /** Plain 32 bit bitmaps are BGRX, with bitfields the masks say where each channel is */
+            int redMask = 0x00FF0000, greenMask = 0x0000FF00, blueMask = 0x000000FF, alphaMask = 0;
+            if (compression == BI_BITFIELDS) {
+                redMask = file.getInt(MASKS);
+                greenMask = file.getInt(MASKS + 4);
+                blueMask = file.getInt(MASKS + 8);
+                alphaMask = headerSize >= 56 ? file.getInt(MASKS + 12) : 0;
+            }
+
+            for (int y = 0; y < height; y++) {
+                int in = rowStart(pixelData, rowBytes, height, y, topDown);
+                int out = y * width * TextureImage.PIXEL_BYTES;
+                for (int x = 0; x < width; x++, in += 4, out += TextureImage.PIXEL_BYTES) {
+                    int pixel = file.getInt(in);
+                    pixels.put(out, channel(pixel, redMask));
+                    pixels.put(out + 1, channel(pixel, greenMask));
+                    pixels.put(out + 2, channel(pixel, blueMask));
+                    pixels.put(out + 3, alphaMask == 0 ? (byte) 0xFF : channel(pixel, alphaMask));
+                }
+            }
+
+        } else if (bitsPerPixel == 8 && compression == BI_RGB) {
+            /** The palette follows the info header, four bytes (BGRX) per colour */
+            int palette = INFO_HEADER + headerSize;
+            int colours = file.getInt(COLOURS_USED);
+            if (colours == 0) {
+                colours = 256;
+            }
+
+            for (int y = 0; y < height; y++) {
+                int in = rowStart(pixelData, rowBytes, height, y, topDown);
+                int out = y * width * TextureImage.PIXEL_BYTES;
+                for (int x = 0; x < width; x++, in++, out += TextureImage.PIXEL_BYTES) {
+                    int index = Math.min(file.get(in) & 0xFF, colours - 1);
+                    int entry = palette + index * 4;
+                    pixels.put(out, file.get(entry + 2));
+                    pixels.put(out + 1, file.get(entry + 1));
+                    pixels.put(out + 2, file.get(entry));
+                    pixels.put(out + 3, (byte) 0xFF);
+                }
+            }
+
+        } else {
+            throw new IOException("Unsupported bitmap format, " + bitsPerPixel
+                    + " bits per pixel with compression " + compression);
+        }
+
+        return image;
+    }
+
+    /** File offset of image row y, counted from the top */
+    private static int rowStart(int pixelData, int rowBytes, int height, int y, boolean topDown) {
+        return pixelData + rowBytes * (topDown ? y : height - 1 - y);
+    }
+
+    /** The masked bits of a pixel scaled to a byte */
+    private static byte channel(int pixel, int mask) {
+        if (mask == 0) {
+            return 0;
+        }
+        int shift = Integer.numberOfTrailingZeros(mask);
+        int max = mask >>> shift;
+        return (byte) (((pixel & mask) >>> shift) * 255 / max);
+    }
+}
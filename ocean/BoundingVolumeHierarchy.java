@@ -0,0 +1,315 @@
+package ocean;
+
+import java.util.Arrays;
+
+/**
+ * Description: A bounding volume hierarchy over axis-aligned boxes, for culling many
+ *    entities against a view frustum with a few box tests per visible cluster rather
+ *    than one per entity. The boxes stay in the caller's array, six floats per item
+ *    (min x, y, z then max x, y, z), and the tree is stored in primitive arrays in
+ *    depth-first order so every subtree's items are one contiguous run.
+ *
+ * When items move, call itemMoved() for each and refit() once: only the nodes above
+ *    moved items are recomputed. Refitting never reshapes the tree, so once the
+ *    total surface area of the nodes has grown REBUILD_RATIO times since the last
+ *    build, refit() rebuilds it from scratch
+ */
+public class BoundingVolumeHierarchy {
+
+    /** Most items in a leaf */
+    private static final int LEAF_SIZE = 4;
+
+    /** Growth in total node surface area that makes refit() rebuild the tree */
+    private static final float REBUILD_RATIO = 2f;
+
+    /** Box floats per item and per node */
+    private static final int BOX = 6;
+
+    /** Item boxes, owned by the caller, indexed by item */
+    private float boxes[];
+
+    /** Items in tree order, and the leaf holding each item */
+    private int items[] = new int[0];
+    private int itemCount = 0;
+    private int itemLeaf[] = new int[0];
+
+    /** Nodes: bounds, parent, right child (the left is the next node, -1 for a leaf) and run of items */
+    private float nodeBounds[] = new float[0];
+    private int nodeParent[] = new int[0];
+    private int nodeRight[] = new int[0];
+    private int nodeFirst[] = new int[0];
+    private int nodeCount[] = new int[0];
+    private int nodes = 0;
+
+    /** Nodes over moved items waiting for refit() */
+    private boolean dirty[] = new boolean[0];
+    private int dirtyNodes[] = new int[0];
+    private int dirtyCount = 0;
+
+    /** Total surface area of the nodes, now and just after the last build */
+    private double area;
+    private double builtArea;
+
+    /** Scratch stack for walking the tree */
+    private int walk[] = new int[0];
+
+    /** Results of the last cull */
+    private int lastVisible = 0;
+    private int lastCulled = 0;
+    private int lastTests = 0;
+
+    /** Times the tree has been built */
+    private int builds = 0;
+
+    /** Build the tree over count items from ids, whose boxes are in boxes at item * 6 */
+    public void build(int ids[], int count, float boxes[]) {
+        this.boxes = boxes;
+        itemCount = count;
+        if (items.length < count) {
+            items = new int[count];
+        }
+        System.arraycopy(ids, 0, items, 0, count);
+        if (itemLeaf.length < boxes.length / BOX) {
+            itemLeaf = new int[boxes.length / BOX];
+        }
+
+        /** A leaf holds at least one item, so a tree of n items has at most 2n - 1 nodes */
+        int capacity = Math.max(1, 2 * count);
+        if (nodeParent.length < capacity) {
+            nodeBounds = new float[capacity * BOX];
+            nodeParent = new int[capacity];
+            nodeRight = new int[capacity];
+            nodeFirst = new int[capacity];
+            nodeCount = new int[capacity];
+            dirty = new boolean[capacity];
+            dirtyNodes = new int[capacity];
+            walk = new int[capacity];
+        }
+
+        rebuild();
+    }
+
+    private void rebuild() {
+        nodes = 0;
+        area = 0;
+        dirtyCount = 0;
+        Arrays.fill(dirty, false);
+        if (itemCount > 0) {
+            buildNode(0, itemCount, -1);
+        }
+        builtArea = area;
+        builds++;
+    }
+
+    /** Build the subtree over items start to end, returns its node */
+    private int buildNode(int start, int end, int parent) {
+        int node = nodes++;
+        nodeParent[node] = parent;
+        nodeFirst[node] = start;
+        nodeCount[node] = end - start;
+        nodeRight[node] = -1;
+
+        if (end - start <= LEAF_SIZE) {
+            for (int i = start; i < end; i++) {
+                itemLeaf[items[i]] = node;
+            }
+        } else {
+            /** Split at the median centre along the axis the centres spread furthest on */
+            int axis = widestCentreAxis(start, end);
+            int middle = (start + end) >>> 1;
+            select(start, end, middle, axis);
+
+            buildNode(start, middle, node);
+            nodeRight[node] = buildNode(middle, end, node);
+        }
+
+        computeBounds(node);
+        area += surfaceArea(node);
+        return node;
+    }
+
+    private int widestCentreAxis(int start, int end) {
+        int axis = 0;
+        float widest = -1f;
+        for (int a = 0; a < 3; a++) {
+            float min = Float.POSITIVE_INFINITY, max = Float.NEGATIVE_INFINITY;
+            for (int i = start; i < end; i++) {
+                float centre = centre(items[i], a);
+                min = Math.min(min, centre);
+                max = Math.max(max, centre);
+            }
+            if (max - min > widest) {
+                widest = max - min;
+                axis = a;
+            }
+        }
+        return axis;
+    }
+
+    /** Twice the centre of an item's box along an axis, enough for ordering */
+    private float centre(int item, int axis) {
+        return boxes[item * BOX + axis] + boxes[item * BOX + axis + 3];
+    }
+
+    /** Reorder items start to end so the k'th by centre is in place, smaller before it and larger after */
+    private void select(int start, int end, int k, int axis) {
+        int low = start, high = end - 1;
+        while (low < high) {
+            float pivot = centre(items[(low + high) >>> 1], axis);
+            int i = low, j = high;
+            while (i <= j) {
+                while (centre(items[i], axis) < pivot) {
+                    i++;
+                }
+                while (centre(items[j], axis) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = items[i];
+                    items[i] = items[j];
+                    items[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                high = j;
+            } else if (k >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /** Set a node's bounds from its children, or from its items if it is a leaf */
+    private void computeBounds(int node) {
+        int o = node * BOX;
+        if (nodeRight[node] < 0) {
+            int first = nodeFirst[node];
+            System.arraycopy(boxes, items[first] * BOX, nodeBounds, o, BOX);
+            for (int i = first + 1; i < first + nodeCount[node]; i++) {
+                union(boxes, items[i] * BOX, o);
+            }
+        } else {
+            System.arraycopy(nodeBounds, (node + 1) * BOX, nodeBounds, o, BOX);
+            union(nodeBounds, nodeRight[node] * BOX, o);
+        }
+    }
+
+    private void union(float box[], int boxOffset, int o) {
+        for (int i = 0; i < 3; i++) {
+            nodeBounds[o + i] = Math.min(nodeBounds[o + i], box[boxOffset + i]);
+            nodeBounds[o + i + 3] = Math.max(nodeBounds[o + i + 3], box[boxOffset + i + 3]);
+        }
+    }
+
+    private double surfaceArea(int node) {
+        int o = node * BOX;
+        float x = nodeBounds[o + 3] - nodeBounds[o];
+        float y = nodeBounds[o + 4] - nodeBounds[o + 1];
+        float z = nodeBounds[o + 5] - nodeBounds[o + 2];
+        return 2.0 * (x * y + y * z + z * x);
+    }
+
+    /** Note that an item's box has changed, the tree is brought up to date by refit() */
+    public void itemMoved(int item) {
+        for (int node = itemLeaf[item]; node >= 0 && !dirty[node]; node = nodeParent[node]) {
+            dirty[node] = true;
+            dirtyNodes[dirtyCount++] = node;
+        }
+    }
+
+    /** Recompute the bounds over every moved item, returns the nodes recomputed */
+    public int refit() {
+        int refitted = dirtyCount;
+
+        /** Children come after their parents in depth-first order, so go from the back */
+        Arrays.sort(dirtyNodes, 0, dirtyCount);
+        for (int i = dirtyCount - 1; i >= 0; i--) {
+            int node = dirtyNodes[i];
+            area -= surfaceArea(node);
+            computeBounds(node);
+            area += surfaceArea(node);
+            dirty[node] = false;
+        }
+        dirtyCount = 0;
+
+        if (area > builtArea * REBUILD_RATIO) {
+            rebuild();
+        }
+        return refitted;
+    }
+
+    /**
+     * Set visible[item] for every item, true if its box is at least partly inside the
+     * frustum, returns the number visible. Subtrees wholly inside or outside are
+     * settled without testing their items
+     */
+    public int cull(Frustum frustum, boolean visible[]) {
+        int visibleCount = 0;
+        int tests = 0;
+
+        int top = 0;
+        if (nodes > 0) {
+            walk[top++] = 0;
+        }
+        while (top > 0) {
+            int node = walk[--top];
+            int result = frustum.test(nodeBounds, node * BOX);
+            tests++;
+
+            int first = nodeFirst[node];
+            int end = first + nodeCount[node];
+            if (result != Frustum.INTERSECTS) {
+                boolean inside = result == Frustum.INSIDE;
+                for (int i = first; i < end; i++) {
+                    visible[items[i]] = inside;
+                }
+                visibleCount += inside ? nodeCount[node] : 0;
+            } else if (nodeRight[node] >= 0) {
+                walk[top++] = nodeRight[node];
+                walk[top++] = node + 1;
+            } else {
+                for (int i = first; i < end; i++) {
+                    boolean inside = nodeCount[node] == 1 || frustum.test(boxes, items[i] * BOX) != Frustum.OUTSIDE;
+                    tests += nodeCount[node] == 1 ? 0 : 1;
+                    visible[items[i]] = inside;
+                    visibleCount += inside ? 1 : 0;
+                }
+            }
+        }
+
+        lastVisible = visibleCount;
+        lastCulled = itemCount - visibleCount;
+        lastTests = tests;
+        return visibleCount;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public int getNodeCount() {
+        return nodes;
+    }
+
+    /** Items found visible and culled by the last cull */
+    public int getLastVisible() {
+        return lastVisible;
+    }
+
+    public int getLastCulled() {
+        return lastCulled;
+    }
+
+    /** Box tests made by the last cull */
+    public int getLastTests() {
+        return lastTests;
+    }
+
+    /** Times the tree has been built, by build() or by refit() when it had grown too loose */
+    public int getBuildCount() {
+        return builds;
+    }
+}
@@ -0,0 +1,85 @@
+package ocean;
+
+import java.lang.management.ManagementFactory;
+import java.nio.FloatBuffer;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Description: Headless check that bubbles allocate nothing once running. Steps a bubble
+ *    system until every slot has been used and recycled, then counts the heap bytes every
+ *    thread in the JVM allocates over more steps and billboard writes. Also compares the
+ *    billboards with those of a system stepped on the calling thread, which must match bit
+ *    for bit. Exits with status 1 if anything was allocated or the two differ
+ *
+ * Usage: java ocean.BubbleAllocationCheck [bubbles] [steps] [threads]
+ */
+public class BubbleAllocationCheck {
+
+    /** Allowance for the measurement itself, the arrays of thread ids and counts it reads */
+    private static final long MEASUREMENT_BYTES = 4096;
+
+    public static void main(String args[]) {
+        int bubbleCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        float stepScale = 0.01f;
+
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threadBean.isThreadAllocatedMemorySupported()) {
+            System.err.println("This JVM can't count allocated bytes");
+            System.exit(1);
+        }
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        BubbleSystem bubbles = new BubbleSystem(bubbleCount, 1L, pool);
+        BubbleSystem reference = new BubbleSystem(bubbleCount, 1L, null);
+        FloatBuffer vertices = Buffers.createFloatBuffer(Math.max(1, bubbleCount * BubbleSystem.BILLBOARD_VERTICES
+                * BubbleSystem.VERTEX_FLOATS));
+
+        /** Long enough for the slowest bubble to rise, so bursting and respawning are under way */
+        int warmup = 2000;
+        for (int i = 0; i < warmup; i++) {
+            bubbles.step(stepScale);
+            bubbles.writeBillboards(vertices, 1f, 0f, 0f, 0f, 1f, 0f);
+        }
+
+        long before = allocatedBytes(threadBean);
+        for (int i = 0; i < steps; i++) {
+            bubbles.step(stepScale);
+            bubbles.writeBillboards(vertices, 1f, 0f, 0f, 0f, 1f, 0f);
+        }
+        long allocated = allocatedBytes(threadBean) - before;
+
+        /** The same steps on one thread */
+        for (int i = 0; i < warmup + steps; i++) {
+            reference.step(stepScale);
+        }
+        FloatBuffer referenceVertices = Buffers.createFloatBuffer(vertices.capacity());
+        int vertexCount = bubbles.writeBillboards(vertices, 1f, 0f, 0f, 0f, 1f, 0f);
+        int referenceCount = reference.writeBillboards(referenceVertices, 1f, 0f, 0f, 0f, 1f, 0f);
+        vertices.limit(vertexCount * BubbleSystem.VERTEX_FLOATS);
+        referenceVertices.limit(referenceCount * BubbleSystem.VERTEX_FLOATS);
+        boolean matches = vertexCount == referenceCount && vertices.equals(referenceVertices);
+        pool.shutdown();
+
+        System.out.printf("%d bubbles on %d threads, %d alive, %d bytes allocated over %d steps, %s one thread%n",
+                bubbleCount, threads, bubbles.getLiveCount(), allocated, steps,
+                matches ? "matching" : "NOT matching");
+        if (allocated > MEASUREMENT_BYTES || !matches) {
+            System.exit(1);
+        }
+    }
+
+    /** Heap bytes allocated so far by every live thread */
+    private static long allocatedBytes(com.sun.management.ThreadMXBean threadBean) {
+        long total = 0;
+        for (long count : threadBean.getThreadAllocatedBytes(threadBean.getAllThreadIds())) {
+            if (count > 0) {
+                total += count;
+            }
+        }
+        return total;
+    }
+}
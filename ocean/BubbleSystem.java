@@ -0,0 +1,370 @@
+package ocean;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Description: Bubbles rising from the reef floor beneath the coral reef light up to the
+ *    water surface, where they burst and are spawned again at the bottom.
+ *
+ * Storage: a fixed number of slots held off-heap, one direct buffer per value (position,
+ *    rise speed, wobble phase, size). A slot of size zero is free, and free slots are kept
+ *    on a free list, so spawning pops a slot and bursting pushes it back. There is no
+ *    object per bubble, and stepping or drawing allocates nothing once constructed. A live
+ *    limit below the capacity holds spawning back, for FrameGovernor to shed bubbles.
+ *
+ * Parallelism: the slots are cut into CHUNK sized chunks. The calling thread and helper
+ *    tasks on a fork-join pool, made once in the constructor, claim chunks from a shared
+ *    counter until none are left. The caller never joins a task, as a thread outside the
+ *    pool that blocks on one allocates. Each chunk notes the slots that burst and counts
+ *    the bubbles left, then the free list and spawning are handled on the calling thread
+ *    from a seeded generator. Every bubble moves on its own, so the result is the same
+ *    whatever the number of threads. Billboards are written the same way, each chunk
+ *    at an offset found from the counts of the chunks before it
+ */
+public class BubbleSystem {
+
+    /** Slots per chunk, the unit of parallel work */
+    public static final int CHUNK = 16384;
+
+    /** Floats per billboard vertex (x, y, z) and vertices per billboard (two triangles) */
+    public static final int VERTEX_FLOATS = 3;
+    public static final int BILLBOARD_VERTICES = 6;
+
+    /** Reef floor bubbles rise from, a box under the fish */
+    private static final float REEF_MIN_X = -10f;
+    private static final float REEF_MAX_X = 10f;
+    private static final float REEF_Y = -6f;
+    private static final float REEF_MIN_Z = -14f;
+    private static final float REEF_MAX_Z = -4f;
+
+    /** Water surface, where bubbles burst */
+    private static final float SURFACE_Y = 0f;
+
+    /** Rise speed range, world units per animation delta unit */
+    private static final float MIN_RISE_SPEED = 0.6f;
+    private static final float MAX_RISE_SPEED = 1.4f;
+
+    /** Side to side wobble, amplitude in world units and angular speed in radians per animation delta unit */
+    private static final float WOBBLE = 0.08f;
+    private static final float WOBBLE_SPEED = 6f;
+
+    /** Billboard half width range */
+    private static final float MIN_SIZE = 0.02f;
+    private static final float MAX_SIZE = 0.06f;
+
+    /** Passes the chunk tasks run */
+    private static final int UPDATE = 0;
+    private static final int BILLBOARDS = 1;
+
+    private final int capacity;
+
+    /** Bubble values by slot, off-heap */
+    private final FloatBuffer posX, posY, posZ;
+    private final FloatBuffer riseSpeed;
+    private final FloatBuffer wobblePhase;
+    private final FloatBuffer size;
+
+    /** Free slots, the first freeCount entries */
+    private final IntBuffer freeList;
+    private int freeCount;
+
+    /** Slots that burst in the last update, each chunk's from the chunk's first slot */
+    private final IntBuffer burst;
+
+    /** Per chunk: slots burst and bubbles alive after the last update, and billboard offset */
+    private final int burstCounts[];
+    private final int liveCounts[];
+    private final int billboardOffsets[];
+
+    private final int chunkCount;
+
+    /** Next chunk to claim and chunks finished in the current pass */
+    private final AtomicInteger nextChunk = new AtomicInteger();
+    private final AtomicInteger chunksDone = new AtomicInteger();
+
+    /** Tasks that claim chunks on the pool, reused every pass */
+    private final HelperTask helpers[];
+
+    /** Pool the chunks are split across, null to run them on the calling thread */
+    private final ForkJoinPool pool;
+
+    /** Bubbles spawned per animation delta unit, and the fraction of one owed from earlier steps */
+    private final float spawnRate;
+    private float spawnOwed = 0f;
+
+    /** Spawn generator state, xorshift so spawning allocates nothing */
+    private long random;
+
+    /** Values of the pass being run */
+    private int pass;
+    private float dt;
+    private FloatBuffer vertices;
+    private float rightX, rightY, rightZ, upX, upY, upZ;
+
+    /** Bubbles alive */
+    private int liveCount = 0;
+
+    /** Most bubbles spawned up to, those over it are left to burst */
+    private int liveLimit;
+
+    /** Bubbles updated on the common fork-join pool */
+    public BubbleSystem(int capacity, long seed) {
+        this(capacity, seed, ForkJoinPool.commonPool());
+    }
+
+    /** Room for capacity bubbles, updated on the given pool, or on the calling thread if the pool is null */
+    public BubbleSystem(int capacity, long seed, ForkJoinPool pool) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative");
+        }
+
+        this.capacity = capacity;
+        this.pool = pool;
+        this.random = seed != 0 ? seed : 1;
+
+        int slots = Math.max(1, capacity);
+        posX = Buffers.createFloatBuffer(slots);
+        posY = Buffers.createFloatBuffer(slots);
+        posZ = Buffers.createFloatBuffer(slots);
+        riseSpeed = Buffers.createFloatBuffer(slots);
+        wobblePhase = Buffers.createFloatBuffer(slots);
+        size = Buffers.createFloatBuffer(slots);
+        freeList = Buffers.createIntBuffer(slots);
+        burst = Buffers.createIntBuffer(slots);
+
+        chunkCount = (capacity + CHUNK - 1) / CHUNK;
+        burstCounts = new int[chunkCount];
+        liveCounts = new int[chunkCount];
+        billboardOffsets = new int[chunkCount];
+
+        /** The calling thread takes a share, so one fewer helper than chunks is enough */
+        int helperCount = pool == null ? 0 : Math.max(0, Math.min(pool.getParallelism(), chunkCount - 1));
+        helpers = new HelperTask[helperCount];
+        for (int i = 0; i < helperCount; i++) {
+            helpers[i] = new HelperTask();
+        }
+
+        /** Enough to keep every slot in use once the first bubbles reach the surface */
+        float meanRiseTime = (SURFACE_Y - REEF_Y) / ((MIN_RISE_SPEED + MAX_RISE_SPEED) / 2);
+        spawnRate = capacity / meanRiseTime;
+
+        /** Free slots pop in order from slot 0 */
+        for (int i = 0; i < capacity; i++) {
+            freeList.put(i, capacity - 1 - i);
+        }
+        freeCount = capacity;
+        liveLimit = capacity;
+    }
+
+    /** Move every bubble up by dt animation delta units, bursting those at the surface and spawning new ones */
+    public void step(float dt) {
+        this.dt = dt;
+        runPass(UPDATE);
+
+        /** Burst bubbles go back on the free list, in chunk order */
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            int first = chunk * CHUNK;
+            for (int i = 0; i < burstCounts[chunk]; i++) {
+                freeList.put(freeCount++, burst.get(first + i));
+            }
+        }
+
+        spawnOwed += spawnRate * dt;
+
+        /** The limit is never over the capacity, so there are always free slots for the room under it */
+        int room = Math.max(0, liveLimit - (capacity - freeCount));
+        int spawns = Math.min((int) spawnOwed, room);
+        spawnOwed -= (int) spawnOwed;
+        for (int i = 0; i < spawns; i++) {
+            spawn(freeList.get(--freeCount));
+        }
+
+        liveCount = capacity - freeCount;
+    }
+
+    /** Start a bubble on the reef floor */
+    private void spawn(int slot) {
+        posX.put(slot, REEF_MIN_X + nextFloat() * (REEF_MAX_X - REEF_MIN_X));
+        posY.put(slot, REEF_Y);
+        posZ.put(slot, REEF_MIN_Z + nextFloat() * (REEF_MAX_Z - REEF_MIN_Z));
+        riseSpeed.put(slot, MIN_RISE_SPEED + nextFloat() * (MAX_RISE_SPEED - MIN_RISE_SPEED));
+        wobblePhase.put(slot, nextFloat() * 2 * (float) Math.PI);
+        size.put(slot, MIN_SIZE + nextFloat() * (MAX_SIZE - MIN_SIZE));
+        liveCounts[slot / CHUNK]++;
+    }
+
+    /** Uniform in [0, 1) */
+    private float nextFloat() {
+        random ^= random << 13;
+        random ^= random >>> 7;
+        random ^= random << 17;
+        return (random >>> 40) * 0x1.0p-24f;
+    }
+
+    /**
+     * Write a camera-facing quad, as two triangles of BILLBOARD_VERTICES vertices, for every
+     * bubble into the vertex buffer from index zero. Right and up are the camera's axes in
+     * world space. Returns the number of vertices written
+     */
+    public int writeBillboards(FloatBuffer vertices, float rightX, float rightY, float rightZ,
+            float upX, float upY, float upZ) {
+        int offset = 0;
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            billboardOffsets[chunk] = offset;
+            offset += liveCounts[chunk];
+        }
+        if ((long) offset * BILLBOARD_VERTICES * VERTEX_FLOATS > vertices.capacity()) {
+            throw new IllegalArgumentException("Room for " + vertices.capacity() + " floats, "
+                    + offset + " billboards need more");
+        }
+
+        this.vertices = vertices;
+        this.rightX = rightX;
+        this.rightY = rightY;
+        this.rightZ = rightZ;
+        this.upX = upX;
+        this.upY = upY;
+        this.upZ = upZ;
+        runPass(BILLBOARDS);
+        this.vertices = null;
+
+        return offset * BILLBOARD_VERTICES;
+    }
+
+    /** Run a pass over every chunk, the pass and its values are published by resetting the counters */
+    private void runPass(int pass) {
+        this.pass = pass;
+        chunksDone.set(0);
+        nextChunk.set(0);
+
+        /** A helper still queued from an earlier pass will claim chunks of this one when it runs */
+        for (HelperTask helper : helpers) {
+            if (helper.isDone()) {
+                helper.reinitialize();
+                pool.execute(helper);
+            }
+        }
+
+        claimChunks();
+
+        /** Every chunk is claimed, the helpers have at most one each left to finish */
+        while (chunksDone.get() < chunkCount) {
+            Thread.yield();
+        }
+    }
+
+    /** Run chunks of the current pass until none are left to claim */
+    private void claimChunks() {
+        for (int chunk = nextChunk.getAndIncrement(); chunk < chunkCount; chunk = nextChunk.getAndIncrement()) {
+            if (pass == UPDATE) {
+                updateChunk(chunk);
+            } else {
+                writeChunk(chunk);
+            }
+            chunksDone.incrementAndGet();
+        }
+    }
+
+    /** Rise and wobble the chunk's bubbles, noting those that reach the surface */
+    private void updateChunk(int chunk) {
+        int first = chunk * CHUNK, end = Math.min(first + CHUNK, capacity);
+        float dt = this.dt, phaseStep = WOBBLE_SPEED * dt;
+        float twoPi = 2 * (float) Math.PI;
+        int burstCount = 0, live = 0;
+        for (int i = first; i < end; i++) {
+            if (size.get(i) == 0f) {
+                continue;
+            }
+
+            float y = posY.get(i) + riseSpeed.get(i) * dt;
+            if (y >= SURFACE_Y) {
+                size.put(i, 0f);
+                burst.put(first + burstCount++, i);
+                continue;
+            }
+            posY.put(i, y);
+
+            float phase = wobblePhase.get(i) + phaseStep;
+            wobblePhase.put(i, phase >= twoPi ? phase - twoPi : phase);
+            live++;
+        }
+        burstCounts[chunk] = burstCount;
+        liveCounts[chunk] = live;
+    }
+
+    /** Write the billboards of the chunk's bubbles from its offset */
+    private void writeChunk(int chunk) {
+        int first = chunk * CHUNK, end = Math.min(first + CHUNK, capacity);
+        FloatBuffer out = vertices;
+        int o = billboardOffsets[chunk] * BILLBOARD_VERTICES * VERTEX_FLOATS;
+        for (int i = first; i < end; i++) {
+            float s = size.get(i);
+            if (s == 0f) {
+                continue;
+            }
+
+            float x = posX.get(i) + WOBBLE * ScalarCurveKernel.sin(wobblePhase.get(i));
+            float y = posY.get(i), z = posZ.get(i);
+
+            /** Corners of the quad: right and up scaled by the bubble's size */
+            float rx = rightX * s, ry = rightY * s, rz = rightZ * s;
+            float ux = upX * s, uy = upY * s, uz = upZ * s;
+            float x0 = x - rx - ux, y0 = y - ry - uy, z0 = z - rz - uz;
+            float x1 = x + rx - ux, y1 = y + ry - uy, z1 = z + rz - uz;
+            float x2 = x + rx + ux, y2 = y + ry + uy, z2 = z + rz + uz;
+            float x3 = x - rx + ux, y3 = y - ry + uy, z3 = z - rz + uz;
+
+            o = vertex(out, o, x0, y0, z0);
+            o = vertex(out, o, x1, y1, z1);
+            o = vertex(out, o, x2, y2, z2);
+            o = vertex(out, o, x0, y0, z0);
+            o = vertex(out, o, x2, y2, z2);
+            o = vertex(out, o, x3, y3, z3);
+        }
+    }
+
+    private static int vertex(FloatBuffer out, int offset, float x, float y, float z) {
+        out.put(offset, x);
+        out.put(offset + 1, y);
+        out.put(offset + 2, z);
+        return offset + VERTEX_FLOATS;
+    }
+
+    /** Claims chunks on the pool alongside the calling thread */
+    @SuppressWarnings("serial")
+    private class HelperTask extends RecursiveAction {
+        protected void compute() {
+            claimChunks();
+        }
+    }
+
+    /** Bubbles alive after the last step */
+    public int getLiveCount() {
+        return liveCount;
+    }
+
+    /**
+     * Spawn no more than the given number of bubbles alive at once, up to the capacity.
+     * Lowering it bursts nothing, bubbles over the limit rise and burst as usual
+     */
+    public void setLiveLimit(int liveLimit) {
+        this.liveLimit = Math.max(0, Math.min(liveLimit, capacity));
+    }
+
+    public int getLiveLimit() {
+        return liveLimit;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /** Floats writeBillboards() needs room for after the last step */
+    public int getBillboardFloats() {
+        return liveCount * BILLBOARD_VERTICES * VERTEX_FLOATS;
+    }
+}
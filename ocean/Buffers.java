@@ -0,0 +1,65 @@
+package ocean;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Description: Direct buffers in native byte order, the form OpenGL reads from,
+ *    created without needing LWJGL or an OpenGL context, and written to files
+ */
+public final class Buffers {
+
+    private Buffers() {
+    }
+
+    public static ByteBuffer createByteBuffer(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    public static FloatBuffer createFloatBuffer(int floats) {
+        return createByteBuffer(floats * 4).asFloatBuffer();
+    }
+
+    public static IntBuffer createIntBuffer(int ints) {
+        return createByteBuffer(ints * 4).asIntBuffer();
+    }
+
+    /** A direct copy of the given values, positioned at zero and ready to read */
+    public static FloatBuffer wrap(float... values) {
+        FloatBuffer buffer = createFloatBuffer(values.length);
+        buffer.put(values);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Write the remaining bytes of each buffer in turn to a .part file beside the file, then
+     * move it over the file in one step, so a reader never maps a half-written file
+     */
+    static void writeAtomically(Path file, ByteBuffer... buffers) throws IOException {
+        Path partial = file.resolveSibling(file.getFileName() + ".part");
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (ByteBuffer buffer : buffers) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+
+        try {
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package ocean;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Description: Loads textures with their mipmaps, decoding each source image once.
+ *    The source file is hashed and looked up in the cache directory; on a hit the cached
+ *    texture is memory-mapped and can be uploaded without decoding, on a miss the image
+ *    is decoded (bitmaps by BmpDecoder, anything else through ImageIO), its mipmaps are
+ *    built in parallel and the result is written to the cache for next time.
+ *    Needs no OpenGL context, uploading is left to RenderDevice.createTexture
+ */
+public class CachedTextureLoader {
+
+    /** Hex digits of the source hash used to name cache files */
+    private static final int NAME_DIGITS = 16;
+
+    /** Directory holding the cache files */
+    private final Path cacheDirectory;
+
+    /** Pool the mipmaps are built on */
+    private final ForkJoinPool pool;
+
+    /** If the last load was served from the cache */
+    private boolean lastLoadCached = false;
+
+    public CachedTextureLoader(Path cacheDirectory) {
+        this(cacheDirectory, ForkJoinPool.commonPool());
+    }
+
+    /** A loader building mipmaps on the given pool, or on the calling thread if null */
+    public CachedTextureLoader(Path cacheDirectory, ForkJoinPool pool) {
+        this.cacheDirectory = cacheDirectory;
+        this.pool = pool;
+    }
+
+    /** Load a texture and its mipmaps, from the cache if the source hasn't changed */
+    public TextureImage load(Path source) throws IOException {
+        ByteBuffer file = map(source);
+        byte hash[] = hash(file);
+        Path cached = cacheDirectory.resolve(toHex(hash, NAME_DIGITS) + ".otex");
+
+        TextureImage image = TextureCache.read(cached, hash);
+        lastLoadCached = image != null;
+        if (image != null) {
+            return image;
+        }
+
+        image = decode(file);
+        MipmapBuilder.build(image, pool);
+
+        /** A cache that can't be written only costs the next startup its head start */
+        try {
+            Files.createDirectories(cacheDirectory);
+            TextureCache.write(cached, hash, image);
+        } catch (IOException e) {
+            System.err.println("Couldn't cache texture " + source + ": " + e.getMessage());
+        }
+
+        return image;
+    }
+
+    /** If the last texture loaded came from the cache */
+    public boolean wasLastLoadCached() {
+        return lastLoadCached;
+    }
+
+    /** Decode an image file into level 0 of a texture with room for its mipmaps */
+    public static TextureImage decode(ByteBuffer file) throws IOException {
+        if (BmpDecoder.isBmp(file)) {
+            return BmpDecoder.decode(file);
+        }
+        return decodeWithImageIO(file);
+    }
+
+    /** Decode any format ImageIO reads, such as JPEG files with a .bmp name */
+    private static TextureImage decodeWithImageIO(ByteBuffer file) throws IOException {
+        byte bytes[] = new byte[file.limit()];
+        file.duplicate().get(bytes);
+
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(bytes));
+        if (decoded == null) {
+            throw new IOException("Unrecognised image format");
+        }
+
+        int width = decoded.getWidth();
+        int height = decoded.getHeight();
+        TextureImage image = TextureImage.allocate(width, height);
+        ByteBuffer pixels = image.getPixels();
+
+        int row[] = new int[width];
+        for (int y = 0; y < height; y++) {
+            decoded.getRGB(0, y, width, 1, row, 0, width);
+            int out = y * width * TextureImage.PIXEL_BYTES;
+            for (int x = 0; x < width; x++, out += TextureImage.PIXEL_BYTES) {
+                int argb = row[x];
+                pixels.put(out, (byte) (argb >> 16));
+                pixels.put(out + 1, (byte) (argb >> 8));
+                pixels.put(out + 2, (byte) argb);
+                pixels.put(out + 3, (byte) (argb >>> 24));
+            }
+        }
+
+        return image;
+    }
+
+    private static ByteBuffer map(Path source) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static byte[] hash(ByteBuffer file) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(file.duplicate());
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required of every Java platform", e);
+        }
+    }
+
+    private static String toHex(byte bytes[], int digits) {
+        StringBuilder hex = new StringBuilder(digits);
+        for (int i = 0; hex.length() < digits; i++) {
+            hex.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16)).append(Character.forDigit(bytes[i] & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,144 @@
+package ocean;
+
+/**
+ * Description: Headless check of the animation curves. Steps an animation delta the way
+ *    OceanWorld does and compares the fish tilt and fish bob curves with the
+ *    Math.sin formulas the scene used before, and a keyframe track with linear
+ *    interpolation in double precision. Curves take float times, so each value may be off
+ *    by what rounding its argument to a float can change it by, plus a fixed allowance
+ *    for the polynomial. The Vector API kernel, when this JVM can run it, must also match
+ *    the scalar kernel bit for bit. Exits with status 1 on any failure
+ *
+ * Usage: java [--add-modules jdk.incubator.vector] ocean.CurveAccuracyCheck [steps]
+ */
+public class CurveAccuracyCheck {
+
+    /** Error allowed from the polynomial sine and the float arithmetic, relative to the amplitude */
+    private static final double SINE_TOLERANCE = 4e-7;
+
+    public static void main(String args[]) {
+        int steps = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        float animationScale = 0.01f;
+
+        CurveKernel scalar = new ScalarCurveKernel();
+        CurveKernel vector = CurveKernels.vector();
+        System.out.println("Kernels: " + scalar.getName() + (vector != null ? ", " + vector.getName() : ", no vector kernel"));
+
+        /** Every animation delta of the run, used as phases at time zero so the batch covers them all */
+        float deltas[] = new float[steps];
+        float animationDelta = 0.0f;
+        for (int i = 0; i < steps; i++) {
+            animationDelta += animationScale;
+            deltas[i] = animationDelta;
+        }
+
+        float tilt[] = new float[steps];
+        float fishBob[] = new float[steps];
+        OceanWorld.FISH_TILT.evaluate(scalar, 0f, deltas, tilt, steps);
+        OceanWorld.FISH_BOB.evaluate(scalar, 0f, deltas, fishBob, steps);
+
+        Accuracy tiltAccuracy = new Accuracy("fish tilt");
+        Accuracy fishBobAccuracy = new Accuracy("fish bob");
+        for (int i = 0; i < steps; i++) {
+            /** The formulas as updateScene() wrote them */
+            double sin = Math.sin(deltas[i]);
+            tiltAccuracy.add(tilt[i], (float) (sin / Math.PI) * 80, OceanWorld.FISH_TILT, deltas[i]);
+            fishBobAccuracy.add(fishBob[i], (float) (sin / 10), OceanWorld.FISH_BOB, deltas[i]);
+        }
+
+        boolean passed = true;
+        passed &= tiltAccuracy.report();
+        passed &= fishBobAccuracy.report();
+
+        /** A track of sin sampled at 64 keys, evaluated between and beyond them */
+        int keyCount = 64;
+        float period = 10f;
+        float keyframes[] = new float[keyCount];
+        for (int k = 0; k < keyCount; k++) {
+            keyframes[k] = (float) Math.sin(2 * Math.PI * k / keyCount);
+        }
+        KeyframeTrack track = new KeyframeTrack(keyframes, period);
+
+        float trackValues[] = new float[steps];
+        track.evaluate(scalar, 0f, deltas, trackValues, steps);
+
+        /** Steepest change between keys, per key */
+        double steepest = 0;
+        for (int k = 0; k < keyCount; k++) {
+            steepest = Math.max(steepest, Math.abs(keyframes[(k + 1) % keyCount] - keyframes[k]));
+        }
+
+        Accuracy keyframeAccuracy = new Accuracy("keyframes");
+        for (int i = 0; i < steps; i++) {
+            double position = deltas[i] / (double) period * keyCount;
+            position -= Math.floor(position / keyCount) * keyCount;
+            int key = Math.min((int) position, keyCount - 1);
+            double expected = keyframes[key] + (keyframes[(key + 1) % keyCount] - keyframes[key]) * (position - key);
+
+            /** The position in keys is a float product, rounded by up to an ulp of its unwrapped value */
+            double unwrapped = deltas[i] * (keyCount / period);
+            keyframeAccuracy.add(trackValues[i], expected, steepest * (SINE_TOLERANCE + 2 * Math.ulp((float) unwrapped)));
+        }
+        passed &= keyframeAccuracy.report();
+
+        if (vector != null) {
+            float vectorOut[] = new float[steps];
+            OceanWorld.FISH_TILT.evaluate(vector, 0f, deltas, vectorOut, steps);
+            passed &= reportMismatches("vector fish tilt", tilt, vectorOut);
+            OceanWorld.FISH_BOB.evaluate(vector, 0f, deltas, vectorOut, steps);
+            passed &= reportMismatches("vector fish bob", fishBob, vectorOut);
+            track.evaluate(vector, 0f, deltas, vectorOut, steps);
+            passed &= reportMismatches("vector keyframes", trackValues, vectorOut);
+        }
+
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /** Largest error of a curve and how many values were further off than allowed */
+    private static class Accuracy {
+
+        private final String curve;
+        private double maxError = 0;
+        private double maxAllowed = 0;
+        private int failures = 0;
+
+        Accuracy(String curve) {
+            this.curve = curve;
+        }
+
+        /** A sine curve value at the given time, allowed its amplitude times the tolerance and its argument's rounding */
+        void add(float actual, double expected, PeriodicCurve shape, float time) {
+            float argument = shape.getFrequency() * time;
+            add(actual, expected, Math.abs(shape.getAmplitude()) * (SINE_TOLERANCE + 2 * Math.ulp(argument)));
+        }
+
+        void add(float actual, double expected, double allowed) {
+            double error = Math.abs(actual - expected);
+            maxError = Math.max(maxError, error);
+            maxAllowed = Math.max(maxAllowed, allowed);
+            if (error > allowed) {
+                failures++;
+            }
+        }
+
+        boolean report() {
+            System.out.printf("%-20s max error %.3g, at most %.3g allowed, %d over %s%n", curve, maxError, maxAllowed,
+                    failures, failures == 0 ? "ok" : "FAILED");
+            return failures == 0;
+        }
+    }
+
+    private static boolean reportMismatches(String curve, float expected[], float actual[]) {
+        int mismatches = 0;
+        for (int i = 0; i < expected.length; i++) {
+            if (Float.floatToIntBits(expected[i]) != Float.floatToIntBits(actual[i])) {
+                mismatches++;
+            }
+        }
+        System.out.printf("%-20s %d of %d values differ from scalar %s%n", curve, mismatches, expected.length,
+                mismatches == 0 ? "ok" : "FAILED");
+        return mismatches == 0;
+    }
+}
@@ -0,0 +1,29 @@
+package ocean;
+
+/**
+ * Description: Evaluates animation curves over whole arrays of entities at once, one
+ *    value per entity from a shared time plus the entity's own phase offset.
+ *    ScalarCurveKernel works everywhere; VectorCurveKernel does the same arithmetic
+ *    several lanes at a time with the Java Vector API and gives bit-identical results,
+ *    so which one runs never changes the simulation
+ */
+public interface CurveKernel {
+
+    /**
+     * out[i] = offset + amplitude * sin(frequency * (time + phase[i])) for the first count
+     * entities, with the sine approximated to within a few float ulps
+     */
+    void sine(float time, float frequency, float amplitude, float offset,
+            float phase[], float out[], int count);
+
+    /**
+     * out[i] = the looping track of keyCount evenly spaced values over period, linearly
+     * interpolated at time + phase[i]. values holds keyCount + 1 values, the last one
+     * repeating the first so the loop closes
+     */
+    void keyframes(float time, float period, float values[], int keyCount,
+            float phase[], float out[], int count);
+
+    /** Short name for reports */
+    String getName();
+}
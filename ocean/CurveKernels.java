@@ -0,0 +1,46 @@
+package ocean;
+
+/**
+ * Description: Picks the curve kernel to animate with. The Vector API kernel is loaded
+ *    by name, so this class and everything using it still run on JVMs without the
+ *    jdk.incubator.vector module (or without it added), falling back to the scalar one.
+ *    -Docean.curveKernel=scalar forces the fallback
+ */
+public final class CurveKernels {
+
+    private static final String VECTOR_KERNEL = "ocean.VectorCurveKernel";
+
+    private static final CurveKernel BEST = load();
+
+    private CurveKernels() {
+    }
+
+    /** The fastest kernel this JVM can run */
+    public static CurveKernel best() {
+        return BEST;
+    }
+
+    /** The Vector API kernel, or null if this JVM can't run it */
+    public static CurveKernel vector() {
+        try {
+            CurveKernel kernel = (CurveKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+
+            /** Evaluate once, the module is only looked for when the kernel first runs */
+            float probe[] = new float[1];
+            kernel.sine(0f, 1f, 1f, 0f, probe, probe, 1);
+            return kernel;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static CurveKernel load() {
+        if (!"scalar".equals(System.getProperty("ocean.curveKernel"))) {
+            CurveKernel kernel = vector();
+            if (kernel != null) {
+                return kernel;
+            }
+        }
+        return new ScalarCurveKernel();
+    }
+}
@@ -0,0 +1,199 @@
+package ocean;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Description: Packs the per-fish values the fish shader needs into one direct buffer:
+ *    x, y (including the bobbing), z and the tail tilt in degrees, then the indices of
+ *    the glow lights lighting the fish as floats, -1 for an empty slot, until assigned.
+ *    Given a frustum, only the fish whose bounding sphere is in view are packed.
+ *    Given a camera, each fish packed is given a LevelOfDetail from the size of that
+ *    sphere on screen, and the fish are packed level by level, FULL first, so each
+ *    level is one contiguous run of instances to draw with its own meshes.
+ *    The buffer is reused from frame to frame and only reallocated when the world
+ *    holds more fish than it has room for, so packing needs no OpenGL context and
+ *    allocates nothing in the steady state
+ */
+public class FishInstanceBuffer {
+
+    /** Glow lights per fish, as many as a fish drawn through the scene graph may have */
+    public static final int LIGHT_SLOTS = OceanSceneRenderer.GLOW_LIGHT_SLOTS;
+
+    /** Floats per fish */
+    public static final int INSTANCE_FLOATS = 4 + LIGHT_SLOTS;
+
+    /** Bytes per fish, the stride between instances */
+    public static final int STRIDE = INSTANCE_FLOATS * 4;
+
+    /** Byte offset of the light indices within a fish */
+    public static final int LIGHTS_OFFSET = 4 * 4;
+
+    /**
+     * Radius of a sphere around the fish's position holding its body, eyes and tail at
+     * any tilt: the tail reaches a little over one unit from it in z as it swings
+     */
+    public static final float FISH_RADIUS = 1.1f;
+
+    /**
+     * Radius of the sphere around the box a fish drawn through the scene graph is given its
+     * level from, so instanced fish change level at the same distance
+     */
+    public static final float FISH_DETAIL_RADIUS = 0.7f;
+
+    /** Packed instance data */
+    private FloatBuffer data;
+
+    /** Number of fish packed by the last call to pack */
+    private int count = 0;
+
+    /** Detail level of each fish, -1 until it is first packed, culled fish keep theirs for when they return */
+    private byte levels[];
+
+    /** Fish in view in the last call to pack, by index in the world */
+    private int inView[];
+
+    /** First instance and number of fish at each detail level in the last call to pack */
+    private final int levelStarts[] = new int[LevelOfDetail.LEVELS];
+    private final int levelCounts[] = new int[LevelOfDetail.LEVELS];
+
+    /** Lights picked for one fish and their brightness */
+    private final int pickedLights[] = new int[LIGHT_SLOTS];
+    private final float pickedScores[] = new float[LIGHT_SLOTS];
+
+    public FishInstanceBuffer(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        data = Buffers.createFloatBuffer(capacity * INSTANCE_FLOATS);
+        levels = new byte[capacity];
+        Arrays.fill(levels, (byte) -1);
+        inView = new int[capacity];
+    }
+
+    /** Pack every fish in the world or snapshot, returns the number of fish packed */
+    public int pack(OceanState world) {
+        return pack(world, Integer.MAX_VALUE);
+    }
+
+    /** Pack the first fish in the world or snapshot, no more than the limit, returns the number packed */
+    public int pack(OceanState world, int limit) {
+        return pack(world, limit, null);
+    }
+
+    /**
+     * Pack the first fish in the world or snapshot, no more than the limit, leaving out
+     * those outside the frustum if it isn't null. Returns the number packed, all at full detail
+     */
+    public int pack(OceanState world, int limit, Frustum frustum) {
+        return pack(world, limit, frustum, null, null, 1f);
+    }
+
+    /**
+     * Pack the first fish in the world or snapshot, no more than the limit, leaving out
+     * those outside the frustum if it isn't null. With a column-major projection times view
+     * matrix, each fish's level is picked by the level of detail from its size on screen times
+     * the detail scale; without one every fish is at full detail. Returns the number packed
+     */
+    public int pack(OceanState world, int limit, Frustum frustum,
+            float viewProjection[], LevelOfDetail levelOfDetail, float detailScale) {
+        int fishCount = Math.min(world.getFishCount(), Math.max(0, limit));
+        ensureCapacity(fishCount);
+
+        float fishPosX[] = world.getFishPosX();
+        float fishPosY[] = world.getFishPosY();
+        float fishPosZ[] = world.getFishPosZ();
+        float fishTilt[] = world.getFishTilt();
+
+        /** Pick the level of every fish in view and count each level */
+        Arrays.fill(levelCounts, 0);
+        int inViewCount = 0;
+        for (int i = 0; i < fishCount; i++) {
+            if (frustum != null
+                    && frustum.testSphere(fishPosX[i], fishPosY[i], fishPosZ[i], FISH_RADIUS) == Frustum.OUTSIDE) {
+                continue;
+            }
+            levels[i] = (byte) (viewProjection != null
+                    ? levelOfDetail.select(levels[i], LevelOfDetail.projectedSize(viewProjection,
+                            fishPosX[i], fishPosY[i], fishPosZ[i], FISH_DETAIL_RADIUS) * detailScale)
+                    : LevelOfDetail.FULL);
+            levelCounts[levels[i]]++;
+            inView[inViewCount++] = i;
+        }
+
+        /** Each level's run starts where the one before ends */
+        int start = 0;
+        for (int level = 0; level < LevelOfDetail.LEVELS; level++) {
+            levelStarts[level] = start;
+            start += levelCounts[level];
+        }
+
+        /** Write each fish at the next free instance of its level's run, then wind the starts back */
+        FloatBuffer data = this.data;
+        data.clear();
+        for (int j = 0; j < inViewCount; j++) {
+            int i = inView[j];
+            int offset = levelStarts[levels[i]]++ * INSTANCE_FLOATS;
+            data.put(offset, fishPosX[i]);
+            data.put(offset + 1, fishPosY[i]);
+            data.put(offset + 2, fishPosZ[i]);
+            data.put(offset + 3, fishTilt[i]);
+            for (int slot = 0; slot < LIGHT_SLOTS; slot++) {
+                data.put(offset + 4 + slot, -1f);
+            }
+        }
+        for (int level = 0; level < LevelOfDetail.LEVELS; level++) {
+            levelStarts[level] -= levelCounts[level];
+        }
+
+        count = inViewCount;
+        return inViewCount;
+    }
+
+    /**
+     * Give every fish packed by the last call to pack the brightest glow lights of the
+     * clusters' last build that reach its bounding sphere, as a fish drawn through the
+     * scene graph gets them
+     */
+    public void assignLights(LightClusters clusters) {
+        FloatBuffer data = this.data;
+        for (int instance = 0; instance < count; instance++) {
+            int offset = instance * INSTANCE_FLOATS;
+            int picked = clusters.select(data.get(offset), data.get(offset + 1), data.get(offset + 2),
+                    FISH_RADIUS, LIGHT_SLOTS, pickedLights, pickedScores, 0);
+            for (int slot = 0; slot < LIGHT_SLOTS; slot++) {
+                data.put(offset + 4 + slot, slot < picked ? pickedLights[slot] : -1f);
+            }
+        }
+    }
+
+    /** Grow the buffers to hold at least the given number of fish, doubling to keep growth rare */
+    private void ensureCapacity(int fishCount) {
+        int capacity = levels.length;
+        if (fishCount > capacity) {
+            int grown = Math.max(fishCount, capacity * 2);
+            data = Buffers.createFloatBuffer(grown * INSTANCE_FLOATS);
+            levels = Arrays.copyOf(levels, grown);
+            Arrays.fill(levels, capacity, grown, (byte) -1);
+            inView = new int[grown];
+        }
+    }
+
+    /** The packed fish, positioned at zero with the limit at the end of the last fish */
+    public FloatBuffer getData() {
+        data.limit(count * INSTANCE_FLOATS).position(0);
+        return data;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /** First packed instance at the given detail level */
+    public int getLevelStart(int level) {
+        return levelStarts[level];
+    }
+
+    /** Fish packed at the given detail level */
+    public int getLevelCount(int level) {
+        return levelCounts[level];
+    }
+}
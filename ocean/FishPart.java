@@ -0,0 +1,34 @@
+package ocean;
+
+/**
+ * Description: The separately drawn parts of a fish, each drawn for the fish at one
+ *    LevelOfDetail
+ */
+public enum FishPart {
+
+    /** The body, drawn with the fish material */
+    BODY(LevelOfDetail.FULL),
+
+    /** The tail, swung by the fish's tilt, drawn with the fish material */
+    TAIL(LevelOfDetail.FULL),
+
+    /** Both eyes, drawn with the eye material */
+    EYES(LevelOfDetail.FULL),
+
+    /** Body and still tail in one mesh, drawn with the fish material */
+    MERGED(LevelOfDetail.REDUCED),
+
+    /** A single quad, drawn with the fish material */
+    IMPOSTOR(LevelOfDetail.IMPOSTOR);
+
+    /** Detail level of the fish this part is drawn for */
+    private final int level;
+
+    private FishPart(int level) {
+        this.level = level;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+}
@@ -0,0 +1,413 @@
+package ocean;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Description: A school of fish steered by separation, alignment and cohesion with
+ *    their neighbours, on top of the scene's original swim along X that loops from
+ *    the end of the path back to the start.
+ *
+ * Neighbours: every tick the fish are binned into a uniform grid of cells as wide as the
+ *    neighbour radius, using a counting sort over the school's bounds, so each fish only
+ *    looks at fish in its own and the 26 surrounding cells. The grid covers the whole
+ *    swimming area, so a cell's bucket is its index and neighbouring cells never share one
+ *
+ * Parallelism: new velocities are computed from the previous tick's positions and
+ *    velocities only, so fish can be updated in any order; ranges of fish are split across
+ *    a fork-join pool and the result is the same whatever the number of threads
+ */
+public class FishSchool {
+
+    /** Speed fish cruise at along X, the scene's original fish speed */
+    public static final float CRUISE_SPEED = 0.25f;
+
+    /** Swimming area, fish loop along X and are steered back inside in Y and Z */
+    public static final float MIN_Y = -4.5f;
+    public static final float MAX_Y = -0.5f;
+    public static final float MIN_Z = -12f;
+    public static final float MAX_Z = -4f;
+
+    /** Fish closer than this are neighbours, also the grid cell size */
+    private static final float NEIGHBOUR_RADIUS = 1.0f;
+
+    /** Fish closer than this push each other apart */
+    private static final float SEPARATION_RADIUS = 0.4f;
+
+    /** Most neighbours each fish takes into account, bounds the cost in dense schools */
+    private static final int MAX_NEIGHBOURS = 24;
+
+    /** Steering weights */
+    private static final float SEPARATION_WEIGHT = 0.05f;
+    private static final float ALIGNMENT_WEIGHT = 0.5f;
+    private static final float COHESION_WEIGHT = 0.2f;
+    private static final float CRUISE_WEIGHT = 1.0f;
+    private static final float BOUNDS_WEIGHT = 2.0f;
+
+    /** Speed limit */
+    private static final float MAX_SPEED = 0.6f;
+
+    /** Cell offsets of the 27 cells searched, own cell first, as it usually fills MAX_NEIGHBOURS alone */
+    private static final int SEARCH_X[] = new int[27], SEARCH_Y[] = new int[27], SEARCH_Z[] = new int[27];
+
+    static {
+        for (int k = 1, n = 0; n < 27; n++) {
+            int dx = n % 3 - 1, dy = n / 3 % 3 - 1, dz = n / 9 - 1;
+            int slot = dx == 0 && dy == 0 && dz == 0 ? 0 : k++;
+            SEARCH_X[slot] = dx;
+            SEARCH_Y[slot] = dy;
+            SEARCH_Z[slot] = dz;
+        }
+    }
+
+    /** Fewest fish a fork-join task updates without splitting further */
+    private static final int SPLIT_THRESHOLD = 2048;
+
+    private final int fishCount;
+
+    /** Positions and velocities */
+    private final float posX[], posY[], posZ[];
+    private float velX[], velY[], velZ[];
+
+    /** Velocities being computed for the next tick, swapped with the current ones after */
+    private float nextVelX[], nextVelY[], nextVelZ[];
+
+    /** Grid dimensions in cells */
+    private final int cellsX, cellsY, cellsZ;
+
+    /** Cell of each fish */
+    private final int fishCell[];
+
+    /** Index into sortedFish of each cell's first fish, with one extra entry for the end */
+    private final int cellStart[];
+
+    /** Fish indices ordered by cell */
+    private final int sortedFish[];
+
+    /** Positions and velocities copied in cell order, so scanning a cell reads memory in sequence */
+    private final float sortedPosX[], sortedPosY[], sortedPosZ[];
+    private final float sortedVelX[], sortedVelY[], sortedVelZ[];
+
+    /** Pool the update is split across, null to update on the calling thread */
+    private final ForkJoinPool pool;
+
+    /** Step size of the tick being computed */
+    private float dt;
+
+    /** A school updated on the common fork-join pool */
+    public FishSchool(int fishCount) {
+        this(fishCount, ForkJoinPool.commonPool());
+    }
+
+    /** A school updated on the given pool, or on the calling thread if the pool is null */
+    public FishSchool(int fishCount, ForkJoinPool pool) {
+        this.fishCount = fishCount;
+        this.pool = pool;
+
+        posX = new float[fishCount];
+        posY = new float[fishCount];
+        posZ = new float[fishCount];
+        velX = new float[fishCount];
+        velY = new float[fishCount];
+        velZ = new float[fishCount];
+        nextVelX = new float[fishCount];
+        nextVelY = new float[fishCount];
+        nextVelZ = new float[fishCount];
+
+        cellsX = cellCount(OceanWorld.FISH_END_X - OceanWorld.FISH_START_X);
+        cellsY = cellCount(MAX_Y - MIN_Y);
+        cellsZ = cellCount(MAX_Z - MIN_Z);
+
+        fishCell = new int[fishCount];
+        cellStart = new int[cellsX * cellsY * cellsZ + 1];
+        sortedFish = new int[fishCount];
+        sortedPosX = new float[fishCount];
+        sortedPosY = new float[fishCount];
+        sortedPosZ = new float[fishCount];
+        sortedVelX = new float[fishCount];
+        sortedVelY = new float[fishCount];
+        sortedVelZ = new float[fishCount];
+
+        reset();
+    }
+
+    private static int cellCount(float extent) {
+        return Math.max(1, (int) Math.ceil(extent / NEIGHBOUR_RADIUS));
+    }
+
+    /**
+     * Put every fish back at its spawn point, swimming along X at cruise speed.
+     * Fish are spread evenly along the path and scattered in Y and Z from a fixed seed;
+     * the first fish always starts where the scene's single fish always has
+     */
+    public void reset() {
+        long seed = 0x5DEECE66DL;
+        for (int i = 0; i < fishCount; i++) {
+            posX[i] = OceanWorld.FISH_START_X + (OceanWorld.FISH_END_X - OceanWorld.FISH_START_X) * i / fishCount;
+
+            if (i == 0) {
+                posY[i] = OceanWorld.FISH_BASE_Y;
+                posZ[i] = OceanWorld.FISH_Z;
+            } else {
+                seed = seed * 6364136223846793005L + 1442695040888963407L;
+                posY[i] = MIN_Y + (MAX_Y - MIN_Y) * ((seed >>> 40) / (float) (1L << 24));
+                seed = seed * 6364136223846793005L + 1442695040888963407L;
+                posZ[i] = MIN_Z + (MAX_Z - MIN_Z) * ((seed >>> 40) / (float) (1L << 24));
+            }
+
+            velX[i] = CRUISE_SPEED;
+            velY[i] = 0f;
+            velZ[i] = 0f;
+        }
+    }
+
+    /** Advance the school by one step of the given size */
+    public void step(float dt) {
+        this.dt = dt;
+        rebuildGrid();
+
+        if (pool == null || fishCount <= SPLIT_THRESHOLD) {
+            steer(0, fishCount);
+            move(0, fishCount);
+        } else {
+            pool.invoke(new SteerTask(0, fishCount));
+            pool.invoke(new MoveTask(0, fishCount));
+        }
+        swapVelocities();
+    }
+
+    /** Counting sort of the fish into grid cells */
+    private void rebuildGrid() {
+        int cellStart[] = this.cellStart;
+        for (int c = 0; c < cellStart.length; c++) {
+            cellStart[c] = 0;
+        }
+
+        /** Count the fish in each cell, shifted by one so the prefix sum gives the starts */
+        for (int i = 0; i < fishCount; i++) {
+            int cell = cellOf(posX[i], posY[i], posZ[i]);
+            fishCell[i] = cell;
+            cellStart[cell + 1]++;
+        }
+
+        for (int c = 1; c < cellStart.length; c++) {
+            cellStart[c] += cellStart[c - 1];
+        }
+
+        /** Place each fish, using cellStart as a cursor and then restoring it */
+        for (int i = 0; i < fishCount; i++) {
+            int s = cellStart[fishCell[i]]++;
+            sortedFish[s] = i;
+            sortedPosX[s] = posX[i];
+            sortedPosY[s] = posY[i];
+            sortedPosZ[s] = posZ[i];
+            sortedVelX[s] = velX[i];
+            sortedVelY[s] = velY[i];
+            sortedVelZ[s] = velZ[i];
+        }
+        for (int c = cellStart.length - 1; c > 0; c--) {
+            cellStart[c] = cellStart[c - 1];
+        }
+        cellStart[0] = 0;
+    }
+
+    private int cellOf(float x, float y, float z) {
+        int cx = clamp((int) ((x - OceanWorld.FISH_START_X) / NEIGHBOUR_RADIUS), cellsX);
+        int cy = clamp((int) ((y - MIN_Y) / NEIGHBOUR_RADIUS), cellsY);
+        int cz = clamp((int) ((z - MIN_Z) / NEIGHBOUR_RADIUS), cellsZ);
+        return (cz * cellsY + cy) * cellsX + cx;
+    }
+
+    private static int clamp(int cell, int cells) {
+        return cell < 0 ? 0 : cell >= cells ? cells - 1 : cell;
+    }
+
+    /** Compute the next velocity of fish from first up to end, reading only current state */
+    private void steer(int first, int end) {
+        for (int i = first; i < end; i++) {
+            float x = posX[i], y = posY[i], z = posZ[i];
+
+            float separationX = 0, separationY = 0, separationZ = 0;
+            float sumVelX = 0, sumVelY = 0, sumVelZ = 0;
+            float sumPosX = 0, sumPosY = 0, sumPosZ = 0;
+            int neighbours = 0;
+
+            int cell = fishCell[i];
+            int cx = cell % cellsX;
+            int cy = cell / cellsX % cellsY;
+            int cz = cell / (cellsX * cellsY);
+
+            search:
+            for (int k = 0; k < 27; k++) {
+                int nx = cx + SEARCH_X[k], ny = cy + SEARCH_Y[k], nz = cz + SEARCH_Z[k];
+                if (nx < 0 || nx >= cellsX || ny < 0 || ny >= cellsY || nz < 0 || nz >= cellsZ) {
+                    continue;
+                }
+                int neighbourCell = (nz * cellsY + ny) * cellsX + nx;
+
+                for (int s = cellStart[neighbourCell]; s < cellStart[neighbourCell + 1]; s++) {
+                    if (sortedFish[s] == i) {
+                        continue;
+                    }
+
+                    float dx = x - sortedPosX[s], dy = y - sortedPosY[s], dz = z - sortedPosZ[s];
+                    float distanceSquared = dx * dx + dy * dy + dz * dz;
+                    if (distanceSquared >= NEIGHBOUR_RADIUS * NEIGHBOUR_RADIUS) {
+                        continue;
+                    }
+
+                    if (distanceSquared < SEPARATION_RADIUS * SEPARATION_RADIUS && distanceSquared > 1e-6f) {
+                        separationX += dx / distanceSquared;
+                        separationY += dy / distanceSquared;
+                        separationZ += dz / distanceSquared;
+                    }
+
+                    sumVelX += sortedVelX[s];
+                    sumVelY += sortedVelY[s];
+                    sumVelZ += sortedVelZ[s];
+                    sumPosX += sortedPosX[s];
+                    sumPosY += sortedPosY[s];
+                    sumPosZ += sortedPosZ[s];
+
+                    if (++neighbours == MAX_NEIGHBOURS) {
+                        break search;
+                    }
+                }
+            }
+
+            float vx = velX[i], vy = velY[i], vz = velZ[i];
+
+            float ax = SEPARATION_WEIGHT * separationX + CRUISE_WEIGHT * (CRUISE_SPEED - vx);
+            float ay = SEPARATION_WEIGHT * separationY + BOUNDS_WEIGHT * boundsPush(y, MIN_Y, MAX_Y);
+            float az = SEPARATION_WEIGHT * separationZ + BOUNDS_WEIGHT * boundsPush(z, MIN_Z, MAX_Z);
+
+            if (neighbours > 0) {
+                float inverse = 1f / neighbours;
+                ax += ALIGNMENT_WEIGHT * (sumVelX * inverse - vx) + COHESION_WEIGHT * (sumPosX * inverse - x);
+                ay += ALIGNMENT_WEIGHT * (sumVelY * inverse - vy) + COHESION_WEIGHT * (sumPosY * inverse - y);
+                az += ALIGNMENT_WEIGHT * (sumVelZ * inverse - vz) + COHESION_WEIGHT * (sumPosZ * inverse - z);
+            }
+
+            vx += ax * dt;
+            vy += ay * dt;
+            vz += az * dt;
+
+            float speedSquared = vx * vx + vy * vy + vz * vz;
+            if (speedSquared > MAX_SPEED * MAX_SPEED) {
+                float scale = MAX_SPEED / (float) Math.sqrt(speedSquared);
+                vx *= scale;
+                vy *= scale;
+                vz *= scale;
+            }
+
+            nextVelX[i] = vx;
+            nextVelY[i] = vy;
+            nextVelZ[i] = vz;
+        }
+    }
+
+    /** How hard to push a coordinate back inside its limits, zero when inside */
+    private static float boundsPush(float value, float min, float max) {
+        return value < min ? min - value : value > max ? max - value : 0f;
+    }
+
+    /**
+     * Move fish from first up to end by their next velocity. Like the scene's original
+     * fish, a fish that has reached the end of the path is moved back to the start
+     * instead of moving on that step
+     */
+    private void move(int first, int end) {
+        for (int i = first; i < end; i++) {
+            if (posX[i] >= OceanWorld.FISH_END_X) {
+                posX[i] = OceanWorld.FISH_START_X;
+            } else {
+                posX[i] += nextVelX[i] * dt;
+            }
+            posY[i] += nextVelY[i] * dt;
+            posZ[i] += nextVelZ[i] * dt;
+        }
+    }
+
+    /** Swap in the velocities computed by the last steer */
+    private void swapVelocities() {
+        float swap[];
+        swap = velX; velX = nextVelX; nextVelX = swap;
+        swap = velY; velY = nextVelY; nextVelY = swap;
+        swap = velZ; velZ = nextVelZ; nextVelZ = swap;
+    }
+
+    /** Splits a range of fish in half until it is small enough to steer directly */
+    @SuppressWarnings("serial")
+    private class SteerTask extends RecursiveAction {
+        private final int first, end;
+
+        SteerTask(int first, int end) {
+            this.first = first;
+            this.end = end;
+        }
+
+        protected void compute() {
+            if (end - first <= SPLIT_THRESHOLD) {
+                steer(first, end);
+            } else {
+                int middle = (first + end) >>> 1;
+                invokeAll(new SteerTask(first, middle), new SteerTask(middle, end));
+            }
+        }
+    }
+
+    /** Splits a range of fish in half until it is small enough to move directly */
+    @SuppressWarnings("serial")
+    private class MoveTask extends RecursiveAction {
+        private final int first, end;
+
+        MoveTask(int first, int end) {
+            this.first = first;
+            this.end = end;
+        }
+
+        protected void compute() {
+            if (end - first <= SPLIT_THRESHOLD) {
+                move(first, end);
+            } else {
+                int middle = (first + end) >>> 1;
+                invokeAll(new MoveTask(first, middle), new MoveTask(middle, end));
+            }
+        }
+    }
+
+    public int getFishCount() {
+        return fishCount;
+    }
+
+    /** Positions, live arrays that must not be modified */
+    public float[] getPosX() {
+        return posX;
+    }
+
+    public float[] getPosY() {
+        return posY;
+    }
+
+    public float[] getPosZ() {
+        return posZ;
+    }
+
+    /** Velocities, live arrays that must not be modified */
+    public float[] getVelX() {
+        return velX;
+    }
+
+    public float[] getVelY() {
+        return velY;
+    }
+
+    public float[] getVelZ() {
+        return velZ;
+    }
+
+    /** Threads the update is split across */
+    public int getParallelism() {
+        return pool == null ? 1 : pool.getParallelism();
+    }
+}
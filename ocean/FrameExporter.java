@@ -0,0 +1,240 @@
+package ocean;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Description: Exports the animation as numbered PNG frames without a window, as fast as
+ *    the machine allows. The calling thread steps the world once per frame at a fixed
+ *    step, renders it with SoftwareRenderDevice and copies the frame into a pooled
+ *    PixelBuffer; encoder threads take finished frames from a bounded queue, write them
+ *    and return the buffers, so encoding and disk writes overlap rendering. When every
+ *    buffer is waiting to be encoded the renderer blocks, which bounds memory
+ *
+ * Usage: java ocean.FrameExporter [seconds] [frames per second] [width] [height]
+ *    [fish count] [output directory] [encoder threads]
+ */
+public class FrameExporter {
+
+    /** Tells an encoder thread there are no more frames */
+    private static final PixelBuffer END = new PixelBuffer(1, 1);
+
+    private final OceanWorld world;
+    private final int width;
+    private final int height;
+    private final Path directory;
+    private final int encoderCount;
+
+    /** Buffers each encoder can have waiting, on top of the one it is writing */
+    private final int buffersPerEncoder;
+
+    /** Results of the last export */
+    private int framesExported = 0;
+    private long elapsedNanos = 0;
+    private long renderNanos = 0;
+    private long waitNanos = 0;
+    private long peakHeapBytes = 0;
+    private long poolBytes = 0;
+
+    public FrameExporter(OceanWorld world, int width, int height, Path directory, int encoderCount) {
+        this(world, width, height, directory, encoderCount, 2);
+    }
+
+    public FrameExporter(OceanWorld world, int width, int height, Path directory, int encoderCount, int buffersPerEncoder) {
+        if (encoderCount < 1 || buffersPerEncoder < 1) {
+            throw new IllegalArgumentException("Needs at least one encoder and one buffer per encoder");
+        }
+
+        this.world = world;
+        this.width = width;
+        this.height = height;
+        this.directory = directory;
+        this.encoderCount = encoderCount;
+        this.buffersPerEncoder = buffersPerEncoder;
+    }
+
+    /** Step, render and write the given number of frames, frame_00000.png onwards */
+    public void export(int frames, float stepScale, TextureImage sky) throws IOException, InterruptedException {
+        Files.createDirectories(directory);
+        resetPeakHeap();
+
+        SoftwareRenderDevice device = new SoftwareRenderDevice(width, height);
+        int skyTexture = device.createTexture(sky);
+        OceanSceneRenderer renderer = new OceanSceneRenderer(device);
+        renderer.init();
+
+        PixelBufferPool pool = new PixelBufferPool(encoderCount * (buffersPerEncoder + 1), width, height);
+        BlockingQueue<PixelBuffer> encodeQueue = new ArrayBlockingQueue<PixelBuffer>(pool.getSize() + encoderCount);
+        AtomicReference<IOException> failure = new AtomicReference<IOException>();
+
+        Thread encoders[] = new Thread[encoderCount];
+        for (int i = 0; i < encoderCount; i++) {
+            encoders[i] = new Thread(new Encoder(encodeQueue, pool, failure), "ocean-encoder-" + i);
+            encoders[i].start();
+        }
+
+        long start = System.nanoTime();
+        long rendering = 0, waiting = 0;
+        int exported = 0;
+        try {
+            for (int frame = 0; frame < frames && failure.get() == null; frame++) {
+                long frameStart = System.nanoTime();
+                world.step(stepScale);
+                device.beginFrame();
+                renderer.render(world, skyTexture);
+                device.finishFrame();
+
+                long rendered = System.nanoTime();
+                PixelBuffer buffer = pool.take();
+                waiting += System.nanoTime() - rendered;
+                rendering += rendered - frameStart;
+
+                buffer.copyFrom(device.getPixels(), frame);
+                encodeQueue.put(buffer);
+                exported++;
+            }
+        } finally {
+            for (int i = 0; i < encoderCount; i++) {
+                encodeQueue.put(END);
+            }
+            for (Thread encoder : encoders) {
+                encoder.join();
+            }
+            renderer.dispose();
+        }
+
+        elapsedNanos = System.nanoTime() - start;
+        renderNanos = rendering;
+        waitNanos = waiting;
+        framesExported = exported;
+        poolBytes = pool.getBytes();
+        peakHeapBytes = peakHeap();
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    /** Writes frames until told to stop, giving every buffer back whether or not it was written */
+    private class Encoder implements Runnable {
+        private final BlockingQueue<PixelBuffer> queue;
+        private final PixelBufferPool pool;
+        private final AtomicReference<IOException> failure;
+
+        Encoder(BlockingQueue<PixelBuffer> queue, PixelBufferPool pool, AtomicReference<IOException> failure) {
+            this.queue = queue;
+            this.pool = pool;
+            this.failure = failure;
+        }
+
+        public void run() {
+            try {
+                PixelBuffer buffer;
+                while ((buffer = queue.take()) != END) {
+                    try {
+                        /** After a failure, keep draining so the renderer isn't left waiting on the pool */
+                        if (failure.get() == null) {
+                            File file = directory.resolve(String.format("frame_%05d.png", buffer.getFrame())).toFile();
+                            if (!ImageIO.write(buffer.getImage(), "png", file)) {
+                                throw new IOException("No PNG writer available");
+                            }
+                        }
+                    } catch (IOException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        pool.release(buffer);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPool.getType() == MemoryType.HEAP) {
+                memoryPool.resetPeakUsage();
+            }
+        }
+    }
+
+    /** Sum of each heap pool's peak since the last reset, an upper bound on the heap's peak */
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPool.getType() == MemoryType.HEAP && memoryPool.getPeakUsage() != null) {
+                peak += memoryPool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    public int getFramesExported() {
+        return framesExported;
+    }
+
+    /** Frames written per second of wall time, over the whole export */
+    public double getFramesPerSecond() {
+        return elapsedNanos == 0 ? 0 : framesExported * 1e9 / elapsedNanos;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /** Time spent stepping and rendering */
+    public long getRenderNanos() {
+        return renderNanos;
+    }
+
+    /** Time the renderer spent waiting for a free buffer, high when encoding is the bottleneck */
+    public long getWaitNanos() {
+        return waitNanos;
+    }
+
+    public long getPeakHeapBytes() {
+        return peakHeapBytes;
+    }
+
+    /** Pixel memory held by the buffer pool */
+    public long getPoolBytes() {
+        return poolBytes;
+    }
+
+    public static void main(String args[]) throws IOException, InterruptedException {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 5;
+        int framesPerSecond = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+        int width = args.length > 2 ? Integer.parseInt(args[2]) : 1280;
+        int height = args.length > 3 ? Integer.parseInt(args[3]) : 720;
+        int fishCount = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+        Path directory = Paths.get(args.length > 5 ? args[5] : "frames");
+        int encoders = args.length > 6 ? Integer.parseInt(args[6]) : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        TextureImage sky = new CachedTextureLoader(Paths.get("cache", "textures")).load(Paths.get("textures", "ocean.bmp"));
+        FrameExporter exporter = new FrameExporter(new OceanWorld(fishCount, 1), width, height, directory, encoders);
+
+        /** One animation step per frame, the step the interactive scene takes per displayed frame */
+        int frames = (int) Math.round(seconds * framesPerSecond);
+        exporter.export(frames, 0.01f, sky);
+
+        System.out.printf("%d frames of %dx%d to %s in %.2f s, %.1f frames per second (%.1fx real time at %d fps)%n",
+                exporter.getFramesExported(), width, height, directory, exporter.getElapsedNanos() / 1e9,
+                exporter.getFramesPerSecond(), exporter.getFramesPerSecond() / framesPerSecond, framesPerSecond);
+        System.out.printf("rendering %.2f s, waiting for encoders %.2f s, %d encoder threads%n",
+                exporter.getRenderNanos() / 1e9, exporter.getWaitNanos() / 1e9, encoders);
+        System.out.printf("peak heap %.1f MB, of which %.1f MB pooled frame buffers%n",
+                exporter.getPeakHeapBytes() / 1048576.0, exporter.getPoolBytes() / 1048576.0);
+    }
+}
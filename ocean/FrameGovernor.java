@@ -0,0 +1,179 @@
+package ocean;
+
+/**
+ * Description: Holds the frame time under a budget by trading away what is only for show.
+ *    The update and render phases of every frame are smoothed separately with an
+ *    exponential moving average, and their sum is compared against the budget. When
+ *    it climbs near the budget the governor drops one quality level, and when there
+ *    is plenty of headroom it raises one. Each level is a share of the optional
+ *    entities to simulate and draw (bubbles and fish drawn through the scene graph), a
+ *    scale on the sizes LevelOfDetail picks from, and how many frames go by between
+ *    bubble steps. Detail goes first, then entities, then the bubble tick rate.
+ *
+ * Stability: after a change the level is held for a few frames so the average can catch up,
+ *    and a rise that has to be taken back soon after doubles the hold before the next one,
+ *    so a load just over a level's limit doesn't flip it back and forth. Every frame's
+ *    unsmoothed time is kept in a LatencyHistogram with the frames over budget counted,
+ *    to report how steady the governor kept it
+ */
+public class FrameGovernor {
+
+    /** Share of the entities, scale on LevelOfDetail sizes and frames per bubble step at each level, finest first */
+    private static final float ENTITY_SCALES[] = {1f, 1f, 0.75f, 0.75f, 0.5f, 0.5f, 0.25f};
+    private static final float DETAIL_SCALES[] = {1f, 0.7f, 0.7f, 0.5f, 0.5f, 0.35f, 0.35f};
+    private static final int TICK_INTERVALS[] = {1, 1, 1, 2, 2, 3, 4};
+
+    /** Number of quality levels, level 0 is full quality */
+    public static final int LEVELS = ENTITY_SCALES.length;
+
+    /** Weight of the newest frame in the smoothed phase times */
+    private static final double SMOOTHING = 0.15;
+
+    /** Drop a level above this share of the budget, raise one below the other */
+    private static final double HIGH_WATER = 0.9;
+    private static final double LOW_WATER = 0.6;
+
+    /** Frames a level is held after dropping and after rising, before the backoff */
+    private static final int DROP_HOLD = 8;
+    private static final int RISE_HOLD = 60;
+
+    /** Most times the rise hold is doubled */
+    private static final int MAX_BACKOFF = 5;
+
+    /** Budget per frame */
+    private final long budgetNanos;
+
+    /** Smoothed update and render times, negative until the first frame */
+    private double updateNanos = -1;
+    private double renderNanos = -1;
+
+    private int level = 0;
+
+    /** Frames since the level last changed, and if that change was a rise */
+    private int framesHeld = 0;
+    private boolean lastRise = false;
+
+    /** Doublings of the rise hold, from rises taken back */
+    private int backoff = 0;
+
+    /** Unsmoothed frame times, frames over budget and level changes */
+    private final LatencyHistogram frameTimes = new LatencyHistogram();
+    private long overBudget = 0;
+    private long levelChanges = 0;
+
+    /** Frames spent at each level */
+    private final long framesAtLevel[] = new long[LEVELS];
+
+    public FrameGovernor(long budgetNanos) {
+        if (budgetNanos <= 0) {
+            throw new IllegalArgumentException("Frame budget must be positive");
+        }
+        this.budgetNanos = budgetNanos;
+    }
+
+    /** Governor for a frame rate, budget of one second over it */
+    public static FrameGovernor forFrameRate(double framesPerSecond) {
+        return new FrameGovernor((long) (1e9 / framesPerSecond));
+    }
+
+    /** Record one frame's update and render times and move the quality level if needed */
+    public void frame(long updateNanos, long renderNanos) {
+        long frameNanos = updateNanos + renderNanos;
+        frameTimes.record(frameNanos);
+        if (frameNanos > budgetNanos) {
+            overBudget++;
+        }
+        framesAtLevel[level]++;
+
+        if (this.updateNanos < 0) {
+            this.updateNanos = updateNanos;
+            this.renderNanos = renderNanos;
+        } else {
+            this.updateNanos += SMOOTHING * (updateNanos - this.updateNanos);
+            this.renderNanos += SMOOTHING * (renderNanos - this.renderNanos);
+        }
+        framesHeld++;
+
+        double smoothed = this.updateNanos + this.renderNanos;
+        if (smoothed > budgetNanos * HIGH_WATER && level < LEVELS - 1 && framesHeld >= DROP_HOLD) {
+            /** A rise taken back before its hold is up makes the next rise wait longer */
+            if (lastRise && framesHeld < RISE_HOLD) {
+                backoff = Math.min(backoff + 1, MAX_BACKOFF);
+            }
+            changeLevel(level + 1, false);
+        } else if (smoothed < budgetNanos * LOW_WATER && level > 0 && framesHeld >= RISE_HOLD << backoff) {
+            changeLevel(level - 1, true);
+        } else if (framesHeld >= RISE_HOLD << MAX_BACKOFF) {
+            /** Settled for long enough that the load has likely changed */
+            backoff = 0;
+        }
+    }
+
+    private void changeLevel(int level, boolean rise) {
+        this.level = level;
+        framesHeld = 0;
+        lastRise = rise;
+        levelChanges++;
+    }
+
+    /** The current quality level, 0 for full quality up to LEVELS - 1 */
+    public int getLevel() {
+        return level;
+    }
+
+    /** Share of the optional entities to simulate and draw, 0 to 1 */
+    public float getEntityScale() {
+        return ENTITY_SCALES[level];
+    }
+
+    /** Scale on the screen sizes detail levels are picked from, below 1 drops detail sooner */
+    public float getDetailScale() {
+        return DETAIL_SCALES[level];
+    }
+
+    /** Frames between bubble steps, each step covering that many frames' worth of animation */
+    public int getTickInterval() {
+        return TICK_INTERVALS[level];
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    /** Smoothed update time, zero before the first frame */
+    public double getUpdateNanos() {
+        return Math.max(0, updateNanos);
+    }
+
+    /** Smoothed render time, zero before the first frame */
+    public double getRenderNanos() {
+        return Math.max(0, renderNanos);
+    }
+
+    /** Unsmoothed time of every frame recorded */
+    public LatencyHistogram getFrameTimes() {
+        return frameTimes;
+    }
+
+    public long getOverBudgetCount() {
+        return overBudget;
+    }
+
+    public long getLevelChanges() {
+        return levelChanges;
+    }
+
+    public long getFramesAtLevel(int level) {
+        return framesAtLevel[level];
+    }
+
+    /** One line on how steady the frame time was kept, in milliseconds */
+    public String summary() {
+        long frames = frameTimes.getCount();
+        return String.format("%d frames, budget %.2f ms, p50 %.2f ms, p99 %.2f ms, max %.2f ms, "
+                + "%.1f%% over budget, %d level changes, now level %d",
+                frames, budgetNanos / 1e6, frameTimes.getP50Nanos() / 1e6, frameTimes.getP99Nanos() / 1e6,
+                frameTimes.getMaxNanos() / 1e6, frames > 0 ? 100.0 * overBudget / frames : 0.0,
+                levelChanges, level);
+    }
+}
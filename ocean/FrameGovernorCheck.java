@@ -0,0 +1,91 @@
+package ocean;
+
+import java.util.Random;
+
+/**
+ * Description: Headless check that FrameGovernor holds the frame time under its budget.
+ *    Runs a synthetic load, where each frame's update and render times are worked out
+ *    from the governor's current entity share, detail scale and tick interval rather
+ *    than measured, so the run is quick and the same every time. The load is steady,
+ *    then jumps for a stretch as if something else took the machine, then settles
+ *    again, with noise on every frame and the odd hitch. The same frames are run with
+ *    the governor's levels ignored for comparison. Exits with status 1 if the governed
+ *    run is over budget on more than the allowed share of frames, or changes level too often
+ *
+ * Usage: java ocean.FrameGovernorCheck [frames] [budget ms] [heavy load multiplier]
+ */
+public class FrameGovernorCheck {
+
+    /** Most frames over budget in the governed run, and most level changes per thousand frames */
+    private static final double MAX_OVER_BUDGET = 0.05;
+    private static final double MAX_CHANGES_PER_THOUSAND = 5;
+
+    /** Cost of a frame at full quality under a load of 1, in milliseconds */
+    private static final double UPDATE_BASE = 1.0;
+    private static final double UPDATE_ENTITIES = 3.0;
+    private static final double RENDER_BASE = 1.5;
+    private static final double RENDER_ENTITIES = 6.0;
+
+    /** Share of the entity render cost that goes down with detail */
+    private static final double DETAIL_SHARE = 0.7;
+
+    /** Chance of a one-frame hitch on any frame, and how long it is */
+    private static final double HITCH_CHANCE = 0.005;
+    private static final double HITCH_MS = 20.0;
+
+    public static void main(String args[]) {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 6000;
+        double budgetMs = args.length > 1 ? Double.parseDouble(args[1]) : 1000.0 / 60;
+        double heavyLoad = args.length > 2 ? Double.parseDouble(args[2]) : 2.5;
+
+        FrameGovernor ungoverned = run(frames, budgetMs, heavyLoad, false);
+        FrameGovernor governed = run(frames, budgetMs, heavyLoad, true);
+
+        LatencyHistogram times = ungoverned.getFrameTimes();
+        System.out.printf("Ungoverned: %d frames, p50 %.2f ms, p99 %.2f ms, max %.2f ms, %.1f%% over budget%n",
+                frames, times.getP50Nanos() / 1e6, times.getP99Nanos() / 1e6, times.getMaxNanos() / 1e6,
+                100.0 * ungoverned.getOverBudgetCount() / frames);
+        System.out.println("Governed:   " + governed.summary());
+        StringBuilder levels = new StringBuilder("Frames at each level:");
+        for (int level = 0; level < FrameGovernor.LEVELS; level++) {
+            levels.append(' ').append(governed.getFramesAtLevel(level));
+        }
+        System.out.println(levels);
+
+        double overBudget = (double) governed.getOverBudgetCount() / frames;
+        double changesPerThousand = governed.getLevelChanges() * 1000.0 / frames;
+        if (overBudget > MAX_OVER_BUDGET || changesPerThousand > MAX_CHANGES_PER_THOUSAND) {
+            System.exit(1);
+        }
+    }
+
+    /** Run the synthetic load, following the governor's levels or staying at full quality */
+    private static FrameGovernor run(int frames, double budgetMs, double heavyLoad, boolean follow) {
+        FrameGovernor governor = new FrameGovernor((long) (budgetMs * 1e6));
+        Random random = new Random(1L);
+
+        /** The middle third of the run is under the heavy load */
+        int heavyStart = frames / 3, heavyEnd = frames * 2 / 3;
+        for (int i = 0; i < frames; i++) {
+            double load = i >= heavyStart && i < heavyEnd ? heavyLoad : 1.0;
+            double entities = follow ? governor.getEntityScale() : 1.0;
+            double detail = follow ? governor.getDetailScale() : 1.0;
+            int tickInterval = follow ? governor.getTickInterval() : 1;
+
+            /** Entities are stepped once every tick interval frames, so their cost spreads over that many */
+            double updateMs = UPDATE_BASE + UPDATE_ENTITIES * load * entities / tickInterval;
+            double renderMs = RENDER_BASE
+                    + RENDER_ENTITIES * load * entities * (1 - DETAIL_SHARE + DETAIL_SHARE * detail);
+
+            double noise = 1 + 0.1 * random.nextGaussian();
+            updateMs *= noise;
+            renderMs *= noise;
+            if (random.nextDouble() < HITCH_CHANCE) {
+                renderMs += HITCH_MS;
+            }
+
+            governor.frame((long) (updateMs * 1e6), (long) (renderMs * 1e6));
+        }
+        return governor;
+    }
+}
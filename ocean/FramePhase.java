@@ -0,0 +1,20 @@
+package ocean;
+
+/**
+ * Description: The phases of a frame that FrameProfiler times. SWAP is everything
+ *    GraphicsLab does between the end of renderScene() and the next checkSceneInput(),
+ *    which is mostly the buffer swap and frame rate sync
+ */
+public enum FramePhase {
+    INPUT,
+    UPDATE,
+    RENDER,
+    SWAP;
+
+    /** Lower case name used in JMX object names and metrics files */
+    private final String label = name().toLowerCase();
+
+    public String label() {
+        return label;
+    }
+}
@@ -0,0 +1,116 @@
+package ocean;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Description: Times the phases of each frame (or simulation tick) into one LatencyHistogram
+ *    per FramePhase. Timing a phase is two System.nanoTime() calls and a histogram record,
+ *    with nothing allocated, so it can stay on in normal and soak test runs.
+ *    The histograms can be published over JMX as
+ *    ocean:type=FrameProfiler,name=[profiler name],phase=[phase] and dumped by MetricsDumper.
+ *    Each phase must be timed by one thread only
+ */
+public class FrameProfiler {
+
+    /** Start time of a phase that hasn't begun */
+    private static final long NOT_STARTED = Long.MIN_VALUE;
+
+    private static final FramePhase PHASES[] = FramePhase.values();
+
+    /** Name of this profiler in JMX and metrics files */
+    private final String name;
+
+    /** Histogram of each phase, indexed by ordinal */
+    private final LatencyHistogram histograms[] = new LatencyHistogram[PHASES.length];
+
+    /** When each phase in progress began */
+    private final long started[] = new long[PHASES.length];
+
+    /** MBeans registered by registerMBeans */
+    private final List<ObjectName> registered = new ArrayList<ObjectName>();
+
+    public FrameProfiler(String name) {
+        this.name = name;
+        for (int i = 0; i < PHASES.length; i++) {
+            histograms[i] = new LatencyHistogram();
+            started[i] = NOT_STARTED;
+        }
+    }
+
+    /** Mark the start of a phase */
+    public void begin(FramePhase phase) {
+        started[phase.ordinal()] = System.nanoTime();
+    }
+
+    /** Mark the end of a phase and record its duration, ignored if the phase hasn't begun */
+    public void end(FramePhase phase) {
+        int index = phase.ordinal();
+        long start = started[index];
+        if (start != NOT_STARTED) {
+            histograms[index].record(System.nanoTime() - start);
+            started[index] = NOT_STARTED;
+        }
+    }
+
+    /** Record a duration measured elsewhere */
+    public void record(FramePhase phase, long nanos) {
+        histograms[phase.ordinal()].record(nanos);
+    }
+
+    public LatencyHistogram getHistogram(FramePhase phase) {
+        return histograms[phase.ordinal()];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** Clear every histogram */
+    public void reset() {
+        for (int i = 0; i < PHASES.length; i++) {
+            histograms[i].reset();
+        }
+    }
+
+    /** Publish every phase's histogram on the platform MBean server */
+    public void registerMBeans() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (FramePhase phase : PHASES) {
+            ObjectName objectName = new ObjectName("ocean:type=FrameProfiler,name="
+                    + ObjectName.quote(name) + ",phase=" + phase.label());
+            server.registerMBean(getHistogram(phase), objectName);
+            registered.add(objectName);
+        }
+    }
+
+    /** Remove the MBeans published by registerMBeans */
+    public void unregisterMBeans() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName objectName : registered) {
+            server.unregisterMBean(objectName);
+        }
+        registered.clear();
+    }
+
+    /** One line per phase that has been timed, with its percentiles in milliseconds */
+    public String summary() {
+        StringBuilder summary = new StringBuilder();
+        for (FramePhase phase : PHASES) {
+            LatencyHistogram histogram = getHistogram(phase);
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            summary.append(String.format("%-6s %d, p50 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms%n",
+                    phase.label(), histogram.getCount(), histogram.getP50Nanos() / 1e6,
+                    histogram.getP99Nanos() / 1e6, histogram.getP999Nanos() / 1e6,
+                    histogram.getMaxNanos() / 1e6));
+        }
+        return summary.toString();
+    }
+}
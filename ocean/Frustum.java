@@ -0,0 +1,78 @@
+package ocean;
+
+/**
+ * Description: The six planes of a view frustum, taken from a column-major
+ *    projection times modelview matrix so boxes in the modelview's object space
+ *    (world space when the modelview is just the camera) can be tested against it
+ */
+public class Frustum {
+
+    /** Results of testing a box */
+    public static final int OUTSIDE = 0;
+    public static final int INTERSECTS = 1;
+    public static final int INSIDE = 2;
+
+    /**
+     * Planes as a, b, c, d with ax + by + cz + d >= 0 inside: left, right, bottom, top, near, far.
+     * Normalised so ax + by + cz + d is the distance from the plane
+     */
+    private final float planes[] = new float[6 * 4];
+
+    /** Set the planes from the 16 floats of a projection times modelview matrix at offset */
+    public void set(float m[], int o) {
+        for (int plane = 0; plane < 6; plane++) {
+            /** Each plane is the fourth row plus or minus one of the first three */
+            int row = plane / 2;
+            float sign = plane % 2 == 0 ? 1f : -1f;
+            for (int column = 0; column < 4; column++) {
+                planes[plane * 4 + column] = m[o + column * 4 + 3] + sign * m[o + column * 4 + row];
+            }
+
+            float a = planes[plane * 4], b = planes[plane * 4 + 1], c = planes[plane * 4 + 2];
+            float length = (float) Math.sqrt(a * a + b * b + c * c);
+            if (length > 0f) {
+                for (int column = 0; column < 4; column++) {
+                    planes[plane * 4 + column] /= length;
+                }
+            }
+        }
+    }
+
+    /** Test a sphere of the given centre and radius */
+    public int testSphere(float x, float y, float z, float radius) {
+        int result = INSIDE;
+        for (int plane = 0; plane < 24; plane += 4) {
+            float distance = planes[plane] * x + planes[plane + 1] * y + planes[plane + 2] * z + planes[plane + 3];
+            if (distance < -radius) {
+                return OUTSIDE;
+            }
+            if (distance < radius) {
+                result = INTERSECTS;
+            }
+        }
+        return result;
+    }
+
+    /** Test a box of six floats, min x, y, z then max x, y, z, at offset */
+    public int test(float box[], int o) {
+        int result = INSIDE;
+        for (int plane = 0; plane < 24; plane += 4) {
+            float a = planes[plane], b = planes[plane + 1], c = planes[plane + 2], d = planes[plane + 3];
+
+            /** The corner furthest along the plane normal, if that's outside the whole box is */
+            float far = a * (a >= 0f ? box[o + 3] : box[o]) + b * (b >= 0f ? box[o + 4] : box[o + 1])
+                    + c * (c >= 0f ? box[o + 5] : box[o + 2]) + d;
+            if (far < 0f) {
+                return OUTSIDE;
+            }
+
+            /** And if the nearest corner is outside too, the box straddles the plane */
+            float near = a * (a >= 0f ? box[o] : box[o + 3]) + b * (b >= 0f ? box[o + 1] : box[o + 4])
+                    + c * (c >= 0f ? box[o + 2] : box[o + 5]) + d;
+            if (near < 0f) {
+                result = INTERSECTS;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,97 @@
+package ocean;
+
+import java.util.Random;
+
+/**
+ * Description: Bioluminescent point lights scattered through the water below the boats,
+ *    each a position, a range beyond which it lights nothing, and a blue-green colour.
+ *    Held as one array per value, indexed by light, for LightClusters to bin
+ */
+public class GlowLights {
+
+    /** Water the lights are scattered through, around the fish and bubbles */
+    private static final float MIN_X = -20f;
+    private static final float MAX_X = 20f;
+    private static final float MIN_Y = -8f;
+    private static final float MAX_Y = -0.5f;
+    private static final float MIN_Z = -30f;
+    private static final float MAX_Z = -2f;
+
+    /** Range of each light's reach in world units */
+    private static final float MIN_RADIUS = 1.5f;
+    private static final float MAX_RADIUS = 4f;
+
+    private final int count;
+
+    private final float posX[], posY[], posZ[];
+    private final float radius[];
+    private final float red[], green[], blue[];
+
+    /** Count lights placed from a fixed seed, the same seed always places them the same */
+    public GlowLights(int count, long seed) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Light count must not be negative");
+        }
+
+        this.count = count;
+        posX = new float[count];
+        posY = new float[count];
+        posZ = new float[count];
+        radius = new float[count];
+        red = new float[count];
+        green = new float[count];
+        blue = new float[count];
+
+        Random random = new Random(seed);
+        for (int i = 0; i < count; i++) {
+            posX[i] = MIN_X + random.nextFloat() * (MAX_X - MIN_X);
+            posY[i] = MIN_Y + random.nextFloat() * (MAX_Y - MIN_Y);
+            posZ[i] = MIN_Z + random.nextFloat() * (MAX_Z - MIN_Z);
+            radius[i] = MIN_RADIUS + random.nextFloat() * (MAX_RADIUS - MIN_RADIUS);
+
+            /** From deep blue to green, like plankton and jellyfish */
+            float hue = random.nextFloat();
+            red[i] = 0.1f * hue;
+            green[i] = 0.4f + 0.5f * hue;
+            blue[i] = 0.9f - 0.4f * hue;
+        }
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /** The returned arrays are live and must not be modified */
+    public float[] getPosX() {
+        return posX;
+    }
+
+    public float[] getPosY() {
+        return posY;
+    }
+
+    public float[] getPosZ() {
+        return posZ;
+    }
+
+    public float[] getRadius() {
+        return radius;
+    }
+
+    public float[] getRed() {
+        return red;
+    }
+
+    public float[] getGreen() {
+        return green;
+    }
+
+    public float[] getBlue() {
+        return blue;
+    }
+
+    /** Quadratic attenuation of a light, down to a seventeenth at the edge of its range */
+    public float getQuadraticAttenuation(int light) {
+        return 16f / (radius[light] * radius[light]);
+    }
+}
@@ -0,0 +1,58 @@
+package ocean;
+
+import java.util.concurrent.ForkJoinPool;
+
+import javax.management.JMException;
+
+/**
+ * Description: Steps an ocean world without a window or OpenGL context,
+ *    so the simulation can be run and profiled on machines without a GPU
+ *
+ * Usage: java ocean.HeadlessRun [fish count] [boat count] [steps] [animation scale] [threads]
+ *    Every step is timed into the UPDATE histogram of a FrameProfiler published over JMX,
+ *    and dumped to -Docean.metricsFile when set, for soak tests
+ */
+public class HeadlessRun {
+
+    public static void main(String args[]) throws JMException, InterruptedException {
+        int fishCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int boatCount = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int steps = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        float animationScale = args.length > 3 ? Float.parseFloat(args[3]) : 0.01f;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+        /** The fish school is updated on the calling thread alone when one thread is asked for */
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        OceanWorld world = new OceanWorld(fishCount, boatCount, pool);
+
+        FrameProfiler profiler = new FrameProfiler("headless");
+        profiler.registerMBeans();
+        MetricsDumper dumper = MetricsDumper.startFromProperties(profiler);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < steps; i++) {
+            profiler.begin(FramePhase.UPDATE);
+            world.step(animationScale);
+            profiler.end(FramePhase.UPDATE);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        if (dumper != null) {
+            dumper.stop();
+        }
+
+        if (pool != null) {
+            pool.shutdown();
+        }
+
+        System.out.printf("%d fish, %d boats, %d steps on %d threads in %.1f ms (%.1f ns per entity step)%n",
+                fishCount, boatCount, steps, threads, elapsed / 1e6,
+                (double) elapsed / steps / Math.max(1, fishCount + boatCount));
+        System.out.printf("animation delta %.3f, fish[0] x %.3f, boat[0] x %.3f%n",
+                world.getAnimationDelta(),
+                fishCount > 0 ? world.getFishPosX()[0] : Float.NaN,
+                boatCount > 0 ? world.getBoatPosX()[0] : Float.NaN);
+        System.out.println("animation curves: " + world.getCurveKernel().getName());
+        System.out.print(profiler.summary());
+    }
+}
@@ -0,0 +1,64 @@
+package ocean;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Description: One scene hosted by a SimulationServer, for example one per user session,
+ *    with its own world, boat direction, fish loop and reset state. Inputs are queued by
+ *    any thread and applied at the start of the scene's next step. The world is made on
+ *    the server's first tick after the scene is opened
+ */
+public class HostedScene {
+
+    private final int id;
+
+    /** Inputs waiting for the next step */
+    private final Queue<SceneInput> inputs = new ConcurrentLinkedQueue<SceneInput>();
+
+    /** Null until the server's next tick after opening */
+    private OceanWorld world;
+
+    /** Index in the server's scenes while hosted, -1 before and after */
+    int slot = -1;
+
+    /** Set once the server has been asked to close the scene */
+    volatile boolean closed = false;
+
+    HostedScene(int id) {
+        this.id = id;
+    }
+
+    /** Queue an input for the next step, from any thread */
+    public void submit(SceneInput input) {
+        inputs.add(input);
+    }
+
+    /** Apply the queued inputs and step the world, on the server's pool */
+    void step(float animationScale) {
+        for (SceneInput input = inputs.poll(); input != null; input = inputs.poll()) {
+            input.apply(world);
+        }
+        world.step(animationScale);
+    }
+
+    void setWorld(OceanWorld world) {
+        this.world = world;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * The scene's world, null before the server's first tick after opening. Only to be
+     * read between ticks, on the thread ticking the server
+     */
+    public OceanWorld getWorld() {
+        return world;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+}
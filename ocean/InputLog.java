@@ -0,0 +1,146 @@
+package ocean;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Description: A recorded session's inputs, keyed by the simulation tick they were
+ *    applied at, read back for replay. Written by InputRecorder.
+ *
+ * Format (big endian, as DataOutputStream writes): magic "OINP", format version, fish
+ *    count, boat count and the animation scale of every step, then one varint per input,
+ *    (ticks since the previous input << 2) | SceneInput ordinal. The code END instead of
+ *    an ordinal closes the log; its tick delta brings the count to the session's last
+ *    tick and the world's final stateHash() follows as a long. A typical input takes
+ *    one or two bytes
+ */
+public class InputLog {
+
+    /** "OINP" */
+    static final int MAGIC = 0x4F494E50;
+
+    /** Bump when the layout changes */
+    static final int VERSION = 1;
+
+    /** Input code that ends the log */
+    static final int END = 3;
+
+    private final int fishCount;
+    private final int boatCount;
+    private final float animationScale;
+
+    /** The inputs in order and the tick each was applied at, before that tick's step */
+    private final long ticks[];
+    private final SceneInput inputs[];
+
+    /** Ticks the session ran for and the hash of its final state */
+    private final long lastTick;
+    private final long finalHash;
+
+    private InputLog(int fishCount, int boatCount, float animationScale, long ticks[], SceneInput inputs[],
+            long lastTick, long finalHash) {
+        this.fishCount = fishCount;
+        this.boatCount = boatCount;
+        this.animationScale = animationScale;
+        this.ticks = ticks;
+        this.inputs = inputs;
+        this.lastTick = lastTick;
+        this.finalHash = finalHash;
+    }
+
+    public static InputLog read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not an input log");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException(file + " is input log version " + version + ", expected " + VERSION);
+            }
+
+            int fishCount = in.readInt();
+            int boatCount = in.readInt();
+            float animationScale = in.readFloat();
+
+            long ticks[] = new long[64];
+            SceneInput inputs[] = new SceneInput[64];
+            int count = 0;
+            long tick = 0;
+            SceneInput values[] = SceneInput.values();
+            while (true) {
+                long event = readVarLong(in);
+                tick += event >>> 2;
+                int code = (int) (event & 3);
+                if (code == END) {
+                    return new InputLog(fishCount, boatCount, animationScale, Arrays.copyOf(ticks, count),
+                            Arrays.copyOf(inputs, count), tick, in.readLong());
+                }
+
+                if (count == ticks.length) {
+                    ticks = Arrays.copyOf(ticks, count * 2);
+                    inputs = Arrays.copyOf(inputs, count * 2);
+                }
+                ticks[count] = tick;
+                inputs[count] = values[code];
+                count++;
+            }
+        } catch (EOFException e) {
+            throw new IOException(file + " ends before the end of the log, was the session closed?", e);
+        }
+    }
+
+    /** Seven bits per byte, low bits first, the top bit set on every byte but the last */
+    static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    public int getFishCount() {
+        return fishCount;
+    }
+
+    public int getBoatCount() {
+        return boatCount;
+    }
+
+    public float getAnimationScale() {
+        return animationScale;
+    }
+
+    public int getInputCount() {
+        return inputs.length;
+    }
+
+    /** Tick the index'th input was applied at */
+    public long getTick(int index) {
+        return ticks[index];
+    }
+
+    public SceneInput getInput(int index) {
+        return inputs[index];
+    }
+
+    public long getLastTick() {
+        return lastTick;
+    }
+
+    public long getFinalHash() {
+        return finalHash;
+    }
+}
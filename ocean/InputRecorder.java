@@ -0,0 +1,101 @@
+package ocean;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Description: Writes the inputs applied to a world to an InputLog file as they happen,
+ *    so the session can be replayed exactly. Call record() from the thread that applies
+ *    the inputs, with the tick the world is at, and close() when the session ends.
+ *    A boat direction input that repeats the last one changes nothing and isn't written,
+ *    so holding a key down costs nothing. A write failure stops the recording and is
+ *    thrown by close(), so the session itself never stops for it
+ */
+public class InputRecorder {
+
+    private final DataOutputStream out;
+
+    /** Tick of the last input written */
+    private long lastTick = 0;
+
+    /** Last boat direction written, null before the first */
+    private SceneInput lastDirection;
+
+    private boolean closed = false;
+
+    /** First write failure, null if none */
+    private IOException failure;
+
+    public InputRecorder(Path file, int fishCount, int boatCount, float animationScale) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        out.writeInt(InputLog.MAGIC);
+        out.writeInt(InputLog.VERSION);
+        out.writeInt(fishCount);
+        out.writeInt(boatCount);
+        out.writeFloat(animationScale);
+    }
+
+    /** A recorder for the world, which must not have stepped yet */
+    public InputRecorder(Path file, OceanWorld world, float animationScale) throws IOException {
+        this(file, world.getFishCount(), world.getBoatCount(), animationScale);
+        if (world.getTick() != 0) {
+            throw new IllegalStateException("Recording must start before the world's first step");
+        }
+    }
+
+    /** Note an input applied at the given tick, before that tick's step */
+    public void record(long tick, SceneInput input) {
+        if (failure != null || closed) {
+            return;
+        }
+        if (input != SceneInput.RESET) {
+            if (input == lastDirection) {
+                return;
+            }
+            lastDirection = input;
+        }
+
+        try {
+            write(tick, input.ordinal());
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    private void write(long tick, int code) throws IOException {
+        if (tick < lastTick) {
+            throw new IllegalArgumentException("Inputs must be recorded in tick order");
+        }
+        writeVarLong(out, (tick - lastTick) << 2 | code);
+        lastTick = tick;
+    }
+
+    /** End the log at the world's last tick with its state hash, and close the file */
+    public void close(OceanWorld world) throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (failure != null) {
+                throw failure;
+            }
+            write(world.getTick(), InputLog.END);
+            out.writeLong(world.stateHash());
+        } finally {
+            out.close();
+        }
+    }
+
+    static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
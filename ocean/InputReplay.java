@@ -0,0 +1,84 @@
+package ocean;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.management.JMException;
+
+/**
+ * Description: Replays a recorded session without a window, as fast as the CPU allows:
+ *    a world with the session's fish and boats is stepped tick by tick with each logged
+ *    input applied at its tick. Prints the time taken and the final state hash, and
+ *    exits with status 1 if the hash differs from the recorded session's, so CI can
+ *    compare both the simulation's speed and its results between builds.
+ *    Record a session with -Docean.recordInput=session.oinp on the animation
+ *
+ * Usage: java ocean.InputReplay [log file] [runs] [threads]
+ *    Each run replays the whole log on a new world, the fastest is reported.
+ *    Every tick is timed into the UPDATE histogram of a FrameProfiler published over JMX
+ */
+public class InputReplay {
+
+    public static void main(String args[]) throws IOException, JMException {
+        String file = args.length > 0 ? args[0] : "session.oinp";
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        InputLog log = InputLog.read(Paths.get(file));
+        System.out.printf("%s: %d fish, %d boats, %d ticks, %d inputs%n", file, log.getFishCount(),
+                log.getBoatCount(), log.getLastTick(), log.getInputCount());
+
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        FrameProfiler profiler = new FrameProfiler("replay");
+        profiler.registerMBeans();
+
+        long best = Long.MAX_VALUE;
+        long hash = 0;
+        boolean consistent = true;
+        for (int run = 0; run < runs; run++) {
+            OceanWorld world = new OceanWorld(log.getFishCount(), log.getBoatCount(), pool);
+
+            long start = System.nanoTime();
+            replay(log, world, profiler);
+            long elapsed = System.nanoTime() - start;
+
+            best = Math.min(best, elapsed);
+            consistent &= run == 0 || world.stateHash() == hash;
+            hash = world.stateHash();
+        }
+
+        if (pool != null) {
+            pool.shutdown();
+        }
+
+        boolean matches = consistent && hash == log.getFinalHash();
+        System.out.printf("best of %d runs on %d threads: %.1f ms (%.1f us per tick)%n", runs, threads,
+                best / 1e6, best / 1e3 / Math.max(1, log.getLastTick()));
+        System.out.printf("final state %016x, recorded %016x: %s%n", hash, log.getFinalHash(),
+                matches ? "match" : consistent ? "DIFFERENT" : "DIFFERENT BETWEEN RUNS");
+        System.out.print(profiler.summary());
+
+        if (!matches) {
+            System.exit(1);
+        }
+    }
+
+    /** Step the world through the log's ticks, applying each input before its tick's step */
+    public static void replay(InputLog log, OceanWorld world, FrameProfiler profiler) {
+        int next = 0;
+        for (long tick = 0; tick < log.getLastTick(); tick++) {
+            profiler.begin(FramePhase.UPDATE);
+            while (next < log.getInputCount() && log.getTick(next) == tick) {
+                log.getInput(next++).apply(world);
+            }
+            world.step(log.getAnimationScale());
+            profiler.end(FramePhase.UPDATE);
+        }
+
+        /** Inputs after the last step, such as a reset just before closing */
+        while (next < log.getInputCount()) {
+            log.getInput(next++).apply(world);
+        }
+    }
+}
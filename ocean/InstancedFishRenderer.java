@@ -0,0 +1,220 @@
+package ocean;
+
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.lwjgl.opengl.ContextCapabilities;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.opengl.GLContext;
+
+/**
+ * Description: Draws every fish in the world with one instanced draw per fish part
+ *    (body, tail, eyes, or the merged or impostor mesh of the coarser levels) instead
+ *    of a push/translate/draw/pop per part per fish. Each frame the fish packed into a
+ *    FishInstanceBuffer are streamed into a single vertex buffer that the fish shader
+ *    reads one instance at a time, each part starting at its detail level's run.
+ *    Materials and the moon and reef lights still come from the fixed-function state, so
+ *    callers set the fish and eye materials with glMaterial exactly as before. Glow lights
+ *    are held in a buffer texture, uploaded once, that each instance's light indices read
+ */
+public class InstancedFishRenderer {
+
+    /** Shader sources, relative to the working directory like the textures */
+    private static final String VERTEX_SHADER = "shaders/fish_instanced.vert";
+    private static final String FRAGMENT_SHADER = "shaders/fish_instanced.frag";
+
+    /** Texture unit the glow lights are bound to, clear of the fixed-function textures on unit 0 */
+    private static final int GLOW_LIGHT_UNIT = 1;
+
+    /** Floats per glow light: world position and 1, then colour and quadratic attenuation */
+    private static final int GLOW_LIGHT_FLOATS = 8;
+
+    /** Mesh of each part, indexed by FishPart ordinal */
+    private final VboMesh partMeshes[];
+
+    /** First instance and number of fish at each detail level in the last upload */
+    private final int levelStarts[] = new int[LevelOfDetail.LEVELS];
+    private final int levelCounts[] = new int[LevelOfDetail.LEVELS];
+
+    /** Vertex buffer the packed fish are streamed into */
+    private final int instanceBuffer;
+
+    /** Buffer holding the glow lights, the buffer texture reading it and the number of lights */
+    private final int glowLightBuffer;
+    private final int glowLightTexture;
+    private int glowLightCount = 0;
+
+    private final int program;
+    private final int partLocation;
+    private final int positionLocation;
+    private final int normalLocation;
+    private final int fishLocation;
+    private final int fishLightsLocations[];
+    private final int glowLightingLocation;
+
+    /** True if the current OpenGL context can draw instanced fish */
+    public static boolean isSupported() {
+        ContextCapabilities capabilities = GLContext.getCapabilities();
+        return capabilities.OpenGL33;
+    }
+
+    /** Compile the fish shader and create the instance buffer. Needs a current OpenGL 3.3 context */
+    public InstancedFishRenderer(VboMesh bodyMesh, VboMesh tailMesh, VboMesh eyeMesh,
+            VboMesh mergedMesh, VboMesh impostorMesh) throws IOException {
+        this.partMeshes = new VboMesh[] {bodyMesh, tailMesh, eyeMesh, mergedMesh, impostorMesh};
+        this.instanceBuffer = GL15.glGenBuffers();
+
+        /** The texture reads whatever the buffer holds, so it is only attached once */
+        glowLightBuffer = GL15.glGenBuffers();
+        glowLightTexture = GL11.glGenTextures();
+        GL11.glBindTexture(GL31.GL_TEXTURE_BUFFER, glowLightTexture);
+        GL31.glTexBuffer(GL31.GL_TEXTURE_BUFFER, GL30.GL_RGBA32F, glowLightBuffer);
+        GL11.glBindTexture(GL31.GL_TEXTURE_BUFFER, 0);
+
+        int vertexShader = compile(GL20.GL_VERTEX_SHADER, VERTEX_SHADER);
+        int fragmentShader = compile(GL20.GL_FRAGMENT_SHADER, FRAGMENT_SHADER);
+
+        program = GL20.glCreateProgram();
+        GL20.glAttachShader(program, vertexShader);
+        GL20.glAttachShader(program, fragmentShader);
+        GL20.glLinkProgram(program);
+        GL20.glDeleteShader(vertexShader);
+        GL20.glDeleteShader(fragmentShader);
+
+        if (GL20.glGetProgrami(program, GL20.GL_LINK_STATUS) == GL11.GL_FALSE) {
+            throw new IllegalStateException("Fish shader failed to link: "
+                    + GL20.glGetProgramInfoLog(program, 4096));
+        }
+
+        partLocation = GL20.glGetUniformLocation(program, "part");
+        positionLocation = GL20.glGetAttribLocation(program, "position");
+        normalLocation = GL20.glGetAttribLocation(program, "normal");
+        fishLocation = GL20.glGetAttribLocation(program, "fish");
+        fishLightsLocations = new int[] {
+            GL20.glGetAttribLocation(program, "fishLightsA"), GL20.glGetAttribLocation(program, "fishLightsB")
+        };
+        glowLightingLocation = GL20.glGetUniformLocation(program, "glowLighting");
+
+        GL20.glUseProgram(program);
+        GL20.glUniform1i(GL20.glGetUniformLocation(program, "glowLights"), GLOW_LIGHT_UNIT);
+        GL20.glUseProgram(0);
+    }
+
+    private static int compile(int type, String path) throws IOException {
+        String source = new String(Files.readAllBytes(Paths.get(path)), Charset.forName("UTF-8"));
+
+        int shader = GL20.glCreateShader(type);
+        GL20.glShaderSource(shader, source);
+        GL20.glCompileShader(shader);
+
+        if (GL20.glGetShaderi(shader, GL20.GL_COMPILE_STATUS) == GL11.GL_FALSE) {
+            throw new IllegalStateException(path + " failed to compile: "
+                    + GL20.glGetShaderInfoLog(shader, 4096));
+        }
+        return shader;
+    }
+
+    /** Stream this frame's packed fish to the GPU, call once per frame before drawing */
+    public void upload(FishInstanceBuffer fish) {
+        for (int level = 0; level < LevelOfDetail.LEVELS; level++) {
+            levelStarts[level] = fish.getLevelStart(level);
+            levelCounts[level] = fish.getLevelCount(level);
+        }
+
+        /** Orphan the old storage so the driver doesn't wait on last frame's draws */
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, instanceBuffer);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, fish.getData(), GL15.GL_STREAM_DRAW);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    }
+
+    /** Upload the glow lights the fish's light indices refer to, or none for null */
+    public void setGlowLights(GlowLights lights) {
+        glowLightCount = lights != null ? lights.getCount() : 0;
+        if (glowLightCount == 0) {
+            return;
+        }
+
+        float posX[] = lights.getPosX(), posY[] = lights.getPosY(), posZ[] = lights.getPosZ();
+        float red[] = lights.getRed(), green[] = lights.getGreen(), blue[] = lights.getBlue();
+        FloatBuffer texels = Buffers.createFloatBuffer(glowLightCount * GLOW_LIGHT_FLOATS);
+        for (int light = 0; light < glowLightCount; light++) {
+            texels.put(posX[light]).put(posY[light]).put(posZ[light]).put(1f);
+            texels.put(red[light]).put(green[light]).put(blue[light]).put(lights.getQuadraticAttenuation(light));
+        }
+        texels.flip();
+
+        GL15.glBindBuffer(GL31.GL_TEXTURE_BUFFER, glowLightBuffer);
+        GL15.glBufferData(GL31.GL_TEXTURE_BUFFER, texels, GL15.GL_STATIC_DRAW);
+        GL15.glBindBuffer(GL31.GL_TEXTURE_BUFFER, 0);
+    }
+
+    /** Draw one part of every fish at the part's detail level in the last upload, using the current material */
+    public void draw(FishPart part) {
+        int fishCount = levelCounts[part.getLevel()];
+        if (fishCount == 0) {
+            return;
+        }
+
+        VboMesh mesh = partMeshes[part.ordinal()];
+
+        /** Both eyes come from the same fish, so they step through the fish every second instance */
+        int instancesPerFish = part == FishPart.EYES ? 2 : 1;
+
+        GL20.glUseProgram(program);
+        GL20.glUniform1i(partLocation, part.ordinal());
+        GL20.glUniform1i(glowLightingLocation, glowLightCount > 0 ? 1 : 0);
+        GL13.glActiveTexture(GL13.GL_TEXTURE0 + GLOW_LIGHT_UNIT);
+        GL11.glBindTexture(GL31.GL_TEXTURE_BUFFER, glowLightTexture);
+        GL13.glActiveTexture(GL13.GL_TEXTURE0);
+
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, mesh.getBuffer());
+        GL20.glEnableVertexAttribArray(positionLocation);
+        GL20.glEnableVertexAttribArray(normalLocation);
+        GL20.glVertexAttribPointer(positionLocation, 3, GL11.GL_FLOAT, false, Mesh.STRIDE, Mesh.POSITION_OFFSET);
+        GL20.glVertexAttribPointer(normalLocation, 3, GL11.GL_FLOAT, false, Mesh.STRIDE, Mesh.NORMAL_OFFSET);
+
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, instanceBuffer);
+        GL20.glEnableVertexAttribArray(fishLocation);
+        long firstFish = (long) levelStarts[part.getLevel()] * FishInstanceBuffer.STRIDE;
+        GL20.glVertexAttribPointer(fishLocation, 4, GL11.GL_FLOAT, false, FishInstanceBuffer.STRIDE, firstFish);
+        GL33.glVertexAttribDivisor(fishLocation, instancesPerFish);
+
+        /** The light indices, three to an attribute */
+        for (int i = 0; i < fishLightsLocations.length; i++) {
+            GL20.glEnableVertexAttribArray(fishLightsLocations[i]);
+            GL20.glVertexAttribPointer(fishLightsLocations[i], 3, GL11.GL_FLOAT, false, FishInstanceBuffer.STRIDE,
+                    firstFish + FishInstanceBuffer.LIGHTS_OFFSET + i * 3 * 4);
+            GL33.glVertexAttribDivisor(fishLightsLocations[i], instancesPerFish);
+        }
+
+        GL31.glDrawArraysInstanced(GL11.GL_TRIANGLES, 0, mesh.getVertexCount(), fishCount * instancesPerFish);
+
+        for (int i = 0; i < fishLightsLocations.length; i++) {
+            GL33.glVertexAttribDivisor(fishLightsLocations[i], 0);
+            GL20.glDisableVertexAttribArray(fishLightsLocations[i]);
+        }
+        GL33.glVertexAttribDivisor(fishLocation, 0);
+        GL20.glDisableVertexAttribArray(fishLocation);
+        GL20.glDisableVertexAttribArray(normalLocation);
+        GL20.glDisableVertexAttribArray(positionLocation);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        GL20.glUseProgram(0);
+    }
+
+    /** Free the shader, instance buffer and glow lights, the meshes belong to the caller */
+    public void delete() {
+        GL20.glDeleteProgram(program);
+        GL15.glDeleteBuffers(instanceBuffer);
+        GL11.glDeleteTextures(glowLightTexture);
+        GL15.glDeleteBuffers(glowLightBuffer);
+    }
+}
@@ -0,0 +1,101 @@
+package ocean;
+
+/**
+ * Description: The world drawn between two simulation ticks, blended from a tick snapshot
+ *    so rendering stays smooth whatever the tick rate. Fish that wrapped from the end of
+ *    their path back to the start during the tick are not blended across the jump
+ */
+public class InterpolatedState implements OceanState {
+
+    private final float fishPosX[];
+    private final float fishPosY[];
+    private final float fishPosZ[];
+    private final float fishTilt[];
+    private final float boatPosX[];
+    private final float boatPosY[];
+    private final float boatPitch[];
+    private final float boatRoll[];
+
+    public InterpolatedState(int fishCount, int boatCount) {
+        fishPosX = new float[fishCount];
+        fishPosY = new float[fishCount];
+        fishPosZ = new float[fishCount];
+        fishTilt = new float[fishCount];
+        boatPosX = new float[boatCount];
+        boatPosY = new float[boatCount];
+        boatPitch = new float[boatCount];
+        boatRoll = new float[boatCount];
+    }
+
+    /** Blend from the snapshot's previous tick (alpha 0) to its current tick (alpha 1) */
+    public void interpolate(TickSnapshot snapshot, float alpha) {
+        WorldSnapshot from = snapshot.getPrevious();
+        WorldSnapshot to = snapshot.getCurrent();
+
+        /** Half the fish path, anything that moved further wrapped round */
+        float wrapDistance = (OceanWorld.FISH_END_X - OceanWorld.FISH_START_X) / 2;
+
+        float fromX[] = from.getFishPosX(), toX[] = to.getFishPosX();
+        for (int i = 0; i < fishPosX.length; i++) {
+            fishPosX[i] = Math.abs(toX[i] - fromX[i]) > wrapDistance ? toX[i] : lerp(fromX[i], toX[i], alpha);
+        }
+
+        lerp(from.getFishPosY(), to.getFishPosY(), fishPosY, alpha);
+        lerp(from.getFishPosZ(), to.getFishPosZ(), fishPosZ, alpha);
+        lerp(from.getFishTilt(), to.getFishTilt(), fishTilt, alpha);
+        lerp(from.getBoatPosX(), to.getBoatPosX(), boatPosX, alpha);
+        lerp(from.getBoatPosY(), to.getBoatPosY(), boatPosY, alpha);
+        lerp(from.getBoatPitch(), to.getBoatPitch(), boatPitch, alpha);
+        lerp(from.getBoatRoll(), to.getBoatRoll(), boatRoll, alpha);
+    }
+
+    private static float lerp(float from, float to, float alpha) {
+        return from + (to - from) * alpha;
+    }
+
+    private static void lerp(float from[], float to[], float result[], float alpha) {
+        for (int i = 0; i < result.length; i++) {
+            result[i] = lerp(from[i], to[i], alpha);
+        }
+    }
+
+    public int getFishCount() {
+        return fishPosX.length;
+    }
+
+    public int getBoatCount() {
+        return boatPosX.length;
+    }
+
+    public float[] getFishPosX() {
+        return fishPosX;
+    }
+
+    public float[] getFishPosY() {
+        return fishPosY;
+    }
+
+    public float[] getFishPosZ() {
+        return fishPosZ;
+    }
+
+    public float[] getFishTilt() {
+        return fishTilt;
+    }
+
+    public float[] getBoatPosX() {
+        return boatPosX;
+    }
+
+    public float[] getBoatPosY() {
+        return boatPosY;
+    }
+
+    public float[] getBoatPitch() {
+        return boatPitch;
+    }
+
+    public float[] getBoatRoll() {
+        return boatRoll;
+    }
+}
@@ -0,0 +1,40 @@
+package ocean;
+
+/**
+ * Description: A looping track of keyframe values, evenly spaced over its period and
+ *    linearly interpolated between. Even spacing means finding an entity's keyframe is
+ *    a multiply rather than a search, so whole arrays of entities evaluate in batches.
+ *    Phases are per entity, in the same units as time
+ */
+public class KeyframeTrack {
+
+    /** The keyframes with the first repeated at the end, so the last one blends back into it */
+    private final float values[];
+    private final int keyCount;
+    private final float period;
+
+    public KeyframeTrack(float keyframes[], float period) {
+        if (keyframes.length == 0 || period <= 0f) {
+            throw new IllegalArgumentException("A track needs keyframes and a positive period");
+        }
+
+        keyCount = keyframes.length;
+        values = new float[keyCount + 1];
+        System.arraycopy(keyframes, 0, values, 0, keyCount);
+        values[keyCount] = keyframes[0];
+        this.period = period;
+    }
+
+    /** Evaluate the track for the first count entities at their phases into out */
+    public void evaluate(CurveKernel kernel, float time, float phase[], float out[], int count) {
+        kernel.keyframes(time, period, values, keyCount, phase, out, count);
+    }
+
+    public int getKeyCount() {
+        return keyCount;
+    }
+
+    public float getPeriod() {
+        return period;
+    }
+}
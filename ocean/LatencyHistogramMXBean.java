@@ -0,0 +1,22 @@
+package ocean;
+
+/**
+ * Description: JMX view of a LatencyHistogram, all times in nanoseconds
+ */
+public interface LatencyHistogramMXBean {
+
+    long getCount();
+
+    long getMeanNanos();
+
+    long getP50Nanos();
+
+    long getP99Nanos();
+
+    long getP999Nanos();
+
+    long getMaxNanos();
+
+    /** Start counting afresh */
+    void reset();
+}
@@ -0,0 +1,89 @@
+package ocean;
+
+/**
+ * Description: Picks how much detail to draw an entity with from how big it is on
+ *    screen: FULL, REDUCED (fish without eyes and with the tail merged into the body,
+ *    boats with a simpler deck) or IMPOSTOR (a single quad). Sizes are the fraction of
+ *    the screen height the entity's bounding sphere covers.
+ *
+ * Hysteresis: an entity only drops a level once it is a margin below the threshold and
+ *    only rises once it is the same margin above, so entities hovering around a threshold
+ *    don't pop between levels every frame
+ */
+public class LevelOfDetail {
+
+    /** Detail levels, finest first */
+    public static final int FULL = 0;
+    public static final int REDUCED = 1;
+    public static final int IMPOSTOR = 2;
+    public static final int LEVELS = 3;
+
+    /** Sizes below which an entity leaves FULL and REDUCED, as fractions of the screen height */
+    private final float thresholds[];
+
+    /** Margin around each threshold, as a fraction of it */
+    private final float hysteresis;
+
+    /** Leave full detail below 4% of the screen height and reduced below 1.2%, with a 20% margin */
+    public LevelOfDetail() {
+        this(0.04f, 0.012f, 0.2f);
+    }
+
+    public LevelOfDetail(float fullSize, float reducedSize, float hysteresis) {
+        if (reducedSize > fullSize || hysteresis < 0f || hysteresis >= 1f) {
+            throw new IllegalArgumentException("Thresholds must shrink with the level and the margin be under 1");
+        }
+        this.thresholds = new float[] {fullSize, reducedSize};
+        this.hysteresis = hysteresis;
+    }
+
+    /** The level for an entity of the given size, now at the given level or at -1 if it has none yet */
+    public int select(int current, float size) {
+        if (current < 0) {
+            int level = FULL;
+            while (level < LEVELS - 1 && size < thresholds[level]) {
+                level++;
+            }
+            return level;
+        }
+
+        int level = current;
+        while (level < LEVELS - 1 && size < thresholds[level] * (1f - hysteresis)) {
+            level++;
+        }
+        while (level > FULL && size > thresholds[level - 1] * (1f + hysteresis)) {
+            level--;
+        }
+        return level;
+    }
+
+    /**
+     * The fraction of the screen height covered by the sphere around a box (six floats
+     * from offset, min x, y, z then max x, y, z) seen through a column-major projection
+     * times view matrix without scaling. Infinite if the camera is inside the sphere
+     */
+    public static float projectedSize(float viewProjection[], float box[], int o) {
+        float x = (box[o] + box[o + 3]) * 0.5f;
+        float y = (box[o + 1] + box[o + 4]) * 0.5f;
+        float z = (box[o + 2] + box[o + 5]) * 0.5f;
+        float dx = box[o + 3] - box[o], dy = box[o + 4] - box[o + 1], dz = box[o + 5] - box[o + 2];
+        float radius = (float) Math.sqrt(dx * dx + dy * dy + dz * dz) * 0.5f;
+        return projectedSize(viewProjection, x, y, z, radius);
+    }
+
+    /** The fraction of the screen height covered by a sphere, as for a box. Infinite if the camera is inside it */
+    public static float projectedSize(float viewProjection[], float x, float y, float z, float radius) {
+        /** Clip w is the distance along the view direction for a perspective projection */
+        float w = viewProjection[3] * x + viewProjection[7] * y + viewProjection[11] * z + viewProjection[15];
+        if (w <= radius) {
+            return Float.POSITIVE_INFINITY;
+        }
+
+        /** The projection's vertical scale, the length of the second row as the view only rotates */
+        float m1 = viewProjection[1], m5 = viewProjection[5], m9 = viewProjection[9];
+        float focal = (float) Math.sqrt(m1 * m1 + m5 * m5 + m9 * m9);
+
+        /** The diameter covers 2 radius focal / w of the 2 units of screen height */
+        return radius * focal / w;
+    }
+}
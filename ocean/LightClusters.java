@@ -0,0 +1,421 @@
+package ocean;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Description: Bins point lights into a grid of clusters over the camera's view, so each
+ *    object only weighs the few lights near it instead of every light in the scene.
+ *
+ * Grid: tilesX x tilesY screen tiles, split into depth slices spaced evenly in log depth
+ *    between the near and far distances, so near slices are thin and far ones deep. All of
+ *    it comes from the projection times view matrix: tiles from normalised device x and y,
+ *    depth from clip w. A light is put in every cluster its sphere's bounds touch. Without a
+ *    camera every light goes in the first cluster and every lookup lands there.
+ *
+ * Output: each cluster's lights, in light order, are a run of getClusterLights() from
+ *    getClusterOffsets()[cluster] to getClusterOffsets()[cluster + 1], the form a shader
+ *    path would upload. assign() picks the most relevant lights for each object for the
+ *    fixed-function path.
+ *
+ * Parallelism: light bounds are found over ranges of lights, then lights are counted and
+ *    listed per depth slice, each slice owning its clusters, then objects are assigned over
+ *    ranges of objects, all on a fork-join pool. The result is the same on any number of threads
+ */
+public class LightClusters {
+
+    /** Fewest lights or objects a fork-join task handles without splitting further */
+    private static final int SPLIT_THRESHOLD = 512;
+
+    /** Ints per light range: first and last tile x, tile y and slice, or a first x of -1 if out of view */
+    private static final int RANGE_INTS = 6;
+
+    private final int tilesX, tilesY, slices;
+    private final int clusterCount;
+    private final float near, far;
+
+    /** Slices per unit of log depth */
+    private final float sliceScale;
+
+    /** Pool the stages are split across, null to run them on the calling thread */
+    private final ForkJoinPool pool;
+
+    /** Camera of the last build, valid if camera is true */
+    private final float viewProjection[] = new float[Matrix4.FLOATS];
+    private boolean camera;
+
+    /** Lights of the last build and the clusters each touches */
+    private GlowLights lights;
+    private int lightRanges[] = new int[0];
+
+    /** Each cluster's first entry in clusterLights, with one extra entry for the end */
+    private final int clusterOffsets[];
+    private int clusterLights[] = new int[0];
+
+    /** Next free entry of each cluster while listing */
+    private final int clusterCursors[];
+
+    /** Values of the assignment being run */
+    private float objectBounds[];
+    private int objects[];
+    private int maxLights;
+    private int objectLights[];
+    private float objectScores[];
+    private int objectLightCounts[];
+
+    /** 16 x 9 tiles and 24 slices from 0.1 to 100 units, on the common fork-join pool */
+    public LightClusters() {
+        this(16, 9, 24, 0.1f, 100f, ForkJoinPool.commonPool());
+    }
+
+    public LightClusters(int tilesX, int tilesY, int slices, float near, float far, ForkJoinPool pool) {
+        if (tilesX < 1 || tilesY < 1 || slices < 1 || near <= 0f || far <= near) {
+            throw new IllegalArgumentException("Need at least one cluster and 0 < near < far");
+        }
+
+        this.tilesX = tilesX;
+        this.tilesY = tilesY;
+        this.slices = slices;
+        this.near = near;
+        this.far = far;
+        this.pool = pool;
+
+        clusterCount = tilesX * tilesY * slices;
+        sliceScale = slices / (float) Math.log(far / near);
+        clusterOffsets = new int[clusterCount + 1];
+        clusterCursors = new int[clusterCount];
+    }
+
+    /** Bin the lights into clusters seen through the 16 floats of a projection times view matrix, or null for no camera */
+    public void build(float viewProjection[], GlowLights lights) {
+        camera = viewProjection != null;
+        if (camera) {
+            System.arraycopy(viewProjection, 0, this.viewProjection, 0, Matrix4.FLOATS);
+        }
+        this.lights = lights;
+
+        int lightCount = lights.getCount();
+        if (lightRanges.length < lightCount * RANGE_INTS) {
+            lightRanges = new int[lightCount * RANGE_INTS];
+        }
+        if (pool == null || lightCount <= SPLIT_THRESHOLD) {
+            findRanges(0, lightCount);
+        } else {
+            pool.invoke(new RangeTask(0, lightCount));
+        }
+
+        /** Count each cluster's lights, then turn the counts into offsets and list the lights */
+        Arrays.fill(clusterOffsets, 0);
+        runSlices(false);
+
+        int total = 0;
+        for (int cluster = 0; cluster < clusterCount; cluster++) {
+            int lightsInCluster = clusterOffsets[cluster];
+            clusterOffsets[cluster] = total;
+            clusterCursors[cluster] = total;
+            total += lightsInCluster;
+        }
+        clusterOffsets[clusterCount] = total;
+        if (clusterLights.length < total) {
+            clusterLights = new int[Math.max(total, clusterLights.length * 2)];
+        }
+
+        runSlices(true);
+    }
+
+    private void runSlices(boolean list) {
+        int usedSlices = camera ? slices : 1;
+        if (pool == null || lights.getCount() <= SPLIT_THRESHOLD) {
+            binSlices(0, usedSlices, list);
+        } else {
+            pool.invoke(new SliceTask(0, usedSlices, list));
+        }
+    }
+
+    /** Find the clusters each light first up to end touches */
+    private void findRanges(int first, int end) {
+        float posX[] = lights.getPosX(), posY[] = lights.getPosY(), posZ[] = lights.getPosZ();
+        float radius[] = lights.getRadius();
+        for (int i = first; i < end; i++) {
+            int o = i * RANGE_INTS;
+            if (!camera) {
+                for (int k = 0; k < RANGE_INTS; k++) {
+                    lightRanges[o + k] = 0;
+                }
+                continue;
+            }
+            findRange(posX[i], posY[i], posZ[i], radius[i], o);
+        }
+    }
+
+    /** Tiles and slices a sphere's bounds cover, into lightRanges from o */
+    private void findRange(float x, float y, float z, float r, int o) {
+        float m[] = viewProjection;
+
+        /** Clip w is view depth, scaled by the length of its row if the view scales */
+        float w = m[3] * x + m[7] * y + m[11] * z + m[15];
+        float depthScale = (float) Math.sqrt(m[3] * m[3] + m[7] * m[7] + m[11] * m[11]);
+        float nearest = w - r * depthScale, furthest = w + r * depthScale;
+        if (furthest < near || nearest > far) {
+            lightRanges[o] = -1;
+            return;
+        }
+
+        /** Screen bounds of the box around the sphere, or the whole screen if the box reaches behind the near plane */
+        int firstX = 0, lastX = tilesX - 1, firstY = 0, lastY = tilesY - 1;
+        float minX = Float.POSITIVE_INFINITY, maxX = Float.NEGATIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+        boolean behind = false;
+        for (int corner = 0; corner < 8 && !behind; corner++) {
+            float cx = (corner & 1) == 0 ? x - r : x + r;
+            float cy = (corner & 2) == 0 ? y - r : y + r;
+            float cz = (corner & 4) == 0 ? z - r : z + r;
+            float clipW = m[3] * cx + m[7] * cy + m[11] * cz + m[15];
+            if (clipW < near) {
+                behind = true;
+                break;
+            }
+            float ndcX = (m[0] * cx + m[4] * cy + m[8] * cz + m[12]) / clipW;
+            float ndcY = (m[1] * cx + m[5] * cy + m[9] * cz + m[13]) / clipW;
+            minX = Math.min(minX, ndcX);
+            maxX = Math.max(maxX, ndcX);
+            minY = Math.min(minY, ndcY);
+            maxY = Math.max(maxY, ndcY);
+        }
+        if (!behind) {
+            if (maxX < -1f || minX > 1f || maxY < -1f || minY > 1f) {
+                lightRanges[o] = -1;
+                return;
+            }
+            firstX = tile(minX, tilesX);
+            lastX = tile(maxX, tilesX);
+            firstY = tile(minY, tilesY);
+            lastY = tile(maxY, tilesY);
+        }
+
+        lightRanges[o] = firstX;
+        lightRanges[o + 1] = lastX;
+        lightRanges[o + 2] = firstY;
+        lightRanges[o + 3] = lastY;
+        lightRanges[o + 4] = slice(nearest);
+        lightRanges[o + 5] = slice(furthest);
+    }
+
+    /** Tile of a normalised device coordinate, clamped to the grid */
+    private static int tile(float ndc, int tiles) {
+        int tile = (int) Math.floor((ndc + 1f) * 0.5f * tiles);
+        return Math.max(0, Math.min(tiles - 1, tile));
+    }
+
+    /** Slice of a view depth, clamped to the grid */
+    private int slice(float depth) {
+        if (depth <= near) {
+            return 0;
+        }
+        int slice = (int) (Math.log(depth / near) * sliceScale);
+        return Math.min(slices - 1, slice);
+    }
+
+    /** Count, or list, every light in the clusters of slices first up to end */
+    private void binSlices(int first, int end, boolean list) {
+        int lightCount = lights.getCount();
+        for (int i = 0; i < lightCount; i++) {
+            int o = i * RANGE_INTS;
+            if (lightRanges[o] < 0) {
+                continue;
+            }
+            int firstSlice = Math.max(first, lightRanges[o + 4]);
+            int lastSlice = Math.min(end - 1, lightRanges[o + 5]);
+            for (int slice = firstSlice; slice <= lastSlice; slice++) {
+                for (int tileY = lightRanges[o + 2]; tileY <= lightRanges[o + 3]; tileY++) {
+                    int row = (slice * tilesY + tileY) * tilesX;
+                    for (int tileX = lightRanges[o]; tileX <= lightRanges[o + 1]; tileX++) {
+                        if (list) {
+                            clusterLights[clusterCursors[row + tileX]++] = i;
+                        } else {
+                            clusterOffsets[row + tileX]++;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** Cluster a point is in, the nearest one if it is out of view, the first without a camera */
+    public int clusterAt(float x, float y, float z) {
+        if (!camera) {
+            return 0;
+        }
+
+        float m[] = viewProjection;
+        float w = m[3] * x + m[7] * y + m[11] * z + m[15];
+        if (w < near) {
+            return 0;
+        }
+        int tileX = tile((m[0] * x + m[4] * y + m[8] * z + m[12]) / w, tilesX);
+        int tileY = tile((m[1] * x + m[5] * y + m[9] * z + m[13]) / w, tilesY);
+        return (slice(w) * tilesY + tileY) * tilesX + tileX;
+    }
+
+    /**
+     * Up to max lights of the point's cluster that reach a sphere there, brightest at it
+     * first, into lightsOut from offset with their brightness in scoresOut. A light's
+     * brightness is its strongest channel, fading with the square of the distance over its
+     * range. Returns the number of lights picked
+     */
+    public int select(float x, float y, float z, float sphereRadius, int max,
+            int lightsOut[], float scoresOut[], int offset) {
+        float posX[] = lights.getPosX(), posY[] = lights.getPosY(), posZ[] = lights.getPosZ();
+        float radius[] = lights.getRadius();
+        float red[] = lights.getRed(), green[] = lights.getGreen(), blue[] = lights.getBlue();
+
+        int cluster = clusterAt(x, y, z);
+        int picked = 0;
+        for (int entry = clusterOffsets[cluster]; entry < clusterOffsets[cluster + 1]; entry++) {
+            int light = clusterLights[entry];
+            float dx = posX[light] - x, dy = posY[light] - y, dz = posZ[light] - z;
+            float distance = Math.max(0f, (float) Math.sqrt(dx * dx + dy * dy + dz * dz) - sphereRadius);
+            if (distance >= radius[light]) {
+                continue;
+            }
+            float fade = 1f - distance / radius[light];
+            float score = Math.max(red[light], Math.max(green[light], blue[light])) * fade * fade;
+
+            /** Insert into the sorted picks, dropping the dimmest if full */
+            int slot = picked < max ? picked++ : max;
+            while (slot > 0 && scoresOut[offset + slot - 1] < score) {
+                if (slot < max) {
+                    lightsOut[offset + slot] = lightsOut[offset + slot - 1];
+                    scoresOut[offset + slot] = scoresOut[offset + slot - 1];
+                }
+                slot--;
+            }
+            if (slot < max) {
+                lightsOut[offset + slot] = light;
+                scoresOut[offset + slot] = score;
+            }
+        }
+        return picked;
+    }
+
+    /**
+     * Pick up to max lights for each of the given objects, whose bounds are six floats per
+     * object index in bounds (min x, y, z then max x, y, z). Object n's lights go in
+     * lightsOut and scoresOut from n * max, and their number in countsOut[n]
+     */
+    public void assign(float bounds[], int objects[], int objectCount, int max,
+            int lightsOut[], float scoresOut[], int countsOut[]) {
+        objectBounds = bounds;
+        this.objects = objects;
+        maxLights = max;
+        objectLights = lightsOut;
+        objectScores = scoresOut;
+        objectLightCounts = countsOut;
+
+        if (pool == null || objectCount <= SPLIT_THRESHOLD) {
+            assignObjects(0, objectCount);
+        } else {
+            pool.invoke(new AssignTask(0, objectCount));
+        }
+
+        objectBounds = null;
+        this.objects = null;
+        objectLights = null;
+        objectScores = null;
+        objectLightCounts = null;
+    }
+
+    private void assignObjects(int first, int end) {
+        float b[] = objectBounds;
+        for (int i = first; i < end; i++) {
+            int object = objects[i];
+            int o = object * 6;
+            float x = (b[o] + b[o + 3]) * 0.5f, y = (b[o + 1] + b[o + 4]) * 0.5f, z = (b[o + 2] + b[o + 5]) * 0.5f;
+            float dx = b[o + 3] - b[o], dy = b[o + 4] - b[o + 1], dz = b[o + 5] - b[o + 2];
+            float radius = (float) Math.sqrt(dx * dx + dy * dy + dz * dz) * 0.5f;
+            objectLightCounts[object] = select(x, y, z, radius, maxLights, objectLights, objectScores, object * maxLights);
+        }
+    }
+
+    /** Splits a range of lights in half until it is small enough to run directly */
+    @SuppressWarnings("serial")
+    private class RangeTask extends RecursiveAction {
+        private final int first, end;
+
+        RangeTask(int first, int end) {
+            this.first = first;
+            this.end = end;
+        }
+
+        protected void compute() {
+            if (end - first <= SPLIT_THRESHOLD) {
+                findRanges(first, end);
+            } else {
+                int middle = (first + end) >>> 1;
+                invokeAll(new RangeTask(first, middle), new RangeTask(middle, end));
+            }
+        }
+    }
+
+    /** Splits a range of slices down to one slice each */
+    @SuppressWarnings("serial")
+    private class SliceTask extends RecursiveAction {
+        private final int first, end;
+        private final boolean list;
+
+        SliceTask(int first, int end, boolean list) {
+            this.first = first;
+            this.end = end;
+            this.list = list;
+        }
+
+        protected void compute() {
+            if (end - first <= 1) {
+                binSlices(first, end, list);
+            } else {
+                int middle = (first + end) >>> 1;
+                invokeAll(new SliceTask(first, middle, list), new SliceTask(middle, end, list));
+            }
+        }
+    }
+
+    /** Splits a range of objects in half until it is small enough to run directly */
+    @SuppressWarnings("serial")
+    private class AssignTask extends RecursiveAction {
+        private final int first, end;
+
+        AssignTask(int first, int end) {
+            this.first = first;
+            this.end = end;
+        }
+
+        protected void compute() {
+            if (end - first <= SPLIT_THRESHOLD) {
+                assignObjects(first, end);
+            } else {
+                int middle = (first + end) >>> 1;
+                invokeAll(new AssignTask(first, middle), new AssignTask(middle, end));
+            }
+        }
+    }
+
+    public int getClusterCount() {
+        return clusterCount;
+    }
+
+    /** Each cluster's first entry in getClusterLights(), with one extra entry for the end */
+    public int[] getClusterOffsets() {
+        return clusterOffsets;
+    }
+
+    /** Light indices of every cluster in turn, the returned array is live and must not be modified */
+    public int[] getClusterLights() {
+        return clusterLights;
+    }
+
+    /** Entries in getClusterLights() after the last build, a light counting once per cluster it touches */
+    public int getEntryCount() {
+        return clusterOffsets[clusterCount];
+    }
+}
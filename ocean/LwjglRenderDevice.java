@@ -0,0 +1,231 @@
+package ocean;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL15;
+
+/**
+ * Description: Sends every call straight to OpenGL through LWJGL.
+ *    Needs a current OpenGL context, the one GraphicsLab creates
+ */
+public class LwjglRenderDevice implements RenderDevice {
+
+    /** Meshes uploaded by this device, indexed by handle */
+    private final List<VboMesh> meshes = new ArrayList<VboMesh>();
+
+    /** Textures created by this device */
+    private final List<Integer> textures = new ArrayList<Integer>();
+
+    /** Staging for multMatrix */
+    private final FloatBuffer matrix = Buffers.createFloatBuffer(Matrix4.FLOATS);
+
+    /** Matrices read back for getViewProjection */
+    private final FloatBuffer readBack = Buffers.createFloatBuffer(Matrix4.FLOATS);
+    private final float projection[] = new float[Matrix4.FLOATS];
+    private final float modelView[] = new float[Matrix4.FLOATS];
+
+    /** Instanced fish drawing, null until created or if unsupported */
+    private InstancedFishRenderer fishRenderer;
+
+    /** Vertex buffer particles are streamed into, zero until first mapped */
+    private int particleBuffer = 0;
+
+    /** Its last mapping and a float view of it, kept while the driver maps to the same memory */
+    private ByteBuffer particleMapping;
+    private FloatBuffer particleVertices;
+
+    public void pushMatrix() {
+        GL11.glPushMatrix();
+    }
+
+    public void popMatrix() {
+        GL11.glPopMatrix();
+    }
+
+    public void translate(float x, float y, float z) {
+        GL11.glTranslatef(x, y, z);
+    }
+
+    public void rotate(float angle, float x, float y, float z) {
+        GL11.glRotatef(angle, x, y, z);
+    }
+
+    public void scale(float x, float y, float z) {
+        GL11.glScalef(x, y, z);
+    }
+
+    public void multMatrix(float matrix[], int offset) {
+        this.matrix.clear();
+        this.matrix.put(matrix, offset, Matrix4.FLOATS).flip();
+        GL11.glMultMatrix(this.matrix);
+    }
+
+    public boolean getViewProjection(float matrix[], int offset) {
+        readBack.clear();
+        GL11.glGetFloat(GL11.GL_PROJECTION_MATRIX, readBack);
+        readBack.get(projection);
+
+        readBack.clear();
+        GL11.glGetFloat(GL11.GL_MODELVIEW_MATRIX, readBack);
+        readBack.get(modelView);
+
+        Matrix4.multiply(projection, 0, modelView, 0, matrix, offset);
+        return true;
+    }
+
+    public void enable(int cap) {
+        GL11.glEnable(cap);
+    }
+
+    public void disable(int cap) {
+        GL11.glDisable(cap);
+    }
+
+    public void lightModel(int pname, FloatBuffer params) {
+        GL11.glLightModel(pname, params);
+    }
+
+    public void light(int light, int pname, FloatBuffer params) {
+        GL11.glLight(light, pname, params);
+    }
+
+    public void lightf(int light, int pname, float param) {
+        GL11.glLightf(light, pname, param);
+    }
+
+    public void materialf(int pname, float param) {
+        GL11.glMaterialf(GL11.GL_FRONT, pname, param);
+    }
+
+    public void material(int pname, FloatBuffer params) {
+        GL11.glMaterial(GL11.GL_FRONT, pname, params);
+    }
+
+    public void color(float red, float green, float blue, float alpha) {
+        GL11.glColor4f(red, green, blue, alpha);
+    }
+
+    public void bindTexture(int texture) {
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+    }
+
+    public int createTexture(TextureImage image) {
+        int texture = GL11.glGenTextures();
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+
+        /** Rows are tightly packed, whatever the width */
+        GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 1);
+        for (int level = 0; level < image.getLevelCount(); level++) {
+            GL11.glTexImage2D(GL11.GL_TEXTURE_2D, level, GL11.GL_RGBA,
+                    image.getLevelWidth(level), image.getLevelHeight(level), 0,
+                    GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, image.getLevel(level));
+        }
+
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL12.GL_TEXTURE_MAX_LEVEL, image.getLevelCount() - 1);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR_MIPMAP_LINEAR);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
+
+        textures.add(texture);
+        return texture;
+    }
+
+    public int createMesh(Mesh mesh) {
+        meshes.add(new VboMesh(mesh));
+        return meshes.size() - 1;
+    }
+
+    public void drawMesh(int mesh) {
+        meshes.get(mesh).draw();
+    }
+
+    public boolean createFishInstancing(int bodyMesh, int tailMesh, int eyeMesh, int mergedMesh, int impostorMesh) {
+        if (!InstancedFishRenderer.isSupported()) {
+            return false;
+        }
+
+        try {
+            fishRenderer = new InstancedFishRenderer(meshes.get(bodyMesh), meshes.get(tailMesh), meshes.get(eyeMesh),
+                    meshes.get(mergedMesh), meshes.get(impostorMesh));
+            return true;
+        } catch (IOException e) {
+            System.err.println("Drawing fish one by one, couldn't load the fish shader: " + e.getMessage());
+            return false;
+        }
+    }
+
+    public void updateFishInstances(FishInstanceBuffer fish) {
+        fishRenderer.upload(fish);
+    }
+
+    public void drawFishInstanced(FishPart part) {
+        fishRenderer.draw(part);
+    }
+
+    public void setFishGlowLights(GlowLights lights) {
+        fishRenderer.setGlowLights(lights);
+    }
+
+    public FloatBuffer mapParticleBuffer(int floats) {
+        if (particleBuffer == 0) {
+            particleBuffer = GL15.glGenBuffers();
+        }
+        long bytes = Math.max(1, floats) * 4L;
+
+        /** Orphan the old storage so the driver doesn't wait on last frame's draw, then write straight into the new */
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, particleBuffer);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, bytes, GL15.GL_STREAM_DRAW);
+        ByteBuffer mapping = GL15.glMapBuffer(GL15.GL_ARRAY_BUFFER, GL15.GL_WRITE_ONLY, bytes, particleMapping);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+
+        if (mapping != particleMapping) {
+            particleMapping = mapping;
+            particleVertices = mapping.order(ByteOrder.nativeOrder()).asFloatBuffer();
+        }
+        particleVertices.clear();
+        return particleVertices;
+    }
+
+    public void drawParticles(int vertexCount) {
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, particleBuffer);
+        GL15.glUnmapBuffer(GL15.GL_ARRAY_BUFFER);
+
+        if (vertexCount > 0) {
+            GL11.glEnableClientState(GL11.GL_VERTEX_ARRAY);
+            GL11.glVertexPointer(3, GL11.GL_FLOAT, 0, 0L);
+            GL11.glDrawArrays(GL11.GL_TRIANGLES, 0, vertexCount);
+            GL11.glDisableClientState(GL11.GL_VERTEX_ARRAY);
+        }
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    }
+
+    public void dispose() {
+        if (particleBuffer != 0) {
+            GL15.glDeleteBuffers(particleBuffer);
+            particleBuffer = 0;
+            particleMapping = null;
+            particleVertices = null;
+        }
+
+        if (fishRenderer != null) {
+            fishRenderer.delete();
+            fishRenderer = null;
+        }
+
+        for (VboMesh mesh : meshes) {
+            mesh.delete();
+        }
+        meshes.clear();
+
+        for (int texture : textures) {
+            GL11.glDeleteTextures(texture);
+        }
+        textures.clear();
+    }
+}
@@ -0,0 +1,63 @@
+package ocean;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Description: Front face material properties, with the colours already held in
+ *    direct buffers so setting the material needs no allocation
+ */
+public class Material {
+
+    /** Name the material was registered under */
+    private final String name;
+
+    /** How shiny the front faces are (specular exponent) */
+    private final float shininess;
+
+    /** Specular reflection of the front faces */
+    private final FloatBuffer specular;
+
+    /** Diffuse reflection of the front faces */
+    private final FloatBuffer diffuse;
+
+    public Material(String name, float shininess, float specular[], float diffuse[]) {
+        if (specular.length != 4 || diffuse.length != 4) {
+            throw new IllegalArgumentException("Material colours must be RGBA");
+        }
+
+        this.name = name;
+        this.shininess = shininess;
+        this.specular = Buffers.wrap(specular);
+        this.diffuse = Buffers.wrap(diffuse);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public float getShininess() {
+        return shininess;
+    }
+
+    /** Specular colour, shared by every caller so it must only be read */
+    public FloatBuffer getSpecular() {
+        return specular;
+    }
+
+    /** Diffuse colour, shared by every caller so it must only be read */
+    public FloatBuffer getDiffuse() {
+        return diffuse;
+    }
+
+    public float getSpecular(int component) {
+        return specular.get(component);
+    }
+
+    public float getDiffuse(int component) {
+        return diffuse.get(component);
+    }
+
+    public String toString() {
+        return name;
+    }
+}
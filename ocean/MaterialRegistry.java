@@ -0,0 +1,38 @@
+package ocean;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Description: The scene's materials, built once when the scene is initialised
+ *    and looked up by name. Render code keeps the returned Material and passes it
+ *    to the RenderStateTracker every frame instead of rebuilding its buffers
+ */
+public class MaterialRegistry {
+
+    /** Registered materials in the order they were registered */
+    private final Map<String, Material> materials = new LinkedHashMap<String, Material>();
+
+    /** Build and register a material, replacing any material of the same name */
+    public Material register(String name, float shininess, float specular[], float diffuse[]) {
+        Material material = new Material(name, shininess, specular, diffuse);
+        materials.put(name, material);
+        return material;
+    }
+
+    public Material get(String name) {
+        Material material = materials.get(name);
+        if (material == null) {
+            throw new IllegalArgumentException("No material named " + name);
+        }
+        return material;
+    }
+
+    public Iterable<Material> getMaterials() {
+        return materials.values();
+    }
+
+    public int size() {
+        return materials.size();
+    }
+}
@@ -0,0 +1,109 @@
+package ocean;
+
+/**
+ * Description: 4x4 matrix operations on column-major float arrays, the layout OpenGL uses,
+ *    each matrix 16 floats starting at an offset so many can share one array.
+ *    translate, rotate and scale multiply on the right like glTranslate, glRotate
+ *    and glScale, so calls compose in the same order as the scene's GL code
+ */
+public final class Matrix4 {
+
+    /** Floats per matrix */
+    public static final int FLOATS = 16;
+
+    private Matrix4() {
+    }
+
+    public static void setIdentity(float m[], int o) {
+        for (int i = 0; i < FLOATS; i++) {
+            m[o + i] = i % 5 == 0 ? 1f : 0f;
+        }
+    }
+
+    public static void translate(float m[], int o, float x, float y, float z) {
+        for (int row = 0; row < 4; row++) {
+            m[o + 12 + row] += m[o + row] * x + m[o + 4 + row] * y + m[o + 8 + row] * z;
+        }
+    }
+
+    /** Rotate by angle degrees about the axis (x, y, z) */
+    public static void rotate(float m[], int o, float angle, float x, float y, float z) {
+        float length = (float) Math.sqrt(x * x + y * y + z * z);
+        if (length == 0f) {
+            return;
+        }
+        x /= length;
+        y /= length;
+        z /= length;
+
+        float c = (float) Math.cos(Math.toRadians(angle));
+        float s = (float) Math.sin(Math.toRadians(angle));
+        float t = 1f - c;
+
+        /** The rotation of glRotate, r[column][row] */
+        float r00 = x * x * t + c,     r01 = y * x * t + z * s, r02 = x * z * t - y * s;
+        float r10 = x * y * t - z * s, r11 = y * y * t + c,     r12 = y * z * t + x * s;
+        float r20 = x * z * t + y * s, r21 = y * z * t - x * s, r22 = z * z * t + c;
+
+        for (int row = 0; row < 4; row++) {
+            float m0 = m[o + row], m1 = m[o + 4 + row], m2 = m[o + 8 + row];
+            m[o + row] = m0 * r00 + m1 * r01 + m2 * r02;
+            m[o + 4 + row] = m0 * r10 + m1 * r11 + m2 * r12;
+            m[o + 8 + row] = m0 * r20 + m1 * r21 + m2 * r22;
+        }
+    }
+
+    public static void scale(float m[], int o, float x, float y, float z) {
+        for (int row = 0; row < 4; row++) {
+            m[o + row] *= x;
+            m[o + 4 + row] *= y;
+            m[o + 8 + row] *= z;
+        }
+    }
+
+    /** result = left * right, result must not overlap either input */
+    public static void multiply(float left[], int leftOffset, float right[], int rightOffset,
+            float result[], int resultOffset) {
+        for (int column = 0; column < 4; column++) {
+            int r = rightOffset + column * 4;
+            for (int row = 0; row < 4; row++) {
+                int l = leftOffset + row;
+                result[resultOffset + column * 4 + row] = left[l] * right[r] + left[l + 4] * right[r + 1]
+                        + left[l + 8] * right[r + 2] + left[l + 12] * right[r + 3];
+            }
+        }
+    }
+
+    /**
+     * The axis-aligned box holding a box transformed by an affine matrix. Boxes are six
+     * floats, min x, y, z then max x, y, z; result must not overlap box
+     */
+    public static void transformBounds(float m[], int o, float box[], int boxOffset,
+            float result[], int resultOffset) {
+        for (int row = 0; row < 3; row++) {
+            /** Start at the translation and add the smaller and larger end of each column's contribution */
+            float min = m[o + 12 + row];
+            float max = min;
+            for (int column = 0; column < 3; column++) {
+                float a = m[o + column * 4 + row] * box[boxOffset + column];
+                float b = m[o + column * 4 + row] * box[boxOffset + column + 3];
+                min += Math.min(a, b);
+                max += Math.max(a, b);
+            }
+            result[resultOffset + row] = min;
+            result[resultOffset + row + 3] = max;
+        }
+    }
+
+    /** The matrix gluPerspective makes, field of view in degrees */
+    public static void perspective(float m[], int o, float fieldOfView, float aspect, float near, float far) {
+        float f = 1f / (float) Math.tan(Math.toRadians(fieldOfView) / 2);
+        setIdentity(m, o);
+        m[o] = f / aspect;
+        m[o + 5] = f;
+        m[o + 10] = (far + near) / (near - far);
+        m[o + 11] = -1f;
+        m[o + 14] = 2f * far * near / (near - far);
+        m[o + 15] = 0f;
+    }
+}
@@ -0,0 +1,134 @@
+package ocean;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Description: Triangulated geometry ready to hand to OpenGL as a vertex buffer.
+ *    Every vertex is interleaved as position (x, y, z), normal (x, y, z) and
+ *    texture coordinate (u, v) in one direct FloatBuffer, so the same data can be
+ *    uploaded once and drawn with a single glDrawArrays(GL_TRIANGLES) call
+ */
+public class Mesh {
+
+    /** Floats per interleaved vertex */
+    public static final int VERTEX_FLOATS = 8;
+
+    /** Bytes per interleaved vertex, the stride between vertices */
+    public static final int STRIDE = VERTEX_FLOATS * 4;
+
+    /** Byte offset of the position within a vertex */
+    public static final int POSITION_OFFSET = 0;
+
+    /** Byte offset of the normal within a vertex */
+    public static final int NORMAL_OFFSET = 3 * 4;
+
+    /** Byte offset of the texture coordinate within a vertex */
+    public static final int TEXCOORD_OFFSET = 6 * 4;
+
+    /** Interleaved vertex data, positioned at zero with the limit at the end of the data */
+    private final FloatBuffer data;
+
+    /** Number of vertices, three per triangle */
+    private final int vertexCount;
+
+    /** If the texture coordinates are meaningful */
+    private final boolean textured;
+
+    /** Axis-aligned bounds of the positions: min x, y, z then max x, y, z */
+    private final float bounds[] = new float[6];
+
+    public Mesh(FloatBuffer data, boolean textured) {
+        this(data, textured, null);
+    }
+
+    /** A mesh whose bounds are already known, as six floats, or found from the data if null */
+    public Mesh(FloatBuffer data, boolean textured, float knownBounds[]) {
+        if (data.remaining() % VERTEX_FLOATS != 0 || data.remaining() / VERTEX_FLOATS % 3 != 0) {
+            throw new IllegalArgumentException("Mesh data must hold whole triangles");
+        }
+
+        this.data = data;
+        this.vertexCount = data.remaining() / VERTEX_FLOATS;
+        this.textured = textured;
+
+        if (knownBounds != null) {
+            System.arraycopy(knownBounds, 0, bounds, 0, 6);
+            return;
+        }
+        for (int i = 0; i < 3; i++) {
+            bounds[i] = vertexCount > 0 ? Float.POSITIVE_INFINITY : 0f;
+            bounds[i + 3] = vertexCount > 0 ? Float.NEGATIVE_INFINITY : 0f;
+        }
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            for (int i = 0; i < 3; i++) {
+                float value = get(vertex, i);
+                bounds[i] = Math.min(bounds[i], value);
+                bounds[i + 3] = Math.max(bounds[i + 3], value);
+            }
+        }
+    }
+
+    /** A direct buffer in native byte order, as OpenGL expects */
+    public static FloatBuffer allocate(int vertexCount) {
+        return Buffers.createFloatBuffer(vertexCount * VERTEX_FLOATS);
+    }
+
+    /** The interleaved data, a duplicate so callers can't move the mesh's own position */
+    public FloatBuffer getData() {
+        return data.duplicate();
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public int getTriangleCount() {
+        return vertexCount / 3;
+    }
+
+    /** Bounds of the positions as min x, y, z, max x, y, z, live and must not be modified */
+    public float[] getBounds() {
+        return bounds;
+    }
+
+    public boolean isTextured() {
+        return textured;
+    }
+
+    /** Component 0 to 7 of the given vertex, in interleaved order */
+    public float get(int vertex, int component) {
+        return data.get(data.position() + vertex * VERTEX_FLOATS + component);
+    }
+
+    public float getX(int vertex) {
+        return get(vertex, 0);
+    }
+
+    public float getY(int vertex) {
+        return get(vertex, 1);
+    }
+
+    public float getZ(int vertex) {
+        return get(vertex, 2);
+    }
+
+    public float getNormalX(int vertex) {
+        return get(vertex, 3);
+    }
+
+    public float getNormalY(int vertex) {
+        return get(vertex, 4);
+    }
+
+    public float getNormalZ(int vertex) {
+        return get(vertex, 5);
+    }
+
+    public float getU(int vertex) {
+        return get(vertex, 6);
+    }
+
+    public float getV(int vertex) {
+        return get(vertex, 7);
+    }
+}
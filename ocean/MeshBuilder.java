@@ -0,0 +1,74 @@
+package ocean;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Description: Turns shapes into meshes. Each polygon is split into a fan of triangles
+ *    around its first vertex, which keeps the anticlockwise winding the polygon was
+ *    drawn with, and every triangle vertex takes the polygon's face normal so the
+ *    lighting matches the flat shaded GL_POLYGON version exactly.
+ *    Several shapes can be added to one builder to merge them into a single mesh
+ */
+public class MeshBuilder {
+
+    /** Interleaved vertex data added so far */
+    private float[] vertices = new float[64 * Mesh.VERTEX_FLOATS];
+
+    /** Number of floats of vertices in use */
+    private int size = 0;
+
+    /** If any added shape is textured */
+    private boolean textured = false;
+
+    /** Build a mesh from a single shape */
+    public static Mesh build(Shape shape) {
+        return new MeshBuilder().add(shape).build();
+    }
+
+    /** Add every polygon of a shape as it is */
+    public MeshBuilder add(Shape shape) {
+        return add(shape, 0f, 0f, 0f);
+    }
+
+    /** Add every polygon of a shape, moved by the given offset */
+    public MeshBuilder add(Shape shape, float offsetX, float offsetY, float offsetZ) {
+        textured |= shape.isTextured();
+
+        for (int p = 0; p < shape.getPolygonCount(); p++) {
+            int start = shape.getPolygonStart(p);
+            int count = shape.getPolygonSize(p);
+
+            for (int i = 1; i < count - 1; i++) {
+                addVertex(shape, p, start, offsetX, offsetY, offsetZ);
+                addVertex(shape, p, start + i, offsetX, offsetY, offsetZ);
+                addVertex(shape, p, start + i + 1, offsetX, offsetY, offsetZ);
+            }
+        }
+        return this;
+    }
+
+    private void addVertex(Shape shape, int polygon, int vertex, float offsetX, float offsetY, float offsetZ) {
+        if (size + Mesh.VERTEX_FLOATS > vertices.length) {
+            float grown[] = new float[vertices.length * 2];
+            System.arraycopy(vertices, 0, grown, 0, size);
+            vertices = grown;
+        }
+
+        vertices[size++] = shape.getX(vertex) + offsetX;
+        vertices[size++] = shape.getY(vertex) + offsetY;
+        vertices[size++] = shape.getZ(vertex) + offsetZ;
+        vertices[size++] = shape.getNormalX(polygon);
+        vertices[size++] = shape.getNormalY(polygon);
+        vertices[size++] = shape.getNormalZ(polygon);
+        vertices[size++] = shape.isTextured() ? shape.getU(vertex) : 0f;
+        vertices[size++] = shape.isTextured() ? shape.getV(vertex) : 0f;
+    }
+
+    /** Copy everything added so far into a new direct buffer */
+    public Mesh build() {
+        FloatBuffer data = Mesh.allocate(size / Mesh.VERTEX_FLOATS);
+        data.put(vertices, 0, size);
+        data.flip();
+        return new Mesh(data, textured);
+    }
+}
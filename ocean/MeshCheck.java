@@ -0,0 +1,166 @@
+package ocean;
+
+/**
+ * Description: Headless check of the meshes MeshBuilder makes for the boat, the fish parts
+ *    and the back plane against the immediate-mode code they replaced. The corners and
+ *    GL_POLYGON vertex order of drawBoat(), drawTriangle() and drawUnitPlane() are written
+ *    out below as they were, and each polygon's normal is worked out the way GraphicsLab's
+ *    Normal did, from the cross product of the edges at its first vertex. Every mesh must
+ *    have the polygons' fans in the same order, three vertices per triangle, with the same
+ *    positions and texture coordinates, the polygon's normal within NORMAL_TOLERANCE, and
+ *    each triangle wound anticlockwise about that normal. Exits with status 1 on any mismatch
+ *
+ * Usage: java ocean.MeshCheck
+ */
+public class MeshCheck {
+
+    /** Largest difference allowed in any component of a unit normal */
+    private static final float NORMAL_TOLERANCE = 1e-5f;
+
+    public static void main(String args[]) {
+        boolean passed = true;
+        passed &= check("boat", SceneAssets.buildMesh(SceneAssets.BOAT), boat(), null);
+        passed &= check("fish body", SceneAssets.buildMesh(SceneAssets.FISH_BODY), triangle(1f), null);
+        passed &= check("fish tail", SceneAssets.buildMesh(SceneAssets.FISH_TAIL), triangle(0.5f), null);
+        passed &= check("fish eye", SceneAssets.buildMesh(SceneAssets.FISH_EYE), triangle(0.2f), null);
+        passed &= check("unit plane", SceneAssets.buildMesh(SceneAssets.PLANE), unitPlane(), UNIT_PLANE_TEXCOORDS);
+
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /** drawBoat(): corners v1 to v8 and the polygons, by corner number, in the order they were submitted */
+    private static float[][][] boat() {
+        float v1[] = {-0.5f, 0.0f, 0.0f};
+        float v2[] = { 0.5f, 0.0f, 0.0f};
+        float v3[] = { 0.5f, 1.0f, 0.5f};
+        float v4[] = {-0.5f, 1.0f, 0.5f};
+        float v5[] = { 0.5f, 1.0f,-0.5f};
+        float v6[] = {-0.5f, 1.0f,-0.5f};
+        float v7[] = { 1.5f, 1.0f, 0.0f};
+        float v8[] = {-1.5f, 1.0f, 0.0f};
+
+        return new float[][][] {
+            {v1, v2, v3, v4},   // front face
+            {v1, v6, v5, v2},   // back face
+            {v2, v7, v3},       // right front
+            {v2, v5, v7},       // right back
+            {v1, v4, v8},       // left front
+            {v1, v8, v6},       // left back
+            {v4, v3, v5, v6},   // top cover center
+            {v3, v7, v5},       // top cover right
+            {v4, v6, v8},       // top cover left
+        };
+    }
+
+    /** drawTriangle(size) */
+    private static float[][][] triangle(float size) {
+        float v1[] = {size*0.0f, size*-1.0f, size*0.2f};
+        float v2[] = {size*0.0f, size* 1.0f, size*0.2f};
+        float v3[] = {size*2.5f, size* 0.0f, size*0.2f};
+        float v4[] = {size*0.0f, size*-1.0f, size*-0.2f};
+        float v5[] = {size*0.0f, size* 1.0f, size*-0.2f};
+        float v6[] = {size*2.5f, size* 0.0f, size*-0.2f};
+
+        return new float[][][] {
+            {v1, v3, v2},       // front face
+            {v4, v6, v5},       // back face
+            {v2, v3, v6, v5},   // top face
+            {v1, v4, v6, v3},   // bottom face
+            {v1, v2, v5, v4},   // left face
+        };
+    }
+
+    /** drawUnitPlane(), ordered so the plane faces up */
+    private static float[][][] unitPlane() {
+        float v1[] = {-0.5f, 0.0f,-0.5f};
+        float v2[] = { 0.5f, 0.0f,-0.5f};
+        float v3[] = { 0.5f, 0.0f, 0.5f};
+        float v4[] = {-0.5f, 0.0f, 0.5f};
+
+        return new float[][][] {
+            {v4, v3, v2, v1},
+        };
+    }
+
+    /** glTexCoord2f before each vertex of drawUnitPlane() */
+    private static final float UNIT_PLANE_TEXCOORDS[][] = {
+        {0.0f, 0.0f}, {1.0f, 0.0f}, {1.0f, 1.0f}, {0.0f, 1.0f},
+    };
+
+    /** Compare a mesh with the polygons it was built from, print the result and return if it matched */
+    private static boolean check(String name, Mesh mesh, float polygons[][][], float texCoords[][]) {
+        int expectedVertices = 0;
+        for (float polygon[][] : polygons) {
+            expectedVertices += (polygon.length - 2) * 3;
+        }
+
+        int mismatches = 0;
+        if (mesh.getVertexCount() != expectedVertices) {
+            System.out.printf("%-12s %d vertices, immediate mode drew %d as triangles%n", name,
+                    mesh.getVertexCount(), expectedVertices);
+            mismatches++;
+        }
+
+        int vertex = 0;
+        for (int p = 0; p < polygons.length && vertex + 3 <= mesh.getVertexCount(); p++) {
+            float polygon[][] = polygons[p];
+            float normal[] = normal(polygon[0], polygon[1], polygon[2]);
+
+            /** A fan around the first vertex, in the order the vertices were submitted */
+            for (int i = 1; i < polygon.length - 1 && vertex + 3 <= mesh.getVertexCount(); i++) {
+                int corners[] = {0, i, i + 1};
+                for (int k = 0; k < 3; k++, vertex++) {
+                    float corner[] = polygon[corners[k]];
+                    if (mesh.getX(vertex) != corner[0] || mesh.getY(vertex) != corner[1]
+                            || mesh.getZ(vertex) != corner[2]) {
+                        System.out.printf("%-12s polygon %d vertex %d at (%s, %s, %s), expected (%s, %s, %s)%n",
+                                name, p, vertex, mesh.getX(vertex), mesh.getY(vertex), mesh.getZ(vertex),
+                                corner[0], corner[1], corner[2]);
+                        mismatches++;
+                    }
+                    if (Math.abs(mesh.getNormalX(vertex) - normal[0]) > NORMAL_TOLERANCE
+                            || Math.abs(mesh.getNormalY(vertex) - normal[1]) > NORMAL_TOLERANCE
+                            || Math.abs(mesh.getNormalZ(vertex) - normal[2]) > NORMAL_TOLERANCE) {
+                        System.out.printf("%-12s polygon %d vertex %d normal (%s, %s, %s), expected (%s, %s, %s)%n",
+                                name, p, vertex, mesh.getNormalX(vertex), mesh.getNormalY(vertex),
+                                mesh.getNormalZ(vertex), normal[0], normal[1], normal[2]);
+                        mismatches++;
+                    }
+                    if (texCoords != null && (mesh.getU(vertex) != texCoords[corners[k]][0]
+                            || mesh.getV(vertex) != texCoords[corners[k]][1])) {
+                        System.out.printf("%-12s polygon %d vertex %d texture coordinate (%s, %s), expected (%s, %s)%n",
+                                name, p, vertex, mesh.getU(vertex), mesh.getV(vertex),
+                                texCoords[corners[k]][0], texCoords[corners[k]][1]);
+                        mismatches++;
+                    }
+                }
+
+                /** Anticlockwise seen from the side the normal points to */
+                int first = vertex - 3;
+                float a[] = {mesh.getX(first), mesh.getY(first), mesh.getZ(first)};
+                float b[] = {mesh.getX(first + 1), mesh.getY(first + 1), mesh.getZ(first + 1)};
+                float c[] = {mesh.getX(first + 2), mesh.getY(first + 2), mesh.getZ(first + 2)};
+                float winding[] = normal(a, b, c);
+                if (winding[0] * normal[0] + winding[1] * normal[1] + winding[2] * normal[2] <= 0f) {
+                    System.out.printf("%-12s polygon %d triangle at vertex %d is wound clockwise%n", name, p, first);
+                    mismatches++;
+                }
+            }
+        }
+
+        System.out.printf("%-12s %d polygons, %d vertices, %d mismatches %s%n", name, polygons.length,
+                mesh.getVertexCount(), mismatches, mismatches == 0 ? "ok" : "FAILED");
+        return mismatches == 0;
+    }
+
+    /** Unit normal of the plane through a, b and c, (b - a) x (c - a) */
+    private static float[] normal(float a[], float b[], float c[]) {
+        float ux = b[0] - a[0], uy = b[1] - a[1], uz = b[2] - a[2];
+        float vx = c[0] - a[0], vy = c[1] - a[1], vz = c[2] - a[2];
+        float nx = uy * vz - uz * vy, ny = uz * vx - ux * vz, nz = ux * vy - uy * vx;
+        float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+        return length > 0 ? new float[] {nx / length, ny / length, nz / length} : new float[3];
+    }
+}
@@ -0,0 +1,147 @@
+package ocean;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: Appends a FrameProfiler's percentiles to a file at a fixed interval, from
+ *    its own daemon thread, so long runs leave a record of how the tail latency moved.
+ *    Files ending in .json get one JSON object per dump (JSON lines), anything else
+ *    gets CSV rows, one per phase per dump, under a header. Percentiles are cumulative
+ *    since the profiler was created or last reset, all times in nanoseconds
+ */
+public class MetricsDumper {
+
+    private static final String CSV_HEADER = "time_ms,profiler,phase,count,mean_ns,p50_ns,p99_ns,p999_ns,max_ns";
+
+    private final FrameProfiler profiler;
+    private final Path file;
+    private final boolean json;
+
+    private ScheduledExecutorService scheduler;
+
+    /** If a failed write has been reported already, so a full disk doesn't flood the log */
+    private boolean failureReported = false;
+
+    public MetricsDumper(FrameProfiler profiler, Path file) {
+        this.profiler = profiler;
+        this.file = file;
+        this.json = file.getFileName().toString().toLowerCase().endsWith(".json");
+    }
+
+    /**
+     * A dumper started as the system properties ask, or null if -Docean.metricsFile isn't set.
+     * -Docean.metricsInterval sets the seconds between dumps, 10 by default
+     */
+    public static MetricsDumper startFromProperties(FrameProfiler profiler) {
+        String file = System.getProperty("ocean.metricsFile");
+        if (file == null || file.isEmpty()) {
+            return null;
+        }
+
+        double seconds = Double.parseDouble(System.getProperty("ocean.metricsInterval", "10"));
+        MetricsDumper dumper = new MetricsDumper(profiler, Paths.get(file));
+        dumper.start(Math.max(1, (long) (seconds * 1000)));
+        return dumper;
+    }
+
+    /** Dump every intervalMillis until stopped */
+    public synchronized void start(long intervalMillis) {
+        if (scheduler != null) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "ocean-metrics");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                dump();
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Stop dumping, after one last dump so the end of the run is recorded */
+    public synchronized void stop() throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        scheduler = null;
+        dump();
+    }
+
+    /** Append the current percentiles now */
+    public synchronized void dump() {
+        try {
+            boolean empty = !Files.exists(file) || Files.size(file) == 0;
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                long time = System.currentTimeMillis();
+                if (json) {
+                    writeJson(writer, time);
+                } else {
+                    writeCsv(writer, time, empty);
+                }
+            }
+        } catch (IOException e) {
+            if (!failureReported) {
+                System.err.println("Couldn't write metrics to " + file + ": " + e.getMessage());
+                failureReported = true;
+            }
+        }
+    }
+
+    private void writeCsv(Writer writer, long time, boolean header) throws IOException {
+        if (header) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        for (FramePhase phase : FramePhase.values()) {
+            LatencyHistogram histogram = profiler.getHistogram(phase);
+            writer.write(time + "," + profiler.getName() + "," + phase.label()
+                    + "," + histogram.getCount() + "," + histogram.getMeanNanos()
+                    + "," + histogram.getP50Nanos() + "," + histogram.getP99Nanos()
+                    + "," + histogram.getP999Nanos() + "," + histogram.getMaxNanos() + "\n");
+        }
+    }
+
+    private void writeJson(Writer writer, long time) throws IOException {
+        StringBuilder line = new StringBuilder();
+        line.append("{\"time_ms\":").append(time)
+                .append(",\"profiler\":\"").append(profiler.getName().replace("\\", "\\\\").replace("\"", "\\\""))
+                .append("\",\"phases\":{");
+
+        FramePhase phases[] = FramePhase.values();
+        for (int i = 0; i < phases.length; i++) {
+            LatencyHistogram histogram = profiler.getHistogram(phases[i]);
+            line.append(i == 0 ? "" : ",").append('"').append(phases[i].label()).append("\":{")
+                    .append("\"count\":").append(histogram.getCount())
+                    .append(",\"mean_ns\":").append(histogram.getMeanNanos())
+                    .append(",\"p50_ns\":").append(histogram.getP50Nanos())
+                    .append(",\"p99_ns\":").append(histogram.getP99Nanos())
+                    .append(",\"p999_ns\":").append(histogram.getP999Nanos())
+                    .append(",\"max_ns\":").append(histogram.getMaxNanos())
+                    .append('}');
+        }
+
+        line.append("}}\n");
+        writer.write(line.toString());
+    }
+}
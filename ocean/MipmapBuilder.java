@@ -0,0 +1,93 @@
+package ocean;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Description: Fills in the mipmap levels of a TextureImage from level 0, each level
+ *    averaging 2x2 blocks of the one before. The rows of a level are independent,
+ *    so they are split across a fork-join pool, one level after another
+ */
+public final class MipmapBuilder {
+
+    /** Fewest rows a fork-join task downsamples without splitting further */
+    private static final int SPLIT_ROWS = 16;
+
+    private MipmapBuilder() {
+    }
+
+    /** Build every level after the first on the common fork-join pool */
+    public static void build(TextureImage image) {
+        build(image, ForkJoinPool.commonPool());
+    }
+
+    /** Build every level after the first on the given pool, or on the calling thread if null */
+    public static void build(TextureImage image, ForkJoinPool pool) {
+        for (int level = 1; level < image.getLevelCount(); level++) {
+            int rows = image.getLevelHeight(level);
+            if (pool == null || rows <= SPLIT_ROWS) {
+                downsample(image, level, 0, rows);
+            } else {
+                pool.invoke(new DownsampleTask(image, level, 0, rows));
+            }
+        }
+    }
+
+    /** Compute rows first up to end of a level from the level before */
+    private static void downsample(TextureImage image, int level, int first, int end) {
+        ByteBuffer pixels = image.getPixels();
+
+        int sourceWidth = image.getLevelWidth(level - 1);
+        int sourceHeight = image.getLevelHeight(level - 1);
+        int source = image.getLevelOffset(level - 1);
+        int width = image.getLevelWidth(level);
+        int target = image.getLevelOffset(level);
+
+        int sourceRow = sourceWidth * TextureImage.PIXEL_BYTES;
+
+        for (int y = first; y < end; y++) {
+            /** Levels of odd size repeat their last row and column */
+            int row0 = source + Math.min(2 * y, sourceHeight - 1) * sourceRow;
+            int row1 = source + Math.min(2 * y + 1, sourceHeight - 1) * sourceRow;
+            int out = target + y * width * TextureImage.PIXEL_BYTES;
+
+            for (int x = 0; x < width; x++) {
+                int column0 = Math.min(2 * x, sourceWidth - 1) * TextureImage.PIXEL_BYTES;
+                int column1 = Math.min(2 * x + 1, sourceWidth - 1) * TextureImage.PIXEL_BYTES;
+
+                for (int c = 0; c < TextureImage.PIXEL_BYTES; c++) {
+                    int sum = (pixels.get(row0 + column0 + c) & 0xFF)
+                            + (pixels.get(row0 + column1 + c) & 0xFF)
+                            + (pixels.get(row1 + column0 + c) & 0xFF)
+                            + (pixels.get(row1 + column1 + c) & 0xFF);
+                    pixels.put(out++, (byte) ((sum + 2) >> 2));
+                }
+            }
+        }
+    }
+
+    /** Splits a range of rows in half until it is small enough to downsample directly */
+    @SuppressWarnings("serial")
+    private static class DownsampleTask extends RecursiveAction {
+        private final TextureImage image;
+        private final int level, first, end;
+
+        DownsampleTask(TextureImage image, int level, int first, int end) {
+            this.image = image;
+            this.level = level;
+            this.first = first;
+            this.end = end;
+        }
+
+        protected void compute() {
+            if (end - first <= SPLIT_ROWS) {
+                downsample(image, level, first, end);
+            } else {
+                int middle = (first + end) >>> 1;
+                invokeAll(new DownsampleTask(image, level, first, middle),
+                        new DownsampleTask(image, level, middle, end));
+            }
+        }
+    }
+}
@@ -0,0 +1,810 @@
+package ocean;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Description: Sets up and draws the ocean scene through a RenderDevice, so the same
+ *    frame can go to OpenGL in the window or be recorded headless.
+ *    There is light from the moon (above water) and coral reef (below water),
+ *    a textured back plane showing the sky and sea, the boats and the fish.
+ *    Everything but instanced fish is held in a SceneGraph, whose nodes are only
+ *    touched when the boat or fish they show has moved. The plane, each boat and each
+ *    fish are culled against the device's camera through a BoundingVolumeHierarchy
+ *    over their bounds, refit with just the ones that moved; instanced fish are culled
+ *    by their bounding spheres as they are packed. Each boat and fish that is
+ *    drawn is given a LevelOfDetail from its size on screen, and only the meshes of that
+ *    level are drawn; instanced fish are packed level by level, with one instanced draw
+ *    per part of each level. Bubbles, when set, are drawn last as camera-facing quads written
+ *    straight into the device's particle buffer. Glow lights, when set, are binned into
+ *    LightClusters every frame and each lit object is drawn with the brightest of them
+ *    near it in the fixed-function lights the moon and reef leave free; instanced fish
+ *    carry the indices of theirs in their instances for the fish shader to light them with.
+ *    A FrameGovernor can lower the detail scale and the share of fish drawn to hold the
+ *    frame time. Props, when set, are drawn after the scene graph either with a bind and
+ *    draw per prop or, with their textures packed into a TextureAtlas, as one mesh
+ *    gathered by a SpriteBatch
+ */
+public class OceanSceneRenderer {
+
+    /** Device every call is made on */
+    private final RenderDevice device;
+
+    /** Skips material, texture and lighting changes that are already current */
+    private final RenderStateTracker stateTracker;
+
+    /** Materials, built once in init() */
+    private final MaterialRegistry materials = new MaterialRegistry();
+    private Material boatMaterial;
+    private Material fishMaterial;
+    private Material fishEyeMaterial;
+
+    /** Mesh handles for the Unit Plane, Fish and Boat */
+    private int planeMesh;
+    private int fishBodyMesh;
+    private int fishTailMesh;
+    private int fishEyeMesh;
+    private int boatMesh;
+
+    /** Mesh handles for the reduced and impostor detail levels of the fish and boat */
+    private int fishMergedMesh;
+    private int fishImpostorMesh;
+    private int boatSimpleMesh;
+    private int boatImpostorMesh;
+
+    /** Every mesh created, by handle, for its bounds and triangle count */
+    private final Map<Integer, Mesh> meshes = new HashMap<Integer, Mesh>();
+
+    /** Packed fish for instanced drawing, null if the device draws fish one by one */
+    private FishInstanceBuffer fishInstances;
+
+    /** Glow lights last given to the device for instanced fish */
+    private GlowLights fishGlowLights;
+
+    /** Appearances of the scene graph's lit mesh nodes, indices into appearances */
+    private static final int BOAT_APPEARANCE = 0;
+    private static final int FISH_APPEARANCE = 1;
+    private static final int FISH_EYE_APPEARANCE = 2;
+    private Material appearances[];
+
+    /** Scene graph, built on the first frame and rebuilt if the number of boats or fish changes */
+    private SceneGraph scene;
+    private int sceneBoats;
+    private int sceneFish;
+
+    /** Nodes of each boat, fish body and fish tail */
+    private int boatNodes[];
+    private int fishNodes[];
+    private int fishTailNodes[];
+
+    /** Positions and tilts the boat and fish nodes were last set from */
+    private float boatShown[];
+    private float fishShown[];
+
+    /** Culling of the scene graph's top-level nodes, rebuilt with the scene graph */
+    private final BoundingVolumeHierarchy hierarchy = new BoundingVolumeHierarchy();
+    private final Frustum frustum = new Frustum();
+    private final float viewProjection[] = new float[Matrix4.FLOATS];
+    private boolean hierarchyStale;
+
+    /** If each top-level node passed the last cull, indexed by node */
+    private boolean visible[];
+
+    /** If the device reported a camera in the last cull, viewProjection holds it */
+    private boolean camera;
+
+    /** Top-level nodes drawn and culled in the last frame */
+    private int visibleCount;
+    private int culledCount;
+
+    /** Top-level nodes of the scene graph */
+    private int roots[];
+    private int rootCount;
+
+    /** Chooses each top-level node's detail level */
+    private final LevelOfDetail levelOfDetail = new LevelOfDetail();
+
+    /** Scale on the screen sizes detail levels are picked from, and share of the fish drawn */
+    private float detailScale = 1f;
+    private float entityScale = 1f;
+
+    /** Detail level of each top-level node, -1 until it is first drawn, indexed by node */
+    private byte levels[];
+
+    /** Top-level nodes and triangles drawn at each detail level in the last frame */
+    private final int levelCounts[] = new int[LevelOfDetail.LEVELS];
+    private final long levelTriangles[] = new long[LevelOfDetail.LEVELS];
+
+    /** Bubbles drawn over the scene, null for none */
+    private BubbleSystem bubbles;
+
+    /** Fixed-function lights left for glow lights after the moon and the reef */
+    public static final int GLOW_LIGHT_SLOTS = RenderDevice.MAX_LIGHTS - 2;
+
+    /** Glow lights lighting the boats and fish, null for none, and their clusters */
+    private GlowLights glowLights;
+    private final LightClusters lightClusters = new LightClusters();
+
+    /** Glow lights picked for each top-level node, GLOW_LIGHT_SLOTS per node, and their number */
+    private int nodeLights[];
+    private float nodeLightScores[];
+    private int nodeLightCounts[];
+
+    /** Top-level nodes passing the cull, to pick lights for */
+    private int visibleRoots[];
+
+    /** Glow light loaded into each slot, -1 if the slot is disabled */
+    private final int slotLights[] = new int[GLOW_LIGHT_SLOTS];
+
+    /** Staging for a glow light's position and colour */
+    private final FloatBuffer glowPosition = Buffers.createFloatBuffer(4);
+    private final FloatBuffer glowColour = Buffers.createFloatBuffer(4);
+
+    /** Largest atlas the prop textures may be packed into */
+    public static final int MAX_ATLAS_SIZE = 4096;
+
+    /** Props on the seabed, null for none */
+    private PropField props;
+
+    /** Texture of each prop kind, when drawn one by one */
+    private int propTextures[];
+
+    /** Atlas of the prop textures, its texture and the mesh of every prop gathered from it, null when drawn one by one */
+    private TextureAtlas propAtlas;
+    private int propAtlasTexture;
+    private int propAtlasMesh;
+
+    public OceanSceneRenderer(RenderDevice device) {
+        this.device = device;
+        this.stateTracker = new RenderStateTracker(device);
+        Arrays.fill(slotLights, -1);
+    }
+
+    /** Set up the lights, materials and meshes, call once before the first frame */
+    public void init() {
+        init(null);
+    }
+
+    /**
+     * Set up the lights, materials and meshes, call once before the first frame. Materials
+     * and meshes are taken from the bundle, any mesh it lacks is built, or all are built if null
+     */
+    public void init(SceneBundle bundle) {
+        /** Set global ambient light levels */
+        float globalAmbient[]   = {0.2f,  0.2f,  0.2f, 1.0f};
+        device.lightModel(RenderDevice.LIGHT_MODEL_AMBIENT, Buffers.wrap(globalAmbient));
+
+        /** Moonlight */
+        /** First light for the scene is nearly white */
+        float diffuse0[]  = { 0.8f,  0.8f, 0.8f, 1.0f};
+
+        /** Dim ambient contribution */
+        float ambient0[]  = { 0.1f,  0.1f, 0.1f, 1.0f};
+
+        /** Is position above and in front viewpoint */
+        float position0[] = { 0.0f, 10.0f, -10.0f, 1.0f};
+
+        /** Supply OpenGL with first lights properties */
+        device.light(RenderDevice.LIGHT0, RenderDevice.AMBIENT, Buffers.wrap(ambient0));
+        device.light(RenderDevice.LIGHT0, RenderDevice.DIFFUSE, Buffers.wrap(diffuse0));
+        device.light(RenderDevice.LIGHT0, RenderDevice.SPECULAR, Buffers.wrap(diffuse0));
+        device.light(RenderDevice.LIGHT0, RenderDevice.POSITION, Buffers.wrap(position0));
+
+        /** Enable the first light */
+        device.enable(RenderDevice.LIGHT0);
+
+        /** Coral reef light */
+        /** Second light for the scene is white */
+        float diffuse1[]  = { 0.1f,  0.1f, 0.1f, 1.0f};
+
+        /** Dim ambient contribution */
+        float ambient1[]  = { 0.2f,  0.2f, 0.2f, 1.0f};
+
+        /** Position below and behind the viewpoint */
+        float position1[] = { 0.0f, -10.0f, 10.0f, 1.0f};
+
+        /** Supply OpenGL with the second lights properties */
+        device.light(RenderDevice.LIGHT1, RenderDevice.AMBIENT, Buffers.wrap(ambient1));
+        device.light(RenderDevice.LIGHT1, RenderDevice.DIFFUSE, Buffers.wrap(diffuse1));
+        device.light(RenderDevice.LIGHT1, RenderDevice.SPECULAR, Buffers.wrap(diffuse1));
+        device.light(RenderDevice.LIGHT1, RenderDevice.POSITION, Buffers.wrap(position1));
+
+        /** Enable the second light */
+        device.enable(RenderDevice.LIGHT1);
+
+        /** Enable lighting calculations */
+        stateTracker.setEnabled(RenderDevice.LIGHTING, true);
+
+        /** Ensure that all normals are re-normalised after transformations automatically */
+        device.enable(RenderDevice.NORMALIZE);
+
+        /** Boat, fish and fish eye materials */
+        if (bundle != null) {
+            bundle.registerMaterials(materials);
+        } else {
+            SceneAssets.registerMaterials(materials);
+        }
+        boatMaterial = materials.get(SceneAssets.BOAT_MATERIAL);
+        fishMaterial = materials.get(SceneAssets.FISH_MATERIAL);
+        fishEyeMaterial = materials.get(SceneAssets.FISH_EYE_MATERIAL);
+
+        appearances = new Material[] {boatMaterial, fishMaterial, fishEyeMaterial};
+
+        /** Build the geometry once, or map it from the bundle, and hand it to the device */
+        planeMesh = createMesh(bundle, SceneAssets.PLANE);
+        fishBodyMesh = createMesh(bundle, SceneAssets.FISH_BODY);
+        fishTailMesh = createMesh(bundle, SceneAssets.FISH_TAIL);
+        fishEyeMesh = createMesh(bundle, SceneAssets.FISH_EYE);
+        boatMesh = createMesh(bundle, SceneAssets.BOAT);
+
+        /** Fewer triangles for boats and fish small on screen */
+        fishMergedMesh = createMesh(bundle, SceneAssets.FISH_MERGED);
+        fishImpostorMesh = createMesh(bundle, SceneAssets.FISH_IMPOSTOR);
+        boatSimpleMesh = createMesh(bundle, SceneAssets.BOAT_SIMPLE);
+        boatImpostorMesh = createMesh(bundle, SceneAssets.BOAT_IMPOSTOR);
+
+        /** Draw the fish instanced when the device supports it */
+        if (device.createFishInstancing(fishBodyMesh, fishTailMesh, fishEyeMesh, fishMergedMesh, fishImpostorMesh)) {
+            fishInstances = new FishInstanceBuffer(1);
+        }
+    }
+
+    /** Create the named mesh on the device, from the bundle if it has it */
+    private int createMesh(SceneBundle bundle, String name) {
+        Mesh mesh = bundle != null ? bundle.getMesh(name) : null;
+        return createMesh(mesh != null ? mesh : SceneAssets.buildMesh(name));
+    }
+
+    /** Create a mesh on the device, keeping it for its bounds and triangle count */
+    private int createMesh(Mesh mesh) {
+        int handle = device.createMesh(mesh);
+        meshes.put(handle, mesh);
+        return handle;
+    }
+
+    /** Draw one frame of the world, with the sky texture on the back plane */
+    public void render(OceanState world, int skyTexture) {
+        if (scene == null || sceneBoats != world.getBoatCount()
+                || sceneFish != (fishInstances != null ? 0 : world.getFishCount())) {
+            buildScene(world);
+        }
+
+        /** Move the nodes of whatever moved, then bring the world matrices up to date */
+        updateBoats(world);
+        if (fishInstances == null) {
+            updateFish(world);
+        }
+        scene.updateWorldMatrices();
+
+        cull();
+        if (glowLights != null) {
+            assignGlowLights();
+        }
+        drawScene(skyTexture);
+        if (props != null && props.getCount() > 0) {
+            drawProps();
+        }
+
+        if (fishInstances != null) {
+            drawFishInstanced(world);
+        }
+
+        if (bubbles != null && bubbles.getLiveCount() > 0) {
+            drawBubbles();
+        }
+
+        stateTracker.endFrame();
+    }
+
+    /**
+     * Build the scene graph for the world's boats and fish (left out when they are drawn
+     * instanced): the back plane, each boat, and each fish's body with its tail and eyes.
+     * Each boat and fish also has children with the meshes of its other detail levels
+     */
+    private void buildScene(OceanState world) {
+        int boatCount = world.getBoatCount();
+        int fishCount = fishInstances != null ? 0 : world.getFishCount();
+
+        scene = new SceneGraph(1 + 3 * boatCount + 6 * fishCount);
+
+        /** The back plane never moves, so its world matrix is only ever computed once */
+        int plane = addMeshNode(SceneGraph.NO_PARENT, SceneGraph.TEXTURED_MESH, planeMesh, 0);
+        scene.translate(plane, 0.0f, 0.0f, -20.0f);
+        scene.rotate(plane, 90.0f, 1.0f, 0.0f, 0.0f);
+        scene.scale(plane, 22f, 1.0f, 17.0f);
+
+        boatNodes = new int[boatCount];
+        for (int i = 0; i < boatCount; i++) {
+            boatNodes[i] = addMeshNode(SceneGraph.NO_PARENT, SceneGraph.MESH, boatMesh, BOAT_APPEARANCE);
+            scene.setLevelMask(boatNodes[i], 1 << LevelOfDetail.FULL);
+            addLevelNode(boatNodes[i], boatSimpleMesh, BOAT_APPEARANCE, LevelOfDetail.REDUCED);
+            addLevelNode(boatNodes[i], boatImpostorMesh, BOAT_APPEARANCE, LevelOfDetail.IMPOSTOR);
+        }
+
+        fishNodes = new int[fishCount];
+        fishTailNodes = new int[fishCount];
+        for (int i = 0; i < fishCount; i++) {
+            fishNodes[i] = addMeshNode(SceneGraph.NO_PARENT, SceneGraph.MESH, fishBodyMesh, FISH_APPEARANCE);
+            fishTailNodes[i] = addMeshNode(fishNodes[i], SceneGraph.MESH, fishTailMesh, FISH_APPEARANCE);
+
+            /** The eyes only move with the body */
+            int leftEye = addMeshNode(fishNodes[i], SceneGraph.MESH, fishEyeMesh, FISH_EYE_APPEARANCE);
+            scene.translate(leftEye, 1.15f, 0.25f, 0.2f);
+            int rightEye = addMeshNode(fishNodes[i], SceneGraph.MESH, fishEyeMesh, FISH_EYE_APPEARANCE);
+            scene.translate(rightEye, 1.15f, 0.25f, -0.2f);
+
+            /** Body, tail and eyes at full detail, a merged body and still tail or a single quad further away */
+            int fullDetail = 1 << LevelOfDetail.FULL;
+            scene.setLevelMask(fishNodes[i], fullDetail);
+            scene.setLevelMask(fishTailNodes[i], fullDetail);
+            scene.setLevelMask(leftEye, fullDetail);
+            scene.setLevelMask(rightEye, fullDetail);
+            addLevelNode(fishNodes[i], fishMergedMesh, FISH_APPEARANCE, LevelOfDetail.REDUCED);
+            addLevelNode(fishNodes[i], fishImpostorMesh, FISH_APPEARANCE, LevelOfDetail.IMPOSTOR);
+        }
+
+        /** Values the nodes were last set from, NaN so the first update sets every node */
+        boatShown = new float[boatCount * 4];
+        fishShown = new float[fishCount * 4];
+        Arrays.fill(boatShown, Float.NaN);
+        Arrays.fill(fishShown, Float.NaN);
+
+        sceneBoats = boatCount;
+        sceneFish = fishCount;
+
+        /** The hierarchy needs the bounds of the first update */
+        visible = new boolean[scene.getNodeCount()];
+        hierarchyStale = true;
+
+        levels = new byte[scene.getNodeCount()];
+        Arrays.fill(levels, (byte) -1);
+
+        nodeLights = new int[scene.getNodeCount() * GLOW_LIGHT_SLOTS];
+        nodeLightScores = new float[scene.getNodeCount() * GLOW_LIGHT_SLOTS];
+        nodeLightCounts = new int[scene.getNodeCount()];
+        visibleRoots = new int[scene.getNodeCount()];
+    }
+
+    private int addMeshNode(int parent, byte type, int mesh, int appearance) {
+        int node = scene.addNode(parent, type, mesh, appearance);
+        scene.setBounds(node, meshes.get(mesh).getBounds(), 0);
+        return node;
+    }
+
+    /** A child drawn in place of its parent's meshes at one detail level */
+    private void addLevelNode(int parent, int mesh, int appearance, int level) {
+        int node = addMeshNode(parent, SceneGraph.MESH, mesh, appearance);
+        scene.setLevelMask(node, 1 << level);
+    }
+
+    /** Bring the hierarchy up to date with the top-level nodes that moved and cull it against the camera */
+    private void cull() {
+        if (hierarchyStale) {
+            roots = new int[scene.getNodeCount()];
+            rootCount = 0;
+            for (int node = 0; node < scene.getNodeCount(); node++) {
+                if (scene.getParent(node) == SceneGraph.NO_PARENT) {
+                    roots[rootCount++] = node;
+                }
+            }
+            hierarchy.build(roots, rootCount, scene.getBounds());
+            hierarchyStale = false;
+        } else {
+            int changedRoots[] = scene.getChangedRoots();
+            for (int i = 0; i < scene.getChangedRootCount(); i++) {
+                hierarchy.itemMoved(changedRoots[i]);
+            }
+            hierarchy.refit();
+        }
+
+        /** Without a camera everything is drawn, at full detail */
+        camera = device.getViewProjection(viewProjection, 0);
+        if (camera) {
+            frustum.set(viewProjection, 0);
+            visibleCount = hierarchy.cull(frustum, visible);
+        } else {
+            Arrays.fill(visible, true);
+            visibleCount = hierarchy.getItemCount();
+        }
+
+        /** Fish past the entity scale's share are left out as if culled */
+        for (int i = fishDrawn(sceneFish); i < sceneFish; i++) {
+            if (visible[fishNodes[i]]) {
+                visible[fishNodes[i]] = false;
+                visibleCount--;
+            }
+        }
+        culledCount = hierarchy.getItemCount() - visibleCount;
+
+        /** Pick a detail level for everything drawn, culled nodes keep theirs for when they return */
+        float bounds[] = scene.getBounds();
+        for (int i = 0; i < rootCount; i++) {
+            int root = roots[i];
+            if (visible[root]) {
+                levels[root] = (byte) (camera
+                        ? levelOfDetail.select(levels[root],
+                                LevelOfDetail.projectedSize(viewProjection, bounds, root * 6) * detailScale)
+                        : LevelOfDetail.FULL);
+            }
+        }
+    }
+
+    /** Bin the glow lights against this frame's camera and pick the lights of every top-level node drawn */
+    private void assignGlowLights() {
+        lightClusters.build(camera ? viewProjection : null, glowLights);
+
+        int visibleRootCount = 0;
+        for (int i = 0; i < rootCount; i++) {
+            if (visible[roots[i]]) {
+                visibleRoots[visibleRootCount++] = roots[i];
+            }
+        }
+        lightClusters.assign(scene.getBounds(), visibleRoots, visibleRootCount, GLOW_LIGHT_SLOTS,
+                nodeLights, nodeLightScores, nodeLightCounts);
+    }
+
+    /**
+     * Load a top-level node's glow lights into the free light slots, or disable them all
+     * for a root of -1. A slot already holding the right light is left alone; positions
+     * are given while the modelview is just the camera, as OpenGL keeps them in eye space
+     */
+    private void loadGlowLights(int root) {
+        int count = root < 0 ? 0 : nodeLightCounts[root];
+        float posX[] = glowLights.getPosX(), posY[] = glowLights.getPosY(), posZ[] = glowLights.getPosZ();
+        for (int slot = 0; slot < GLOW_LIGHT_SLOTS; slot++) {
+            int light = slot < count ? nodeLights[root * GLOW_LIGHT_SLOTS + slot] : -1;
+            if (slotLights[slot] == light) {
+                continue;
+            }
+
+            int cap = RenderDevice.LIGHT0 + RenderDevice.MAX_LIGHTS - GLOW_LIGHT_SLOTS + slot;
+            if (light < 0) {
+                device.disable(cap);
+            } else {
+                if (slotLights[slot] < 0) {
+                    device.enable(cap);
+                }
+                glowPosition.clear();
+                glowPosition.put(posX[light]).put(posY[light]).put(posZ[light]).put(1f).flip();
+                device.light(cap, RenderDevice.POSITION, glowPosition);
+                glowColour.clear();
+                glowColour.put(glowLights.getRed()[light]).put(glowLights.getGreen()[light])
+                        .put(glowLights.getBlue()[light]).put(1f).flip();
+                device.light(cap, RenderDevice.DIFFUSE, glowColour);
+                device.lightf(cap, RenderDevice.QUADRATIC_ATTENUATION, glowLights.getQuadraticAttenuation(light));
+            }
+            slotLights[slot] = light;
+        }
+    }
+
+    /** Position and tilt every boat that moved since it was last set */
+    private void updateBoats(OceanState world) {
+        float boatPosX[] = world.getBoatPosX();
+        float boatPosY[] = world.getBoatPosY();
+        float boatPitch[] = world.getBoatPitch();
+        float boatRoll[] = world.getBoatRoll();
+        for (int i = 0; i < sceneBoats; i++) {
+            if (boatShown[i * 4] == boatPosX[i] && boatShown[i * 4 + 1] == boatPosY[i]
+                    && boatShown[i * 4 + 2] == boatPitch[i] && boatShown[i * 4 + 3] == boatRoll[i]) {
+                continue;
+            }
+            boatShown[i * 4] = boatPosX[i];
+            boatShown[i * 4 + 1] = boatPosY[i];
+            boatShown[i * 4 + 2] = boatPitch[i];
+            boatShown[i * 4 + 3] = boatRoll[i];
+
+            /** Tilted along the waves before it is stretched into shape */
+            int node = boatNodes[i];
+            scene.setIdentity(node);
+            scene.translate(node, boatPosX[i], boatPosY[i], OceanWorld.BOAT_Z);
+            scene.rotate(node, boatPitch[i], 0f, 0f, 1f);
+            scene.rotate(node, boatRoll[i], 1f, 0f, 0f);
+            scene.scale(node, 2.0f, 1.0f, 0.5f);
+            scene.rotate(node, 15f, 1f, 0f, 0f);
+        }
+    }
+
+    /** Position every fish body and tilt every tail that changed since it was last set */
+    private void updateFish(OceanState world) {
+        float fishPosX[] = world.getFishPosX();
+        float fishPosY[] = world.getFishPosY();
+        float fishPosZ[] = world.getFishPosZ();
+        float fishTilt[] = world.getFishTilt();
+        for (int i = 0; i < sceneFish; i++) {
+            int shown = i * 4;
+            if (fishShown[shown] != fishPosX[i] || fishShown[shown + 1] != fishPosY[i]
+                    || fishShown[shown + 2] != fishPosZ[i]) {
+                fishShown[shown] = fishPosX[i];
+                fishShown[shown + 1] = fishPosY[i];
+                fishShown[shown + 2] = fishPosZ[i];
+                scene.setTranslationScale(fishNodes[i], fishPosX[i], fishPosY[i], fishPosZ[i], 0.3f, 0.3f, 1f);
+            }
+
+            /** Use fishTilt to animate the tail */
+            if (fishShown[shown + 3] != fishTilt[i]) {
+                fishShown[shown + 3] = fishTilt[i];
+                int tail = fishTailNodes[i];
+                scene.setIdentity(tail);
+                scene.rotate(tail, fishTilt[i], 0f, 1f, 0f);
+                scene.translate(tail, -1f, 0f, 0f);
+            }
+        }
+    }
+
+    /** Draw every mesh node of the scene graph at its world matrix */
+    private void drawScene(int skyTexture) {
+        Arrays.fill(levelCounts, 0);
+        Arrays.fill(levelTriangles, 0);
+        for (int i = 0; i < rootCount; i++) {
+            if (visible[roots[i]]) {
+                levelCounts[levels[roots[i]]]++;
+            }
+        }
+
+        float worldMatrices[] = scene.getWorldMatrices();
+        for (int node = 0; node < scene.getNodeCount(); node++) {
+            byte type = scene.getType(node);
+            int root = scene.getRoot(node);
+            if (type == SceneGraph.GROUP || !visible[root] || !scene.isDrawnAtLevel(node, levels[root])) {
+                continue;
+            }
+            levelTriangles[levels[root]] += meshes.get(scene.getMesh(node)).getTriangleCount();
+
+            if (type == SceneGraph.TEXTURED_MESH) {
+                /** Disable lighting calculations so that they don't affect
+                    the appearance of the texture */
+                stateTracker.setEnabled(RenderDevice.LIGHTING, false);
+
+                /** Change the geometry colour to white so that the texture
+                    is bright and details can be seen clearly */
+                device.color(1.0f, 1.0f, 1.0f, 1.0f);
+
+                /** Enable texturing and bind an appropriate texture */
+                stateTracker.setEnabled(RenderDevice.TEXTURE_2D, true);
+                stateTracker.bindTexture(skyTexture);
+            } else {
+                /** Disable textures and turn lighting back on, no change if already so */
+                stateTracker.setEnabled(RenderDevice.TEXTURE_2D, false);
+                stateTracker.setEnabled(RenderDevice.LIGHTING, true);
+                stateTracker.setMaterial(appearances[scene.getAppearance(node)]);
+                if (glowLights != null) {
+                    loadGlowLights(root);
+                }
+            }
+
+            device.pushMatrix();
+            device.multMatrix(worldMatrices, node * Matrix4.FLOATS);
+            device.drawMesh(scene.getMesh(node));
+            device.popMatrix();
+        }
+
+        stateTracker.setEnabled(RenderDevice.TEXTURE_2D, false);
+        stateTracker.setEnabled(RenderDevice.LIGHTING, true);
+
+        /** Nothing else is lit by them, and next frame's camera may have moved */
+        if (glowLights != null) {
+            loadGlowLights(-1);
+        }
+    }
+
+    /**
+     * Pack the fish in view at their detail levels and draw them with one instanced draw
+     * per part of each level that has any, counting them like the scene graph's nodes
+     */
+    private void drawFishInstanced(OceanState world) {
+        int packed = fishInstances.pack(world, fishDrawn(world.getFishCount()), camera ? frustum : null,
+                camera ? viewProjection : null, levelOfDetail, detailScale);
+        visibleCount += packed;
+        culledCount += world.getFishCount() - packed;
+
+        /** The lights never move, so the device only needs them again when they are replaced */
+        if (fishGlowLights != glowLights) {
+            device.setFishGlowLights(glowLights);
+            fishGlowLights = glowLights;
+        }
+        if (glowLights != null) {
+            fishInstances.assignLights(lightClusters);
+        }
+        device.updateFishInstances(fishInstances);
+
+        int full = fishInstances.getLevelCount(LevelOfDetail.FULL);
+        int reduced = fishInstances.getLevelCount(LevelOfDetail.REDUCED);
+        int impostors = fishInstances.getLevelCount(LevelOfDetail.IMPOSTOR);
+        levelCounts[LevelOfDetail.FULL] += full;
+        levelCounts[LevelOfDetail.REDUCED] += reduced;
+        levelCounts[LevelOfDetail.IMPOSTOR] += impostors;
+        levelTriangles[LevelOfDetail.FULL] += (long) full * (meshes.get(fishBodyMesh).getTriangleCount()
+                + meshes.get(fishTailMesh).getTriangleCount() + 2 * meshes.get(fishEyeMesh).getTriangleCount());
+        levelTriangles[LevelOfDetail.REDUCED] += (long) reduced * meshes.get(fishMergedMesh).getTriangleCount();
+        levelTriangles[LevelOfDetail.IMPOSTOR] += (long) impostors * meshes.get(fishImpostorMesh).getTriangleCount();
+
+        stateTracker.setMaterial(fishMaterial);
+        if (full > 0) {
+            device.drawFishInstanced(FishPart.BODY);
+            device.drawFishInstanced(FishPart.TAIL);
+        }
+        if (reduced > 0) {
+            device.drawFishInstanced(FishPart.MERGED);
+        }
+        if (impostors > 0) {
+            device.drawFishInstanced(FishPart.IMPOSTOR);
+        }
+        if (full > 0) {
+            stateTracker.setMaterial(fishEyeMaterial);
+            device.drawFishInstanced(FishPart.EYES);
+        }
+    }
+
+    /** Draw every prop unlit, from the atlas in one draw or with its own texture bound */
+    private void drawProps() {
+        stateTracker.setEnabled(RenderDevice.LIGHTING, false);
+        device.color(1.0f, 1.0f, 1.0f, 1.0f);
+        stateTracker.setEnabled(RenderDevice.TEXTURE_2D, true);
+
+        if (propAtlas != null) {
+            /** Already in world space, drawn with just the camera */
+            stateTracker.bindTexture(propAtlasTexture);
+            device.drawMesh(propAtlasMesh);
+        } else {
+            int kinds[] = props.getKinds();
+            float matrices[] = props.getMatrices();
+            for (int i = 0; i < props.getCount(); i++) {
+                stateTracker.bindTexture(propTextures[kinds[i]]);
+                device.pushMatrix();
+                device.multMatrix(matrices, i * Matrix4.FLOATS);
+                device.drawMesh(planeMesh);
+                device.popMatrix();
+            }
+        }
+
+        stateTracker.setEnabled(RenderDevice.TEXTURE_2D, false);
+        stateTracker.setEnabled(RenderDevice.LIGHTING, true);
+    }
+
+    /** Draw every bubble as a pale unlit quad facing the camera */
+    private void drawBubbles() {
+        /** The camera's right and up in world space are the view projection's first two rows, up to scale */
+        float rightX = 1f, rightY = 0f, rightZ = 0f, upX = 0f, upY = 1f, upZ = 0f;
+        if (camera) {
+            float m[] = viewProjection;
+            float rightLength = (float) Math.sqrt(m[0] * m[0] + m[4] * m[4] + m[8] * m[8]);
+            float upLength = (float) Math.sqrt(m[1] * m[1] + m[5] * m[5] + m[9] * m[9]);
+            if (rightLength > 0 && upLength > 0) {
+                rightX = m[0] / rightLength;
+                rightY = m[4] / rightLength;
+                rightZ = m[8] / rightLength;
+                upX = m[1] / upLength;
+                upY = m[5] / upLength;
+                upZ = m[9] / upLength;
+            }
+        }
+
+        stateTracker.setEnabled(RenderDevice.TEXTURE_2D, false);
+        stateTracker.setEnabled(RenderDevice.LIGHTING, false);
+        device.color(0.7f, 0.85f, 1.0f, 1.0f);
+
+        FloatBuffer vertices = device.mapParticleBuffer(bubbles.getBillboardFloats());
+        int vertexCount = bubbles.writeBillboards(vertices, rightX, rightY, rightZ, upX, upY, upZ);
+        device.drawParticles(vertexCount);
+
+        stateTracker.setEnabled(RenderDevice.LIGHTING, true);
+    }
+
+    /** The first fish of the given number drawn at the entity scale, at least one if there are any */
+    private int fishDrawn(int fishCount) {
+        return fishCount == 0 ? 0 : Math.max(1, (int) Math.ceil(fishCount * entityScale));
+    }
+
+    /** Scale on the screen sizes detail levels are picked from, below 1 drops detail sooner */
+    public void setDetailScale(float detailScale) {
+        this.detailScale = detailScale;
+    }
+
+    /** Share of the fish to draw, 0 to 1, the rest are left out as if culled */
+    public void setEntityScale(float entityScale) {
+        this.entityScale = Math.max(0f, Math.min(1f, entityScale));
+    }
+
+    /** Bubbles to draw over the scene each frame, stepped by the caller, or null for none */
+    public void setBubbles(BubbleSystem bubbles) {
+        this.bubbles = bubbles;
+    }
+
+    /** Glow lights to light the boats and fish, or null for none */
+    public void setGlowLights(GlowLights glowLights) {
+        this.glowLights = glowLights;
+    }
+
+    /**
+     * Props to draw on the seabed, or null for none, call after init(). Their textures are
+     * created on the device now, packed into one atlas if atlas is set, in which case every
+     * prop is gathered into one mesh with its texture coordinates moved into the atlas
+     */
+    public void setProps(PropField props, boolean atlas) {
+        this.props = props;
+        propTextures = null;
+        propAtlas = null;
+        if (props == null) {
+            return;
+        }
+
+        if (atlas) {
+            propAtlas = new TextureAtlas(MAX_ATLAS_SIZE);
+            for (int kind = 0; kind < props.getKindCount(); kind++) {
+                propAtlas.add(PropField.getKindName(kind), props.getTexture(kind));
+            }
+            propAtlas.pack();
+            propAtlasTexture = device.createTexture(propAtlas.getImage());
+
+            /** The props never move, so they are gathered once into a mesh created on the device like any other */
+            Mesh kindMeshes[] = new Mesh[props.getKindCount()];
+            for (int kind = 0; kind < kindMeshes.length; kind++) {
+                kindMeshes[kind] = TextureAtlas.remap(meshes.get(planeMesh),
+                        propAtlas.getRegion(PropField.getKindName(kind)));
+            }
+            SpriteBatch batch = new SpriteBatch();
+            int kinds[] = props.getKinds();
+            for (int i = 0; i < props.getCount(); i++) {
+                batch.add(kindMeshes[kinds[i]], props.getMatrices(), i * Matrix4.FLOATS);
+            }
+            propAtlasMesh = createMesh(batch.toMesh());
+        } else {
+            propTextures = new int[props.getKindCount()];
+            for (int kind = 0; kind < propTextures.length; kind++) {
+                propTextures[kind] = device.createTexture(props.getTexture(kind));
+            }
+        }
+
+        /** Creating textures may have changed the bound texture behind the tracker's back */
+        stateTracker.invalidate();
+    }
+
+    /** Atlas the props' textures were packed into, null if they are drawn one by one or there are none */
+    public TextureAtlas getPropAtlas() {
+        return propAtlas;
+    }
+
+    public LightClusters getLightClusters() {
+        return lightClusters;
+    }
+
+    /** The plane, boats and fish drawn in the last frame */
+    public int getVisibleCount() {
+        return visibleCount;
+    }
+
+    /** The plane, boats and fish culled, or left out by the entity scale, in the last frame */
+    public int getCulledCount() {
+        return culledCount;
+    }
+
+    /** The plane, boats and fish drawn at the given detail level in the last frame */
+    public int getLevelCount(int level) {
+        return levelCounts[level];
+    }
+
+    /** Triangles drawn for the plane, boats and fish at the given detail level in the last frame */
+    public long getLevelTriangles(int level) {
+        return levelTriangles[level];
+    }
+
+    /** The scene graph as last built, null before the first frame */
+    public SceneGraph getScene() {
+        return scene;
+    }
+
+    public RenderStateTracker getStateTracker() {
+        return stateTracker;
+    }
+
+    public MaterialRegistry getMaterials() {
+        return materials;
+    }
+
+    /** Free everything created on the device */
+    public void dispose() {
+        device.dispose();
+    }
+}
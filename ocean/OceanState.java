@@ -0,0 +1,31 @@
+package ocean;
+
+/**
+ * Description: Read-only view of the fish and boat values the scene is drawn from,
+ *    whether they come straight from the simulation or from a snapshot of it.
+ *    The arrays are live and must not be modified by callers
+ */
+public interface OceanState {
+
+    int getFishCount();
+
+    int getBoatCount();
+
+    float[] getFishPosX();
+
+    float[] getFishPosY();
+
+    float[] getFishPosZ();
+
+    float[] getFishTilt();
+
+    float[] getBoatPosX();
+
+    float[] getBoatPosY();
+
+    /** Degrees about z */
+    float[] getBoatPitch();
+
+    /** Degrees about x */
+    float[] getBoatRoll();
+}
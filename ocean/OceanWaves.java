@@ -0,0 +1,343 @@
+package ocean;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Description: A tile of ocean waves, a heightfield made by an inverse FFT of a Phillips
+ *    wave spectrum that moves each wave at its deep water speed. The tile repeats every
+ *    getPatchSize() units in x and z, so it can be sampled anywhere.
+ *
+ * Resolution: the spectrum is made once, at the largest resolution the waves may need.
+ *    update() only transforms the lowest frequency resolution x resolution part of it,
+ *    so a coarser grid keeps the same long waves and drops the ripples it can't show,
+ *    at a fraction of the cost. Updating to the time already shown does nothing
+ *
+ * Parallelism: every pass works on whole rows (the spectrum, the row transforms, a
+ *    transpose and the column transforms as rows of the transpose), split across a
+ *    fork-join pool. Each row is computed the same way whatever the number of threads,
+ *    so the heights are too
+ */
+public class OceanWaves {
+
+    /** Acceleration of gravity, for the deep water dispersion w^2 = g k */
+    private static final double GRAVITY = 9.81;
+
+    /** Fewest grid points a fork-join task works on without splitting further */
+    private static final int SPLIT_POINTS = 16384;
+
+    /** Passes over the rows of the grid */
+    private static final int SPECTRUM = 0;
+    private static final int ROWS = 1;
+    private static final int TRANSPOSE = 2;
+    private static final int COLUMNS = 3;
+
+    /** Largest resolution, and the width of the tile in world units */
+    private final int spectrumSize;
+    private final float patchSize;
+
+    /** h0(k) and conj(h0(-k)) at each wave vector, indexed by signed frequency wrapped into the spectrum */
+    private final float h0Re[], h0Im[];
+    private final float h0ConjRe[], h0ConjIm[];
+
+    /** Angular frequency of each wave vector */
+    private final double omega[];
+
+    /** Pool the passes are split across, null to update on the calling thread */
+    private final ForkJoinPool pool;
+
+    /** Grid being computed, its transpose and its twiddle factors and bit reversal */
+    private int resolution;
+    private float re[], im[];
+    private float transposedRe[], transposedIm[];
+    private float twiddleRe[], twiddleIm[];
+    private int reversed[];
+
+    /** Heights, indexed x * resolution + z */
+    private float heights[];
+
+    /** Time the heights are for, NaN before the first update */
+    private double time = Double.NaN;
+
+    /** Updates that recomputed the heights */
+    private int updates = 0;
+
+    /**
+     * Waves of the given RMS height over a tile patchSize wide, with a spectrum of
+     * spectrumSize x spectrumSize wave vectors (a power of two) driven by a wind of
+     * windSpeed along x. The same seed always makes the same waves
+     */
+    public OceanWaves(int spectrumSize, float patchSize, float windSpeed, float heightRms, long seed,
+            ForkJoinPool pool) {
+        if (spectrumSize < 2 || Integer.bitCount(spectrumSize) != 1) {
+            throw new IllegalArgumentException("Spectrum size must be a power of two, not " + spectrumSize);
+        }
+
+        this.spectrumSize = spectrumSize;
+        this.patchSize = patchSize;
+        this.pool = pool;
+
+        int size = spectrumSize * spectrumSize;
+        h0Re = new float[size];
+        h0Im = new float[size];
+        h0ConjRe = new float[size];
+        h0ConjIm = new float[size];
+        omega = new double[size];
+
+        /** Phillips spectrum, scaled after so the heights have the RMS asked for */
+        double largest = windSpeed * windSpeed / GRAVITY;
+        double smallest = largest / 1000;
+        double amplitude[] = new double[size];
+        double energy = 0;
+        Random random = new Random(seed);
+        double gaussRe[] = new double[size], gaussIm[] = new double[size];
+        for (int i = 0; i < size; i++) {
+            gaussRe[i] = random.nextGaussian();
+            gaussIm[i] = random.nextGaussian();
+
+            double kx = frequencyOf(i % spectrumSize) * 2 * Math.PI / patchSize;
+            double kz = frequencyOf(i / spectrumSize) * 2 * Math.PI / patchSize;
+            double k2 = kx * kx + kz * kz;
+            omega[i] = Math.sqrt(GRAVITY * Math.sqrt(k2));
+            if (k2 == 0) {
+                continue;
+            }
+
+            /** Waves travel with the wind, and those much shorter than smallest are damped away */
+            double alignment = kx * kx / k2;
+            amplitude[i] = Math.sqrt(Math.exp(-1 / (k2 * largest * largest)) / (k2 * k2) * alignment
+                    * Math.exp(-k2 * smallest * smallest) / 2);
+            energy += amplitude[i] * amplitude[i] * (gaussRe[i] * gaussRe[i] + gaussIm[i] * gaussIm[i]);
+        }
+
+        /** Each wave vector and its opposite both add their h0 to the height's variance */
+        double scale = energy > 0 ? heightRms / Math.sqrt(2 * energy) : 0;
+        for (int i = 0; i < size; i++) {
+            h0Re[i] = (float) (amplitude[i] * gaussRe[i] * scale);
+            h0Im[i] = (float) (amplitude[i] * gaussIm[i] * scale);
+        }
+        for (int i = 0; i < size; i++) {
+            int opposite = wrap(-frequencyOf(i / spectrumSize)) * spectrumSize + wrap(-frequencyOf(i % spectrumSize));
+            h0ConjRe[i] = h0Re[opposite];
+            h0ConjIm[i] = -h0Im[opposite];
+        }
+
+        setResolution(spectrumSize);
+    }
+
+    /** Signed frequency of a spectrum row or column, -size / 2 up to size / 2 */
+    private int frequencyOf(int index) {
+        return index < spectrumSize / 2 ? index : index - spectrumSize;
+    }
+
+    /** Spectrum row or column of a signed frequency */
+    private int wrap(int frequency) {
+        return frequency < 0 ? frequency + spectrumSize : frequency;
+    }
+
+    /**
+     * Compute the heights on a resolution x resolution grid from the next update on, a
+     * power of two up to the spectrum size. Coarser grids only see the longer waves
+     */
+    public void setResolution(int resolution) {
+        if (resolution < 2 || resolution > spectrumSize || Integer.bitCount(resolution) != 1) {
+            throw new IllegalArgumentException("Resolution must be a power of two up to " + spectrumSize
+                    + ", not " + resolution);
+        }
+        if (resolution == this.resolution) {
+            return;
+        }
+
+        this.resolution = resolution;
+        int size = resolution * resolution;
+        re = new float[size];
+        im = new float[size];
+        transposedRe = new float[size];
+        transposedIm = new float[size];
+        heights = new float[size];
+
+        /** e^(2 pi i j / n) for the inverse transform, and where each index goes in bit reversed order */
+        twiddleRe = new float[resolution / 2];
+        twiddleIm = new float[resolution / 2];
+        for (int j = 0; j < resolution / 2; j++) {
+            twiddleRe[j] = (float) Math.cos(2 * Math.PI * j / resolution);
+            twiddleIm[j] = (float) Math.sin(2 * Math.PI * j / resolution);
+        }
+        int bits = Integer.numberOfTrailingZeros(resolution);
+        reversed = new int[resolution];
+        for (int j = 0; j < resolution; j++) {
+            reversed[j] = Integer.reverse(j) >>> (32 - bits);
+        }
+
+        time = Double.NaN;
+    }
+
+    /** Compute the heights at the given time, returns false if they already were */
+    public boolean update(double time) {
+        if (time == this.time) {
+            return false;
+        }
+        this.time = time;
+
+        runPass(SPECTRUM);
+        runPass(ROWS);
+        runPass(TRANSPOSE);
+        runPass(COLUMNS);
+        updates++;
+        return true;
+    }
+
+    private void runPass(int pass) {
+        if (pool == null || resolution * resolution <= SPLIT_POINTS) {
+            pass(pass, 0, resolution);
+        } else {
+            pool.invoke(new PassTask(pass, 0, resolution));
+        }
+    }
+
+    /** Run one pass over grid rows first up to end */
+    private void pass(int pass, int first, int end) {
+        int n = resolution;
+        for (int row = first; row < end; row++) {
+            if (pass == SPECTRUM) {
+                spectrumRow(row);
+            } else if (pass == ROWS) {
+                inverseFft(re, im, row * n);
+            } else if (pass == TRANSPOSE) {
+                /** Row of the transpose from a column, so the columns can be transformed as rows */
+                for (int column = 0; column < n; column++) {
+                    transposedRe[row * n + column] = re[column * n + row];
+                    transposedIm[row * n + column] = im[column * n + row];
+                }
+            } else {
+                inverseFft(transposedRe, transposedIm, row * n);
+                System.arraycopy(transposedRe, row * n, heights, row * n, n);
+            }
+        }
+    }
+
+    /** h(k, t) = h0(k) e^(i w t) + conj(h0(-k)) e^(-i w t) for a row of the grid's band of the spectrum */
+    private void spectrumRow(int row) {
+        int n = resolution;
+        int frequencyZ = row < n / 2 ? row : row - n;
+        int spectrumRow = wrap(frequencyZ) * spectrumSize;
+        for (int column = 0; column < n; column++) {
+            int frequencyX = column < n / 2 ? column : column - n;
+            int k = spectrumRow + wrap(frequencyX);
+
+            /** The phase is reduced in double precision, as w t grows without bound */
+            double phase = omega[k] * time;
+            float angle = (float) (phase - Math.floor(phase / (2 * Math.PI)) * (2 * Math.PI));
+            float sin = ScalarCurveKernel.sin(angle);
+            float cos = ScalarCurveKernel.sin(angle + ScalarCurveKernel.HALF_PI);
+
+            re[row * n + column] = (h0Re[k] + h0ConjRe[k]) * cos - (h0Im[k] - h0ConjIm[k]) * sin;
+            im[row * n + column] = (h0Im[k] + h0ConjIm[k]) * cos + (h0Re[k] - h0ConjRe[k]) * sin;
+        }
+    }
+
+    /** In-place radix-2 inverse FFT, without scaling, of resolution values from offset */
+    private void inverseFft(float re[], float im[], int offset) {
+        int n = resolution;
+        for (int j = 0; j < n; j++) {
+            int r = reversed[j];
+            if (r > j) {
+                float swap = re[offset + j];
+                re[offset + j] = re[offset + r];
+                re[offset + r] = swap;
+                swap = im[offset + j];
+                im[offset + j] = im[offset + r];
+                im[offset + r] = swap;
+            }
+        }
+
+        for (int size = 2; size <= n; size <<= 1) {
+            int half = size >>> 1;
+            int step = n / size;
+            for (int start = offset; start < offset + n; start += size) {
+                for (int j = 0; j < half; j++) {
+                    float wRe = twiddleRe[j * step], wIm = twiddleIm[j * step];
+                    int a = start + j, b = a + half;
+                    float tRe = re[b] * wRe - im[b] * wIm;
+                    float tIm = re[b] * wIm + im[b] * wRe;
+                    re[b] = re[a] - tRe;
+                    im[b] = im[a] - tIm;
+                    re[a] += tRe;
+                    im[a] += tIm;
+                }
+            }
+        }
+    }
+
+    /** Splits a range of rows in half until it is small enough to run directly */
+    @SuppressWarnings("serial")
+    private class PassTask extends RecursiveAction {
+        private final int pass, first, end;
+
+        PassTask(int pass, int first, int end) {
+            this.pass = pass;
+            this.first = first;
+            this.end = end;
+        }
+
+        protected void compute() {
+            if ((end - first) * resolution <= SPLIT_POINTS || end - first == 1) {
+                pass(pass, first, end);
+            } else {
+                int middle = (first + end) >>> 1;
+                invokeAll(new PassTask(pass, first, middle), new PassTask(pass, middle, end));
+            }
+        }
+    }
+
+    /** Height at a point, interpolated between the four grid points around it */
+    public float heightAt(float x, float z) {
+        int n = resolution;
+        float u = x / patchSize * n, v = z / patchSize * n;
+        float floorU = (float) Math.floor(u), floorV = (float) Math.floor(v);
+        float fu = u - floorU, fv = v - floorV;
+
+        /** The tile repeats, so grid indices wrap */
+        int x0 = (int) floorU & (n - 1), z0 = (int) floorV & (n - 1);
+        int x1 = (x0 + 1) & (n - 1), z1 = (z0 + 1) & (n - 1);
+
+        float near = heights[x0 * n + z0] + (heights[x1 * n + z0] - heights[x0 * n + z0]) * fu;
+        float far = heights[x0 * n + z1] + (heights[x1 * n + z1] - heights[x0 * n + z1]) * fu;
+        return near + (far - near) * fv;
+    }
+
+    /** Slope of the surface along x at a point, height change per unit, across one grid cell either side */
+    public float slopeX(float x, float z) {
+        float cell = patchSize / resolution;
+        return (heightAt(x + cell, z) - heightAt(x - cell, z)) / (2 * cell);
+    }
+
+    /** Slope of the surface along z at a point */
+    public float slopeZ(float x, float z) {
+        float cell = patchSize / resolution;
+        return (heightAt(x, z + cell) - heightAt(x, z - cell)) / (2 * cell);
+    }
+
+    public int getSpectrumSize() {
+        return spectrumSize;
+    }
+
+    public int getResolution() {
+        return resolution;
+    }
+
+    public float getPatchSize() {
+        return patchSize;
+    }
+
+    /** Heights indexed x * resolution + z, the returned array is live and must not be modified */
+    public float[] getHeights() {
+        return heights;
+    }
+
+    /** Updates that recomputed the heights, rather than finding them already up to date */
+    public int getUpdateCount() {
+        return updates;
+    }
+}
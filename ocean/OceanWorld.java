@@ -0,0 +1,369 @@
+package ocean;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Description: The simulation state of the ocean scene, independent of any OpenGL context.
+ *    Every fish and boat is held in primitive arrays (one array per property) so
+ *    that large worlds cost a handful of arrays rather than one object per entity
+ *
+ * Fish animation: the fish swim as a FishSchool, steering around each other while they
+ *    advance along X until they reach the end position and are moved back to the start.
+ *    The bobbing added to the school's Y positions and the tail tilt are the scene's
+ *    original sine curves, each fish shifted by its own phase so the school doesn't bob in
+ *    step. The first fish has no phase shift. Curves are evaluated for every fish at once
+ *    by CurveKernels.best()
+ * Boat animation: every boat moves west (right) or east (left) between the start and end
+ *    positions, depending on the direction set by the user, riding the OceanWaves: its
+ *    height and tilt are sampled from the wave heightfield where it is. The field is only
+ *    computed at the resolution a boat can feel, and not at all without boats
+ */
+public class OceanWorld implements OceanState {
+
+    /** Fish start x position */
+    public static final float FISH_START_X = -5f;
+
+    /** Fish end x position */
+    public static final float FISH_END_X = 10f;
+
+    /** Fish resting y position, the bobbing is added on top of this */
+    public static final float FISH_BASE_Y = -2f;
+
+    /** Fish z position, where the school's first fish swims */
+    public static final float FISH_Z = -8f;
+
+    /** Boat start x position */
+    public static final float BOAT_START_X = -10.0f;
+
+    /** Boat end x position */
+    public static final float BOAT_END_X = 10.0f;
+
+    /** Boat z position */
+    public static final float BOAT_Z = -18f;
+
+    /** Fish tail tilt in degrees, (sin(t) / pi) * 80 */
+    public static final PeriodicCurve FISH_TILT = new PeriodicCurve((float) (80 / Math.PI), 1f, 0f);
+
+    /** Fish bobbing on top of the school's Y positions, sin(t) / 10 */
+    public static final PeriodicCurve FISH_BOB = new PeriodicCurve(0.1f, 1f, 0f);
+
+    /** Width of the wave tile, it repeats beyond that */
+    public static final float WAVE_PATCH_SIZE = 128f;
+
+    /** Wave grid resolution, cells of 2 units: waves much shorter than a boat (6 units long) can't lift or tilt it */
+    public static final int WAVE_RESOLUTION = 64;
+
+    /** Wind along x driving the waves, and their RMS height, about the size of the old boat bobbing */
+    private static final float WAVE_WIND_SPEED = 10f;
+    private static final float WAVE_HEIGHT_RMS = 0.1f;
+    private static final long WAVE_SEED = 20140512L;
+
+    /** Fraction of a period between the phases of consecutive entities, the golden ratio's so they never line up */
+    private static final double PHASE_SPREAD = 0.6180339887;
+
+    /** Number of fish in the world */
+    private final int fishCount;
+
+    /** Number of boats in the world */
+    private final int boatCount;
+
+    /** Fish school, holds the fish x and z positions and the y positions without bobbing */
+    private final FishSchool school;
+
+    /** Fish current y positions, including the bobbing */
+    private final float[] fishPosY;
+
+    /** Fish rotation tilt in y axis */
+    private final float[] fishTilt;
+
+    /** Fish bobbing, added to the school's Y positions */
+    private final float[] fishBob;
+
+    /** Fish animation phases, in animation delta units */
+    private final float[] fishPhase;
+
+    /** Evaluates the animation curves for every entity at once */
+    private final CurveKernel curves = CurveKernels.best();
+
+    /** Boat current x positions */
+    private final float[] boatPosX;
+
+    /** Boat current y positions */
+    private final float[] boatPosY;
+
+    /** Boat pitch about z and roll about x in degrees, lying along the wave surface */
+    private final float[] boatPitch;
+    private final float[] boatRoll;
+
+    /** If each boat is moving west (right) */
+    private final boolean[] boatMovingWest;
+
+    /** Waves the boats ride, with the animation delta as time in seconds */
+    private final OceanWaves waves;
+
+    /** If this world updates its waves, false when they are shared and updated by their owner */
+    private final boolean ownsWaves;
+
+    /** Animation timer (for fish to loop) */
+    private float animationDelta = 0.0f;
+
+    /** Steps taken since the world was made, reset() doesn't change it */
+    private long tick = 0;
+
+    public OceanWorld(int fishCount, int boatCount) {
+        this(fishCount, boatCount, ForkJoinPool.commonPool());
+    }
+
+    /** A world whose fish school and waves are updated on the given pool, or on the stepping thread if null */
+    public OceanWorld(int fishCount, int boatCount, ForkJoinPool pool) {
+        this(fishCount, boatCount, pool, null, 0f);
+    }
+
+    /**
+     * A world starting at the given animation delta that rides waves shared with other worlds,
+     * or its own if sharedWaves is null. Shared waves are only read: their owner must have
+     * updated them to this world's animation delta before it is made and before each step,
+     * which holds for worlds made at the owner's current time and stepped by the same scale
+     */
+    public OceanWorld(int fishCount, int boatCount, ForkJoinPool pool, OceanWaves sharedWaves, float startDelta) {
+        if (fishCount < 0 || boatCount < 0) {
+            throw new IllegalArgumentException("Entity counts must not be negative");
+        }
+
+        this.fishCount = fishCount;
+        this.boatCount = boatCount;
+
+        school = new FishSchool(fishCount, pool);
+        fishPosY = new float[fishCount];
+        fishTilt = new float[fishCount];
+        fishBob = new float[fishCount];
+        fishPhase = spreadPhases(fishCount, FISH_BOB.getPeriod());
+
+        boatPosX = new float[boatCount];
+        boatPosY = new float[boatCount];
+        boatPitch = new float[boatCount];
+        boatRoll = new float[boatCount];
+        boatMovingWest = new boolean[boatCount];
+        ownsWaves = sharedWaves == null;
+        waves = ownsWaves ? createWaves(pool) : sharedWaves;
+        animationDelta = startDelta;
+
+        System.arraycopy(school.getPosY(), 0, fishPosY, 0, fishCount);
+
+        for (int i = 0; i < boatCount; i++) {
+            boatPosX[i] = boatSpawnX(i);
+            boatMovingWest[i] = true;
+        }
+        rideWaves();
+    }
+
+    /** The waves every world rides, updated on the given pool or on the calling thread if null */
+    public static OceanWaves createWaves(ForkJoinPool pool) {
+        return new OceanWaves(WAVE_RESOLUTION, WAVE_PATCH_SIZE, WAVE_WIND_SPEED, WAVE_HEIGHT_RMS, WAVE_SEED, pool);
+    }
+
+    /** Advance the world by one animation step of the given scale */
+    public void step(float animationScale) {
+        animationDelta += animationScale;
+        tick++;
+
+        /** Tilt the fish tale */
+        FISH_TILT.evaluate(curves, animationDelta, fishPhase, fishTilt, fishCount);
+
+        /** Control the fish Y position to mimic bobbing */
+        FISH_BOB.evaluate(curves, animationDelta, fishPhase, fishBob, fishCount);
+
+        /** Swim the school, fish that reached the end are moved back to start */
+        school.step(animationScale);
+
+        float schoolY[] = school.getPosY();
+        for (int i = 0; i < fishCount; i++) {
+            fishPosY[i] = schoolY[i] + fishBob[i];
+        }
+
+        float boatStep = 0.5f * animationScale;
+        for (int i = 0; i < boatCount; i++) {
+
+            /** If boat is moving west (right) and hasn't reached the farthest point on the right
+                then increment boat's X position */
+            if (boatMovingWest[i] && boatPosX[i] <= BOAT_END_X) {
+                boatPosX[i] += boatStep;
+
+            /** If boat is moving east (left) and hasn't reached the farthest point on the left
+                then decrement boat's X position */
+            } else if (!boatMovingWest[i] && boatPosX[i] >= BOAT_START_X) {
+                boatPosX[i] -= boatStep;
+            }
+        }
+
+        rideWaves();
+    }
+
+    /** Set every boat's height and tilt from the waves where it is now */
+    private void rideWaves() {
+        if (boatCount == 0) {
+            return;
+        }
+
+        if (ownsWaves) {
+            waves.update(animationDelta);
+        }
+        for (int i = 0; i < boatCount; i++) {
+            float x = boatPosX[i];
+            boatPosY[i] = waves.heightAt(x, BOAT_Z);
+
+            /** Nose up where the surface rises ahead along x, and rolled to lie with it across */
+            boatPitch[i] = (float) Math.toDegrees(Math.atan(waves.slopeX(x, BOAT_Z)));
+            boatRoll[i] = (float) -Math.toDegrees(Math.atan(waves.slopeZ(x, BOAT_Z)));
+        }
+    }
+
+    /** Set the direction of every boat, true for west (right) */
+    public void setBoatsMovingWest(boolean movingWest) {
+        for (int i = 0; i < boatCount; i++) {
+            boatMovingWest[i] = movingWest;
+        }
+    }
+
+    /** Move every fish and boat back to its start position */
+    public void reset() {
+        school.reset();
+
+        for (int i = 0; i < boatCount; i++) {
+            boatPosX[i] = boatSpawnX(i);
+        }
+    }
+
+    /** Phases spread over a period, the first entity's zero */
+    private static float[] spreadPhases(int count, float period) {
+        float phases[] = new float[count];
+        for (int i = 0; i < count; i++) {
+            double fraction = i * PHASE_SPREAD;
+            phases[i] = (float) ((fraction - Math.floor(fraction)) * period);
+        }
+        return phases;
+    }
+
+    /** Boats are spread evenly along their path, the first one starts at the start position */
+    private float boatSpawnX(int index) {
+        return BOAT_START_X + (BOAT_END_X - BOAT_START_X) * index / boatCount;
+    }
+
+    public int getFishCount() {
+        return fishCount;
+    }
+
+    public int getBoatCount() {
+        return boatCount;
+    }
+
+    /** Fish x positions, the returned array is live and must not be modified */
+    public float[] getFishPosX() {
+        return school.getPosX();
+    }
+
+    /** Fish y positions, the returned array is live and must not be modified */
+    public float[] getFishPosY() {
+        return fishPosY;
+    }
+
+    /** Fish z positions, the returned array is live and must not be modified */
+    public float[] getFishPosZ() {
+        return school.getPosZ();
+    }
+
+    /** Fish tail tilts in degrees, the returned array is live and must not be modified */
+    public float[] getFishTilt() {
+        return fishTilt;
+    }
+
+    /** Boat x positions, the returned array is live and must not be modified */
+    public float[] getBoatPosX() {
+        return boatPosX;
+    }
+
+    /** Boat y positions, the returned array is live and must not be modified */
+    public float[] getBoatPosY() {
+        return boatPosY;
+    }
+
+    /** Boat pitch in degrees about z, the returned array is live and must not be modified */
+    public float[] getBoatPitch() {
+        return boatPitch;
+    }
+
+    /** Boat roll in degrees about x, the returned array is live and must not be modified */
+    public float[] getBoatRoll() {
+        return boatRoll;
+    }
+
+    public boolean isBoatMovingWest(int index) {
+        return boatMovingWest[index];
+    }
+
+    public float getAnimationDelta() {
+        return animationDelta;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * A 64-bit FNV-1a hash of everything the next steps depend on: the animation timer,
+     * every position, velocity, tilt and boat direction. Equal worlds hash equal, so runs
+     * can be compared by their final hash alone
+     */
+    public long stateHash() {
+        long hash = 0xcbf29ce484222325L;
+        hash = hash(hash, Float.floatToIntBits(animationDelta));
+        hash = hash(hash, school.getPosX(), fishCount);
+        hash = hash(hash, fishPosY, fishCount);
+        hash = hash(hash, school.getPosY(), fishCount);
+        hash = hash(hash, school.getPosZ(), fishCount);
+        hash = hash(hash, school.getVelX(), fishCount);
+        hash = hash(hash, school.getVelY(), fishCount);
+        hash = hash(hash, school.getVelZ(), fishCount);
+        hash = hash(hash, fishTilt, fishCount);
+        hash = hash(hash, boatPosX, boatCount);
+        hash = hash(hash, boatPosY, boatCount);
+        hash = hash(hash, boatPitch, boatCount);
+        hash = hash(hash, boatRoll, boatCount);
+        for (int i = 0; i < boatCount; i++) {
+            hash = hash(hash, boatMovingWest[i] ? 1 : 0);
+        }
+        return hash;
+    }
+
+    private static long hash(long hash, float values[], int count) {
+        for (int i = 0; i < count; i++) {
+            hash = hash(hash, Float.floatToIntBits(values[i]));
+        }
+        return hash;
+    }
+
+    /** Hash in the four bytes of a value */
+    private static long hash(long hash, int value) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            hash = (hash ^ ((value >>> shift) & 0xff)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /** Fish animation phases, the returned array is live and must not be modified */
+    public float[] getFishPhase() {
+        return fishPhase;
+    }
+
+    public CurveKernel getCurveKernel() {
+        return curves;
+    }
+
+    public FishSchool getSchool() {
+        return school;
+    }
+
+    public OceanWaves getWaves() {
+        return waves;
+    }
+}
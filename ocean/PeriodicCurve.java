@@ -0,0 +1,40 @@
+package ocean;
+
+/**
+ * Description: A sine wave, offset + amplitude * sin(frequency * (time + phase)), the shape
+ *    of the scene's bobbing and tail tilt. Phases are per entity, in the same units as time
+ */
+public class PeriodicCurve {
+
+    private final float amplitude;
+    private final float frequency;
+    private final float offset;
+
+    public PeriodicCurve(float amplitude, float frequency, float offset) {
+        this.amplitude = amplitude;
+        this.frequency = frequency;
+        this.offset = offset;
+    }
+
+    /** Evaluate the curve for the first count entities at their phases into out */
+    public void evaluate(CurveKernel kernel, float time, float phase[], float out[], int count) {
+        kernel.sine(time, frequency, amplitude, offset, phase, out, count);
+    }
+
+    /** Time the curve takes to repeat */
+    public float getPeriod() {
+        return (float) (2 * Math.PI / frequency);
+    }
+
+    public float getAmplitude() {
+        return amplitude;
+    }
+
+    public float getFrequency() {
+        return frequency;
+    }
+
+    public float getOffset() {
+        return offset;
+    }
+}
@@ -0,0 +1,47 @@
+package ocean;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * Description: One frame's worth of 0xRRGGBB pixels, preallocated and recycled through
+ *    a PixelBufferPool. The pixels back a BufferedImage directly, so a frame can be
+ *    handed to ImageIO without another copy
+ */
+public class PixelBuffer {
+
+    private final BufferedImage image;
+    private final int pixels[];
+
+    /** Frame the pixels currently hold, set by whoever fills the buffer */
+    private int frame = -1;
+
+    public PixelBuffer(int width, int height) {
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    /** Copy a whole frame in, rows from the top, the same size as this buffer */
+    public void copyFrom(int source[], int frame) {
+        System.arraycopy(source, 0, pixels, 0, pixels.length);
+        this.frame = frame;
+    }
+
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /** The pixels, live and shared with the image */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    public int getFrame() {
+        return frame;
+    }
+
+    /** Bytes of pixel memory held */
+    public long getBytes() {
+        return pixels.length * 4L;
+    }
+}
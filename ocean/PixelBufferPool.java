@@ -0,0 +1,49 @@
+package ocean;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Description: A fixed number of PixelBuffers allocated up front and handed out and
+ *    back again, so exporting any number of frames needs no new pixel memory.
+ *    Taking a buffer blocks while they are all in use, which is what keeps a
+ *    renderer from running further ahead of the encoders than the pool allows
+ */
+public class PixelBufferPool {
+
+    private final BlockingQueue<PixelBuffer> free;
+    private final int size;
+    private final long bytes;
+
+    public PixelBufferPool(int size, int width, int height) {
+        this.size = size;
+        free = new ArrayBlockingQueue<PixelBuffer>(size);
+
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            PixelBuffer buffer = new PixelBuffer(width, height);
+            total += buffer.getBytes();
+            free.add(buffer);
+        }
+        bytes = total;
+    }
+
+    /** A free buffer, waiting for one to be released if none are */
+    public PixelBuffer take() throws InterruptedException {
+        return free.take();
+    }
+
+    /** Give a buffer back once its pixels are no longer needed */
+    public void release(PixelBuffer buffer) {
+        free.add(buffer);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /** Pixel memory held by the whole pool */
+    public long getBytes() {
+        return bytes;
+    }
+}
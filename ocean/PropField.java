@@ -0,0 +1,135 @@
+package ocean;
+
+import java.awt.Color;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Description: Textured props standing on the seabed in front of the back plane, such as
+ *    weed, shells and signs, each of one of a number of kinds with its own small texture.
+ *    Each prop is an upright quad facing the camera with its texture's aspect, turned a
+ *    little about the vertical and placed once from a seed. The kinds' textures are
+ *    generated from the seed too, square and not, from 32 to 128 pixels a side, so there
+ *    are enough different textures to show the cost of binding each one
+ */
+public class PropField {
+
+    /** Seabed the props stand on, just in front of the back plane and in view of the camera */
+    private static final float MIN_X = -10f;
+    private static final float MAX_X = 10f;
+    private static final float SEABED_Y = -6f;
+    private static final float MIN_Z = -19f;
+    private static final float MAX_Z = -12f;
+
+    /** Range of each prop's height in world units, and of its turn about the vertical in degrees */
+    private static final float MIN_HEIGHT = 0.4f;
+    private static final float MAX_HEIGHT = 2f;
+    private static final float MAX_YAW = 30f;
+
+    /** Texture sides the kinds are made with */
+    private static final int TEXTURE_SIDES[] = {32, 64, 128};
+
+    private final int count;
+    private final int kindCount;
+
+    /** Kind of each prop, and its world matrix turning the unit plane upright */
+    private final int kinds[];
+    private final float matrices[];
+
+    /** Texture of each kind, mipmaps built */
+    private final TextureImage textures[];
+
+    /** Count props of kindCount kinds placed from a fixed seed, the same seed always places them the same */
+    public PropField(int count, int kindCount, long seed) {
+        if (count < 0 || kindCount <= 0) {
+            throw new IllegalArgumentException("Need a non-negative prop count and at least one kind");
+        }
+
+        this.count = count;
+        this.kindCount = kindCount;
+        kinds = new int[count];
+        matrices = new float[count * Matrix4.FLOATS];
+        textures = new TextureImage[kindCount];
+
+        Random random = new Random(seed);
+        for (int kind = 0; kind < kindCount; kind++) {
+            textures[kind] = createTexture(kind,
+                    TEXTURE_SIDES[random.nextInt(TEXTURE_SIDES.length)],
+                    TEXTURE_SIDES[random.nextInt(TEXTURE_SIDES.length)], random);
+        }
+
+        for (int i = 0; i < count; i++) {
+            int kind = random.nextInt(kindCount);
+            kinds[i] = kind;
+
+            float height = MIN_HEIGHT + random.nextFloat() * (MAX_HEIGHT - MIN_HEIGHT);
+            float width = height * textures[kind].getWidth() / textures[kind].getHeight();
+            float x = MIN_X + random.nextFloat() * (MAX_X - MIN_X);
+            float z = MIN_Z + random.nextFloat() * (MAX_Z - MIN_Z);
+            float yaw = (random.nextFloat() * 2f - 1f) * MAX_YAW;
+
+            /** Stood on its bottom edge, the unit plane turned from facing up to facing the camera */
+            int o = i * Matrix4.FLOATS;
+            Matrix4.setIdentity(matrices, o);
+            Matrix4.translate(matrices, o, x, SEABED_Y + height * 0.5f, z);
+            Matrix4.rotate(matrices, o, yaw, 0f, 1f, 0f);
+            Matrix4.scale(matrices, o, width, height, 1f);
+            Matrix4.rotate(matrices, o, 90f, 1f, 0f, 0f);
+        }
+    }
+
+    /** Bands of two colours of the kind's hue, wavy so the mipmaps have something to average */
+    private static TextureImage createTexture(int kind, int width, int height, Random random) {
+        TextureImage image = TextureImage.allocate(width, height);
+        ByteBuffer pixels = image.getPixels();
+
+        float hue = random.nextFloat();
+        int bands = 2 + random.nextInt(6);
+        int light = colour(hue, 0.9f), dark = colour(hue, 0.4f);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double wave = Math.sin((x * bands * 2.0 * Math.PI) / width + kind) * 0.15;
+                int rgb = ((int) (((double) y / height + wave + 1.0) * bands) & 1) == 0 ? light : dark;
+                int offset = (y * width + x) * TextureImage.PIXEL_BYTES;
+                pixels.put(offset, (byte) (rgb >> 16));
+                pixels.put(offset + 1, (byte) (rgb >> 8));
+                pixels.put(offset + 2, (byte) rgb);
+                pixels.put(offset + 3, (byte) 0xFF);
+            }
+        }
+        MipmapBuilder.build(image, null);
+        return image;
+    }
+
+    /** A colour of the hue, 0 to 1 around the wheel, at the brightness, as 0xRRGGBB */
+    private static int colour(float hue, float brightness) {
+        return Color.HSBtoRGB(hue, 0.7f, brightness) & 0xFFFFFF;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getKindCount() {
+        return kindCount;
+    }
+
+    /** Name of a kind's texture, in a TextureAtlas */
+    public static String getKindName(int kind) {
+        return "prop" + kind;
+    }
+
+    /** The returned arrays are live and must not be modified */
+    public int[] getKinds() {
+        return kinds;
+    }
+
+    /** World matrices of the props, Matrix4.FLOATS each, of the unit plane */
+    public float[] getMatrices() {
+        return matrices;
+    }
+
+    public TextureImage getTexture(int kind) {
+        return textures[kind];
+    }
+}
@@ -0,0 +1,70 @@
+package ocean;
+
+/**
+ * Description: Records frames of the ocean scene without a display and prints the
+ *    commands, draw calls and state changes of the last one, with the state calls the
+ *    tracker saved, the world matrices the scene graph recomputed, the objects culled and
+ *    the objects and triangles drawn at each detail level. The camera looks down -z at
+ *    4:3 like the software renderer's, moved back by the given distance so more of the
+ *    scene is small on screen. Bubbles, if any, are stepped with the world, and glow lights,
+ *    if any, are clustered every frame. Scripts can compare the output between builds
+ *
+ * Usage: java ocean.RecordFrames [fish count] [frames] [instanced true/false] [camera distance] [bubbles]
+ *    [glow lights]
+ */
+public class RecordFrames {
+
+    public static void main(String args[]) {
+        int fishCount = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        boolean instanced = args.length > 2 && Boolean.parseBoolean(args[2]);
+        float distance = args.length > 3 ? Float.parseFloat(args[3]) : 0f;
+        int bubbleCount = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+        int glowLightCount = args.length > 5 ? Integer.parseInt(args[5]) : 0;
+
+        OceanWorld world = new OceanWorld(fishCount, 1);
+        RecordingRenderDevice device = new RecordingRenderDevice(instanced);
+        /** The far plane moves back with the camera so the whole scene stays in view */
+        float camera[] = new float[Matrix4.FLOATS];
+        Matrix4.perspective(camera, 0, 45f, 4f / 3f, 0.1f, 100f + distance);
+        Matrix4.translate(camera, 0, 0f, 0f, -distance);
+        device.setViewProjection(camera);
+        OceanSceneRenderer renderer = new OceanSceneRenderer(device);
+        renderer.init();
+        BubbleSystem bubbles = null;
+        if (bubbleCount > 0) {
+            bubbles = new BubbleSystem(bubbleCount, 1L);
+            renderer.setBubbles(bubbles);
+        }
+        if (glowLightCount > 0) {
+            renderer.setGlowLights(new GlowLights(glowLightCount, 1L));
+        }
+
+        for (int i = 0; i < frames; i++) {
+            device.reset();
+            world.step(0.01f);
+            if (bubbles != null) {
+                bubbles.step(0.01f);
+            }
+            renderer.render(world, 1);
+        }
+
+        System.out.printf("Last of %d frames, %d fish%s%s:%n", frames, fishCount, instanced ? ", instanced" : "",
+                bubbles != null ? ", " + bubbles.getLiveCount() + " bubbles" : "");
+        System.out.print(device.summary());
+        System.out.printf("%-20s %d%n", "state calls saved", renderer.getStateTracker().getLastFrameCallsSaved());
+        System.out.printf("%-20s %d of %d%n", "world matrices", renderer.getScene().getLastUpdateCount(),
+                renderer.getScene().getNodeCount());
+        System.out.printf("%-20s %d visible, %d culled%n", "objects", renderer.getVisibleCount(),
+                renderer.getCulledCount());
+        String levelNames[] = { "full detail", "reduced detail", "impostors" };
+        for (int level = 0; level < LevelOfDetail.LEVELS; level++) {
+            System.out.printf("%-20s %d objects, %d triangles%n", levelNames[level], renderer.getLevelCount(level),
+                    renderer.getLevelTriangles(level));
+        }
+        if (glowLightCount > 0) {
+            System.out.printf("%-20s %d in %d cluster entries%n", "glow lights", glowLightCount,
+                    renderer.getLightClusters().getEntryCount());
+        }
+    }
+}
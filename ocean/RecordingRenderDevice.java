@@ -0,0 +1,355 @@
+package ocean;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Description: Records every call as a compact command in memory instead of drawing,
+ *    so frames can be counted, checked and profiled without a GPU.
+ *    Each command is an opcode, one integer argument and a run of float arguments,
+ *    held in growable primitive arrays that are reused after reset(), so recording
+ *    a frame allocates nothing once the arrays are big enough
+ */
+public class RecordingRenderDevice implements RenderDevice {
+
+    /** Opcodes, one per RenderDevice call */
+    public static final int PUSH_MATRIX = 0;
+    public static final int POP_MATRIX = 1;
+    public static final int TRANSLATE = 2;
+    public static final int ROTATE = 3;
+    public static final int SCALE = 4;
+    public static final int ENABLE = 5;
+    public static final int DISABLE = 6;
+    public static final int LIGHT_MODEL = 7;
+    public static final int LIGHT = 8;
+    public static final int MATERIALF = 9;
+    public static final int MATERIAL = 10;
+    public static final int COLOR = 11;
+    public static final int BIND_TEXTURE = 12;
+    public static final int DRAW_MESH = 13;
+    public static final int UPDATE_FISH_INSTANCES = 14;
+    public static final int DRAW_FISH_INSTANCED = 15;
+    public static final int MULT_MATRIX = 16;
+    public static final int DRAW_PARTICLES = 17;
+    public static final int LIGHTF = 18;
+    public static final int SET_FISH_GLOW_LIGHTS = 19;
+
+    private static final String OPCODE_NAMES[] = {
+        "pushMatrix", "popMatrix", "translate", "rotate", "scale", "enable", "disable",
+        "lightModel", "light", "materialf", "material", "color", "bindTexture", "drawMesh",
+        "updateFishInstances", "drawFishInstanced", "multMatrix", "drawParticles", "lightf",
+        "setFishGlowLights",
+    };
+
+    /** Ints per command: opcode, integer argument, index of the first float argument */
+    private static final int COMMAND_INTS = 3;
+
+    /** Recorded commands */
+    private int commands[] = new int[256 * COMMAND_INTS];
+    private int commandCount = 0;
+
+    /** Float arguments of every command, in order */
+    private float floats[] = new float[1024];
+    private int floatCount = 0;
+
+    /** Number of commands of each opcode since the last reset */
+    private final int opcodeCounts[] = new int[OPCODE_NAMES.length];
+
+    /** Triangles submitted since the last reset */
+    private long triangles = 0;
+
+    /** Meshes created, indexed by handle */
+    private final List<Mesh> meshes = new ArrayList<Mesh>();
+
+    /** Textures created, texture n is at index n - 1 as zero means no texture */
+    private final List<TextureImage> textures = new ArrayList<TextureImage>();
+
+    /** If this device pretends to support instanced fish */
+    private final boolean instancing;
+
+    /** Camera reported by getViewProjection(), null for none */
+    private float viewProjection[];
+
+    /** Fish at each detail level in the last instance update and the meshes they are drawn with */
+    private final int fishLevelCounts[] = new int[LevelOfDetail.LEVELS];
+    private int fishMeshes[];
+
+    /** Particle vertices as last written, grown when a frame needs more room */
+    private FloatBuffer particleVertices = Buffers.createFloatBuffer(1);
+
+    /** A recorder that reports instanced fish as unsupported */
+    public RecordingRenderDevice() {
+        this(false);
+    }
+
+    public RecordingRenderDevice(boolean instancing) {
+        this.instancing = instancing;
+    }
+
+    /** Forget the recorded commands and counts, keeping meshes and storage */
+    public void reset() {
+        commandCount = 0;
+        floatCount = 0;
+        triangles = 0;
+        for (int i = 0; i < opcodeCounts.length; i++) {
+            opcodeCounts[i] = 0;
+        }
+    }
+
+    private void record(int opcode, int argument) {
+        if ((commandCount + 1) * COMMAND_INTS > commands.length) {
+            int grown[] = new int[commands.length * 2];
+            System.arraycopy(commands, 0, grown, 0, commandCount * COMMAND_INTS);
+            commands = grown;
+        }
+
+        int offset = commandCount * COMMAND_INTS;
+        commands[offset] = opcode;
+        commands[offset + 1] = argument;
+        commands[offset + 2] = floatCount;
+        commandCount++;
+        opcodeCounts[opcode]++;
+    }
+
+    private void recordFloat(float value) {
+        if (floatCount == floats.length) {
+            float grown[] = new float[floats.length * 2];
+            System.arraycopy(floats, 0, grown, 0, floatCount);
+            floats = grown;
+        }
+        floats[floatCount++] = value;
+    }
+
+    /** Record the four values of an RGBA or position parameter without moving the buffer */
+    private void recordFloats(FloatBuffer params) {
+        int position = params.position();
+        for (int i = 0; i < 4; i++) {
+            recordFloat(params.get(position + i));
+        }
+    }
+
+    public void pushMatrix() {
+        record(PUSH_MATRIX, 0);
+    }
+
+    public void popMatrix() {
+        record(POP_MATRIX, 0);
+    }
+
+    public void translate(float x, float y, float z) {
+        record(TRANSLATE, 0);
+        recordFloat(x);
+        recordFloat(y);
+        recordFloat(z);
+    }
+
+    public void rotate(float angle, float x, float y, float z) {
+        record(ROTATE, 0);
+        recordFloat(angle);
+        recordFloat(x);
+        recordFloat(y);
+        recordFloat(z);
+    }
+
+    public void scale(float x, float y, float z) {
+        record(SCALE, 0);
+        recordFloat(x);
+        recordFloat(y);
+        recordFloat(z);
+    }
+
+    public void multMatrix(float matrix[], int offset) {
+        record(MULT_MATRIX, 0);
+        for (int i = 0; i < Matrix4.FLOATS; i++) {
+            recordFloat(matrix[offset + i]);
+        }
+    }
+
+    /** Set the camera to report, a column-major projection times view matrix, or null for none */
+    public void setViewProjection(float matrix[]) {
+        viewProjection = matrix != null ? matrix.clone() : null;
+    }
+
+    /** Not a command, the camera is whatever was last set */
+    public boolean getViewProjection(float matrix[], int offset) {
+        if (viewProjection == null) {
+            return false;
+        }
+        System.arraycopy(viewProjection, 0, matrix, offset, Matrix4.FLOATS);
+        return true;
+    }
+
+    public void enable(int cap) {
+        record(ENABLE, cap);
+    }
+
+    public void disable(int cap) {
+        record(DISABLE, cap);
+    }
+
+    public void lightModel(int pname, FloatBuffer params) {
+        record(LIGHT_MODEL, pname);
+        recordFloats(params);
+    }
+
+    /** The light and parameter share the integer argument, light in the high half */
+    public void light(int light, int pname, FloatBuffer params) {
+        record(LIGHT, (light << 16) | pname);
+        recordFloats(params);
+    }
+
+    /** The light and parameter share the integer argument as for light() */
+    public void lightf(int light, int pname, float param) {
+        record(LIGHTF, (light << 16) | pname);
+        recordFloat(param);
+    }
+
+    public void materialf(int pname, float param) {
+        record(MATERIALF, pname);
+        recordFloat(param);
+    }
+
+    public void material(int pname, FloatBuffer params) {
+        record(MATERIAL, pname);
+        recordFloats(params);
+    }
+
+    public void color(float red, float green, float blue, float alpha) {
+        record(COLOR, 0);
+        recordFloat(red);
+        recordFloat(green);
+        recordFloat(blue);
+        recordFloat(alpha);
+    }
+
+    public void bindTexture(int texture) {
+        record(BIND_TEXTURE, texture);
+    }
+
+    public int createTexture(TextureImage image) {
+        textures.add(image);
+        return textures.size();
+    }
+
+    public int createMesh(Mesh mesh) {
+        meshes.add(mesh);
+        return meshes.size() - 1;
+    }
+
+    public void drawMesh(int mesh) {
+        record(DRAW_MESH, mesh);
+        triangles += meshes.get(mesh).getTriangleCount();
+    }
+
+    public boolean createFishInstancing(int bodyMesh, int tailMesh, int eyeMesh, int mergedMesh, int impostorMesh) {
+        if (instancing) {
+            fishMeshes = new int[] {bodyMesh, tailMesh, eyeMesh, mergedMesh, impostorMesh};
+        }
+        return instancing;
+    }
+
+    public void updateFishInstances(FishInstanceBuffer fish) {
+        record(UPDATE_FISH_INSTANCES, fish.getCount());
+        for (int level = 0; level < LevelOfDetail.LEVELS; level++) {
+            fishLevelCounts[level] = fish.getLevelCount(level);
+        }
+    }
+
+    public void drawFishInstanced(FishPart part) {
+        record(DRAW_FISH_INSTANCED, part.ordinal());
+
+        int fishCount = fishLevelCounts[part.getLevel()];
+        int instances = part == FishPart.EYES ? fishCount * 2 : fishCount;
+        triangles += (long) meshes.get(fishMeshes[part.ordinal()]).getTriangleCount() * instances;
+    }
+
+    /** Recorded with the number of lights */
+    public void setFishGlowLights(GlowLights lights) {
+        record(SET_FISH_GLOW_LIGHTS, lights != null ? lights.getCount() : 0);
+    }
+
+    /** Not a command, the buffer is kept for getParticleVertices() */
+    public FloatBuffer mapParticleBuffer(int floats) {
+        if (floats > particleVertices.capacity()) {
+            particleVertices = Buffers.createFloatBuffer(Math.max(floats, particleVertices.capacity() * 2));
+        }
+        particleVertices.clear();
+        return particleVertices;
+    }
+
+    public void drawParticles(int vertexCount) {
+        record(DRAW_PARTICLES, vertexCount);
+        triangles += vertexCount / 3;
+    }
+
+    /** The particle vertices written for the last drawParticles() */
+    public FloatBuffer getParticleVertices() {
+        return particleVertices;
+    }
+
+    public void dispose() {
+        meshes.clear();
+        textures.clear();
+        reset();
+    }
+
+    /** Number of commands recorded since the last reset */
+    public int getCommandCount() {
+        return commandCount;
+    }
+
+    public int getOpcode(int command) {
+        return commands[command * COMMAND_INTS];
+    }
+
+    public int getIntArgument(int command) {
+        return commands[command * COMMAND_INTS + 1];
+    }
+
+    /** The index'th float argument of a command */
+    public float getFloatArgument(int command, int index) {
+        return floats[commands[command * COMMAND_INTS + 2] + index];
+    }
+
+    /** Number of commands of the given opcode since the last reset */
+    public int getCount(int opcode) {
+        return opcodeCounts[opcode];
+    }
+
+    /** Mesh, instanced and particle draws since the last reset */
+    public int getDrawCalls() {
+        return opcodeCounts[DRAW_MESH] + opcodeCounts[DRAW_FISH_INSTANCED] + opcodeCounts[DRAW_PARTICLES];
+    }
+
+    /** Commands that change fixed-function state rather than transform or draw */
+    public int getStateChanges() {
+        return opcodeCounts[ENABLE] + opcodeCounts[DISABLE] + opcodeCounts[LIGHT_MODEL] + opcodeCounts[LIGHT]
+                + opcodeCounts[LIGHTF]
+                + opcodeCounts[MATERIALF] + opcodeCounts[MATERIAL] + opcodeCounts[COLOR] + opcodeCounts[BIND_TEXTURE]
+                + opcodeCounts[SET_FISH_GLOW_LIGHTS];
+    }
+
+    /** Triangles submitted since the last reset */
+    public long getTriangles() {
+        return triangles;
+    }
+
+    public static String getOpcodeName(int opcode) {
+        return OPCODE_NAMES[opcode];
+    }
+
+    /** One line per opcode used since the last reset, with its count */
+    public String summary() {
+        StringBuilder summary = new StringBuilder();
+        for (int opcode = 0; opcode < opcodeCounts.length; opcode++) {
+            if (opcodeCounts[opcode] > 0) {
+                summary.append(String.format("%-20s %d%n", OPCODE_NAMES[opcode], opcodeCounts[opcode]));
+            }
+        }
+        summary.append(String.format("%-20s %d%n", "draw calls", getDrawCalls()));
+        summary.append(String.format("%-20s %d%n", "state changes", getStateChanges()));
+        summary.append(String.format("%-20s %d%n", "triangles", triangles));
+        return summary.toString();
+    }
+}
@@ -0,0 +1,110 @@
+package ocean;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Description: The OpenGL calls the ocean scene makes, so that a frame can be sent to
+ *    the real driver (LwjglRenderDevice) or recorded in memory (RecordingRenderDevice)
+ *    and measured on machines without a GPU. Constants have the same values as their
+ *    OpenGL counterparts so implementations can pass them straight through
+ */
+public interface RenderDevice {
+
+    /** Capabilities for enable and disable */
+    int LIGHTING = 0x0B50;
+    int TEXTURE_2D = 0x0DE1;
+    int NORMALIZE = 0x0BA1;
+    int LIGHT0 = 0x4000;
+    int LIGHT1 = 0x4001;
+
+    /** Fixed-function lights, LIGHT0 + n for n below this */
+    int MAX_LIGHTS = 8;
+
+    /** Light and material parameters */
+    int AMBIENT = 0x1200;
+    int DIFFUSE = 0x1201;
+    int SPECULAR = 0x1202;
+    int POSITION = 0x1203;
+    int SHININESS = 0x1601;
+    int QUADRATIC_ATTENUATION = 0x1209;
+
+    /** Light model parameters */
+    int LIGHT_MODEL_AMBIENT = 0x0B53;
+
+    /** Matrix stack, applied to the current modelview matrix */
+    void pushMatrix();
+    void popMatrix();
+    void translate(float x, float y, float z);
+    void rotate(float angle, float x, float y, float z);
+    void scale(float x, float y, float z);
+
+    /** Multiply by a column-major matrix, the 16 floats from offset */
+    void multMatrix(float matrix[], int offset);
+
+    /**
+     * The projection times the current modelview, column-major into the 16 floats from
+     * offset, for culling what is drawn next. Returns false if the device has no camera,
+     * in which case nothing should be culled
+     */
+    boolean getViewProjection(float matrix[], int offset);
+
+    /** Enable or disable a capability */
+    void enable(int cap);
+    void disable(int cap);
+
+    /** Lighting */
+    void lightModel(int pname, FloatBuffer params);
+    void light(int light, int pname, FloatBuffer params);
+    void lightf(int light, int pname, float param);
+
+    /** Front face material */
+    void materialf(int pname, float param);
+    void material(int pname, FloatBuffer params);
+
+    /** Current colour, used when lighting is disabled */
+    void color(float red, float green, float blue, float alpha);
+
+    /** Bind a texture to the 2D texture target */
+    void bindTexture(int texture);
+
+    /** Make a texture and its mipmaps bindable, returns the texture to bind, leaves it bound */
+    int createTexture(TextureImage image);
+
+    /** Make a mesh drawable, returns the handle to draw it with */
+    int createMesh(Mesh mesh);
+
+    /** Draw a mesh created by this device with the current state */
+    void drawMesh(int mesh);
+
+    /**
+     * Prepare instanced drawing of fish from the given mesh handles, one per FishPart.
+     * Returns false if the device can't draw instanced, in which case callers
+     * draw each fish part by part
+     */
+    boolean createFishInstancing(int bodyMesh, int tailMesh, int eyeMesh, int mergedMesh, int impostorMesh);
+
+    /** Set the fish to draw instanced, once per frame before drawing any part */
+    void updateFishInstances(FishInstanceBuffer fish);
+
+    /** Draw one part of every fish at the part's detail level from the last update, with the current material */
+    void drawFishInstanced(FishPart part);
+
+    /**
+     * Glow lights the light indices of instanced fish refer to, or null to light them by
+     * the moon and reef alone. Lights don't move, so this is only called when they change
+     */
+    void setFishGlowLights(GlowLights lights);
+
+    /**
+     * A streaming buffer with room for at least the given number of floats, positioned at
+     * zero, to write this frame's particle triangles into, three floats (x, y, z) per vertex.
+     * Only valid until the following drawParticles()
+     */
+    FloatBuffer mapParticleBuffer(int floats);
+
+    /** Draw the first vertexCount vertices written to the mapped particle buffer as triangles in the current colour */
+    void drawParticles(int vertexCount);
+
+    /** Free everything the device created */
+    void dispose();
+}
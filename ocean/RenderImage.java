@@ -0,0 +1,53 @@
+package ocean;
+
+import java.io.File;
+import java.nio.file.Paths;
+
+/**
+ * Description: Renders the ocean scene on the CPU with SoftwareRenderDevice and writes
+ *    it to a PNG file, for thumbnails and regression images on machines without a GPU.
+ *    The world is stepped the given number of times first, and the frame rate of
+ *    re-rendering that frame is printed
+ *
+ * Usage: java ocean.RenderImage [width] [height] [fish count] [steps] [output file]
+ */
+public class RenderImage {
+
+    public static void main(String args[]) throws Exception {
+        int width = args.length > 0 ? Integer.parseInt(args[0]) : 1280;
+        int height = args.length > 1 ? Integer.parseInt(args[1]) : 720;
+        int fishCount = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        int steps = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+        File output = new File(args.length > 4 ? args[4] : "ocean.png");
+
+        OceanWorld world = new OceanWorld(fishCount, 1);
+        for (int i = 0; i < steps; i++) {
+            world.step(0.01f);
+        }
+
+        SoftwareRenderDevice device = new SoftwareRenderDevice(width, height);
+        TextureImage sky = new CachedTextureLoader(Paths.get("cache", "textures"))
+                .load(Paths.get("textures", "ocean.bmp"));
+        int skyTexture = device.createTexture(sky);
+
+        OceanSceneRenderer renderer = new OceanSceneRenderer(device);
+        renderer.init();
+
+        /** Render a few times so the reported rate isn't just the first, cold frame */
+        int frames = 20;
+        long start = 0;
+        for (int i = 0; i <= frames; i++) {
+            if (i == 1) {
+                start = System.nanoTime();
+            }
+            device.beginFrame();
+            renderer.render(world, skyTexture);
+            device.finishFrame();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        device.writeImage(output, "png");
+        System.out.printf("%dx%d, %d fish, %d triangles, %.1f frames per second, written to %s%n",
+                width, height, fishCount, device.getTriangleCount(), frames * 1e9 / elapsed, output);
+    }
+}
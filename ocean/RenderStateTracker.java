@@ -0,0 +1,153 @@
+package ocean;
+
+/**
+ * Description: Remembers the material, bound texture and enabled capabilities last sent
+ *    to the render device and skips any change that would leave that state as it already is,
+ *    such as setting the fish eye material for the right eye straight after the left.
+ *    Counts the calls issued and saved each frame. Only correct if every change to the
+ *    tracked state goes through the tracker, call invalidate() after anything else
+ *    changes it
+ */
+public class RenderStateTracker {
+
+    /** Capabilities whose enabled state is tracked */
+    private static final int TRACKED_CAPS[] = {RenderDevice.LIGHTING, RenderDevice.TEXTURE_2D};
+
+    /** State values, unknown until the tracker has set it once */
+    private static final byte UNKNOWN = -1, DISABLED = 0, ENABLED = 1;
+
+    /** Device the changes are sent to */
+    private final RenderDevice device;
+
+    /** Last material set, null if unknown */
+    private Material material;
+
+    /** Last texture bound to GL_TEXTURE_2D, -1 if unknown */
+    private int texture = -1;
+
+    /** Enabled state of each tracked capability */
+    private final byte capStates[] = new byte[TRACKED_CAPS.length];
+
+    /** Device calls issued and skipped in the current frame */
+    private int frameCallsIssued = 0;
+    private int frameCallsSaved = 0;
+
+    /** Device calls issued and skipped in the last finished frame */
+    private int lastFrameCallsIssued = 0;
+    private int lastFrameCallsSaved = 0;
+
+    /** Totals over every finished frame */
+    private long totalCallsIssued = 0;
+    private long totalCallsSaved = 0;
+    private long frames = 0;
+
+    public RenderStateTracker(RenderDevice device) {
+        this.device = device;
+        invalidate();
+    }
+
+    /** Forget all tracked state, so the next change of each is always sent */
+    public void invalidate() {
+        material = null;
+        texture = -1;
+        for (int i = 0; i < capStates.length; i++) {
+            capStates[i] = UNKNOWN;
+        }
+    }
+
+    /** Set the front face material, three device calls unless it is already current */
+    public void setMaterial(Material material) {
+        if (this.material == material) {
+            frameCallsSaved += 3;
+            return;
+        }
+
+        device.materialf(RenderDevice.SHININESS, material.getShininess());
+        device.material(RenderDevice.SPECULAR, material.getSpecular());
+        device.material(RenderDevice.DIFFUSE, material.getDiffuse());
+        frameCallsIssued += 3;
+        this.material = material;
+    }
+
+    /** Bind a texture to GL_TEXTURE_2D unless it is already bound */
+    public void bindTexture(int texture) {
+        if (this.texture == texture) {
+            frameCallsSaved++;
+            return;
+        }
+
+        device.bindTexture(texture);
+        frameCallsIssued++;
+        this.texture = texture;
+    }
+
+    /** Enable or disable a tracked capability unless it is already in that state */
+    public void setEnabled(int cap, boolean enabled) {
+        int index = indexOf(cap);
+        byte state = enabled ? ENABLED : DISABLED;
+
+        if (capStates[index] == state) {
+            frameCallsSaved++;
+            return;
+        }
+
+        if (enabled) {
+            device.enable(cap);
+        } else {
+            device.disable(cap);
+        }
+        frameCallsIssued++;
+        capStates[index] = state;
+    }
+
+    private static int indexOf(int cap) {
+        for (int i = 0; i < TRACKED_CAPS.length; i++) {
+            if (TRACKED_CAPS[i] == cap) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Capability 0x" + Integer.toHexString(cap) + " is not tracked");
+    }
+
+    /** Close the current frame's counts, call once after each frame is drawn */
+    public void endFrame() {
+        lastFrameCallsIssued = frameCallsIssued;
+        lastFrameCallsSaved = frameCallsSaved;
+        totalCallsIssued += frameCallsIssued;
+        totalCallsSaved += frameCallsSaved;
+        frames++;
+
+        frameCallsIssued = 0;
+        frameCallsSaved = 0;
+    }
+
+    public int getLastFrameCallsIssued() {
+        return lastFrameCallsIssued;
+    }
+
+    public int getLastFrameCallsSaved() {
+        return lastFrameCallsSaved;
+    }
+
+    public long getTotalCallsIssued() {
+        return totalCallsIssued;
+    }
+
+    public long getTotalCallsSaved() {
+        return totalCallsSaved;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    /** Average state calls skipped per frame */
+    public double getAverageCallsSavedPerFrame() {
+        return frames == 0 ? 0 : (double) totalCallsSaved / frames;
+    }
+
+    public String toString() {
+        return String.format("%d frames, %.1f state calls issued and %.1f saved per frame",
+                frames, frames == 0 ? 0 : (double) totalCallsIssued / frames, getAverageCallsSavedPerFrame());
+    }
+}
@@ -0,0 +1,90 @@
+package ocean;
+
+/**
+ * Description: Curve evaluation one entity at a time, the fallback when the Vector API
+ *    isn't available. The sine is a polynomial rather than Math.sin so every entity costs
+ *    a few multiplies, and is written step for step as VectorCurveKernel computes it
+ */
+public class ScalarCurveKernel implements CurveKernel {
+
+    /**
+     * 2 pi split into a short float, whose multiples up to 2^16 turns are exact, and the
+     * rest, so reducing large angles loses no more than the angle's own rounding
+     */
+    static final float TWO_PI_HIGH = 6.28125f;
+    static final float TWO_PI_LOW = (float) (2 * Math.PI - 6.28125);
+    static final float INVERSE_TWO_PI = (float) (1 / (2 * Math.PI));
+    static final float PI = (float) Math.PI;
+    static final float HALF_PI = (float) (Math.PI / 2);
+
+    /** Taylor coefficients of sin up to x^11, within 4e-8 over -pi/2 to pi/2 */
+    static final float S3 = -1f / 6;
+    static final float S5 = 1f / 120;
+    static final float S7 = -1f / 5040;
+    static final float S9 = 1f / 362880;
+    static final float S11 = -1f / 39916800;
+
+    /** Adding and subtracting this rounds a float under 2^22 to the nearest whole number */
+    static final float ROUNDING = 12582912f;
+
+    /** sin(x), within a few float ulps of Math.sin */
+    public static float sin(float x) {
+        /** Reduce to -pi to pi by taking off the nearest whole number of turns */
+        float turns = (x * INVERSE_TWO_PI + ROUNDING) - ROUNDING;
+        float r = x - turns * TWO_PI_HIGH - turns * TWO_PI_LOW;
+
+        /** Fold into -pi/2 to pi/2, where sin(pi - r) = sin(r) */
+        if (r > HALF_PI) {
+            r = PI - r;
+        } else if (r < -HALF_PI) {
+            r = -PI - r;
+        }
+
+        float r2 = r * r;
+        return r + r * r2 * (S3 + r2 * (S5 + r2 * (S7 + r2 * (S9 + r2 * S11))));
+    }
+
+    public void sine(float time, float frequency, float amplitude, float offset,
+            float phase[], float out[], int count) {
+        sine(time, frequency, amplitude, offset, phase, out, 0, count);
+    }
+
+    /** sine() for entities start to end */
+    static void sine(float time, float frequency, float amplitude, float offset,
+            float phase[], float out[], int start, int end) {
+        for (int i = start; i < end; i++) {
+            out[i] = offset + amplitude * sin(frequency * (time + phase[i]));
+        }
+    }
+
+    public void keyframes(float time, float period, float values[], int keyCount,
+            float phase[], float out[], int count) {
+        keyframes(time, period, values, keyCount, phase, out, 0, count);
+    }
+
+    /** keyframes() for entities start to end */
+    static void keyframes(float time, float period, float values[], int keyCount,
+            float phase[], float out[], int start, int end) {
+        float keysPerTime = keyCount / period;
+        for (int i = start; i < end; i++) {
+            /** Position along the track in keys, wrapped into 0 to keyCount */
+            float position = (time + phase[i]) * keysPerTime;
+            position -= floor(position / keyCount) * keyCount;
+
+            float key = Math.min(Math.max(floor(position), 0f), keyCount - 1);
+            float fraction = position - key;
+            int k = (int) key;
+            out[i] = values[k] + (values[k + 1] - values[k]) * fraction;
+        }
+    }
+
+    /** Math.floor() in float arithmetic, for magnitudes under 2^22 */
+    static float floor(float x) {
+        float rounded = (x + ROUNDING) - ROUNDING;
+        return rounded > x ? rounded - 1f : rounded;
+    }
+
+    public String getName() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,79 @@
+package ocean;
+
+/**
+ * Description: The meshes and materials of the ocean scene by name, built from the
+ *    shapes in Shapes. OceanSceneRenderer builds them from here at startup unless a
+ *    SceneBundle baked from here by BakeBundle holds them ready
+ */
+public final class SceneAssets {
+
+    /** Meshes of the back plane, the fish at each detail level and the boat at each detail level */
+    public static final String PLANE = "plane";
+    public static final String FISH_BODY = "fishBody";
+    public static final String FISH_TAIL = "fishTail";
+    public static final String FISH_EYE = "fishEye";
+    public static final String BOAT = "boat";
+    public static final String FISH_MERGED = "fishMerged";
+    public static final String FISH_IMPOSTOR = "fishImpostor";
+    public static final String BOAT_SIMPLE = "boatSimple";
+    public static final String BOAT_IMPOSTOR = "boatImpostor";
+
+    /** Every mesh, in the order the renderer creates them */
+    public static final String MESHES[] = {
+        PLANE, FISH_BODY, FISH_TAIL, FISH_EYE, BOAT, FISH_MERGED, FISH_IMPOSTOR, BOAT_SIMPLE, BOAT_IMPOSTOR
+    };
+
+    /** Materials of the boat, the fish body and tail, and the fish eyes */
+    public static final String BOAT_MATERIAL = "boat";
+    public static final String FISH_MATERIAL = "fish";
+    public static final String FISH_EYE_MATERIAL = "fishEye";
+
+    /** The texture on the back plane */
+    public static final String SKY_TEXTURE = "sky";
+
+    private SceneAssets() {
+    }
+
+    /** Build the named mesh */
+    public static Mesh buildMesh(String name) {
+        if (name.equals(PLANE)) {
+            return MeshBuilder.build(Shapes.unitPlane());
+        } else if (name.equals(FISH_BODY)) {
+            return MeshBuilder.build(Shapes.triangle(1f));
+        } else if (name.equals(FISH_TAIL)) {
+            return MeshBuilder.build(Shapes.triangle(0.5f));
+        } else if (name.equals(FISH_EYE)) {
+            return MeshBuilder.build(Shapes.triangle(0.2f));
+        } else if (name.equals(BOAT)) {
+            return MeshBuilder.build(Shapes.boat());
+        } else if (name.equals(FISH_MERGED)) {
+            /** Body and tail in one mesh, the tail held still */
+            return new MeshBuilder().add(Shapes.triangle(1f)).add(Shapes.triangle(0.5f), -1f, 0f, 0f).build();
+        } else if (name.equals(FISH_IMPOSTOR)) {
+            return MeshBuilder.build(Shapes.fishImpostor());
+        } else if (name.equals(BOAT_SIMPLE)) {
+            return MeshBuilder.build(Shapes.boatSimple());
+        } else if (name.equals(BOAT_IMPOSTOR)) {
+            return MeshBuilder.build(Shapes.boatImpostor());
+        }
+        throw new IllegalArgumentException("No mesh named " + name);
+    }
+
+    /** Register the boat, fish and fish eye materials */
+    public static void registerMaterials(MaterialRegistry materials) {
+        /** Boat material: shininess (specular exponent), specular and diffuse reflection of the front faces */
+        materials.register(BOAT_MATERIAL, 2.0f,
+                new float[] {0.6f, 0.6f, 0.6f, 1.0f},
+                new float[] {0.6f, 0.6f, 0.6f, 1.0f});
+
+        /** Fish body and tail material */
+        materials.register(FISH_MATERIAL, 2.0f,
+                new float[] {0.9f, 0.6f, 0.0f, 1.0f},
+                new float[] {0.9f, 0.6f, 0.0f, 1.0f});
+
+        /** Fish eye material */
+        materials.register(FISH_EYE_MATERIAL, 2.0f,
+                new float[] {1f, 1f, 1f, 1.0f},
+                new float[] {1f, 1f, 1f, 1.0f});
+    }
+}
@@ -0,0 +1,271 @@
+package ocean;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Description: The scene's meshes, materials and textures baked into one file by BakeBundle,
+ *    and read back by memory-mapping it. Vertex data and texture pixels are stored exactly
+ *    as they are uploaded, so the buffers handed to the RenderDevice are slices of the
+ *    mapped file, with nothing parsed or copied. Mesh bounds are stored too, so they are
+ *    not found again from the vertices
+ *
+ * Layout (little endian): a 32 byte header, magic "OBND", format version, then the number
+ *    of meshes, materials and textures. Then one 64 byte record per mesh (name, data offset,
+ *    vertex count, if textured, bounds), per material (name, shininess, specular, diffuse)
+ *    and per texture (name, pixel offset, width, height). Names are up to 24 bytes of
+ *    ASCII, zero padded. Vertex data and pixels follow, each block starting on a 64 byte boundary
+ */
+public final class SceneBundle {
+
+    /** "OBND" read as a little endian int */
+    private static final int MAGIC = 0x444E424F;
+
+    /** Bump when the layout or any baked asset changes, older bundles are then ignored */
+    public static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 32;
+    private static final int RECORD_BYTES = 64;
+    private static final int NAME_BYTES = 24;
+
+    /** Blocks of vertex data and pixels start on multiples of this */
+    private static final int ALIGNMENT = 64;
+
+    /** The mapped file, little endian */
+    private final ByteBuffer mapped;
+
+    /** Record offset of each asset by name */
+    private final Map<String, Integer> meshRecords = new LinkedHashMap<String, Integer>();
+    private final Map<String, Integer> materialRecords = new LinkedHashMap<String, Integer>();
+    private final Map<String, Integer> textureRecords = new LinkedHashMap<String, Integer>();
+
+    private SceneBundle(ByteBuffer mapped) {
+        this.mapped = mapped;
+    }
+
+    /**
+     * The bundle in the given file, or null if there is no such file or it was written by a
+     * different version. A file of the right version that doesn't hold together is an IOException
+     */
+    public static SceneBundle open(Path file) throws IOException {
+        MappedByteBuffer fileBuffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            fileBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+
+        ByteBuffer mapped = fileBuffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+            return null;
+        }
+
+        int meshCount = mapped.getInt(8);
+        int materialCount = mapped.getInt(12);
+        int textureCount = mapped.getInt(16);
+        long recordsEnd = HEADER_BYTES + ((long) meshCount + materialCount + textureCount) * RECORD_BYTES;
+        if (meshCount < 0 || materialCount < 0 || textureCount < 0 || recordsEnd > mapped.capacity()) {
+            throw new IOException("Scene bundle " + file + " is truncated");
+        }
+
+        SceneBundle bundle = new SceneBundle(mapped);
+        int record = HEADER_BYTES;
+        for (int i = 0; i < meshCount; i++, record += RECORD_BYTES) {
+            long end = mapped.getInt(record + NAME_BYTES) + (long) mapped.getInt(record + NAME_BYTES + 4)
+                    * Mesh.STRIDE;
+            bundle.checkBlock(file, mapped.getInt(record + NAME_BYTES), end);
+            bundle.meshRecords.put(readName(mapped, record), record);
+        }
+        for (int i = 0; i < materialCount; i++, record += RECORD_BYTES) {
+            bundle.materialRecords.put(readName(mapped, record), record);
+        }
+        for (int i = 0; i < textureCount; i++, record += RECORD_BYTES) {
+            int width = mapped.getInt(record + NAME_BYTES + 4);
+            int height = mapped.getInt(record + NAME_BYTES + 8);
+            if (width <= 0 || height <= 0) {
+                throw new IOException("Scene bundle " + file + " has a texture of size " + width + "x" + height);
+            }
+            int offset = mapped.getInt(record + NAME_BYTES);
+            bundle.checkBlock(file, offset, offset + (long) TextureImage.chainBytes(width, height));
+            bundle.textureRecords.put(readName(mapped, record), record);
+        }
+        return bundle;
+    }
+
+    private void checkBlock(Path file, int offset, long end) throws IOException {
+        if (offset < HEADER_BYTES || end > mapped.capacity()) {
+            throw new IOException("Scene bundle " + file + " is truncated");
+        }
+    }
+
+    /** The named mesh over the mapped vertex data, or null if the bundle has none */
+    public Mesh getMesh(String name) {
+        Integer record = meshRecords.get(name);
+        if (record == null) {
+            return null;
+        }
+
+        int offset = mapped.getInt(record + NAME_BYTES);
+        int vertexCount = mapped.getInt(record + NAME_BYTES + 4);
+        boolean textured = mapped.getInt(record + NAME_BYTES + 8) != 0;
+        float bounds[] = new float[6];
+        for (int i = 0; i < 6; i++) {
+            bounds[i] = mapped.getFloat(record + NAME_BYTES + 12 + i * 4);
+        }
+
+        FloatBuffer data = slice(offset, vertexCount * Mesh.STRIDE).asFloatBuffer();
+
+        /** OpenGL reads floats in native order, so only a big endian machine pays for a copy */
+        if (ByteOrder.nativeOrder() != ByteOrder.LITTLE_ENDIAN) {
+            FloatBuffer copy = Buffers.createFloatBuffer(data.remaining());
+            copy.put(data).flip();
+            data = copy;
+        }
+        return new Mesh(data, textured, bounds);
+    }
+
+    /** Register every material in the bundle */
+    public void registerMaterials(MaterialRegistry materials) {
+        for (Map.Entry<String, Integer> entry : materialRecords.entrySet()) {
+            int o = entry.getValue() + NAME_BYTES;
+            float specular[] = new float[4], diffuse[] = new float[4];
+            for (int i = 0; i < 4; i++) {
+                specular[i] = mapped.getFloat(o + 4 + i * 4);
+                diffuse[i] = mapped.getFloat(o + 20 + i * 4);
+            }
+            materials.register(entry.getKey(), mapped.getFloat(o), specular, diffuse);
+        }
+    }
+
+    /** The named texture with its mipmaps over the mapped pixels, or null if the bundle has none */
+    public TextureImage getTexture(String name) {
+        Integer record = textureRecords.get(name);
+        if (record == null) {
+            return null;
+        }
+
+        int offset = mapped.getInt(record + NAME_BYTES);
+        int width = mapped.getInt(record + NAME_BYTES + 4);
+        int height = mapped.getInt(record + NAME_BYTES + 8);
+        return new TextureImage(width, height, slice(offset, TextureImage.chainBytes(width, height)));
+    }
+
+    /** Bytes of the mapped file from offset, in little endian order */
+    private ByteBuffer slice(int offset, int length) {
+        ByteBuffer block = mapped.duplicate();
+        block.limit(offset + length).position(offset);
+        return block.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static String readName(ByteBuffer buffer, int offset) {
+        byte name[] = new byte[NAME_BYTES];
+        int length = 0;
+        while (length < NAME_BYTES && buffer.get(offset + length) != 0) {
+            name[length] = buffer.get(offset + length);
+            length++;
+        }
+        return new String(name, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Write a bundle of the given meshes, materials and textures, replacing the file in
+     * one step once it is complete
+     */
+    public static void write(Path file, Map<String, Mesh> meshes, MaterialRegistry materials,
+            Map<String, TextureImage> textures) throws IOException {
+        int recordCount = meshes.size() + materials.size() + textures.size();
+        int recordsEnd = HEADER_BYTES + recordCount * RECORD_BYTES;
+
+        /** Lay the blocks out after the records */
+        long size = align(recordsEnd);
+        for (Mesh mesh : meshes.values()) {
+            size = align(size + (long) mesh.getVertexCount() * Mesh.STRIDE);
+        }
+        for (TextureImage texture : textures.values()) {
+            size = align(size + TextureImage.chainBytes(texture.getWidth(), texture.getHeight()));
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Scene bundle of " + size + " bytes is too big");
+        }
+
+        ByteBuffer out = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(0, MAGIC).putInt(4, VERSION);
+        out.putInt(8, meshes.size()).putInt(12, materials.size()).putInt(16, textures.size());
+
+        int record = HEADER_BYTES;
+        int block = (int) align(recordsEnd);
+        for (Map.Entry<String, Mesh> entry : meshes.entrySet()) {
+            Mesh mesh = entry.getValue();
+            writeName(out, record, entry.getKey());
+            out.putInt(record + NAME_BYTES, block);
+            out.putInt(record + NAME_BYTES + 4, mesh.getVertexCount());
+            out.putInt(record + NAME_BYTES + 8, mesh.isTextured() ? 1 : 0);
+            for (int i = 0; i < 6; i++) {
+                out.putFloat(record + NAME_BYTES + 12 + i * 4, mesh.getBounds()[i]);
+            }
+
+            FloatBuffer data = mesh.getData();
+            for (int i = 0; data.hasRemaining(); i++) {
+                out.putFloat(block + i * 4, data.get());
+            }
+            block = (int) align(block + (long) mesh.getVertexCount() * Mesh.STRIDE);
+            record += RECORD_BYTES;
+        }
+        for (Material material : materials.getMaterials()) {
+            writeName(out, record, material.getName());
+            int o = record + NAME_BYTES;
+            out.putFloat(o, material.getShininess());
+            for (int i = 0; i < 4; i++) {
+                out.putFloat(o + 4 + i * 4, material.getSpecular(i));
+                out.putFloat(o + 20 + i * 4, material.getDiffuse(i));
+            }
+            record += RECORD_BYTES;
+        }
+        for (Map.Entry<String, TextureImage> entry : textures.entrySet()) {
+            TextureImage texture = entry.getValue();
+            int bytes = TextureImage.chainBytes(texture.getWidth(), texture.getHeight());
+            writeName(out, record, entry.getKey());
+            out.putInt(record + NAME_BYTES, block);
+            out.putInt(record + NAME_BYTES + 4, texture.getWidth());
+            out.putInt(record + NAME_BYTES + 8, texture.getHeight());
+
+            ByteBuffer pixels = texture.getPixels().duplicate();
+            pixels.limit(bytes).position(0);
+            ByteBuffer target = out.duplicate();
+            target.position(block);
+            target.put(pixels);
+            block = (int) align(block + (long) bytes);
+            record += RECORD_BYTES;
+        }
+
+        out.clear();
+        Buffers.writeAtomically(file, out);
+    }
+
+    private static void writeName(ByteBuffer out, int offset, String name) {
+        byte bytes[] = name.getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length > NAME_BYTES) {
+            throw new IllegalArgumentException("Asset name " + name + " is longer than " + NAME_BYTES + " bytes");
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            out.put(offset + i, bytes[i]);
+        }
+    }
+
+    private static long align(long offset) {
+        return (offset + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+}
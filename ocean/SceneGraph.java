@@ -0,0 +1,347 @@
+package ocean;
+
+import java.util.Arrays;
+
+/**
+ * Description: A tree of scene nodes held in primitive arrays, one entry per node, with
+ *    each node's local transform and cached world transform stored as column-major
+ *    matrices in two float arrays. Changing a local transform marks the node dirty;
+ *    updateWorldMatrices() then recomputes the world matrices of the dirty nodes and
+ *    their descendants only, so nodes that never move (the back plane) cost nothing
+ *    after the first frame and the work grows with what changed, not the node count.
+ *
+ * Nodes are numbered in the order they are added and a parent is always added before
+ *    its children, so drawing in node order visits parents first and keeps the order
+ *    the scene was built in.
+ *
+ * Each node has a mask of the detail levels of its top-level node it is drawn at, so a
+ *    top-level node can hold alternative meshes for each level as children.
+ *
+ * Nodes can be given a local bounding box. Each update also recomputes the world-space
+ *    bounds of every top-level node's subtree that changed, and lists those top-level
+ *    nodes, so a culling structure over them can be refit with just what moved
+ */
+public class SceneGraph {
+
+    /** Node types, a group only transforms its children */
+    public static final byte GROUP = 0;
+    public static final byte MESH = 1;
+    public static final byte TEXTURED_MESH = 2;
+
+    /** Parent of a top-level node */
+    public static final int NO_PARENT = -1;
+
+    private int nodeCount = 0;
+
+    /** Tree links, NO_PARENT or -1 where there is no such node */
+    private int parent[];
+    private int firstChild[];
+    private int lastChild[];
+    private int nextSibling[];
+
+    /** Top-level ancestor of each node, itself for top-level nodes */
+    private int root[];
+
+    /** All detail levels, the mask nodes start with */
+    public static final int ALL_LEVELS = 0xff;
+
+    /** What each node draws: its type, mesh handle, appearance chosen by the renderer and detail levels */
+    private byte type[];
+    private int levelMask[];
+    private int mesh[];
+    private int appearance[];
+
+    /** Local and world matrices, Matrix4.FLOATS per node */
+    private float local[];
+    private float world[];
+
+    /** Nodes whose local transform changed since the last update, and the list of them */
+    private boolean dirty[];
+    private int dirtyNodes[];
+    private int dirtyCount = 0;
+
+    /** Local bounds of each node's own geometry, six floats per node, if it has any */
+    private float localBounds[];
+    private boolean hasBounds[];
+
+    /** World bounds of each top-level node's whole subtree, six floats per node */
+    private float bounds[];
+
+    /** Top-level nodes whose subtree changed in the last update */
+    private boolean rootChanged[];
+    private int changedRoots[];
+    private int changedRootCount = 0;
+
+    /** Scratch for a transformed box */
+    private final float box[] = new float[6];
+
+    /** Scratch stack for walking subtrees */
+    private int walk[];
+
+    /** World matrices recomputed by the last update */
+    private int lastUpdateCount = 0;
+
+    public SceneGraph(int initialCapacity) {
+        resize(Math.max(1, initialCapacity));
+    }
+
+    private void resize(int capacity) {
+        parent = parent == null ? new int[capacity] : Arrays.copyOf(parent, capacity);
+        firstChild = firstChild == null ? new int[capacity] : Arrays.copyOf(firstChild, capacity);
+        lastChild = lastChild == null ? new int[capacity] : Arrays.copyOf(lastChild, capacity);
+        nextSibling = nextSibling == null ? new int[capacity] : Arrays.copyOf(nextSibling, capacity);
+        root = root == null ? new int[capacity] : Arrays.copyOf(root, capacity);
+        type = type == null ? new byte[capacity] : Arrays.copyOf(type, capacity);
+        levelMask = levelMask == null ? new int[capacity] : Arrays.copyOf(levelMask, capacity);
+        mesh = mesh == null ? new int[capacity] : Arrays.copyOf(mesh, capacity);
+        appearance = appearance == null ? new int[capacity] : Arrays.copyOf(appearance, capacity);
+        local = local == null ? new float[capacity * Matrix4.FLOATS] : Arrays.copyOf(local, capacity * Matrix4.FLOATS);
+        world = world == null ? new float[capacity * Matrix4.FLOATS] : Arrays.copyOf(world, capacity * Matrix4.FLOATS);
+        dirty = dirty == null ? new boolean[capacity] : Arrays.copyOf(dirty, capacity);
+        dirtyNodes = dirtyNodes == null ? new int[capacity] : Arrays.copyOf(dirtyNodes, capacity);
+        localBounds = localBounds == null ? new float[capacity * 6] : Arrays.copyOf(localBounds, capacity * 6);
+        hasBounds = hasBounds == null ? new boolean[capacity] : Arrays.copyOf(hasBounds, capacity);
+        bounds = bounds == null ? new float[capacity * 6] : Arrays.copyOf(bounds, capacity * 6);
+        rootChanged = rootChanged == null ? new boolean[capacity] : Arrays.copyOf(rootChanged, capacity);
+        changedRoots = changedRoots == null ? new int[capacity] : Arrays.copyOf(changedRoots, capacity);
+        walk = new int[capacity];
+    }
+
+    /**
+     * Add a node with an identity local transform under the given parent (or NO_PARENT),
+     * returns its index. mesh and appearance are ignored by groups
+     */
+    public int addNode(int parentNode, byte nodeType, int meshHandle, int nodeAppearance) {
+        if (parentNode != NO_PARENT && (parentNode < 0 || parentNode >= nodeCount)) {
+            throw new IllegalArgumentException("No such parent node " + parentNode);
+        }
+        if (nodeCount == parent.length) {
+            resize(nodeCount * 2);
+        }
+
+        int node = nodeCount++;
+        parent[node] = parentNode;
+        firstChild[node] = -1;
+        lastChild[node] = -1;
+        nextSibling[node] = -1;
+        root[node] = parentNode == NO_PARENT ? node : root[parentNode];
+        hasBounds[node] = false;
+        type[node] = nodeType;
+        levelMask[node] = ALL_LEVELS;
+        mesh[node] = meshHandle;
+        appearance[node] = nodeAppearance;
+
+        if (parentNode != NO_PARENT) {
+            if (lastChild[parentNode] < 0) {
+                firstChild[parentNode] = node;
+            } else {
+                nextSibling[lastChild[parentNode]] = node;
+            }
+            lastChild[parentNode] = node;
+        }
+
+        Matrix4.setIdentity(local, node * Matrix4.FLOATS);
+        dirty[node] = false;
+        markDirty(node);
+        return node;
+    }
+
+    /** Give a node a local bounding box, six floats from offset: min x, y, z then max x, y, z */
+    public void setBounds(int node, float localBox[], int offset) {
+        System.arraycopy(localBox, offset, localBounds, node * 6, 6);
+        hasBounds[node] = true;
+        markDirty(node);
+    }
+
+    /** Draw a node only at the detail levels whose bits are set, bit n for level n */
+    public void setLevelMask(int node, int mask) {
+        levelMask[node] = mask;
+    }
+
+    /** Reset a node's local transform to the identity */
+    public void setIdentity(int node) {
+        Matrix4.setIdentity(local, node * Matrix4.FLOATS);
+        markDirty(node);
+    }
+
+    /** Local transform operations, multiplied on the right as in OpenGL */
+    public void translate(int node, float x, float y, float z) {
+        Matrix4.translate(local, node * Matrix4.FLOATS, x, y, z);
+        markDirty(node);
+    }
+
+    public void rotate(int node, float angle, float x, float y, float z) {
+        Matrix4.rotate(local, node * Matrix4.FLOATS, angle, x, y, z);
+        markDirty(node);
+    }
+
+    public void scale(int node, float x, float y, float z) {
+        Matrix4.scale(local, node * Matrix4.FLOATS, x, y, z);
+        markDirty(node);
+    }
+
+    /** Set the local transform to a translation then a scale, T(x, y, z) S(sx, sy, sz), in one go */
+    public void setTranslationScale(int node, float x, float y, float z, float sx, float sy, float sz) {
+        int o = node * Matrix4.FLOATS;
+        Matrix4.setIdentity(local, o);
+        local[o] = sx;
+        local[o + 5] = sy;
+        local[o + 10] = sz;
+        local[o + 12] = x;
+        local[o + 13] = y;
+        local[o + 14] = z;
+        markDirty(node);
+    }
+
+    private void markDirty(int node) {
+        if (!dirty[node]) {
+            dirty[node] = true;
+            dirtyNodes[dirtyCount++] = node;
+        }
+    }
+
+    /**
+     * Recompute the world matrices of dirty nodes and their descendants, then the bounds
+     * of the top-level nodes they are under, returns how many matrices were recomputed
+     */
+    public int updateWorldMatrices() {
+        for (int i = 0; i < changedRootCount; i++) {
+            rootChanged[changedRoots[i]] = false;
+        }
+        changedRootCount = 0;
+
+        /** Parents have lower indices, so in index order an ancestor's update covers its dirty descendants */
+        Arrays.sort(dirtyNodes, 0, dirtyCount);
+
+        int updated = 0;
+        for (int i = 0; i < dirtyCount; i++) {
+            if (!dirty[dirtyNodes[i]]) {
+                continue;
+            }
+
+            int rootNode = root[dirtyNodes[i]];
+            if (!rootChanged[rootNode]) {
+                rootChanged[rootNode] = true;
+                changedRoots[changedRootCount++] = rootNode;
+            }
+
+            int top = 0;
+            walk[top++] = dirtyNodes[i];
+            while (top > 0) {
+                int node = walk[--top];
+                int o = node * Matrix4.FLOATS;
+                if (parent[node] == NO_PARENT) {
+                    System.arraycopy(local, o, world, o, Matrix4.FLOATS);
+                } else {
+                    Matrix4.multiply(world, parent[node] * Matrix4.FLOATS, local, o, world, o);
+                }
+                dirty[node] = false;
+                updated++;
+
+                for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+                    walk[top++] = child;
+                }
+            }
+        }
+
+        dirtyCount = 0;
+        lastUpdateCount = updated;
+
+        for (int i = 0; i < changedRootCount; i++) {
+            updateBounds(changedRoots[i]);
+        }
+        return updated;
+    }
+
+    /** Union the world boxes of a top-level node's subtree, a point at its origin if none has bounds */
+    private void updateBounds(int rootNode) {
+        int o = rootNode * 6;
+        boolean empty = true;
+
+        int top = 0;
+        walk[top++] = rootNode;
+        while (top > 0) {
+            int node = walk[--top];
+            if (hasBounds[node]) {
+                Matrix4.transformBounds(world, node * Matrix4.FLOATS, localBounds, node * 6, box, 0);
+                for (int i = 0; i < 3; i++) {
+                    bounds[o + i] = empty ? box[i] : Math.min(bounds[o + i], box[i]);
+                    bounds[o + i + 3] = empty ? box[i + 3] : Math.max(bounds[o + i + 3], box[i + 3]);
+                }
+                empty = false;
+            }
+
+            for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+                walk[top++] = child;
+            }
+        }
+
+        if (empty) {
+            for (int i = 0; i < 3; i++) {
+                bounds[o + i] = world[rootNode * Matrix4.FLOATS + 12 + i];
+                bounds[o + i + 3] = bounds[o + i];
+            }
+        }
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getParent(int node) {
+        return parent[node];
+    }
+
+    public int getRoot(int node) {
+        return root[node];
+    }
+
+    public byte getType(int node) {
+        return type[node];
+    }
+
+    /** If the node is drawn when its top-level node is at the given detail level */
+    public boolean isDrawnAtLevel(int node, int level) {
+        return (levelMask[node] & (1 << level)) != 0;
+    }
+
+    public int getMesh(int node) {
+        return mesh[node];
+    }
+
+    public int getAppearance(int node) {
+        return appearance[node];
+    }
+
+    /** World matrices, Matrix4.FLOATS per node, live and current as of the last update */
+    public float[] getWorldMatrices() {
+        return world;
+    }
+
+    /** Local matrices, Matrix4.FLOATS per node, live and must not be modified */
+    public float[] getLocalMatrices() {
+        return local;
+    }
+
+    /**
+     * World bounds of each top-level node's subtree, six floats per node (meaningless
+     * for other nodes), live and current as of the last update
+     */
+    public float[] getBounds() {
+        return bounds;
+    }
+
+    /** Top-level nodes whose subtree changed in the last update, live and must not be modified */
+    public int[] getChangedRoots() {
+        return changedRoots;
+    }
+
+    public int getChangedRootCount() {
+        return changedRootCount;
+    }
+
+    /** World matrices recomputed by the last update */
+    public int getLastUpdateCount() {
+        return lastUpdateCount;
+    }
+}
@@ -0,0 +1,31 @@
+package ocean;
+
+/**
+ * Description: The user controls of the scene, as values that can be queued,
+ *    logged and applied to a world away from the keyboard
+ */
+public enum SceneInput {
+
+    /** L key, the boats move east (left) */
+    BOAT_LEFT,
+
+    /** R key, the boats move west (right) */
+    BOAT_RIGHT,
+
+    /** Space bar, the fish and boats move back to start */
+    RESET;
+
+    public void apply(OceanWorld world) {
+        switch (this) {
+            case BOAT_LEFT:
+                world.setBoatsMovingWest(false);
+                break;
+            case BOAT_RIGHT:
+                world.setBoatsMovingWest(true);
+                break;
+            case RESET:
+                world.reset();
+                break;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package ocean;
+
+/**
+ * Description: The geometry of one of the scene's objects as a list of flat polygons,
+ *    built without any OpenGL calls so it can be measured and reused headless.
+ *    Each polygon has one face normal, computed from its vertices with Newell's method
+ *    so that it points out of the face when the vertices are ordered anticlockwise
+ */
+public class Shape {
+
+    /** x, y, z of every polygon vertex, polygon after polygon */
+    private final float[] positions;
+
+    /** u, v of every polygon vertex, or null if the shape is not textured */
+    private final float[] texCoords;
+
+    /** Index of the first vertex of each polygon, with one extra entry for the end */
+    private final int[] polygonStarts;
+
+    /** x, y, z of the unit normal of every polygon */
+    private final float[] normals;
+
+    /**
+     * @param vertices x, y, z of each distinct corner of the shape
+     * @param polygons for each polygon, the corners it joins in anticlockwise order
+     * @param texCoords u, v for each polygon vertex in the order they appear in polygons, or null
+     */
+    public Shape(float[] vertices, int[][] polygons, float[] texCoords) {
+        int vertexCount = 0;
+        for (int[] polygon : polygons) {
+            vertexCount += polygon.length;
+        }
+
+        if (texCoords != null && texCoords.length != vertexCount * 2) {
+            throw new IllegalArgumentException("Expected " + vertexCount * 2 + " texture coordinates");
+        }
+
+        this.positions = new float[vertexCount * 3];
+        this.texCoords = texCoords;
+        this.polygonStarts = new int[polygons.length + 1];
+        this.normals = new float[polygons.length * 3];
+
+        int vertex = 0;
+        for (int p = 0; p < polygons.length; p++) {
+            polygonStarts[p] = vertex;
+            for (int corner : polygons[p]) {
+                System.arraycopy(vertices, corner * 3, positions, vertex * 3, 3);
+                vertex++;
+            }
+            computeNormal(p, polygonStarts[p], polygons[p].length);
+        }
+        polygonStarts[polygons.length] = vertex;
+    }
+
+    /** Newell's method, which also copes with polygons that are not quite planar */
+    private void computeNormal(int polygon, int first, int count) {
+        float nx = 0, ny = 0, nz = 0;
+
+        for (int i = 0; i < count; i++) {
+            int a = (first + i) * 3;
+            int b = (first + (i + 1) % count) * 3;
+            nx += (positions[a + 1] - positions[b + 1]) * (positions[a + 2] + positions[b + 2]);
+            ny += (positions[a + 2] - positions[b + 2]) * (positions[a] + positions[b]);
+            nz += (positions[a] - positions[b]) * (positions[a + 1] + positions[b + 1]);
+        }
+
+        float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+        if (length > 0) {
+            nx /= length;
+            ny /= length;
+            nz /= length;
+        }
+
+        normals[polygon * 3] = nx;
+        normals[polygon * 3 + 1] = ny;
+        normals[polygon * 3 + 2] = nz;
+    }
+
+    public int getPolygonCount() {
+        return polygonStarts.length - 1;
+    }
+
+    public int getVertexCount() {
+        return positions.length / 3;
+    }
+
+    /** Index of the first vertex of the given polygon */
+    public int getPolygonStart(int polygon) {
+        return polygonStarts[polygon];
+    }
+
+    /** Number of vertices in the given polygon */
+    public int getPolygonSize(int polygon) {
+        return polygonStarts[polygon + 1] - polygonStarts[polygon];
+    }
+
+    public boolean isTextured() {
+        return texCoords != null;
+    }
+
+    public float getX(int vertex) {
+        return positions[vertex * 3];
+    }
+
+    public float getY(int vertex) {
+        return positions[vertex * 3 + 1];
+    }
+
+    public float getZ(int vertex) {
+        return positions[vertex * 3 + 2];
+    }
+
+    public float getU(int vertex) {
+        return texCoords[vertex * 2];
+    }
+
+    public float getV(int vertex) {
+        return texCoords[vertex * 2 + 1];
+    }
+
+    public float getNormalX(int polygon) {
+        return normals[polygon * 3];
+    }
+
+    public float getNormalY(int polygon) {
+        return normals[polygon * 3 + 1];
+    }
+
+    public float getNormalZ(int polygon) {
+        return normals[polygon * 3 + 2];
+    }
+}
@@ -0,0 +1,141 @@
+package ocean;
+
+/**
+ * Description: The geometry of the boat, fish parts and back plane,
+ *    with the same corners, polygons and vertex order the scene has always drawn
+ */
+public final class Shapes {
+
+    private Shapes() {
+    }
+
+    /** The boat hull, a wedge at the bottom widening to a pointed deck at the top */
+    public static Shape boat() {
+        float vertices[] = {
+            -0.5f, 0.0f, 0.0f,  // v1
+             0.5f, 0.0f, 0.0f,  // v2
+             0.5f, 1.0f, 0.5f,  // v3
+            -0.5f, 1.0f, 0.5f,  // v4
+             0.5f, 1.0f,-0.5f,  // v5
+            -0.5f, 1.0f,-0.5f,  // v6
+             1.5f, 1.0f, 0.0f,  // v7
+            -1.5f, 1.0f, 0.0f,  // v8
+        };
+
+        int polygons[][] = {
+            {0, 1, 2, 3},   // front face
+            {0, 5, 4, 1},   // back face
+            {1, 6, 2},      // right front
+            {1, 4, 6},      // right back
+            {0, 3, 7},      // left front
+            {0, 7, 5},      // left back
+            {3, 2, 4, 5},   // top cover center
+            {2, 6, 4},      // top cover right
+            {3, 5, 7},      // top cover left
+        };
+
+        return new Shape(vertices, polygons, null);
+    }
+
+    /**
+     * The boat with its deck reduced to a diamond, for boats too small on screen for the
+     *  full hull's corners to show. Same outline, 8 triangles rather than 12
+     */
+    public static Shape boatSimple() {
+        float vertices[] = {
+            -0.5f, 0.0f, 0.0f,  // keel left
+             0.5f, 0.0f, 0.0f,  // keel right
+             1.5f, 1.0f, 0.0f,  // deck right
+             0.0f, 1.0f, 0.5f,  // deck front
+            -1.5f, 1.0f, 0.0f,  // deck left
+             0.0f, 1.0f,-0.5f,  // deck back
+        };
+
+        int polygons[][] = {
+            {0, 1, 3},      // front face
+            {1, 2, 3},      // right front
+            {0, 3, 4},      // left front
+            {0, 5, 1},      // back face
+            {1, 5, 2},      // right back
+            {0, 4, 5},      // left back
+            {4, 3, 2, 5},   // deck
+        };
+
+        return new Shape(vertices, polygons, null);
+    }
+
+    /** A single quad facing positive Z with the boat's width and height, the most distant boats */
+    public static Shape boatImpostor() {
+        return impostor(-1.5f, 0.0f, 1.5f, 1.0f);
+    }
+
+    /** A single quad facing positive Z covering the fish body and tail, for the most distant fish */
+    public static Shape fishImpostor() {
+        return impostor(-1.0f, -1.0f, 2.5f, 1.0f);
+    }
+
+    /** A quad in the XY plane facing positive Z */
+    private static Shape impostor(float minX, float minY, float maxX, float maxY) {
+        float vertices[] = {
+            minX, minY, 0.0f,
+            maxX, minY, 0.0f,
+            maxX, maxY, 0.0f,
+            minX, maxY, 0.0f,
+        };
+
+        int polygons[][] = {
+            {0, 1, 2, 3},
+        };
+
+        return new Shape(vertices, polygons, null);
+    }
+
+    /** A triangular prism pointing along positive X, used for the fish body, tail and eyes */
+    public static Shape triangle(float size) {
+        float vertices[] = {
+            size*0.0f, size*-1.0f, size*0.2f,   // front, bottom
+            size*0.0f, size* 1.0f, size*0.2f,   // front, top
+            size*2.5f, size* 0.0f, size*0.2f,   // front, right
+            size*0.0f, size*-1.0f, size*-0.2f,  // back, bottom
+            size*0.0f, size* 1.0f, size*-0.2f,  // back, top
+            size*2.5f, size* 0.0f, size*-0.2f,  // back, right
+        };
+
+        int polygons[][] = {
+            {0, 2, 1},      // front face
+            {3, 5, 4},      // back face
+            {1, 2, 5, 4},   // top face
+            {0, 3, 5, 2},   // bottom face
+            {0, 1, 4, 3},   // left face
+        };
+
+        return new Shape(vertices, polygons, null);
+    }
+
+    /**
+     * A plane aligned with the X and Z axis, with its front face toward positive Y.
+     *  The plane is of unit width and height and is textured across its whole face
+     */
+    public static Shape unitPlane() {
+        float vertices[] = {
+            -0.5f, 0.0f,-0.5f,  // v1
+             0.5f, 0.0f,-0.5f,  // v2
+             0.5f, 0.0f, 0.5f,  // v3
+            -0.5f, 0.0f, 0.5f,  // v4
+        };
+
+        /** Order the vertices so that the plane faces up */
+        int polygons[][] = {
+            {3, 2, 1, 0},
+        };
+
+        float texCoords[] = {
+            0.0f, 0.0f,
+            1.0f, 0.0f,
+            1.0f, 1.0f,
+            0.0f, 1.0f,
+        };
+
+        return new Shape(vertices, polygons, texCoords);
+    }
+}
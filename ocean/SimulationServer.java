@@ -0,0 +1,232 @@
+package ocean;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Description: Hosts many independent headless scenes, each a HostedScene with its own
+ *    world and input queue, and steps them all together one tick at a time.
+ *
+ * Scheduling: a scene's step is tiny, so scenes aren't given a thread each. Each tick splits
+ *    the scenes into batches of BATCH on a work-stealing fork-join pool, so a handful of
+ *    threads keep every core busy however many scenes there are, and scenes run in
+ *    whatever order the pool gets to them. Scenes are opened and closed from any thread
+ *    and join or leave at the start of the next tick.
+ *
+ * Waves: every world made by the server starts at the server's time and steps by the same
+ *    scale, so they all share one OceanWaves updated once per tick, rather than one
+ *    transform per scene
+ */
+public class SimulationServer {
+
+    /** Scenes a fork-join task steps without splitting further */
+    public static final int BATCH = 64;
+
+    /** Pool the scenes are stepped on, null to step them on the ticking thread */
+    private final ForkJoinPool pool;
+
+    /** Animation scale each tick advances every scene by */
+    private final float tickScale;
+
+    /** Entities in each scene's world */
+    private final int fishPerScene;
+    private final int boatsPerScene;
+
+    /** Waves every scene rides, and the time they are for */
+    private final OceanWaves waves;
+    private float time = 0f;
+
+    /** Ticks run so far */
+    private long tick = 0;
+
+    /** Scenes being stepped, the first sceneCount, touched by the ticking thread only */
+    private HostedScene scenes[] = new HostedScene[16];
+    private int sceneCount = 0;
+
+    /** Scenes to add and remove at the start of the next tick */
+    private final Queue<HostedScene> opening = new ConcurrentLinkedQueue<HostedScene>();
+    private final Queue<HostedScene> closing = new ConcurrentLinkedQueue<HostedScene>();
+
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    /** One fish and one boat per scene, stepped on the common fork-join pool */
+    public SimulationServer(float tickScale) {
+        this(tickScale, 1, 1, ForkJoinPool.commonPool());
+    }
+
+    public SimulationServer(float tickScale, int fishPerScene, int boatsPerScene, ForkJoinPool pool) {
+        if (fishPerScene < 0 || boatsPerScene < 0) {
+            throw new IllegalArgumentException("Entity counts must not be negative");
+        }
+
+        this.tickScale = tickScale;
+        this.fishPerScene = fishPerScene;
+        this.boatsPerScene = boatsPerScene;
+        this.pool = pool;
+
+        /** The waves are updated once a tick, before the scenes are split across the pool */
+        waves = OceanWorld.createWaves(null);
+        waves.update(time);
+    }
+
+    /** Open a scene, from any thread, stepped from the next tick on */
+    public HostedScene open() {
+        HostedScene scene = new HostedScene(nextId.getAndIncrement());
+        opening.add(scene);
+        return scene;
+    }
+
+    /** Close a scene, from any thread, it isn't stepped from the next tick on */
+    public void close(HostedScene scene) {
+        scene.closed = true;
+        closing.add(scene);
+    }
+
+    /** Step every open scene once, from one thread at a time */
+    public void tick() {
+        /** Closed first, so a scene opened and closed between ticks is never added */
+        for (HostedScene scene = closing.poll(); scene != null; scene = closing.poll()) {
+            int slot = scene.slot;
+            if (slot >= 0) {
+                HostedScene last = scenes[--sceneCount];
+                scenes[slot] = last;
+                last.slot = slot;
+                scenes[sceneCount] = null;
+                scene.slot = -1;
+            }
+        }
+        for (HostedScene scene = opening.poll(); scene != null; scene = opening.poll()) {
+            if (scene.closed) {
+                continue;
+            }
+            if (sceneCount == scenes.length) {
+                scenes = Arrays.copyOf(scenes, scenes.length * 2);
+            }
+
+            /** Made at the waves' current time, so every world reads the same waves */
+            scene.setWorld(new OceanWorld(fishPerScene, boatsPerScene, null, waves, time));
+            scene.slot = sceneCount;
+            scenes[sceneCount++] = scene;
+        }
+
+        time += tickScale;
+        waves.update(time);
+
+        if (pool == null || sceneCount <= BATCH) {
+            stepScenes(0, sceneCount);
+        } else {
+            pool.invoke(new StepTask(0, sceneCount));
+        }
+        tick++;
+    }
+
+    private void stepScenes(int first, int end) {
+        for (int i = first; i < end; i++) {
+            scenes[i].step(tickScale);
+        }
+    }
+
+    /** Scenes being stepped, not counting those opened or closed since the last tick */
+    public int getSceneCount() {
+        return sceneCount;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public OceanWaves getWaves() {
+        return waves;
+    }
+
+    /** Splits a range of scenes in half until it is no more than a batch */
+    @SuppressWarnings("serial")
+    private class StepTask extends RecursiveAction {
+        private final int first, end;
+
+        StepTask(int first, int end) {
+            this.first = first;
+            this.end = end;
+        }
+
+        protected void compute() {
+            if (end - first <= BATCH) {
+                stepScenes(first, end);
+            } else {
+                int middle = (first + end) >>> 1;
+                invokeAll(new StepTask(first, middle), new StepTask(middle, end));
+            }
+        }
+    }
+
+    /**
+     * Host scenes headless and tick them as fast as possible while a client thread sends
+     * each one random inputs through its queue, then print the worlds ticked per second
+     *
+     * Usage: java ocean.SimulationServer [scenes] [ticks] [threads] [fish per scene] [boats per scene]
+     */
+    public static void main(String args[]) throws InterruptedException {
+        int sceneCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int fishPerScene = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        int boatsPerScene = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        SimulationServer server = new SimulationServer(0.01f, fishPerScene, boatsPerScene, pool);
+        final HostedScene hosted[] = new HostedScene[sceneCount];
+        for (int i = 0; i < sceneCount; i++) {
+            hosted[i] = server.open();
+        }
+
+        /** Users pressing L, R and space in their own scenes, about one input per scene per hundred ticks */
+        final AtomicInteger inputsSent = new AtomicInteger();
+        Thread client = new Thread(new Runnable() {
+            public void run() {
+                Random random = new Random(1L);
+                SceneInput values[] = SceneInput.values();
+                while (!Thread.currentThread().isInterrupted()) {
+                    for (int i = 0; i < 100; i++) {
+                        hosted[random.nextInt(hosted.length)].submit(values[random.nextInt(values.length)]);
+                    }
+                    inputsSent.addAndGet(100);
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }, "Scene clients");
+        client.setDaemon(true);
+        client.start();
+
+        /** The first tick makes the worlds */
+        server.tick();
+        long start = System.nanoTime();
+        for (int i = 1; i < ticks; i++) {
+            server.tick();
+        }
+        long elapsed = System.nanoTime() - start;
+        client.interrupt();
+        client.join();
+
+        if (pool != null) {
+            pool.shutdown();
+        }
+
+        double worldTicks = (double) sceneCount * (ticks - 1);
+        System.out.printf("%d scenes of %d fish and %d boats, %d ticks on %d threads in %.1f ms%n",
+                sceneCount, fishPerScene, boatsPerScene, ticks, threads, elapsed / 1e6);
+        System.out.printf("%.0f worlds ticked per second, %.1f ns per world tick, %d inputs sent%n",
+                worldTicks / (elapsed / 1e9), elapsed / worldTicks, inputsSent.get());
+        System.out.printf("scene 0 boat x %.3f, fish x %.3f%n",
+                boatsPerScene > 0 ? hosted[0].getWorld().getBoatPosX()[0] : Float.NaN,
+                fishPerScene > 0 ? hosted[0].getWorld().getFishPosX()[0] : Float.NaN);
+    }
+}
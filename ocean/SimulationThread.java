@@ -0,0 +1,197 @@
+package ocean;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Description: Steps a world on its own thread at a fixed tick rate, independent of the
+ *    frame rate, and publishes a snapshot after every tick for the renderer to read
+ *    without locking. Inputs are queued by any thread and applied at the start of the
+ *    next tick. If the thread falls behind it catches up by running several ticks in a
+ *    row, up to a limit, rather than changing the step size, so the result of a run
+ *    depends only on the ticks and the inputs applied at each one
+ */
+public class SimulationThread implements Runnable {
+
+    /** Most ticks to run back to back before giving up on catching up */
+    private static final int MAX_CATCH_UP_TICKS = 10;
+
+    /** World stepped by this thread, must not be touched by any other thread while running */
+    private final OceanWorld world;
+
+    /** Animation scale each tick advances the world by */
+    private final float tickScale;
+
+    /** Time between ticks, zero to tick as fast as possible */
+    private final long tickNanos;
+
+    /** Inputs waiting for the next tick */
+    private final Queue<SceneInput> inputs = new ConcurrentLinkedQueue<SceneInput>();
+
+    /** Snapshots handed to the renderer */
+    private final SnapshotExchange exchange;
+
+    /** Ticks run so far */
+    private volatile long tick = 0;
+
+    /** Stop after this tick, or run until stopped if negative */
+    private volatile long lastTick = -1;
+
+    private volatile boolean running = false;
+
+    private Thread thread;
+
+    /** Times each tick's inputs and step as the UPDATE phase, null to not time them */
+    private FrameProfiler profiler;
+
+    /** Records every input applied, null to not record them */
+    private InputRecorder recorder;
+
+    /**
+     * @param ticksPerSecond fixed tick rate, or zero or less to tick as fast as possible
+     */
+    public SimulationThread(OceanWorld world, float tickScale, double ticksPerSecond) {
+        this.world = world;
+        this.tickScale = tickScale;
+        this.tickNanos = ticksPerSecond > 0 ? (long) (1e9 / ticksPerSecond) : 0;
+        this.exchange = new SnapshotExchange(world.getFishCount(), world.getBoatCount());
+
+        /** Publish the starting state so the renderer has something to draw straight away */
+        TickSnapshot initial = exchange.getBack();
+        initial.getPrevious().copyFrom(world, 0);
+        initial.getCurrent().copyFrom(world, 0);
+        exchange.publish();
+    }
+
+    public synchronized void start() {
+        if (running) {
+            throw new IllegalStateException("Simulation thread already started");
+        }
+
+        running = true;
+        thread = new Thread(this, "Ocean simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Run the given number of ticks and stop */
+    public void start(long ticks) {
+        lastTick = tick + ticks;
+        start();
+    }
+
+    /** Stop ticking and wait for the thread to finish */
+    public void stop() throws InterruptedException {
+        running = false;
+        join();
+    }
+
+    /** Wait for the thread to finish */
+    public void join() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = this.thread;
+        }
+        if (thread != null) {
+            thread.join();
+        }
+    }
+
+    /** Queue an input for the next tick, from any thread */
+    public void submit(SceneInput input) {
+        inputs.add(input);
+    }
+
+    /** The newest snapshot, render thread only */
+    public TickSnapshot acquireSnapshot() {
+        return exchange.acquire();
+    }
+
+    /** How far between the snapshot's previous and current tick the given time is, 0 to 1 */
+    public float getAlpha(TickSnapshot snapshot, long nowNanos) {
+        if (tickNanos == 0) {
+            return 1f;
+        }
+        float alpha = (float) (nowNanos - snapshot.getPublishedNanos()) / tickNanos;
+        return Math.max(0f, Math.min(1f, alpha));
+    }
+
+    public void run() {
+        long nextTickNanos = System.nanoTime();
+
+        while (running && (lastTick < 0 || tick < lastTick)) {
+            if (tickNanos > 0) {
+                long wait = nextTickNanos - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                    continue;
+                }
+            }
+
+            int ticksRun = 0;
+            do {
+                tick();
+                ticksRun++;
+                nextTickNanos += tickNanos;
+            } while (tickNanos > 0 && ticksRun < MAX_CATCH_UP_TICKS
+                    && nextTickNanos <= System.nanoTime() && (lastTick < 0 || tick < lastTick));
+
+            /** Too far behind to catch up, drop the missed time instead of spiralling */
+            if (tickNanos > 0 && nextTickNanos <= System.nanoTime()) {
+                nextTickNanos = System.nanoTime() + tickNanos;
+            }
+        }
+        running = false;
+    }
+
+    /** Time every tick as the profiler's UPDATE phase, set before starting the thread */
+    public void setProfiler(FrameProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /** Record every input as it is applied, set before starting the thread */
+    public void setRecorder(InputRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /** Apply queued inputs, step once and publish the before and after states */
+    private void tick() {
+        if (profiler != null) {
+            profiler.begin(FramePhase.UPDATE);
+        }
+
+        SceneInput input;
+        while ((input = inputs.poll()) != null) {
+            if (recorder != null) {
+                recorder.record(world.getTick(), input);
+            }
+            input.apply(world);
+        }
+
+        TickSnapshot snapshot = exchange.getBack();
+        snapshot.getPrevious().copyFrom(world, tick);
+
+        world.step(tickScale);
+        tick++;
+
+        if (profiler != null) {
+            profiler.end(FramePhase.UPDATE);
+        }
+
+        snapshot.getCurrent().copyFrom(world, tick);
+        exchange.publish();
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public long getTickNanos() {
+        return tickNanos;
+    }
+}
@@ -0,0 +1,87 @@
+package ocean;
+
+import java.util.Arrays;
+
+/**
+ * Description: Headless check of the threaded simulation. Runs a simulation thread
+ *    flat out while this thread reads every snapshot it can, and compares each one,
+ *    both its previous and current tick, with a world stepped the same number of ticks
+ *    on this thread. Any difference means a snapshot was torn or the threaded run is
+ *    not deterministic. Exits with status 1 on any mismatch
+ *
+ * Usage: java ocean.SnapshotCheck [fish count] [ticks]
+ */
+public class SnapshotCheck {
+
+    public static void main(String args[]) throws InterruptedException {
+        int fishCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long ticks = args.length > 1 ? Long.parseLong(args[1]) : 2000;
+        float tickScale = 0.01f;
+
+        OceanWorld simulated = new OceanWorld(fishCount, 1);
+        SimulationThread simulation = new SimulationThread(simulated, tickScale, 0);
+
+        /** Queued before starting, so it is applied at tick 0 on both sides */
+        simulation.submit(SceneInput.BOAT_LEFT);
+
+        OceanWorld reference = new OceanWorld(fishCount, 1);
+        SceneInput.BOAT_LEFT.apply(reference);
+        WorldSnapshot referencePrevious = new WorldSnapshot(fishCount, 1);
+        WorldSnapshot referenceCurrent = new WorldSnapshot(fishCount, 1);
+        referenceCurrent.copyFrom(reference, 0);
+        long referenceTick = 0;
+
+        long checked = 0;
+        long mismatches = 0;
+        long lastCheckedTick = -1;
+
+        simulation.start(ticks);
+        while (true) {
+            boolean finished = !simulation.isRunning();
+            TickSnapshot snapshot = simulation.acquireSnapshot();
+
+            if (snapshot.getTick() != lastCheckedTick && snapshot.getTick() > 0) {
+                /** Bring the reference up to the snapshot's tick, remembering the tick before */
+                while (referenceTick < snapshot.getTick()) {
+                    referencePrevious.copyFrom(reference, referenceTick);
+                    reference.step(tickScale);
+                    referenceTick++;
+                    referenceCurrent.copyFrom(reference, referenceTick);
+                }
+
+                if (!matches(snapshot.getPrevious(), referencePrevious)
+                        || !matches(snapshot.getCurrent(), referenceCurrent)) {
+                    mismatches++;
+                    System.err.println("Snapshot for tick " + snapshot.getTick() + " doesn't match the reference");
+                }
+                checked++;
+                lastCheckedTick = snapshot.getTick();
+            }
+
+            if (finished && snapshot.getTick() == ticks) {
+                break;
+            }
+        }
+        simulation.join();
+
+        System.out.printf("%d ticks of %d fish, %d snapshots checked, %d mismatched%n",
+                ticks, fishCount, checked, mismatches);
+        if (mismatches > 0 || lastCheckedTick != ticks) {
+            System.exit(1);
+        }
+    }
+
+    /** Bit for bit equality of every drawable value and the tick */
+    private static boolean matches(WorldSnapshot a, WorldSnapshot b) {
+        return a.getTick() == b.getTick()
+                && Float.floatToIntBits(a.getAnimationDelta()) == Float.floatToIntBits(b.getAnimationDelta())
+                && Arrays.equals(a.getFishPosX(), b.getFishPosX())
+                && Arrays.equals(a.getFishPosY(), b.getFishPosY())
+                && Arrays.equals(a.getFishPosZ(), b.getFishPosZ())
+                && Arrays.equals(a.getFishTilt(), b.getFishTilt())
+                && Arrays.equals(a.getBoatPosX(), b.getBoatPosX())
+                && Arrays.equals(a.getBoatPosY(), b.getBoatPosY())
+                && Arrays.equals(a.getBoatPitch(), b.getBoatPitch())
+                && Arrays.equals(a.getBoatRoll(), b.getBoatRoll());
+    }
+}
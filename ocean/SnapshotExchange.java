@@ -0,0 +1,56 @@
+package ocean;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Description: Hands tick snapshots from the simulation thread to the render thread
+ *    without locks, using three buffers: one the writer fills, one the reader holds and
+ *    one waiting in between. Publishing and acquiring each swap a buffer with the one in
+ *    between in a single atomic step, so neither side ever sees a buffer the other is
+ *    using and the reader always gets the newest complete snapshot.
+ *    One writer thread and one reader thread only
+ */
+public class SnapshotExchange {
+
+    /** Set on the middle index when it holds a snapshot the reader hasn't taken */
+    private static final int FRESH = 4;
+
+    /** Bits of the middle value that hold the buffer index */
+    private static final int INDEX_MASK = 3;
+
+    private final TickSnapshot buffers[] = new TickSnapshot[3];
+
+    /** Index of the buffer in between, with the FRESH flag */
+    private final AtomicInteger middle = new AtomicInteger(1);
+
+    /** Index of the buffer the writer fills, only touched by the writer */
+    private int back = 0;
+
+    /** Index of the buffer the reader holds, only touched by the reader */
+    private int front = 2;
+
+    public SnapshotExchange(int fishCount, int boatCount) {
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new TickSnapshot(fishCount, boatCount);
+        }
+    }
+
+    /** The snapshot to fill before the next publish, writer only */
+    public TickSnapshot getBack() {
+        return buffers[back];
+    }
+
+    /** Make the filled back snapshot the newest, writer only */
+    public void publish() {
+        buffers[back].setPublishedNanos(System.nanoTime());
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /** The newest published snapshot, held until the next acquire, reader only */
+    public TickSnapshot acquire() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX_MASK;
+        }
+        return buffers[front];
+    }
+}
@@ -0,0 +1,794 @@
+package ocean;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Description: Draws the scene on the CPU into an image, for thumbnails and regression
+ *    images on machines without a GPU. It follows the OpenGL state the scene uses:
+ *    the modelview stack, fixed-function lighting per vertex with up to two positional
+ *    lights, the current colour when lighting is off, modulated textures with
+ *    bilinear filtering and repeat wrapping, and a depth buffer.
+ *
+ * Frames: call beginFrame(), draw as usual, then finishFrame(). Draw calls only transform
+ *    and light their vertices and queue the triangles; finishFrame() sorts them into
+ *    TILE_SIZE square tiles and rasterises the tiles in parallel on a fork-join pool,
+ *    each tile drawing its triangles in the order they were submitted
+ *
+ * Camera: GraphicsLab's default, a 45 degree vertical field of view from the origin looking
+ *    down -Z, with the near and far planes below. Triangles with a vertex nearer than the
+ *    near plane are dropped instead of clipped, which the ocean scene never needs
+ */
+public class SoftwareRenderDevice implements RenderDevice {
+
+    /** Tile edge in pixels */
+    public static final int TILE_SIZE = 64;
+
+    /** Camera */
+    private static final float FIELD_OF_VIEW = 45f;
+    private static final float NEAR = 0.1f;
+    private static final float FAR = 100f;
+
+    /** Depth of the modelview stack, as in OpenGL */
+    private static final int STACK_DEPTH = 32;
+
+    /** Floats per queued vertex: screen x, y, depth, 1/w, r, g, b, u/w, v/w */
+    private static final int VERTEX_FLOATS = 9;
+    private static final int TRIANGLE_FLOATS = 3 * VERTEX_FLOATS;
+
+    private final int width;
+    private final int height;
+
+    /** Colour (0xRRGGBB) and depth of every pixel, rows from the top */
+    private final int pixels[];
+    private final float depth[];
+
+    /** Pool the tiles are rasterised on, null to rasterise on the calling thread */
+    private final ForkJoinPool pool;
+
+    /** Tiles across and down */
+    private final int tilesX, tilesY;
+
+    /** Triangle indices overlapping each tile, in submission order */
+    private final int tileTriangles[][];
+    private final int tileCounts[];
+
+    /** Queued triangles and the texture of each, zero for none */
+    private float triangles[] = new float[1024 * TRIANGLE_FLOATS];
+    private int triangleTextures[] = new int[1024];
+    private int triangleCount = 0;
+
+    /** Modelview stack, column-major matrices, the current one at stackTop */
+    private final float stack[] = new float[STACK_DEPTH * 16];
+    private int stackTop = 0;
+
+    /** Scratch for multMatrix */
+    private final float product[] = new float[16];
+
+    /** Projection matrix */
+    private final float projection[] = new float[16];
+
+    /** Scratch for the combined matrix and the normal matrix of a draw */
+    private final float modelViewProjection[] = new float[16];
+    private final float normalMatrix[] = new float[9];
+
+    /** Enabled capabilities */
+    private boolean lighting, texturing;
+    private final boolean lightEnabled[] = new boolean[2];
+
+    /** Light properties, four floats per light, positions in eye space */
+    private final float lightAmbient[] = new float[8];
+    private final float lightDiffuse[] = new float[8];
+    private final float lightSpecular[] = new float[8];
+    private final float lightPosition[] = new float[8];
+
+    /** Light model ambient */
+    private final float globalAmbient[] = {0.2f, 0.2f, 0.2f, 1f};
+
+    /** Front material, OpenGL defaults until set */
+    private final float materialAmbient[] = {0.2f, 0.2f, 0.2f, 1f};
+    private final float materialDiffuse[] = {0.8f, 0.8f, 0.8f, 1f};
+    private final float materialSpecular[] = {0f, 0f, 0f, 1f};
+    private float materialShininess = 0f;
+
+    /** Current colour */
+    private float colourRed = 1f, colourGreen = 1f, colourBlue = 1f;
+
+    /** Bound texture, zero for none */
+    private int boundTexture = 0;
+
+    /** Meshes as plain arrays, indexed by handle */
+    private final List<float[]> meshes = new ArrayList<float[]>();
+    private final List<Boolean> meshTextured = new ArrayList<Boolean>();
+
+    /** Texture first levels as 0xRRGGBB texels with their sizes, texture n at index n - 1 */
+    private final List<int[]> textures = new ArrayList<int[]>();
+    private final List<int[]> textureSizes = new ArrayList<int[]>();
+
+    /** Lit colours of the vertices of the mesh being drawn */
+    private float vertexColours[] = new float[0];
+
+    /** Particle vertices written for the next drawParticles(), grown when a frame needs more room */
+    private FloatBuffer particleVertices = Buffers.createFloatBuffer(1);
+
+    /** One particle triangle at a time in mesh layout, for queueTriangle() */
+    private final float particleTriangle[] = new float[3 * Mesh.VERTEX_FLOATS];
+
+    public SoftwareRenderDevice(int width, int height) {
+        this(width, height, ForkJoinPool.commonPool());
+    }
+
+    public SoftwareRenderDevice(int width, int height, ForkJoinPool pool) {
+        this.width = width;
+        this.height = height;
+        this.pool = pool;
+
+        pixels = new int[width * height];
+        depth = new float[width * height];
+
+        tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+        tileTriangles = new int[tilesX * tilesY][64];
+        tileCounts = new int[tilesX * tilesY];
+
+        /** OpenGL's default light 0 is white, the others black */
+        lightDiffuse[0] = lightDiffuse[1] = lightDiffuse[2] = lightDiffuse[3] = 1f;
+        lightSpecular[0] = lightSpecular[1] = lightSpecular[2] = lightSpecular[3] = 1f;
+        lightAmbient[3] = lightAmbient[7] = 1f;
+        lightDiffuse[7] = lightSpecular[7] = 1f;
+        lightPosition[2] = lightPosition[6] = 1f;
+
+        Matrix4.setIdentity(stack, 0);
+        Matrix4.perspective(projection, 0, FIELD_OF_VIEW, (float) width / height, NEAR, FAR);
+    }
+
+    /** Start a frame, forgetting the triangles queued for the last one */
+    public void beginFrame() {
+        triangleCount = 0;
+    }
+
+    /** Clear the colour and depth buffers and rasterise every triangle queued since beginFrame() */
+    public void finishFrame() {
+        binTriangles();
+
+        if (pool == null) {
+            rasteriseTiles(0, tileCounts.length);
+        } else {
+            pool.invoke(new TileTask(0, tileCounts.length));
+        }
+    }
+
+    public void pushMatrix() {
+        if (stackTop == STACK_DEPTH - 1) {
+            throw new IllegalStateException("Modelview stack overflow");
+        }
+        System.arraycopy(stack, stackTop * 16, stack, (stackTop + 1) * 16, 16);
+        stackTop++;
+    }
+
+    public void popMatrix() {
+        if (stackTop == 0) {
+            throw new IllegalStateException("Modelview stack underflow");
+        }
+        stackTop--;
+    }
+
+    public void translate(float x, float y, float z) {
+        Matrix4.translate(stack, stackTop * 16, x, y, z);
+    }
+
+    public void rotate(float angle, float x, float y, float z) {
+        Matrix4.rotate(stack, stackTop * 16, angle, x, y, z);
+    }
+
+    public void scale(float x, float y, float z) {
+        Matrix4.scale(stack, stackTop * 16, x, y, z);
+    }
+
+    public void multMatrix(float matrix[], int offset) {
+        Matrix4.multiply(stack, stackTop * 16, matrix, offset, product, 0);
+        System.arraycopy(product, 0, stack, stackTop * 16, 16);
+    }
+
+    public boolean getViewProjection(float matrix[], int offset) {
+        Matrix4.multiply(projection, 0, stack, stackTop * 16, matrix, offset);
+        return true;
+    }
+
+    public void enable(int cap) {
+        setEnabled(cap, true);
+    }
+
+    public void disable(int cap) {
+        setEnabled(cap, false);
+    }
+
+    private void setEnabled(int cap, boolean enabled) {
+        if (cap == LIGHTING) {
+            lighting = enabled;
+        } else if (cap == TEXTURE_2D) {
+            texturing = enabled;
+        } else if (cap == LIGHT0 || cap == LIGHT1) {
+            lightEnabled[cap - LIGHT0] = enabled;
+        }
+
+        /** Normals are always renormalised, as the scene asks with NORMALIZE */
+    }
+
+    public void lightModel(int pname, FloatBuffer params) {
+        if (pname == LIGHT_MODEL_AMBIENT) {
+            copy(params, globalAmbient, 0);
+        }
+    }
+
+    public void light(int light, int pname, FloatBuffer params) {
+        int offset = (light - LIGHT0) * 4;
+        if (offset < 0 || offset >= lightPosition.length) {
+            return;
+        }
+
+        if (pname == AMBIENT) {
+            copy(params, lightAmbient, offset);
+        } else if (pname == DIFFUSE) {
+            copy(params, lightDiffuse, offset);
+        } else if (pname == SPECULAR) {
+            copy(params, lightSpecular, offset);
+        } else if (pname == POSITION) {
+            /** Positions are stored in eye space, transformed by the current modelview */
+            float x = params.get(params.position()), y = params.get(params.position() + 1);
+            float z = params.get(params.position() + 2), w = params.get(params.position() + 3);
+            int o = stackTop * 16;
+            for (int row = 0; row < 4; row++) {
+                lightPosition[offset + row] = stack[o + row] * x + stack[o + 4 + row] * y
+                        + stack[o + 8 + row] * z + stack[o + 12 + row] * w;
+            }
+        }
+    }
+
+    /** Attenuation is not modelled, the scene's own two lights never set it */
+    public void lightf(int light, int pname, float param) {
+    }
+
+    public void materialf(int pname, float param) {
+        if (pname == SHININESS) {
+            materialShininess = param;
+        }
+    }
+
+    public void material(int pname, FloatBuffer params) {
+        if (pname == AMBIENT) {
+            copy(params, materialAmbient, 0);
+        } else if (pname == DIFFUSE) {
+            copy(params, materialDiffuse, 0);
+        } else if (pname == SPECULAR) {
+            copy(params, materialSpecular, 0);
+        }
+    }
+
+    private static void copy(FloatBuffer params, float target[], int offset) {
+        for (int i = 0; i < 4; i++) {
+            target[offset + i] = params.get(params.position() + i);
+        }
+    }
+
+    public void color(float red, float green, float blue, float alpha) {
+        colourRed = red;
+        colourGreen = green;
+        colourBlue = blue;
+    }
+
+    public void bindTexture(int texture) {
+        boundTexture = texture;
+    }
+
+    /** Only the first level is kept, the scene's textures are never minified much */
+    public int createTexture(TextureImage image) {
+        ByteBuffer source = image.getPixels();
+        int texels[] = new int[image.getWidth() * image.getHeight()];
+        for (int i = 0; i < texels.length; i++) {
+            int offset = i * TextureImage.PIXEL_BYTES;
+            texels[i] = (source.get(offset) & 0xFF) << 16 | (source.get(offset + 1) & 0xFF) << 8
+                    | (source.get(offset + 2) & 0xFF);
+        }
+
+        textures.add(texels);
+        textureSizes.add(new int[] {image.getWidth(), image.getHeight()});
+        boundTexture = textures.size();
+        return boundTexture;
+    }
+
+    public int createMesh(Mesh mesh) {
+        float data[] = new float[mesh.getVertexCount() * Mesh.VERTEX_FLOATS];
+        mesh.getData().get(data);
+        meshes.add(data);
+        meshTextured.add(mesh.isTextured());
+        return meshes.size() - 1;
+    }
+
+    /** Transform and light the mesh's vertices and queue its triangles */
+    public void drawMesh(int mesh) {
+        float data[] = meshes.get(mesh);
+        int vertexCount = data.length / Mesh.VERTEX_FLOATS;
+        int texture = texturing && meshTextured.get(mesh) ? boundTexture : 0;
+
+        Matrix4.multiply(projection, 0, stack, stackTop * 16, modelViewProjection, 0);
+        if (lighting) {
+            computeNormalMatrix();
+        }
+
+        if (vertexColours.length < vertexCount * 3) {
+            vertexColours = new float[vertexCount * 3];
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            if (lighting) {
+                lightVertex(data, v * Mesh.VERTEX_FLOATS, vertexColours, v * 3);
+            } else {
+                vertexColours[v * 3] = colourRed;
+                vertexColours[v * 3 + 1] = colourGreen;
+                vertexColours[v * 3 + 2] = colourBlue;
+            }
+        }
+
+        for (int first = 0; first + 2 < vertexCount; first += 3) {
+            queueTriangle(data, first, texture);
+        }
+    }
+
+    /** Inverse transpose of the modelview's upper 3x3, up to scale, which renormalising removes */
+    private void computeNormalMatrix() {
+        float m[] = stack;
+        int o = stackTop * 16;
+        float a = m[o], b = m[o + 4], c = m[o + 8];
+        float d = m[o + 1], e = m[o + 5], f = m[o + 9];
+        float g = m[o + 2], h = m[o + 6], i = m[o + 10];
+
+        /** Cofactors, row-major n[row * 3 + column] */
+        float n[] = normalMatrix;
+        n[0] = e * i - f * h; n[1] = f * g - d * i; n[2] = d * h - e * g;
+        n[3] = c * h - b * i; n[4] = a * i - c * g; n[5] = b * g - a * h;
+        n[6] = b * f - c * e; n[7] = c * d - a * f; n[8] = a * e - b * d;
+
+        /** The cofactor matrix is the inverse transpose times the determinant, keep its sign */
+        float determinant = a * n[0] + b * n[1] + c * n[2];
+        if (determinant < 0) {
+            for (int k = 0; k < 9; k++) {
+                n[k] = -n[k];
+            }
+        }
+    }
+
+    /** Fixed-function lighting of one vertex in eye space, with a viewer at infinity */
+    private void lightVertex(float data[], int vertex, float colours[], int out) {
+        float x = data[vertex], y = data[vertex + 1], z = data[vertex + 2];
+        float m[] = stack;
+        int o = stackTop * 16;
+        float ex = m[o] * x + m[o + 4] * y + m[o + 8] * z + m[o + 12];
+        float ey = m[o + 1] * x + m[o + 5] * y + m[o + 9] * z + m[o + 13];
+        float ez = m[o + 2] * x + m[o + 6] * y + m[o + 10] * z + m[o + 14];
+
+        float n[] = normalMatrix;
+        float nx = data[vertex + 3], ny = data[vertex + 4], nz = data[vertex + 5];
+        float normalX = n[0] * nx + n[1] * ny + n[2] * nz;
+        float normalY = n[3] * nx + n[4] * ny + n[5] * nz;
+        float normalZ = n[6] * nx + n[7] * ny + n[8] * nz;
+        float normalLength = (float) Math.sqrt(normalX * normalX + normalY * normalY + normalZ * normalZ);
+        if (normalLength > 0) {
+            normalX /= normalLength;
+            normalY /= normalLength;
+            normalZ /= normalLength;
+        }
+
+        float red = globalAmbient[0] * materialAmbient[0];
+        float green = globalAmbient[1] * materialAmbient[1];
+        float blue = globalAmbient[2] * materialAmbient[2];
+
+        for (int light = 0; light < 2; light++) {
+            if (!lightEnabled[light]) {
+                continue;
+            }
+            int l = light * 4;
+
+            red += lightAmbient[l] * materialAmbient[0];
+            green += lightAmbient[l + 1] * materialAmbient[1];
+            blue += lightAmbient[l + 2] * materialAmbient[2];
+
+            /** Direction to the light, positional unless w is zero */
+            float lx = lightPosition[l], ly = lightPosition[l + 1], lz = lightPosition[l + 2];
+            if (lightPosition[l + 3] != 0) {
+                lx -= ex;
+                ly -= ey;
+                lz -= ez;
+            }
+            float lightLength = (float) Math.sqrt(lx * lx + ly * ly + lz * lz);
+            if (lightLength == 0) {
+                continue;
+            }
+            lx /= lightLength;
+            ly /= lightLength;
+            lz /= lightLength;
+
+            float diffuse = normalX * lx + normalY * ly + normalZ * lz;
+            if (diffuse <= 0) {
+                continue;
+            }
+            red += diffuse * lightDiffuse[l] * materialDiffuse[0];
+            green += diffuse * lightDiffuse[l + 1] * materialDiffuse[1];
+            blue += diffuse * lightDiffuse[l + 2] * materialDiffuse[2];
+
+            /** Blinn-Phong half vector between the light and the viewer along +Z */
+            float hx = lx, hy = ly, hz = lz + 1f;
+            float halfLength = (float) Math.sqrt(hx * hx + hy * hy + hz * hz);
+            float specular = (normalX * hx + normalY * hy + normalZ * hz) / halfLength;
+            if (specular > 0) {
+                specular = (float) Math.pow(specular, materialShininess);
+                red += specular * lightSpecular[l] * materialSpecular[0];
+                green += specular * lightSpecular[l + 1] * materialSpecular[1];
+                blue += specular * lightSpecular[l + 2] * materialSpecular[2];
+            }
+        }
+
+        colours[out] = Math.min(1f, red);
+        colours[out + 1] = Math.min(1f, green);
+        colours[out + 2] = Math.min(1f, blue);
+    }
+
+    /** Project one triangle to the screen and queue it, dropping it if it is behind the near plane */
+    private void queueTriangle(float data[], int first, int texture) {
+        if (triangleCount == triangleTextures.length) {
+            float grownTriangles[] = new float[triangles.length * 2];
+            System.arraycopy(triangles, 0, grownTriangles, 0, triangles.length);
+            triangles = grownTriangles;
+            int grownTextures[] = new int[triangleTextures.length * 2];
+            System.arraycopy(triangleTextures, 0, grownTextures, 0, triangleTextures.length);
+            triangleTextures = grownTextures;
+        }
+
+        float mvp[] = modelViewProjection;
+        int out = triangleCount * TRIANGLE_FLOATS;
+        for (int k = 0; k < 3; k++, out += VERTEX_FLOATS) {
+            int vertex = (first + k) * Mesh.VERTEX_FLOATS;
+            float x = data[vertex], y = data[vertex + 1], z = data[vertex + 2];
+
+            float clipX = mvp[0] * x + mvp[4] * y + mvp[8] * z + mvp[12];
+            float clipY = mvp[1] * x + mvp[5] * y + mvp[9] * z + mvp[13];
+            float clipZ = mvp[2] * x + mvp[6] * y + mvp[10] * z + mvp[14];
+            float clipW = mvp[3] * x + mvp[7] * y + mvp[11] * z + mvp[15];
+            if (clipW < NEAR) {
+                return;
+            }
+
+            float inverseW = 1f / clipW;
+            triangles[out] = (clipX * inverseW * 0.5f + 0.5f) * width;
+            triangles[out + 1] = (0.5f - clipY * inverseW * 0.5f) * height;
+            triangles[out + 2] = clipZ * inverseW * 0.5f + 0.5f;
+            triangles[out + 3] = inverseW;
+            triangles[out + 4] = vertexColours[(first + k) * 3];
+            triangles[out + 5] = vertexColours[(first + k) * 3 + 1];
+            triangles[out + 6] = vertexColours[(first + k) * 3 + 2];
+            triangles[out + 7] = data[vertex + 6] * inverseW;
+            triangles[out + 8] = data[vertex + 7] * inverseW;
+        }
+
+        triangleTextures[triangleCount++] = texture;
+    }
+
+    /** List each queued triangle in every tile its bounding box touches */
+    private void binTriangles() {
+        for (int tile = 0; tile < tileCounts.length; tile++) {
+            tileCounts[tile] = 0;
+        }
+
+        for (int t = 0; t < triangleCount; t++) {
+            int o = t * TRIANGLE_FLOATS;
+            float minX = Math.min(triangles[o], Math.min(triangles[o + VERTEX_FLOATS], triangles[o + 2 * VERTEX_FLOATS]));
+            float maxX = Math.max(triangles[o], Math.max(triangles[o + VERTEX_FLOATS], triangles[o + 2 * VERTEX_FLOATS]));
+            float minY = Math.min(triangles[o + 1], Math.min(triangles[o + 1 + VERTEX_FLOATS], triangles[o + 1 + 2 * VERTEX_FLOATS]));
+            float maxY = Math.max(triangles[o + 1], Math.max(triangles[o + 1 + VERTEX_FLOATS], triangles[o + 1 + 2 * VERTEX_FLOATS]));
+            if (maxX < 0 || maxY < 0 || minX >= width || minY >= height) {
+                continue;
+            }
+
+            int firstTileX = Math.max(0, (int) minX / TILE_SIZE);
+            int lastTileX = Math.min(tilesX - 1, (int) maxX / TILE_SIZE);
+            int firstTileY = Math.max(0, (int) minY / TILE_SIZE);
+            int lastTileY = Math.min(tilesY - 1, (int) maxY / TILE_SIZE);
+
+            for (int tileY = firstTileY; tileY <= lastTileY; tileY++) {
+                for (int tileX = firstTileX; tileX <= lastTileX; tileX++) {
+                    int tile = tileY * tilesX + tileX;
+                    if (tileCounts[tile] == tileTriangles[tile].length) {
+                        int grown[] = new int[tileCounts[tile] * 2];
+                        System.arraycopy(tileTriangles[tile], 0, grown, 0, tileCounts[tile]);
+                        tileTriangles[tile] = grown;
+                    }
+                    tileTriangles[tile][tileCounts[tile]++] = t;
+                }
+            }
+        }
+    }
+
+    private void rasteriseTiles(int first, int end) {
+        for (int tile = first; tile < end; tile++) {
+            int tileX = tile % tilesX * TILE_SIZE;
+            int tileY = tile / tilesX * TILE_SIZE;
+            int tileEndX = Math.min(width, tileX + TILE_SIZE);
+            int tileEndY = Math.min(height, tileY + TILE_SIZE);
+
+            /** Clear the tile, here rather than in beginFrame() so it happens in parallel */
+            for (int y = tileY; y < tileEndY; y++) {
+                for (int pixel = y * width + tileX; pixel < y * width + tileEndX; pixel++) {
+                    pixels[pixel] = 0;
+                    depth[pixel] = 1f;
+                }
+            }
+
+            int list[] = tileTriangles[tile];
+            for (int k = 0; k < tileCounts[tile]; k++) {
+                rasterise(list[k], tileX, tileY, tileEndX, tileEndY);
+            }
+        }
+    }
+
+    /** Draw the part of one triangle inside a tile, with depth testing and perspective correct colours and texture coordinates */
+    private void rasterise(int triangle, int tileX, int tileY, int tileEndX, int tileEndY) {
+        float t[] = triangles;
+        int a = triangle * TRIANGLE_FLOATS, b = a + VERTEX_FLOATS, c = b + VERTEX_FLOATS;
+        float ax = t[a], ay = t[a + 1], bx = t[b], by = t[b + 1], cx = t[c], cy = t[c + 1];
+
+        float area = (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+        if (area == 0) {
+            return;
+        }
+        float inverseArea = 1f / area;
+
+        int minX = Math.max(tileX, (int) Math.floor(Math.min(ax, Math.min(bx, cx))));
+        int maxX = Math.min(tileEndX - 1, (int) Math.ceil(Math.max(ax, Math.max(bx, cx))));
+        int minY = Math.max(tileY, (int) Math.floor(Math.min(ay, Math.min(by, cy))));
+        int maxY = Math.min(tileEndY - 1, (int) Math.ceil(Math.max(ay, Math.max(by, cy))));
+
+        int texture[] = null;
+        int textureWidth = 0, textureHeight = 0;
+        if (triangleTextures[triangle] > 0) {
+            texture = textures.get(triangleTextures[triangle] - 1);
+            textureWidth = textureSizes.get(triangleTextures[triangle] - 1)[0];
+            textureHeight = textureSizes.get(triangleTextures[triangle] - 1)[1];
+        }
+
+        /** Change in the first two barycentric weights from one pixel to the next across */
+        float stepAX = (by - cy) * inverseArea;
+        float stepBX = (cy - ay) * inverseArea;
+
+        for (int y = minY; y <= maxY; y++) {
+            float py = y + 0.5f, px = minX + 0.5f;
+
+            /** Barycentric weights at the row's first pixel, all positive inside whichever way the triangle winds */
+            float wa = ((bx - px) * (cy - py) - (by - py) * (cx - px)) * inverseArea;
+            float wb = ((cx - px) * (ay - py) - (cy - py) * (ax - px)) * inverseArea;
+
+            /** Narrow the row to the span inside all three edges, the test below catches rounding */
+            float stepCX = -stepAX - stepBX;
+            float first = 0, last = maxX - minX;
+            first = Math.max(first, spanStart(wa, stepAX));
+            first = Math.max(first, spanStart(wb, stepBX));
+            first = Math.max(first, spanStart(1f - wa - wb, stepCX));
+            last = Math.min(last, spanEnd(wa, stepAX));
+            last = Math.min(last, spanEnd(wb, stepBX));
+            last = Math.min(last, spanEnd(1f - wa - wb, stepCX));
+            if (first > last) {
+                continue;
+            }
+
+            int startX = minX + (int) first, endX = minX + (int) Math.ceil(last);
+            wa += stepAX * (startX - minX);
+            wb += stepBX * (startX - minX);
+
+            for (int x = startX; x <= endX && x <= maxX; x++, wa += stepAX, wb += stepBX) {
+                float wc = 1f - wa - wb;
+                if (wa < 0 || wb < 0 || wc < 0) {
+                    continue;
+                }
+
+                int pixel = y * width + x;
+                float z = wa * t[a + 2] + wb * t[b + 2] + wc * t[c + 2];
+                if (z >= depth[pixel]) {
+                    continue;
+                }
+                depth[pixel] = z;
+
+                float w = 1f / (wa * t[a + 3] + wb * t[b + 3] + wc * t[c + 3]);
+                float ia = wa * t[a + 3] * w, ib = wb * t[b + 3] * w, ic = wc * t[c + 3] * w;
+
+                float red = ia * t[a + 4] + ib * t[b + 4] + ic * t[c + 4];
+                float green = ia * t[a + 5] + ib * t[b + 5] + ic * t[c + 5];
+                float blue = ia * t[a + 6] + ib * t[b + 6] + ic * t[c + 6];
+
+                if (texture != null) {
+                    float u = (wa * t[a + 7] + wb * t[b + 7] + wc * t[c + 7]) * w;
+                    float v = (wa * t[a + 8] + wb * t[b + 8] + wc * t[c + 8]) * w;
+                    int texel = sample(texture, textureWidth, textureHeight, u, v);
+                    red *= (texel >> 16 & 0xFF) / 255f;
+                    green *= (texel >> 8 & 0xFF) / 255f;
+                    blue *= (texel & 0xFF) / 255f;
+                }
+
+                pixels[pixel] = toByte(red) << 16 | toByte(green) << 8 | toByte(blue);
+            }
+        }
+    }
+
+    /** Pixels from the row start before an edge weight starting at weight and changing by step turns positive */
+    private static float spanStart(float weight, float step) {
+        if (step > 0 && weight < 0) {
+            return (float) Math.floor(-weight / step);
+        }
+        return step <= 0 && weight < 0 ? Float.POSITIVE_INFINITY : 0;
+    }
+
+    /** Pixels from the row start until an edge weight starting at weight and changing by step turns negative */
+    private static float spanEnd(float weight, float step) {
+        if (step < 0) {
+            return weight < 0 ? Float.NEGATIVE_INFINITY : weight / -step;
+        }
+        return Float.POSITIVE_INFINITY;
+    }
+
+    private static int toByte(float channel) {
+        return channel >= 1f ? 255 : channel <= 0f ? 0 : (int) (channel * 255f + 0.5f);
+    }
+
+    /** Bilinear sample of a texture with repeat wrapping, as 0xRRGGBB */
+    private static int sample(int texels[], int textureWidth, int textureHeight, float u, float v) {
+        float sx = u * textureWidth - 0.5f, sy = v * textureHeight - 0.5f;
+        int x0 = (int) sx, y0 = (int) sy;
+        if (sx < x0) {
+            x0--;
+        }
+        if (sy < y0) {
+            y0--;
+        }
+        float fx = sx - x0, fy = sy - y0;
+
+        int x1 = wrap(x0 + 1, textureWidth), y1 = wrap(y0 + 1, textureHeight);
+        x0 = wrap(x0, textureWidth);
+        y0 = wrap(y0, textureHeight);
+
+        int t00 = texels[y0 * textureWidth + x0], t10 = texels[y0 * textureWidth + x1];
+        int t01 = texels[y1 * textureWidth + x0], t11 = texels[y1 * textureWidth + x1];
+        int result = 0;
+        for (int shift = 16; shift >= 0; shift -= 8) {
+            float c00 = t00 >> shift & 0xFF, c10 = t10 >> shift & 0xFF;
+            float c01 = t01 >> shift & 0xFF, c11 = t11 >> shift & 0xFF;
+            float top = c00 + (c10 - c00) * fx;
+            float bottom = c01 + (c11 - c01) * fx;
+            result = result << 8 | (int) (top + (bottom - top) * fy + 0.5f);
+        }
+        return result;
+    }
+
+    /** Repeat wrapping of a texel coordinate, a mask for the usual power of two sizes */
+    private static int wrap(int coordinate, int size) {
+        if ((size & (size - 1)) == 0) {
+            return coordinate & (size - 1);
+        }
+        coordinate %= size;
+        return coordinate < 0 ? coordinate + size : coordinate;
+    }
+
+    /** Splits a range of tiles in half until it is small enough to rasterise directly */
+    @SuppressWarnings("serial")
+    private class TileTask extends RecursiveAction {
+        private final int first, end;
+
+        TileTask(int first, int end) {
+            this.first = first;
+            this.end = end;
+        }
+
+        protected void compute() {
+            if (end - first <= 2) {
+                rasteriseTiles(first, end);
+            } else {
+                int middle = (first + end) >>> 1;
+                invokeAll(new TileTask(first, middle), new TileTask(middle, end));
+            }
+        }
+    }
+
+    public FloatBuffer mapParticleBuffer(int floats) {
+        if (floats > particleVertices.capacity()) {
+            particleVertices = Buffers.createFloatBuffer(Math.max(floats, particleVertices.capacity() * 2));
+        }
+        particleVertices.clear();
+        return particleVertices;
+    }
+
+    /** Queue the particle triangles unlit, untextured and in the current colour */
+    public void drawParticles(int vertexCount) {
+        Matrix4.multiply(projection, 0, stack, stackTop * 16, modelViewProjection, 0);
+
+        if (vertexColours.length < 9) {
+            vertexColours = new float[9];
+        }
+        for (int k = 0; k < 3; k++) {
+            vertexColours[k * 3] = colourRed;
+            vertexColours[k * 3 + 1] = colourGreen;
+            vertexColours[k * 3 + 2] = colourBlue;
+        }
+
+        FloatBuffer vertices = particleVertices;
+        for (int first = 0; first + 2 < vertexCount; first += 3) {
+            for (int k = 0; k < 3; k++) {
+                int in = (first + k) * 3;
+                particleTriangle[k * Mesh.VERTEX_FLOATS] = vertices.get(in);
+                particleTriangle[k * Mesh.VERTEX_FLOATS + 1] = vertices.get(in + 1);
+                particleTriangle[k * Mesh.VERTEX_FLOATS + 2] = vertices.get(in + 2);
+            }
+            queueTriangle(particleTriangle, 0, 0);
+        }
+    }
+
+    /** Fish are drawn part by part */
+    public boolean createFishInstancing(int bodyMesh, int tailMesh, int eyeMesh, int mergedMesh, int impostorMesh) {
+        return false;
+    }
+
+    public void updateFishInstances(FishInstanceBuffer fish) {
+        throw new UnsupportedOperationException("Instanced fish are not supported");
+    }
+
+    public void drawFishInstanced(FishPart part) {
+        throw new UnsupportedOperationException("Instanced fish are not supported");
+    }
+
+    public void setFishGlowLights(GlowLights lights) {
+        throw new UnsupportedOperationException("Instanced fish are not supported");
+    }
+
+    public void dispose() {
+        meshes.clear();
+        meshTextured.clear();
+        textures.clear();
+        textureSizes.clear();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /** The last frame as 0xRRGGBB pixels, rows from the top, a live array that must not be modified */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    /** Number of triangles queued this frame */
+    public int getTriangleCount() {
+        return triangleCount;
+    }
+
+    /** Copy the last frame into an image */
+    public BufferedImage toImage() {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, width, height, pixels, 0, width);
+        return image;
+    }
+
+    /** Write the last frame to an image file, in a format ImageIO knows such as "png" */
+    public void writeImage(File file, String format) throws IOException {
+        if (!ImageIO.write(toImage(), format, file)) {
+            throw new IOException("No image writer for " + format);
+        }
+    }
+}
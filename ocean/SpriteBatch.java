@@ -0,0 +1,64 @@
+package ocean;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Description: Gathers many textured meshes sharing one texture, usually remapped into a
+ *    TextureAtlas, into a single vertex array in world space, so they are drawn with one
+ *    bind and one draw call rather than one of each per mesh. Each mesh is added with its
+ *    world matrix, which must be a rotation, uniform scale and translation for the normals
+ *    to stay true (the device renormalises them). What is gathered stays until begin(),
+ *    and is made into a Mesh with toMesh() to be created on the device like any other
+ */
+public class SpriteBatch {
+
+    /** Interleaved vertices gathered, in the Mesh layout */
+    private float vertices[] = new float[Mesh.VERTEX_FLOATS * 6 * 64];
+    private int vertexCount = 0;
+
+    /** Empty the batch */
+    public void begin() {
+        vertexCount = 0;
+    }
+
+    /** Add a mesh transformed by the matrix at offset */
+    public void add(Mesh mesh, float matrix[], int offset) {
+        int count = mesh.getVertexCount();
+        int needed = (vertexCount + count) * Mesh.VERTEX_FLOATS;
+        if (needed > vertices.length) {
+            vertices = Arrays.copyOf(vertices, Math.max(needed, vertices.length * 2));
+        }
+
+        float m[] = matrix;
+        int o = offset;
+        int out = vertexCount * Mesh.VERTEX_FLOATS;
+        for (int vertex = 0; vertex < count; vertex++) {
+            float x = mesh.getX(vertex), y = mesh.getY(vertex), z = mesh.getZ(vertex);
+            vertices[out++] = m[o] * x + m[o + 4] * y + m[o + 8] * z + m[o + 12];
+            vertices[out++] = m[o + 1] * x + m[o + 5] * y + m[o + 9] * z + m[o + 13];
+            vertices[out++] = m[o + 2] * x + m[o + 6] * y + m[o + 10] * z + m[o + 14];
+
+            float nx = mesh.getNormalX(vertex), ny = mesh.getNormalY(vertex), nz = mesh.getNormalZ(vertex);
+            vertices[out++] = m[o] * nx + m[o + 4] * ny + m[o + 8] * nz;
+            vertices[out++] = m[o + 1] * nx + m[o + 5] * ny + m[o + 9] * nz;
+            vertices[out++] = m[o + 2] * nx + m[o + 6] * ny + m[o + 10] * nz;
+
+            vertices[out++] = mesh.getU(vertex);
+            vertices[out++] = mesh.getV(vertex);
+        }
+        vertexCount += count;
+    }
+
+    /** Everything gathered as a textured mesh in world space, copied into a new direct buffer */
+    public Mesh toMesh() {
+        FloatBuffer data = Mesh.allocate(vertexCount);
+        data.put(vertices, 0, vertexCount * Mesh.VERTEX_FLOATS);
+        data.flip();
+        return new Mesh(data, true);
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+}
@@ -0,0 +1,66 @@
+package ocean;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Description: Headless time to first frame, from nothing loaded to the first frame of the
+ *    scene recorded, started the way OceanAnimation.initScene() starts it: either building
+ *    the meshes and loading the sky texture through the texture cache, or mapping a bundle
+ *    baked by BakeBundle. The sky pixels are read a page at a time, as an upload would read
+ *    them. Run each way in a fresh JVM to compare cold starts, any further runs in the same
+ *    JVM show the warm cost
+ *
+ * Usage: java ocean.StartupTiming [build|bundle] [bundle file] [runs]
+ *    Run from the project directory so textures/ocean.bmp and the cache are found
+ */
+public class StartupTiming {
+
+    public static void main(String args[]) throws IOException {
+        boolean fromBundle = args.length > 0 && args[0].equals("bundle");
+        Path bundleFile = Paths.get(args.length > 1 ? args[1] : "cache/scene.obnd");
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+
+        for (int run = 0; run < runs; run++) {
+            long start = System.nanoTime();
+            RecordingRenderDevice device = new RecordingRenderDevice(false);
+
+            SceneBundle bundle = null;
+            TextureImage sky;
+            if (fromBundle) {
+                bundle = SceneBundle.open(bundleFile);
+                if (bundle == null) {
+                    System.err.println("No bundle of version " + SceneBundle.VERSION + " at " + bundleFile
+                            + ", run ocean.BakeBundle first");
+                    System.exit(1);
+                }
+                sky = bundle.getTexture(SceneAssets.SKY_TEXTURE);
+            } else {
+                sky = new CachedTextureLoader(Paths.get("cache", "textures")).load(Paths.get("textures", "ocean.bmp"));
+            }
+            int skyTexture = device.createTexture(sky);
+            touchPages(sky.getPixels());
+
+            OceanSceneRenderer renderer = new OceanSceneRenderer(device);
+            renderer.init(bundle);
+            OceanWorld world = new OceanWorld(1, 1);
+            world.step(0.01f);
+            renderer.render(world, skyTexture);
+            long elapsed = System.nanoTime() - start;
+
+            System.out.printf("%s, run %d: first frame in %.2f ms, %d draw calls%n",
+                    fromBundle ? "bundle" : "build", run + 1, elapsed / 1e6, device.getDrawCalls());
+        }
+    }
+
+    /** Read one byte a page, so mapped pixels are brought in, the sum is only to keep the reads */
+    private static int touchPages(ByteBuffer pixels) {
+        int sum = 0;
+        for (int i = 0; i < pixels.capacity(); i += 4096) {
+            sum += pixels.get(i);
+        }
+        return sum;
+    }
+}
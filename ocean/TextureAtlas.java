@@ -0,0 +1,274 @@
+package ocean;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Description: Packs many small textures into one, so everything textured from them can
+ *    be drawn with a single bind. Textures are placed tallest first with a skyline
+ *    packer: the top edge of what has been placed is kept as a list of horizontal segments
+ *    and each texture goes where its top would be lowest, leftmost on a tie. The atlas
+ *    is the smallest power-of-two size everything fits, trying each area from the total
+ *    area of the textures up, the squarest shape first.
+ *
+ * Bleeding: each texture is surrounded by a gutter of GUTTER pixels repeating its edge, so
+ *    filtering at its border and the first mipmap levels don't pick up its neighbours.
+ *    Meshes are moved into the atlas with remap(), which only works for texture
+ *    coordinates that don't wrap, within 0 to 1
+ */
+public class TextureAtlas {
+
+    /** Pixels of repeated edge around each texture */
+    public static final int GUTTER = 2;
+
+    /** Largest width or height the atlas may grow to */
+    private final int maxSize;
+
+    /** Textures added, in order, by name */
+    private final List<String> names = new ArrayList<String>();
+    private final List<TextureImage> images = new ArrayList<TextureImage>();
+    private final Map<String, Region> regions = new HashMap<String, Region>();
+
+    /** The packed atlas, null until packed */
+    private TextureImage atlas;
+
+    /** Pixels of the textures themselves, not counting gutters */
+    private long textureArea = 0;
+
+    public TextureAtlas(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Atlas size must be positive");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /** Add a texture by name, only level 0 of it is used, call before pack() */
+    public void add(String name, TextureImage image) {
+        if (atlas != null) {
+            throw new IllegalStateException("Atlas already packed");
+        }
+        if (names.contains(name)) {
+            throw new IllegalArgumentException("Texture " + name + " already added");
+        }
+        if (image.getWidth() + 2 * GUTTER > maxSize || image.getHeight() + 2 * GUTTER > maxSize) {
+            throw new IllegalArgumentException("Texture " + name + " of " + image.getWidth() + "x"
+                    + image.getHeight() + " doesn't fit an atlas of " + maxSize);
+        }
+        names.add(name);
+        images.add(image);
+        textureArea += (long) image.getWidth() * image.getHeight();
+    }
+
+    /** Place every texture added, copy them in with their gutters and build the mipmaps */
+    public void pack() {
+        if (atlas != null) {
+            throw new IllegalStateException("Atlas already packed");
+        }
+
+        /** Tallest first, then widest, which leaves the flattest skyline */
+        Integer order[] = new Integer[images.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                TextureImage first = images.get(a), second = images.get(b);
+                return first.getHeight() != second.getHeight() ? second.getHeight() - first.getHeight()
+                        : second.getWidth() - first.getWidth();
+            }
+        });
+
+        /** No smaller than the widest and tallest texture, nor than their total area */
+        long paddedArea = 0;
+        int minWidth = 1, minHeight = 1;
+        for (TextureImage image : images) {
+            int width = image.getWidth() + 2 * GUTTER, height = image.getHeight() + 2 * GUTTER;
+            paddedArea += (long) width * height;
+            minWidth = Math.max(minWidth, width);
+            minHeight = Math.max(minHeight, height);
+        }
+        minWidth = Integer.highestOneBit(minWidth - 1) << 1;
+        minHeight = Integer.highestOneBit(minHeight - 1) << 1;
+        long area = Math.max((long) minWidth * minHeight, Long.highestOneBit(Math.max(1, paddedArea - 1)) << 1);
+
+        /** Each area in turn, squarest shape first */
+        int placed[] = new int[images.size() * 2];
+        int width = 0, height = 0;
+        search:
+        for (; area <= (long) maxSize * maxSize; area *= 2) {
+            int side = Integer.highestOneBit((int) Math.sqrt((double) area));
+            for (int candidate = side; candidate >= 1; candidate /= 2) {
+                for (int flip = 0; flip < 2; flip++) {
+                    int w = (int) (flip == 0 ? area / candidate : candidate);
+                    int h = (int) (area / w);
+                    if (w >= minWidth && h >= minHeight && w <= maxSize && h <= maxSize
+                            && place(order, w, h, placed)) {
+                        width = w;
+                        height = h;
+                        break search;
+                    }
+                }
+            }
+        }
+        if (width == 0) {
+            throw new IllegalStateException(images.size() + " textures don't fit an atlas of " + maxSize);
+        }
+
+        atlas = TextureImage.allocate(width, height);
+        for (int i = 0; i < images.size(); i++) {
+            TextureImage image = images.get(i);
+            int x = placed[i * 2] + GUTTER, y = placed[i * 2 + 1] + GUTTER;
+            copy(image, atlas, x, y);
+            regions.put(names.get(i), new Region(x, y, image.getWidth(), image.getHeight(), width, height));
+        }
+        MipmapBuilder.build(atlas);
+    }
+
+    /**
+     * Place the padded textures in the given order on a skyline of the given size, storing
+     * each one's corner by its index in placed. False if they don't all fit
+     */
+    private boolean place(Integer order[], int width, int height, int placed[]) {
+        /** Skyline segments left to right, each a start x and the height of the top there */
+        int segmentX[] = new int[images.size() + 2];
+        int segmentY[] = new int[images.size() + 2];
+        int segments = 1;
+        segmentX[0] = 0;
+        segmentY[0] = 0;
+
+        for (int index : order) {
+            int w = images.get(index).getWidth() + 2 * GUTTER;
+            int h = images.get(index).getHeight() + 2 * GUTTER;
+
+            /** Lowest top over every segment the texture could start at */
+            int best = -1, bestY = Integer.MAX_VALUE;
+            for (int s = 0; s < segments; s++) {
+                int x = segmentX[s];
+                if (x + w > width) {
+                    break;
+                }
+                int y = 0;
+                for (int t = s; t < segments && segmentX[t] < x + w; t++) {
+                    y = Math.max(y, segmentY[t]);
+                }
+                if (y + h <= height && y < bestY) {
+                    best = s;
+                    bestY = y;
+                }
+            }
+            if (best < 0) {
+                return false;
+            }
+
+            int x = segmentX[best];
+            placed[index * 2] = x;
+            placed[index * 2 + 1] = bestY;
+
+            /** Segments under the texture are replaced by its top, the last one cut at its right edge */
+            int end = best;
+            while (end < segments && segmentX[end] < x + w) {
+                end++;
+            }
+            int rightY = segmentY[end - 1];
+            boolean cut = (end < segments ? segmentX[end] : width) > x + w;
+            int added = cut ? 2 : 1;
+            System.arraycopy(segmentX, end, segmentX, best + added, segments - end);
+            System.arraycopy(segmentY, end, segmentY, best + added, segments - end);
+            segments += best + added - end;
+            segmentX[best] = x;
+            segmentY[best] = bestY + h;
+            if (cut) {
+                segmentX[best + 1] = x + w;
+                segmentY[best + 1] = rightY;
+            }
+        }
+        return true;
+    }
+
+    /** Copy level 0 of an image into the atlas at (x, y), with its edge repeated into the gutter */
+    private static void copy(TextureImage image, TextureImage atlas, int x, int y) {
+        ByteBuffer source = image.getPixels();
+        ByteBuffer target = atlas.getPixels();
+        int width = image.getWidth(), height = image.getHeight();
+        for (int row = -GUTTER; row < height + GUTTER; row++) {
+            int sourceRow = Math.min(Math.max(row, 0), height - 1) * width;
+            int targetRow = (y + row) * atlas.getWidth();
+            for (int column = -GUTTER; column < width + GUTTER; column++) {
+                int from = (sourceRow + Math.min(Math.max(column, 0), width - 1)) * TextureImage.PIXEL_BYTES;
+                int to = (targetRow + x + column) * TextureImage.PIXEL_BYTES;
+                target.putInt(to, source.getInt(from));
+            }
+        }
+    }
+
+    /** Where a texture was packed, null if it wasn't added */
+    public Region getRegion(String name) {
+        if (atlas == null) {
+            throw new IllegalStateException("Atlas not packed");
+        }
+        return regions.get(name);
+    }
+
+    /** The packed atlas with its mipmaps, null before pack() */
+    public TextureImage getImage() {
+        return atlas;
+    }
+
+    public int getTextureCount() {
+        return images.size();
+    }
+
+    /** Share of the atlas covered by the textures themselves, 0 to 1 */
+    public float getEfficiency() {
+        if (atlas == null) {
+            throw new IllegalStateException("Atlas not packed");
+        }
+        return (float) ((double) textureArea / ((long) atlas.getWidth() * atlas.getHeight()));
+    }
+
+    /**
+     * A copy of a mesh with its texture coordinates moved into a region of the atlas.
+     * The mesh's coordinates must lie within 0 to 1
+     */
+    public static Mesh remap(Mesh mesh, Region region) {
+        int vertexCount = mesh.getVertexCount();
+        FloatBuffer data = Mesh.allocate(vertexCount);
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            float u = mesh.getU(vertex), v = mesh.getV(vertex);
+            if (u < 0f || u > 1f || v < 0f || v > 1f) {
+                throw new IllegalArgumentException("Texture coordinate (" + u + ", " + v
+                        + ") wraps, it can't be moved into an atlas");
+            }
+            for (int component = 0; component < 6; component++) {
+                data.put(mesh.get(vertex, component));
+            }
+            data.put(region.u0 + u * (region.u1 - region.u0));
+            data.put(region.v0 + v * (region.v1 - region.v0));
+        }
+        data.flip();
+        return new Mesh(data, true, mesh.getBounds());
+    }
+
+    /** A texture's place in the atlas, in pixels and in texture coordinates */
+    public static final class Region {
+        public final int x, y, width, height;
+        public final float u0, v0, u1, v1;
+
+        Region(int x, int y, int width, int height, int atlasWidth, int atlasHeight) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            u0 = (float) x / atlasWidth;
+            v0 = (float) y / atlasHeight;
+            u1 = (float) (x + width) / atlasWidth;
+            v1 = (float) (y + height) / atlasHeight;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package ocean;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Description: Reads and writes decoded textures with their mipmaps, so a texture is only
+ *    decoded the first time its source is seen. A cache file is a 64 byte header followed
+ *    by the TextureImage pixels exactly as uploaded, and is read by memory-mapping it
+ *
+ * Header (little endian): magic "OTEX", format version, width, height, length of the
+ *    source hash and the hash itself, then zero padding up to 64 bytes
+ */
+public final class TextureCache {
+
+    /** "OTEX" read as a little endian int */
+    private static final int MAGIC = 0x5845544F;
+
+    /** Bump when the layout changes, older files are then rebuilt */
+    private static final int VERSION = 1;
+
+    /** Header bytes, the pixels start after them */
+    private static final int HEADER_BYTES = 64;
+
+    /** Most hash bytes the header has room for */
+    private static final int MAX_HASH_BYTES = HEADER_BYTES - 20;
+
+    private TextureCache() {
+    }
+
+    /**
+     * The cached texture in the given file, or null if there is no such file or it was
+     * built from a different source or by a different version
+     */
+    public static TextureImage read(Path file, byte sourceHash[]) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+
+        ByteBuffer header = mapped.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            return null;
+        }
+
+        int width = header.getInt(8);
+        int height = header.getInt(12);
+        int hashBytes = header.getInt(16);
+        if (width <= 0 || height <= 0 || hashBytes != sourceHash.length) {
+            return null;
+        }
+
+        byte hash[] = new byte[hashBytes];
+        header.position(20);
+        header.get(hash);
+        if (!Arrays.equals(hash, sourceHash)) {
+            return null;
+        }
+
+        if (mapped.capacity() - HEADER_BYTES != TextureImage.chainBytes(width, height)) {
+            return null;
+        }
+
+        ByteBuffer pixels = mapped.duplicate();
+        pixels.position(HEADER_BYTES);
+        return new TextureImage(width, height, pixels.slice());
+    }
+
+    /** Write a texture with its mipmaps, replacing the file in one step once it is complete */
+    public static void write(Path file, byte sourceHash[], TextureImage image) throws IOException {
+        if (sourceHash.length > MAX_HASH_BYTES) {
+            throw new IllegalArgumentException("Source hash of " + sourceHash.length + " bytes is too long");
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(image.getWidth()).putInt(image.getHeight());
+        header.putInt(sourceHash.length).put(sourceHash);
+        header.clear();
+
+        ByteBuffer pixels = image.getPixels().duplicate();
+        pixels.limit(TextureImage.chainBytes(image.getWidth(), image.getHeight())).position(0);
+
+        Buffers.writeAtomically(file, header, pixels);
+    }
+}
@@ -0,0 +1,112 @@
+package ocean;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Description: An RGBA texture with its full mipmap chain in one direct buffer,
+ *    level 0 first and each level half the size of the one before (at least one pixel),
+ *    tightly packed with rows from the top of the image down. The buffer can be freshly
+ *    decoded or memory-mapped from the texture cache and is uploaded as it is
+ */
+public class TextureImage {
+
+    /** Bytes per pixel, red, green, blue and alpha */
+    public static final int PIXEL_BYTES = 4;
+
+    private final int width;
+    private final int height;
+
+    /** Pixels of every level */
+    private final ByteBuffer pixels;
+
+    /** Byte offset of each level in pixels */
+    private final int levelOffsets[];
+
+    /** An image over existing pixels, which must hold the whole mipmap chain */
+    public TextureImage(int width, int height, ByteBuffer pixels) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Texture size must be positive: " + width + "x" + height);
+        }
+
+        this.width = width;
+        this.height = height;
+
+        levelOffsets = new int[levelCount(width, height)];
+        int offset = 0;
+        for (int level = 0; level < levelOffsets.length; level++) {
+            levelOffsets[level] = offset;
+            offset += levelWidth(width, level) * levelHeight(height, level) * PIXEL_BYTES;
+        }
+
+        if (pixels.capacity() < offset) {
+            throw new IllegalArgumentException("Texture buffer holds " + pixels.capacity()
+                    + " bytes, the mipmap chain needs " + offset);
+        }
+        this.pixels = pixels;
+    }
+
+    /** An image with room for the whole mipmap chain, pixels uninitialised */
+    public static TextureImage allocate(int width, int height) {
+        return new TextureImage(width, height, Buffers.createByteBuffer(chainBytes(width, height)));
+    }
+
+    /** Number of levels down to one pixel */
+    public static int levelCount(int width, int height) {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(width, height));
+    }
+
+    static int levelWidth(int width, int level) {
+        return Math.max(1, width >> level);
+    }
+
+    static int levelHeight(int height, int level) {
+        return Math.max(1, height >> level);
+    }
+
+    /** Bytes taken by the whole mipmap chain */
+    public static int chainBytes(int width, int height) {
+        int bytes = 0;
+        for (int level = 0; level < levelCount(width, height); level++) {
+            bytes += levelWidth(width, level) * levelHeight(height, level) * PIXEL_BYTES;
+        }
+        return bytes;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getLevelCount() {
+        return levelOffsets.length;
+    }
+
+    public int getLevelWidth(int level) {
+        return levelWidth(width, level);
+    }
+
+    public int getLevelHeight(int level) {
+        return levelHeight(height, level);
+    }
+
+    /** Byte offset of a level within getPixels() */
+    public int getLevelOffset(int level) {
+        return levelOffsets[level];
+    }
+
+    /** The pixels of every level, a live buffer positioned at zero */
+    public ByteBuffer getPixels() {
+        return pixels;
+    }
+
+    /** The pixels of one level, as a new buffer sharing the image's memory */
+    public ByteBuffer getLevel(int level) {
+        ByteBuffer view = pixels.duplicate();
+        int offset = levelOffsets[level];
+        view.limit(offset + getLevelWidth(level) * getLevelHeight(level) * PIXEL_BYTES).position(offset);
+        return view.slice();
+    }
+}
@@ -0,0 +1,43 @@
+package ocean;
+
+/**
+ * Description: The world before and after one simulation tick, published together
+ *    so a reader can interpolate between two consecutive ticks however many
+ *    ticks it has missed
+ */
+public class TickSnapshot {
+
+    /** State at the tick before */
+    private final WorldSnapshot previous;
+
+    /** State at the published tick */
+    private final WorldSnapshot current;
+
+    /** System.nanoTime() when the tick was published */
+    private long publishedNanos = 0;
+
+    public TickSnapshot(int fishCount, int boatCount) {
+        previous = new WorldSnapshot(fishCount, boatCount);
+        current = new WorldSnapshot(fishCount, boatCount);
+    }
+
+    public WorldSnapshot getPrevious() {
+        return previous;
+    }
+
+    public WorldSnapshot getCurrent() {
+        return current;
+    }
+
+    public long getTick() {
+        return current.getTick();
+    }
+
+    public long getPublishedNanos() {
+        return publishedNanos;
+    }
+
+    void setPublishedNanos(long publishedNanos) {
+        this.publishedNanos = publishedNanos;
+    }
+}
@@ -0,0 +1,68 @@
+package ocean;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+
+/**
+ * Description: A mesh uploaded once into an OpenGL vertex buffer object,
+ *    drawn with the fixed-function vertex, normal and texture coordinate arrays
+ */
+public class VboMesh {
+
+    /** OpenGL name of the vertex buffer */
+    private final int buffer;
+
+    /** Number of vertices to draw */
+    private final int vertexCount;
+
+    /** If texture coordinates should be supplied */
+    private final boolean textured;
+
+    /** Upload the mesh. Needs a current OpenGL 1.5 context */
+    public VboMesh(Mesh mesh) {
+        buffer = GL15.glGenBuffers();
+        vertexCount = mesh.getVertexCount();
+        textured = mesh.isTextured();
+
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, buffer);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, mesh.getData(), GL15.GL_STATIC_DRAW);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    }
+
+    /** Draw the whole mesh using the current OpenGL material settings */
+    public void draw() {
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, buffer);
+        GL11.glEnableClientState(GL11.GL_VERTEX_ARRAY);
+        GL11.glEnableClientState(GL11.GL_NORMAL_ARRAY);
+        GL11.glVertexPointer(3, GL11.GL_FLOAT, Mesh.STRIDE, Mesh.POSITION_OFFSET);
+        GL11.glNormalPointer(GL11.GL_FLOAT, Mesh.STRIDE, Mesh.NORMAL_OFFSET);
+
+        if (textured) {
+            GL11.glEnableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+            GL11.glTexCoordPointer(2, GL11.GL_FLOAT, Mesh.STRIDE, Mesh.TEXCOORD_OFFSET);
+        }
+
+        GL11.glDrawArrays(GL11.GL_TRIANGLES, 0, vertexCount);
+
+        if (textured) {
+            GL11.glDisableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+        }
+        GL11.glDisableClientState(GL11.GL_NORMAL_ARRAY);
+        GL11.glDisableClientState(GL11.GL_VERTEX_ARRAY);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    }
+
+    /** Free the vertex buffer */
+    public void delete() {
+        GL15.glDeleteBuffers(buffer);
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    /** OpenGL name of the vertex buffer, for drawing it through other vertex attributes */
+    public int getBuffer() {
+        return buffer;
+    }
+}
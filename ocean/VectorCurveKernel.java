@@ -0,0 +1,87 @@
+package ocean;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Description: Curve evaluation with the Java Vector API, as many entities per step as
+ *    the machine's preferred vector holds. Every lane does exactly the float operations
+ *    ScalarCurveKernel does, in the same order, so results are bit-identical; the
+ *    entities left over after the last whole vector go through the scalar code.
+ *    Needs --add-modules jdk.incubator.vector, see CurveKernels.best()
+ */
+public class VectorCurveKernel implements CurveKernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    public void sine(float time, float frequency, float amplitude, float offset,
+            float phase[], float out[], int count) {
+        int bound = SPECIES.loopBound(count);
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            FloatVector x = FloatVector.fromArray(SPECIES, phase, i).add(time).mul(frequency);
+            sin(x).mul(amplitude).add(offset).intoArray(out, i);
+        }
+
+        ScalarCurveKernel.sine(time, frequency, amplitude, offset, phase, out, bound, count);
+    }
+
+    /** ScalarCurveKernel.sin() a lane at a time */
+    private static FloatVector sin(FloatVector x) {
+        /** Reduce to -pi to pi by taking off the nearest whole number of turns */
+        FloatVector turns = x.mul(ScalarCurveKernel.INVERSE_TWO_PI).add(ScalarCurveKernel.ROUNDING)
+                .sub(ScalarCurveKernel.ROUNDING);
+        FloatVector r = x.sub(turns.mul(ScalarCurveKernel.TWO_PI_HIGH)).sub(turns.mul(ScalarCurveKernel.TWO_PI_LOW));
+
+        /** Fold into -pi/2 to pi/2 */
+        VectorMask<Float> high = r.compare(VectorOperators.GT, ScalarCurveKernel.HALF_PI);
+        VectorMask<Float> low = r.compare(VectorOperators.LT, -ScalarCurveKernel.HALF_PI);
+        r = r.blend(FloatVector.broadcast(SPECIES, ScalarCurveKernel.PI).sub(r), high)
+                .blend(FloatVector.broadcast(SPECIES, -ScalarCurveKernel.PI).sub(r), low);
+
+        FloatVector r2 = r.mul(r);
+        FloatVector polynomial = r2.mul(ScalarCurveKernel.S11).add(ScalarCurveKernel.S9)
+                .mul(r2).add(ScalarCurveKernel.S7)
+                .mul(r2).add(ScalarCurveKernel.S5)
+                .mul(r2).add(ScalarCurveKernel.S3);
+        return r.mul(r2).mul(polynomial).add(r);
+    }
+
+    /** ScalarCurveKernel.floor() a lane at a time */
+    private static FloatVector floor(FloatVector x) {
+        FloatVector rounded = x.add(ScalarCurveKernel.ROUNDING).sub(ScalarCurveKernel.ROUNDING);
+        return rounded.sub(1f, rounded.compare(VectorOperators.GT, x));
+    }
+
+    public void keyframes(float time, float period, float values[], int keyCount,
+            float phase[], float out[], int count) {
+        float keysPerTime = keyCount / period;
+
+        /** Keys and fractions of one vector of entities, per call so the kernel can be shared between threads */
+        float keys[] = new float[SPECIES.length()];
+        float fractions[] = new float[SPECIES.length()];
+
+        int bound = SPECIES.loopBound(count);
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            FloatVector position = FloatVector.fromArray(SPECIES, phase, i).add(time).mul(keysPerTime);
+            position = position.sub(floor(position.div(keyCount)).mul(keyCount));
+
+            FloatVector key = floor(position).max(0f).min(keyCount - 1);
+            position.sub(key).intoArray(fractions, 0);
+            key.intoArray(keys, 0);
+
+            /** Looking the keys up is a gather, quicker lane by lane than as a vector operation */
+            for (int lane = 0; lane < keys.length; lane++) {
+                int k = (int) keys[lane];
+                out[i + lane] = values[k] + (values[k + 1] - values[k]) * fractions[lane];
+            }
+        }
+
+        ScalarCurveKernel.keyframes(time, period, values, keyCount, phase, out, bound, count);
+    }
+
+    public String getName() {
+        return "vector (" + SPECIES.length() + " lanes)";
+    }
+}
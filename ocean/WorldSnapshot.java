@@ -0,0 +1,96 @@
+package ocean;
+
+/**
+ * Description: A copy of the drawable state of a world at one simulation tick,
+ *    in arrays of its own so the simulation can carry on stepping the world
+ */
+public class WorldSnapshot implements OceanState {
+
+    private final float fishPosX[];
+    private final float fishPosY[];
+    private final float fishPosZ[];
+    private final float fishTilt[];
+    private final float boatPosX[];
+    private final float boatPosY[];
+    private final float boatPitch[];
+    private final float boatRoll[];
+
+    /** Simulation tick the copy was taken at */
+    private long tick = 0;
+
+    /** Animation timer of the world at that tick */
+    private float animationDelta = 0.0f;
+
+    public WorldSnapshot(int fishCount, int boatCount) {
+        fishPosX = new float[fishCount];
+        fishPosY = new float[fishCount];
+        fishPosZ = new float[fishCount];
+        fishTilt = new float[fishCount];
+        boatPosX = new float[boatCount];
+        boatPosY = new float[boatCount];
+        boatPitch = new float[boatCount];
+        boatRoll = new float[boatCount];
+    }
+
+    /** Copy the world's current state, the world must have the same entity counts */
+    public void copyFrom(OceanWorld world, long tick) {
+        System.arraycopy(world.getFishPosX(), 0, fishPosX, 0, fishPosX.length);
+        System.arraycopy(world.getFishPosY(), 0, fishPosY, 0, fishPosY.length);
+        System.arraycopy(world.getFishPosZ(), 0, fishPosZ, 0, fishPosZ.length);
+        System.arraycopy(world.getFishTilt(), 0, fishTilt, 0, fishTilt.length);
+        System.arraycopy(world.getBoatPosX(), 0, boatPosX, 0, boatPosX.length);
+        System.arraycopy(world.getBoatPosY(), 0, boatPosY, 0, boatPosY.length);
+        System.arraycopy(world.getBoatPitch(), 0, boatPitch, 0, boatPitch.length);
+        System.arraycopy(world.getBoatRoll(), 0, boatRoll, 0, boatRoll.length);
+        this.tick = tick;
+        this.animationDelta = world.getAnimationDelta();
+    }
+
+    public int getFishCount() {
+        return fishPosX.length;
+    }
+
+    public int getBoatCount() {
+        return boatPosX.length;
+    }
+
+    public float[] getFishPosX() {
+        return fishPosX;
+    }
+
+    public float[] getFishPosY() {
+        return fishPosY;
+    }
+
+    public float[] getFishPosZ() {
+        return fishPosZ;
+    }
+
+    public float[] getFishTilt() {
+        return fishTilt;
+    }
+
+    public float[] getBoatPosX() {
+        return boatPosX;
+    }
+
+    public float[] getBoatPosY() {
+        return boatPosY;
+    }
+
+    public float[] getBoatPitch() {
+        return boatPitch;
+    }
+
+    public float[] getBoatRoll() {
+        return boatRoll;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public float getAnimationDelta() {
+        return animationDelta;
+    }
+}
@@ -0,0 +1,7 @@
+#version 150 compatibility
+
+in vec4 colour;
+
+void main() {
+    gl_FragColor = colour;
+}
@@ -0,0 +1,105 @@
+#version 150 compatibility
+
+/*
+ * Instanced fish: one draw per fish part, each instance carrying the fish's
+ * x, y, z and tail tilt. Mirrors the transforms renderScene() applies to the
+ * single fish: T(x, y, z) S(0.3, 0.3, 1), then for the tail Ry(tilt) T(-1, 0, 0)
+ * and for the eyes T(1.15, 0.25, +-0.2). Lit per vertex with the two
+ * fixed-function lights and the current glMaterial settings, plus up to six
+ * glow lights picked for the fish, lit as the fixed-function glow light slots
+ * light fish drawn one by one: diffuse only, with quadratic attenuation.
+ */
+
+/**
+ * 0 = body, 1 = tail, 2 = eyes (two instances per fish, left then right),
+ * 3 = merged body and tail, 4 = impostor; the last two are placed like the body
+ */
+uniform int part;
+
+in vec3 position;
+in vec3 normal;
+
+/** x, y, z, tail tilt in degrees */
+in vec4 fish;
+
+/** Indices of the fish's glow lights, -1 for an empty slot */
+in vec3 fishLightsA;
+in vec3 fishLightsB;
+
+/** If glow lights are set */
+uniform bool glowLighting;
+
+/** Two texels per glow light: world position, then colour with the quadratic attenuation in w */
+uniform samplerBuffer glowLights;
+
+out vec4 colour;
+
+vec3 lightContribution(int light, vec3 eyePosition, vec3 eyeNormal) {
+    vec3 toLight = normalize(gl_LightSource[light].position.xyz - eyePosition * gl_LightSource[light].position.w);
+    vec3 toEye = normalize(-eyePosition);
+
+    float diffuse = max(dot(eyeNormal, toLight), 0.0);
+    float specular = diffuse > 0.0
+            ? pow(max(dot(eyeNormal, normalize(toLight + toEye)), 0.0), gl_FrontMaterial.shininess)
+            : 0.0;
+
+    return gl_FrontLightProduct[light].ambient.rgb
+            + gl_FrontLightProduct[light].diffuse.rgb * diffuse
+            + gl_FrontLightProduct[light].specular.rgb * specular;
+}
+
+vec3 glowContribution(float index, vec3 eyePosition, vec3 eyeNormal) {
+    if (index < 0.0) {
+        return vec3(0.0);
+    }
+
+    /** Positions are in world space, and the modelview is just the camera */
+    int texel = int(index) * 2;
+    vec3 toLight = (gl_ModelViewMatrix * texelFetch(glowLights, texel)).xyz - eyePosition;
+    vec4 glow = texelFetch(glowLights, texel + 1);
+
+    float diffuse = max(dot(eyeNormal, normalize(toLight)), 0.0);
+    float attenuation = 1.0 / (1.0 + glow.w * dot(toLight, toLight));
+    return gl_FrontMaterial.diffuse.rgb * glow.rgb * diffuse * attenuation;
+}
+
+void main() {
+    vec3 local = position;
+    vec3 localNormal = normal;
+
+    if (part == 1) {
+        /** Tail: move back along the body, then swing by the tilt about y */
+        float angle = radians(fish.w);
+        mat3 rotateY = mat3(cos(angle), 0.0, -sin(angle),
+                            0.0,        1.0,  0.0,
+                            sin(angle), 0.0,  cos(angle));
+        local = rotateY * (local + vec3(-1.0, 0.0, 0.0));
+        localNormal = rotateY * localNormal;
+    } else if (part == 2) {
+        /** Eyes: even instances are the left eye, odd the right */
+        float side = (gl_InstanceID % 2 == 0) ? 0.2 : -0.2;
+        local += vec3(1.15, 0.25, side);
+    }
+
+    /** Body scale, the normal takes the inverse scale to stay perpendicular */
+    vec3 scale = vec3(0.3, 0.3, 1.0);
+    vec4 world = vec4(local * scale + fish.xyz, 1.0);
+    vec3 worldNormal = localNormal / scale;
+
+    vec4 eyePosition = gl_ModelViewMatrix * world;
+    vec3 eyeNormal = normalize(gl_NormalMatrix * worldNormal);
+
+    vec3 lit = gl_FrontLightModelProduct.sceneColor.rgb
+            + lightContribution(0, eyePosition.xyz, eyeNormal)
+            + lightContribution(1, eyePosition.xyz, eyeNormal);
+
+    if (glowLighting) {
+        for (int slot = 0; slot < 3; slot++) {
+            lit += glowContribution(fishLightsA[slot], eyePosition.xyz, eyeNormal)
+                    + glowContribution(fishLightsB[slot], eyePosition.xyz, eyeNormal);
+        }
+    }
+
+    colour = vec4(clamp(lit, 0.0, 1.0), gl_FrontMaterial.diffuse.a);
+    gl_Position = gl_ProjectionMatrix * eyePosition;
+}